@@ -0,0 +1,66 @@
+package pl.allegro.tech.hermes.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.Objects;
+
+public class ProducerBatching {
+
+    public static final int MAX_LINGER_MS = 1000;
+    public static final int MIN_BATCH_SIZE = 1024;
+    public static final int MAX_BATCH_SIZE = 4 * 1024 * 1024;
+
+    @Min(0)
+    @Max(MAX_LINGER_MS)
+    private final Integer lingerMs;
+
+    @Min(MIN_BATCH_SIZE)
+    @Max(MAX_BATCH_SIZE)
+    private final Integer batchSize;
+
+    @JsonCreator
+    public ProducerBatching(@JsonProperty("lingerMs") Integer lingerMs,
+                            @JsonProperty("batchSize") Integer batchSize) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+    }
+
+    public static ProducerBatching defaults() {
+        return new ProducerBatching(null, null);
+    }
+
+    public Integer getLingerMs() {
+        return lingerMs;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    @JsonIgnore
+    public boolean isOverridden() {
+        return lingerMs != null || batchSize != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProducerBatching that = (ProducerBatching) o;
+        return Objects.equals(lingerMs, that.lingerMs)
+                && Objects.equals(batchSize, that.batchSize);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lingerMs, batchSize);
+    }
+}
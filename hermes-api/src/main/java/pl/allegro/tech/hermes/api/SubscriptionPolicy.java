@@ -36,6 +36,11 @@ public class SubscriptionPolicy {
 
     private boolean retryClientErrors = false;
 
+    private boolean adaptiveInflightSize = false;
+
+    @Min(0)
+    private int partitionInflightSize = 0;
+
     private SubscriptionPolicy() {
     }
 
@@ -45,12 +50,36 @@ public class SubscriptionPolicy {
                               boolean retryClientErrors,
                               int messageBackoff,
                               Integer inflightSize) {
+        this(rate, messageTtl, requestTimeout, retryClientErrors, messageBackoff, inflightSize, false);
+    }
+
+    public SubscriptionPolicy(int rate,
+                              int messageTtl,
+                              int requestTimeout,
+                              boolean retryClientErrors,
+                              int messageBackoff,
+                              Integer inflightSize,
+                              boolean adaptiveInflightSize) {
+        this(rate, messageTtl, requestTimeout, retryClientErrors, messageBackoff, inflightSize, adaptiveInflightSize,
+                0);
+    }
+
+    public SubscriptionPolicy(int rate,
+                              int messageTtl,
+                              int requestTimeout,
+                              boolean retryClientErrors,
+                              int messageBackoff,
+                              Integer inflightSize,
+                              boolean adaptiveInflightSize,
+                              int partitionInflightSize) {
         this.rate = rate;
         this.messageTtl = messageTtl;
         this.requestTimeout = requestTimeout;
         this.retryClientErrors = retryClientErrors;
         this.messageBackoff = messageBackoff;
         this.inflightSize = inflightSize;
+        this.adaptiveInflightSize = adaptiveInflightSize;
+        this.partitionInflightSize = partitionInflightSize;
     }
 
     @JsonCreator
@@ -61,13 +90,16 @@ public class SubscriptionPolicy {
                 (Integer) properties.getOrDefault("requestTimeout", DEFAULT_REQUEST_TIMEOUT),
                 (Boolean) properties.getOrDefault("retryClientErrors", false),
                 (Integer) properties.getOrDefault("messageBackoff", DEFAULT_MESSAGE_BACKOFF),
-                (Integer) properties.getOrDefault("inflightSize", DEFAULT_INFLIGHT_SIZE)
+                (Integer) properties.getOrDefault("inflightSize", DEFAULT_INFLIGHT_SIZE),
+                (Boolean) properties.getOrDefault("adaptiveInflightSize", false),
+                (Integer) properties.getOrDefault("partitionInflightSize", 0)
         );
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(rate, messageTtl, messageBackoff, retryClientErrors, requestTimeout, inflightSize);
+        return Objects.hash(rate, messageTtl, messageBackoff, retryClientErrors, requestTimeout, inflightSize,
+                adaptiveInflightSize, partitionInflightSize);
     }
 
     @Override
@@ -84,7 +116,9 @@ public class SubscriptionPolicy {
                 && Objects.equals(this.messageBackoff, other.messageBackoff)
                 && Objects.equals(this.retryClientErrors, other.retryClientErrors)
                 && Objects.equals(this.requestTimeout, other.requestTimeout)
-                && Objects.equals(this.inflightSize, other.inflightSize);
+                && Objects.equals(this.inflightSize, other.inflightSize)
+                && Objects.equals(this.adaptiveInflightSize, other.adaptiveInflightSize)
+                && Objects.equals(this.partitionInflightSize, other.partitionInflightSize);
     }
 
     @Override
@@ -96,6 +130,8 @@ public class SubscriptionPolicy {
                 .add("messageBackoff", messageBackoff)
                 .add("retryClientErrors", retryClientErrors)
                 .add("inflightSize", inflightSize)
+                .add("adaptiveInflightSize", adaptiveInflightSize)
+                .add("partitionInflightSize", partitionInflightSize)
                 .toString();
     }
 
@@ -127,6 +163,14 @@ public class SubscriptionPolicy {
         return inflightSize;
     }
 
+    public Boolean isAdaptiveInflightSize() {
+        return adaptiveInflightSize;
+    }
+
+    public Integer getPartitionInflightSize() {
+        return partitionInflightSize;
+    }
+
     public static class Builder {
 
         private SubscriptionPolicy subscriptionPolicy;
@@ -171,6 +215,16 @@ public class SubscriptionPolicy {
             return this;
         }
 
+        public Builder withAdaptiveInflightSize() {
+            subscriptionPolicy.adaptiveInflightSize = true;
+            return this;
+        }
+
+        public Builder withPartitionInflightSize(int partitionInflightSize) {
+            subscriptionPolicy.partitionInflightSize = partitionInflightSize;
+            return this;
+        }
+
         public static Builder subscriptionPolicy() {
             return new Builder();
         }
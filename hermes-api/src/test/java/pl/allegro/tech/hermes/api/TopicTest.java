@@ -34,4 +34,31 @@ public class TopicTest {
         // then
         assertThat(topic.isReplicationConfirmRequired()).isEqualTo(false);
     }
+
+    @Test
+    public void shouldUseDefaultProducerBatchingIfNotPresentInJson() throws Exception {
+        // given
+        String json = "{\"name\":\"foo.bar\", \"description\": \"description\"}";
+
+        // when
+        Topic topic = objectMapper.readValue(json, Topic.class);
+
+        // then
+        assertThat(topic.getProducerBatching().isOverridden()).isFalse();
+    }
+
+    @Test
+    public void shouldDeserializeProducerBatchingOverrides() throws Exception {
+        // given
+        String json = "{\"name\":\"foo.bar\", \"description\": \"description\", "
+                + "\"producerBatching\": {\"lingerMs\": 5, \"batchSize\": 65536}}";
+
+        // when
+        Topic topic = objectMapper.readValue(json, Topic.class);
+
+        // then
+        assertThat(topic.getProducerBatching().getLingerMs()).isEqualTo(5);
+        assertThat(topic.getProducerBatching().getBatchSize()).isEqualTo(65536);
+        assertThat(topic.getProducerBatching().isOverridden()).isTrue();
+    }
 }
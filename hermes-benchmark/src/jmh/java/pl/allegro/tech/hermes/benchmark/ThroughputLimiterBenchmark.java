@@ -0,0 +1,42 @@
+package pl.allegro.tech.hermes.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import pl.allegro.tech.hermes.benchmark.environment.ThroughputLimiterEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ThroughputLimiterBenchmark {
+
+    @Benchmark
+    public boolean benchmarkQuotaCheck(ThroughputLimiterEnvironment environment) {
+        return environment.publish();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + ThroughputLimiterBenchmark.class.getSimpleName() + ".*")
+                .warmupIterations(4)
+                .measurementIterations(4)
+                .measurementTime(TimeValue.seconds(10))
+                .warmupTime(TimeValue.seconds(10))
+                .forks(1)
+                .threads(8)
+                .syncIterations(false)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
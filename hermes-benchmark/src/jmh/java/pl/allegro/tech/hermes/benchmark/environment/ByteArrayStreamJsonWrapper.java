@@ -0,0 +1,54 @@
+package pl.allegro.tech.hermes.benchmark.environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pl.allegro.tech.hermes.common.message.wrapper.MessageMetadata;
+import pl.allegro.tech.hermes.common.message.wrapper.UnwrappedMessageContent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.primitives.Bytes.indexOf;
+import static java.util.Arrays.copyOfRange;
+
+/**
+ * Stream based json envelope wrapping used by hermes before single-pass wrapping, kept as a benchmark baseline.
+ */
+public class ByteArrayStreamJsonWrapper {
+
+    private static final byte[] SEPARATOR = ",".getBytes(UTF_8);
+    private static final byte[] WRAPPED_MARKER = "\"_w\":true".getBytes(UTF_8);
+    private static final byte[] CONTENT_ROOT_FIELD = "\"message\":".getBytes(UTF_8);
+    private static final byte[] METADATA_ROOT_FIELD = "\"metadata\":".getBytes(UTF_8);
+    private static final int BRACKET_LENGTH = 1;
+
+    private final ObjectMapper mapper;
+
+    public ByteArrayStreamJsonWrapper(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public byte[] wrapContent(byte[] json, String id, long timestamp, Map<String, String> externalMetadata) throws IOException {
+        byte[] attributes = mapper.writeValueAsBytes(new MessageMetadata(timestamp, id, externalMetadata));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write('{');
+        stream.write(WRAPPED_MARKER);
+        stream.write(SEPARATOR);
+        stream.write(METADATA_ROOT_FIELD);
+        stream.write(attributes);
+        stream.write(SEPARATOR);
+        stream.write(CONTENT_ROOT_FIELD);
+        stream.write(json);
+        stream.write('}');
+        return stream.toByteArray();
+    }
+
+    public UnwrappedMessageContent unwrapContent(byte[] json) throws IOException {
+        int rootIndex = indexOf(json, CONTENT_ROOT_FIELD);
+        int metadataIndex = indexOf(json, METADATA_ROOT_FIELD);
+        byte[] metadata = copyOfRange(json, metadataIndex + METADATA_ROOT_FIELD.length, rootIndex + BRACKET_LENGTH);
+        byte[] content = copyOfRange(json, rootIndex + CONTENT_ROOT_FIELD.length, json.length - BRACKET_LENGTH);
+        return new UnwrappedMessageContent(mapper.readValue(metadata, MessageMetadata.class), content);
+    }
+}
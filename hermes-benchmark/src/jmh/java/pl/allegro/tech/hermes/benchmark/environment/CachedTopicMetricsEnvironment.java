@@ -0,0 +1,57 @@
+package pl.allegro.tech.hermes.benchmark.environment;
+
+import com.codahale.metrics.MetricRegistry;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.allegro.tech.hermes.api.Topic;
+import pl.allegro.tech.hermes.common.kafka.NamespaceKafkaNamesMapper;
+import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.common.metric.timer.StartedTimersPair;
+import pl.allegro.tech.hermes.frontend.metric.CachedTopic;
+import pl.allegro.tech.hermes.metrics.PathsCompiler;
+import pl.allegro.tech.hermes.test.helper.builder.TopicBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@State(Scope.Benchmark)
+public class CachedTopicMetricsEnvironment {
+
+    private static final int MESSAGE_SIZE = 1024;
+
+    @Param({"false", "true"})
+    private boolean lightweightMetrics;
+
+    @Param({"10", "10000"})
+    private int topicsCount;
+
+    private CachedTopic[] topics;
+
+    @Setup
+    public void setup() {
+        HermesMetrics hermesMetrics = new HermesMetrics(new MetricRegistry(), new PathsCompiler("localhost"));
+        NamespaceKafkaNamesMapper kafkaNamesMapper = new NamespaceKafkaNamesMapper("");
+        topics = new CachedTopic[topicsCount];
+        for (int i = 0; i < topicsCount; i++) {
+            Topic topic = TopicBuilder.topic("pl.allegro.tech.hermes.benchmark", "topic" + i).build();
+            topics[i] = new CachedTopic(topic, hermesMetrics, kafkaNamesMapper.toKafkaTopics(topic), false, lightweightMetrics);
+        }
+    }
+
+    /**
+     * Records metrics of a single successful publication, in the same order as publishing handlers do.
+     */
+    public void publish() {
+        CachedTopic topic = topics[ThreadLocalRandom.current().nextInt(topicsCount)];
+        topic.markRequestMeter();
+        try (StartedTimersPair ignored = topic.startRequestReadTimers()) {
+            topic.reportMessageContentSize(MESSAGE_SIZE);
+        }
+        try (StartedTimersPair ignored = topic.startMessageCreationTimers()) {
+            topic.startBrokerLatencyTimers().close();
+        }
+        topic.incrementPublished();
+        topic.markStatusCodeMeter(201);
+    }
+}
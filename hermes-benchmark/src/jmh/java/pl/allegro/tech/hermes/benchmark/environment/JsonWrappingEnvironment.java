@@ -0,0 +1,63 @@
+package pl.allegro.tech.hermes.benchmark.environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.allegro.tech.hermes.common.message.wrapper.JsonMessageContentWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+@State(Scope.Benchmark)
+public class JsonWrappingEnvironment {
+
+    private static final String MESSAGE_ID = "14cf17ea-f1ea-a464-6bd6478615bb";
+    private static final long TIMESTAMP = 1498226400000L;
+    private static final Map<String, String> EXTERNAL_METADATA = ImmutableMap.of("Trace-Id", "2f1e0aa3-2d4b-4f5c-8b4c-54c1a3d3f3e1");
+
+    @Param({"100", "1024", "10240", "102400"})
+    private int payloadSize;
+
+    private JsonMessageContentWrapper wrapper;
+    private ByteArrayStreamJsonWrapper baselineWrapper;
+    private byte[] payload;
+    private byte[] wrappedPayload;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        wrapper = new JsonMessageContentWrapper("message", "metadata", mapper);
+        baselineWrapper = new ByteArrayStreamJsonWrapper(mapper);
+        payload = payload(payloadSize);
+        wrappedPayload = wrapper.wrapContent(payload, MESSAGE_ID, TIMESTAMP, EXTERNAL_METADATA);
+    }
+
+    public byte[] wrap() {
+        return wrapper.wrapContent(payload, MESSAGE_ID, TIMESTAMP, EXTERNAL_METADATA);
+    }
+
+    public byte[] wrapWithBaseline() throws IOException {
+        return baselineWrapper.wrapContent(payload, MESSAGE_ID, TIMESTAMP, EXTERNAL_METADATA);
+    }
+
+    public Object unwrap() {
+        return wrapper.unwrapContent(wrappedPayload);
+    }
+
+    public Object unwrapWithBaseline() throws IOException {
+        return baselineWrapper.unwrapContent(wrappedPayload);
+    }
+
+    private static byte[] payload(int size) {
+        StringBuilder builder = new StringBuilder("{\"data\":\"");
+        while (builder.length() < size - 2) {
+            builder.append('x');
+        }
+        return builder.append("\"}").toString().getBytes(UTF_8);
+    }
+}
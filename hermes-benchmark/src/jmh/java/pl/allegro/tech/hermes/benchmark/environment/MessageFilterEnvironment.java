@@ -0,0 +1,90 @@
+package pl.allegro.tech.hermes.benchmark.environment;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.allegro.tech.hermes.api.ContentType;
+import pl.allegro.tech.hermes.api.MessageFilterSpecification;
+import pl.allegro.tech.hermes.api.Subscription;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
+import pl.allegro.tech.hermes.common.kafka.offset.PartitionOffset;
+import pl.allegro.tech.hermes.consumers.consumer.Message;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.MessageFilters;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChain;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChainFactory;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.json.JsonPathSubscriptionMessageFilterCompiler;
+import pl.allegro.tech.hermes.test.helper.builder.SubscriptionBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Optional;
+
+import static pl.allegro.tech.hermes.test.helper.builder.SubscriptionBuilder.subscription;
+
+@State(Scope.Benchmark)
+public class MessageFilterEnvironment {
+
+    private static final String[][] DEFINITE_FILTERS = {
+            {"$.type", "donut"},
+            {"$.batters.batter[1].type", "^Choco.*"},
+            {"$.ppu", "0\\.5.*"}
+    };
+
+    private static final String[][] INDEFINITE_FILTERS = {
+            {"$.type", "donut"},
+            {"$.topping[?(@.id == 5001)].type", "None"},
+            {"$.[?(@.ppu > 0.5)].name", "Cake"}
+    };
+
+    @Param({"definite", "indefinite"})
+    private String paths;
+
+    private FilterChain filterChain;
+
+    private Message message;
+
+    @Setup
+    public void setup() {
+        SubscriptionBuilder builder = subscription("pl.allegro.tech.hermes.benchmark.topic", "subscription");
+        for (String[] filter : "definite".equals(paths) ? DEFINITE_FILTERS : INDEFINITE_FILTERS) {
+            builder.withFilter(new MessageFilterSpecification(ImmutableMap.of(
+                    "type", "jsonpath", "path", filter[0], "matcher", filter[1])));
+        }
+        Subscription subscription = builder.build();
+
+        MessageFilters filters = new MessageFilters(Collections.emptyList(),
+                Collections.singletonList(new JsonPathSubscriptionMessageFilterCompiler()));
+        filterChain = new FilterChainFactory(filters).create(subscription);
+
+        message = new Message(
+                "id",
+                subscription.getQualifiedTopicName(),
+                loadMessageContent(),
+                ContentType.JSON,
+                Optional.empty(),
+                System.currentTimeMillis(),
+                System.currentTimeMillis(),
+                new PartitionOffset(KafkaTopicName.valueOf("pl_allegro_tech_hermes_benchmark_topic"), 0, 0),
+                Collections.emptyMap(),
+                Collections.emptyList());
+    }
+
+    public boolean filter() {
+        return filterChain.apply(message).isFiltered();
+    }
+
+    private static byte[] loadMessageContent() {
+        StringBuilder toppings = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            toppings.append(i == 0 ? "" : ",")
+                    .append("{\"id\": \"").append(5001 + i).append("\", ")
+                    .append("\"type\": \"").append(i == 0 ? "None" : "Topping " + i).append("\"}");
+        }
+        String json = "{\"id\": \"0001\", \"type\": \"donut\", \"name\": \"Cake\", \"ppu\": 0.55, "
+                + "\"batters\": {\"batter\": [{\"id\": \"1001\", \"type\": \"Regular\"}, {\"id\": \"1002\", \"type\": \"Chocolate\"}]}, "
+                + "\"topping\": [" + toppings + "]}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+package pl.allegro.tech.hermes.benchmark.environment;
+
+import com.codahale.metrics.MetricRegistry;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.allegro.tech.hermes.common.config.ConfigFactory;
+import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.consumers.consumer.offset.OffsetCommitter;
+import pl.allegro.tech.hermes.consumers.consumer.offset.OffsetQueue;
+import pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset;
+import pl.allegro.tech.hermes.metrics.PathsCompiler;
+
+import static pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset.subscriptionPartitionOffset;
+
+@State(Scope.Benchmark)
+public class OffsetCommitterEnvironment {
+
+    private static final int PARTITIONS_PER_SUBSCRIPTION = 8;
+
+    @Param({"10000", "100000"})
+    private int messagesPerRun;
+
+    @Param({"8", "800"})
+    private int partitionsCount;
+
+    private OffsetQueue offsetQueue;
+    private OffsetCommitter offsetCommitter;
+
+    private SubscriptionPartitionOffset[][] offsets;
+    private long[] nextOffset;
+    private long[] committedOffset;
+
+    @Setup
+    public void setup() {
+        HermesMetrics metrics = new HermesMetrics(new MetricRegistry(), new PathsCompiler("localhost"));
+        offsetQueue = new OffsetQueue(metrics, new ConfigFactory());
+        offsetCommitter = new OffsetCommitter(offsetQueue, offsetsToCommit -> { }, 1, metrics);
+
+        offsets = new SubscriptionPartitionOffset[partitionsCount][];
+        nextOffset = new long[partitionsCount];
+        committedOffset = new long[partitionsCount];
+    }
+
+    /**
+     * Reports next batch of offsets for every partition. All offsets left inflight by previous run get committed
+     * and so do all new offsets but the last tenth of each partition, which stays inflight until the next run.
+     */
+    @Setup(Level.Invocation)
+    public void reportOffsets() {
+        int perPartition = messagesPerRun / partitionsCount;
+        for (int partition = 0; partition < partitionsCount; partition++) {
+            String subscription = "pl.allegro.tech.hermes.benchmark$subscription" + partition / PARTITIONS_PER_SUBSCRIPTION;
+            int kafkaPartition = partition % PARTITIONS_PER_SUBSCRIPTION;
+            long first = nextOffset[partition];
+            for (long offset = first; offset < first + perPartition; offset++) {
+                offsetQueue.offerInflightOffset(
+                        subscriptionPartitionOffset("pl_allegro_tech_hermes_benchmark", subscription, kafkaPartition, offset));
+            }
+            nextOffset[partition] = first + perPartition;
+
+            long commitUpTo = nextOffset[partition] - perPartition / 10;
+            for (long offset = committedOffset[partition]; offset < commitUpTo; offset++) {
+                offsetQueue.offerCommittedOffset(
+                        subscriptionPartitionOffset("pl_allegro_tech_hermes_benchmark", subscription, kafkaPartition, offset));
+            }
+            committedOffset[partition] = commitUpTo;
+        }
+    }
+
+    public void commit() {
+        offsetCommitter.run();
+    }
+}
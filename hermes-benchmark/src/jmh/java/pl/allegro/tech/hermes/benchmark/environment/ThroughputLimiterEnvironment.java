@@ -0,0 +1,84 @@
+package pl.allegro.tech.hermes.benchmark.environment;
+
+import com.codahale.metrics.Meter;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import pl.allegro.tech.hermes.api.TopicName;
+import pl.allegro.tech.hermes.frontend.publishing.handlers.DynamicThroughputLimiter;
+import pl.allegro.tech.hermes.frontend.publishing.handlers.SlidingWindowThroughputLimiter;
+import pl.allegro.tech.hermes.frontend.publishing.handlers.ThroughputLimiter;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+@State(Scope.Benchmark)
+public class ThroughputLimiterEnvironment {
+
+    private static final long MAX = 100 * 1024 * 1024;
+    private static final long THRESHOLD = 80 * 1024 * 1024;
+    private static final long DESIRED = 60 * 1024 * 1024;
+    private static final double IDLE = 0.5;
+    private static final int CHECK_INTERVAL_SECONDS = 1;
+    private static final int WINDOW_SECONDS = 60;
+    private static final int MESSAGE_SIZE = 1024;
+
+    @Param({"dynamic", "sliding_window"})
+    private String limiterType;
+
+    @Param({"10", "1000"})
+    private int topicsCount;
+
+    private ThroughputLimiter limiter;
+    private ScheduledExecutorService executor;
+    private Meter globalThroughput;
+    private TopicName[] topics;
+    private Meter[] throughputs;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        globalThroughput = new Meter();
+        topics = new TopicName[topicsCount];
+        throughputs = new Meter[topicsCount];
+        for (int i = 0; i < topicsCount; i++) {
+            topics[i] = new TopicName("pl.allegro.tech.hermes.benchmark", "topic" + i);
+            throughputs[i] = new Meter();
+        }
+        limiter = createLimiter();
+        limiter.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        limiter.stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Mimics a single publication: quota is checked before and after reading message, as in MessageReadHandler.
+     */
+    public boolean publish() {
+        int topic = ThreadLocalRandom.current().nextInt(topicsCount);
+        boolean hasQuota = limiter.checkQuota(topics[topic], throughputs[topic]).hasQuota();
+        throughputs[topic].mark(MESSAGE_SIZE);
+        globalThroughput.mark(MESSAGE_SIZE);
+        return hasQuota & limiter.checkQuota(topics[topic], throughputs[topic]).hasQuota();
+    }
+
+    private ThroughputLimiter createLimiter() {
+        switch (limiterType) {
+            case "dynamic":
+                return new DynamicThroughputLimiter(MAX, THRESHOLD, DESIRED, IDLE, CHECK_INTERVAL_SECONDS,
+                        globalThroughput, executor);
+            case "sliding_window":
+                return new SlidingWindowThroughputLimiter(MAX, THRESHOLD, DESIRED, IDLE, CHECK_INTERVAL_SECONDS,
+                        WINDOW_SECONDS, globalThroughput, executor);
+            default:
+                throw new IllegalArgumentException("Unknown throughput limiter type " + limiterType);
+        }
+    }
+}
@@ -80,6 +80,11 @@ public enum Configs {
     KAFKA_PRODUCER_METRICS_SAMPLE_WINDOW_MS("kafka.producer.metrics.sample.window.ms", 30000),
     KAFKA_PRODUCER_MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION("kafka.producer.max.in.flight.requests.per.connection", 5),
     KAFKA_PRODUCER_REPORT_NODE_METRICS("kafka.producer.report.node.metrics", false),
+    KAFKA_PRODUCER_REPORT_TOPIC_METRICS("kafka.producer.report.topic.metrics", false),
+    KAFKA_PRODUCER_POOL_SIZE("kafka.producer.pool.size", 1),
+    KAFKA_PRODUCER_POOL_STRIPING("kafka.producer.pool.striping", "topic"),
+    KAFKA_PRODUCER_DEDICATED_BUFFER_MEMORY("kafka.producer.dedicated.buffer.memory", 32 * 1024 * 1024L),
+    KAFKA_PRODUCER_DEDICATED_MAX_COUNT("kafka.producer.dedicated.max.count", 4),
     KAFKA_STREAM_COUNT("kafka.stream.count", 1),
 
     FRONTEND_PORT("frontend.port", 8080),
@@ -99,10 +104,13 @@ public enum Configs {
     FRONTEND_REQUEST_DUMPER("frontend.request.dumper", false),
     FRONTEND_BUFFER_SIZE("frontend.buffer.size", 16384),
     FRONTEND_REQUEST_CHUNK_SIZE("frontend.request.chunk.size", 1024),
+    FRONTEND_REQUEST_PRESIZED_BUFFER_ENABLED("frontend.request.presized.buffer.enabled", false),
     FRONTEND_GRACEFUL_SHUTDOWN_ENABLED("frontend.graceful.shutdown.enabled", true),
     FRONTEND_GRACEFUL_SHUTDOWN_INITIAL_WAIT_MS("frontend.graceful.shutdown.initial.wait.ms", 10000),
     FRONTEND_HTTP2_ENABLED("frontend.http2.enabled", false),
     FRONTEND_FORCE_TOPIC_MAX_MESSAGE_SIZE("frontend.force.topic.max.message.size", false),
+    FRONTEND_LIGHTWEIGHT_METRICS_ENABLED("frontend.lightweight.metrics.enabled", false),
+    FRONTEND_MESSAGE_ID_GENERATOR("frontend.message.id.generator", "time_ordered"),
     FRONTEND_THROUGHPUT_TYPE("frontend.throughput.type", "unlimited"),
     FRONTEND_THROUGHPUT_FIXED_MAX("frontend.throughput.fixed.max", Long.MAX_VALUE),
     FRONTEND_THROUGHPUT_DYNAMIC_MAX("frontend.throughput.dynamic.max", Long.MAX_VALUE),
@@ -110,6 +118,7 @@ public enum Configs {
     FRONTEND_THROUGHPUT_DYNAMIC_DESIRED("frontend.throughput.dynamic.desired", Long.MAX_VALUE),
     FRONTEND_THROUGHPUT_DYNAMIC_IDLE("frontend.throughput.dynamic.idle", 0.5),
     FRONTEND_THROUGHPUT_DYNAMIC_CHECK_INTERVAL("frontend.throughput.dynamic.interval.seconds", 30),
+    FRONTEND_THROUGHPUT_SLIDING_WINDOW_SECONDS("frontend.throughput.sliding.window.seconds", 60),
 
     FRONTEND_SSL_ENABLED("frontend.ssl.enabled", false),
     FRONTEND_SSL_PORT("frontend.ssl.port", 8443),
@@ -154,18 +163,30 @@ public enum Configs {
     MESSAGES_LOCAL_STORAGE_MAX_RESEND_RETRIES("frontend.messages.local.storage.max.resend.retries", 5),
     MESSAGES_LOADING_PAUSE_BETWEEN_RESENDS("frontend.messages.loading.pause.between.resend", 30),
     MESSAGES_LOADING_WAIT_FOR_BROKER_TOPIC_INFO("frontend.messages.loading.wait.for.broker.topic.info", 5),
+    MESSAGES_LOADING_THREAD_POOL_SIZE("frontend.messages.loading.thread.pool.size", 8),
+    MESSAGES_LOADING_MAX_INFLIGHT_BYTES("frontend.messages.loading.max.inflight.bytes", 64 * 1024 * 1024L),
     MESSAGES_LOCAL_STORAGE_SIZE_REPORTING_ENABLED("frontend.messages.local.storage.size.reporting.enabled", true),
+    MESSAGES_LOCAL_STORAGE_TYPE("frontend.messages.local.storage.type", "chronicle"),
+    MESSAGES_LOCAL_STORAGE_SEGMENT_SIZE("frontend.messages.local.storage.segment.size", 64 * 1024 * 1024),
+    MESSAGES_LOCAL_STORAGE_COMPACTION_THRESHOLD("frontend.messages.local.storage.compaction.threshold", 0.25),
+    MESSAGES_LOCAL_STORAGE_COMPACTION_INTERVAL_SECONDS("frontend.messages.local.storage.compaction.interval.seconds", 30),
 
     CONSUMER_RECEIVER_POOL_TIMEOUT("consumer.receiver.pool.timeout", 100),
-    CONSUMER_RECEIVER_READ_QUEUE_CAPACITY("consumer.receiver.read.queue.capacity", 1000),
 
     CONSUMER_COMMIT_OFFSET_PERIOD("consumer.commit.offset.period", 60),
+    CONSUMER_COMMIT_OFFSET_ASYNC("consumer.commit.offset.async", false),
     CONSUMER_COMMIT_OFFSET_QUEUES_SIZE("consumer.commit.offset.queues.size", 200_000),
 
     CONSUMER_SENDER_ASYNC_TIMEOUT_MS("consumer.sender.async.timeout.ms", 5_000),
-    CONSUMER_SENDER_ASYNC_TIMEOUT_THREAD_POOL_SIZE("consumer.sender.async.timeout.thread.pool.size", 32),
-    CONSUMER_SENDER_ASYNC_TIMEOUT_THREAD_POOL_MONITORING("consumer.sender.async.timeout.thread.pool.monitoring", false),
+    CONSUMER_TIMER_TICK_MS("consumer.timer.tick.ms", 10),
+    CONSUMER_TIMER_WHEEL_SIZE("consumer.timer.wheel.size", 512),
+    CONSUMER_TIMER_EXPIRATIONS_PER_SUBSCRIPTION_PER_TICK("consumer.timer.expirations.per.subscription.per.tick", 1000),
     CONSUMER_THREAD_POOL_SIZE("consumer.thread.pool.size", 500),
+    CONSUMER_COOPERATIVE_SCHEDULING_ENABLED("consumer.cooperative.scheduling.enabled", false),
+    CONSUMER_COOPERATIVE_THREAD_POOL_SIZE("consumer.cooperative.thread.pool.size", 8),
+    CONSUMER_COOPERATIVE_LIFECYCLE_THREAD_POOL_SIZE("consumer.cooperative.lifecycle.thread.pool.size", 16),
+    CONSUMER_COOPERATIVE_SLICE_SIZE("consumer.cooperative.slice.size", 100),
+    CONSUMER_COOPERATIVE_IDLE_PARK_TIME("consumer.cooperative.idle.park.ms", 100),
     CONSUMER_HTTP_CLIENT_THREAD_POOL_SIZE("consumer.http.client.thread.pool.size", 30),
     CONSUMER_HTTP_CLIENT_THREAD_POOL_MONITORING("consumer.http.client.thread.pool.monitoring", false),
     CONSUMER_HTTP_CLIENT_MAX_CONNECTIONS_PER_DESTINATION("consumer.http.client.max.connections.per.destination", 100),
@@ -180,6 +201,12 @@ public enum Configs {
     CONSUMER_HTTP2_CLIENT_THREAD_POOL_MONITORING("consumer.http2.client.thread.pool.monitoring", false),
 
     CONSUMER_INFLIGHT_SIZE("consumer.inflight.size", 100),
+    CONSUMER_SERIAL_BURST_SIZE("consumer.serial.burst.size", 1),
+    CONSUMER_PARTITION_LANE_QUEUE_SIZE("consumer.partition.lane.queue.size", 10),
+    CONSUMER_ADAPTIVE_INFLIGHT_MIN_SIZE("consumer.adaptive.inflight.min.size", 1),
+    CONSUMER_ADAPTIVE_INFLIGHT_SMOOTHING("consumer.adaptive.inflight.smoothing", 0.2),
+    CONSUMER_ADAPTIVE_INFLIGHT_RTT_TOLERANCE("consumer.adaptive.inflight.rtt.tolerance", 1.5),
+    CONSUMER_ADAPTIVE_INFLIGHT_BACKOFF_RATIO("consumer.adaptive.inflight.backoff.ratio", 0.9),
     CONSUMER_RATE_LIMITER_SUPERVISOR_PERIOD("consumer.rate.limiter.supervisor.period", 30),
     CONSUMER_RATE_LIMITER_REPORTING_THREAD_POOL_SIZE("consumer.rate.limiter.reporting.thread.pool.size", 30),
     CONSUMER_RATE_LIMITER_REPORTING_THREAD_POOL_MONITORING("consumer.rate.limiter.reporting.thread.pool.monitoring", false),
@@ -208,11 +235,18 @@ public enum Configs {
     CONSUMER_WORKLOAD_MONITOR_SCAN_INTERVAL("consumer.workload.monitor.scan.interval.seconds", 120),
     CONSUMER_WORKLOAD_AUTO_REBALANCE("consumer.workload.rebalance.auto", true),
     CONSUMER_WORKLOAD_DEAD_AFTER_SECONDS("consumer.workload.dead.after.seconds", 120),
+    CONSUMER_WORKLOAD_WEIGHTED_ENABLED("consumer.workload.weighted.enabled", false),
+    CONSUMER_WORKLOAD_WEIGHTED_MAX_TRANSFERS("consumer.workload.weighted.max.transfers.per.rebalance", 10),
+    CONSUMER_WORKLOAD_WEIGHTED_IMBALANCE_TOLERANCE("consumer.workload.weighted.imbalance.tolerance", 0.1),
+    CONSUMER_WORKLOAD_WEIGHTED_LAG_DRAIN_SECONDS("consumer.workload.weighted.lag.drain.seconds", 300),
     CONSUMER_BATCH_POOLABLE_SIZE("consumer.batch.poolable.size", 1024),
     CONSUMER_BATCH_MAX_POOL_SIZE("consumer.batch.max.pool.size", 64*1024*1024),
     CONSUMER_BATCH_CONNECTION_TIMEOUT("consumer.batch.connection.timeout", 500),
     CONSUMER_BATCH_SOCKET_TIMEOUT("consumer.batch.socket.timeout", 500),
+    CONSUMER_BATCH_INFLIGHT_SIZE("consumer.batch.inflight.size", 1),
     CONSUMER_FILTERING_ENABLED("consumer.filtering.enabled", true),
+    CONSUMER_FILTERING_PARALLELISM("consumer.filtering.parallelism", 0),
+    CONSUMER_FILTERING_PARALLEL_BATCH_SIZE("consumer.filtering.parallel.batch.size", 100),
 
     CONSUMER_BACKGROUND_SUPERVISOR_INTERVAL("consumer.supervisor.background.interval", 20_000),
     CONSUMER_BACKGROUND_SUPERVISOR_UNHEALTHY_AFTER("consumer.supervisor.background.unhealty.after", 600_000),
@@ -1,7 +1,9 @@
 package pl.allegro.tech.hermes.common.message.wrapper;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.util.Utf8;
 import pl.allegro.tech.hermes.common.util.MessageId;
 import pl.allegro.tech.hermes.schema.CompiledSchema;
@@ -9,14 +11,10 @@ import pl.allegro.tech.hermes.schema.CompiledSchema;
 import javax.inject.Inject;
 import java.time.Clock;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import static pl.allegro.tech.hermes.common.message.converter.AvroRecordToBytesConverter.bytesToRecord;
-import static pl.allegro.tech.hermes.common.message.converter.AvroRecordToBytesConverter.recordToBytes;
-import static pl.allegro.tech.hermes.common.message.wrapper.AvroMetadataMarker.METADATA_MARKER;
 import static pl.allegro.tech.hermes.common.message.wrapper.AvroMetadataMarker.METADATA_MESSAGE_ID_KEY;
 import static pl.allegro.tech.hermes.common.message.wrapper.AvroMetadataMarker.METADATA_TIMESTAMP_KEY;
 
@@ -24,15 +22,19 @@ public class AvroMessageContentWrapper {
 
     private final Clock clock;
 
+    // keyed by schema identity, so splicers live as long as schemas held by compiled schema repository cache
+    private final LoadingCache<Schema, AvroMetadataSplicer> splicers = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(AvroMetadataSplicer::new));
+
     @Inject
     public AvroMessageContentWrapper(Clock clock) {
         this.clock = clock;
     }
 
-    @SuppressWarnings("unchecked")
     UnwrappedMessageContent unwrapContent(byte[] data, CompiledSchema<Schema> schema) {
         try {
-            Map<Utf8, Utf8> metadata = (Map<Utf8, Utf8>) bytesToRecord(data, schema.getSchema()).get(METADATA_MARKER);
+            Map<Utf8, Utf8> metadata = splicers.getUnchecked(schema.getSchema()).readMetadata(data);
             MessageMetadata messageMetadata = getMetadata(metadata);
 
             return new UnwrappedMessageContent(messageMetadata, data, schema);
@@ -57,23 +59,12 @@ public class AvroMessageContentWrapper {
 
     byte[] wrapContent(byte[] message, String id, long timestamp, Schema schema, Map<String, String> externalMetadata) {
         try {
-            GenericRecord genericRecord = bytesToRecord(message, schema);
-            genericRecord.put(METADATA_MARKER, metadataMap(id, timestamp, externalMetadata));
-            return recordToBytes(genericRecord, schema);
+            return splicers.getUnchecked(schema).splice(message, id, timestamp, externalMetadata);
         } catch (Exception exception) {
             throw new WrappingException("Could not wrap avro message", exception);
         }
     }
 
-    private Map<Utf8, Utf8> metadataMap(String id, long timestamp, Map<String, String> externalMetadata) {
-        Map<Utf8, Utf8> metadata = new HashMap<>();
-        metadata.put(METADATA_MESSAGE_ID_KEY, new Utf8(id));
-        metadata.put(METADATA_TIMESTAMP_KEY, new Utf8(Long.toString(timestamp)));
-
-        externalMetadata.forEach((key, value) -> metadata.put(new Utf8(key), new Utf8(value)));
-        return metadata;
-    }
-
     private long timestampFromMetadata(Map<Utf8, Utf8> metadata) {
         return Long.parseLong(metadata.remove(METADATA_TIMESTAMP_KEY).toString());
     }
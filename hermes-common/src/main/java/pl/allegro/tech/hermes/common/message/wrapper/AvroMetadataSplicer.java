@@ -0,0 +1,178 @@
+package pl.allegro.tech.hermes.common.message.wrapper;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.Utf8;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static pl.allegro.tech.hermes.common.message.wrapper.AvroMetadataMarker.METADATA_MARKER;
+import static pl.allegro.tech.hermes.common.message.wrapper.AvroMetadataMarker.METADATA_MESSAGE_ID_KEY;
+import static pl.allegro.tech.hermes.common.message.wrapper.AvroMetadataMarker.METADATA_TIMESTAMP_KEY;
+
+/**
+ * Reads and replaces {@code __metadata} field directly in binary encoded avro record. Fields preceding and following
+ * metadata are only skipped, so the record is never materialized as {@code GenericRecord}. Records of schemas without
+ * metadata field are read as having no metadata and can not be wrapped.
+ */
+class AvroMetadataSplicer {
+
+    private static final int NOT_A_UNION = -1;
+    private static final byte[] MESSAGE_ID_KEY = METADATA_MESSAGE_ID_KEY.toString().getBytes(UTF_8);
+    private static final byte[] TIMESTAMP_KEY = METADATA_TIMESTAMP_KEY.toString().getBytes(UTF_8);
+
+    private final List<Schema> fieldsBeforeMetadata = new ArrayList<>();
+    private final List<Schema> fieldsAfterMetadata = new ArrayList<>();
+    private final Schema metadataSchema;
+    private final int mapBranchIndex;
+
+    AvroMetadataSplicer(Schema schema) {
+        Schema.Field metadataField = schema.getField(METADATA_MARKER);
+        int metadataPosition = metadataField != null ? metadataField.pos() : schema.getFields().size();
+        for (Schema.Field field : schema.getFields()) {
+            if (field.pos() < metadataPosition) {
+                fieldsBeforeMetadata.add(field.schema());
+            } else if (field.pos() > metadataPosition) {
+                fieldsAfterMetadata.add(field.schema());
+            }
+        }
+        this.metadataSchema = metadataField != null ? metadataField.schema() : null;
+        this.mapBranchIndex = metadataField != null ? mapBranchIndex(metadataSchema) : NOT_A_UNION;
+    }
+
+    byte[] splice(byte[] message, String id, long timestamp, Map<String, String> externalMetadata) throws IOException {
+        if (metadataSchema == null) {
+            throw new IllegalStateException("Schema does not contain " + METADATA_MARKER + " field");
+        }
+        PositionAwareInputStream input = new PositionAwareInputStream(message);
+        Decoder decoder = DecoderFactory.get().directBinaryDecoder(input, null);
+        skip(fieldsBeforeMetadata, decoder);
+        int metadataStart = input.position();
+        GenericDatumReader.skip(metadataSchema, decoder);
+        int metadataEnd = input.position();
+        skip(fieldsAfterMetadata, decoder);
+        int recordEnd = input.position();
+
+        List<byte[]> metadata = metadataEntries(id, timestamp, externalMetadata);
+        int metadataSize = encodedSize(metadata);
+        byte[] spliced = new byte[metadataStart + metadataSize + recordEnd - metadataEnd];
+        System.arraycopy(message, 0, spliced, 0, metadataStart);
+        writeMetadata(metadata, spliced, metadataStart);
+        System.arraycopy(message, metadataEnd, spliced, metadataStart + metadataSize, recordEnd - metadataEnd);
+        return spliced;
+    }
+
+    Map<Utf8, Utf8> readMetadata(byte[] message) throws IOException {
+        Decoder decoder = DecoderFactory.get().binaryDecoder(message, null);
+        skip(fieldsBeforeMetadata, decoder);
+        if (metadataSchema == null) {
+            return null;
+        }
+        int branch = mapBranchIndex == NOT_A_UNION ? NOT_A_UNION : decoder.readIndex();
+        Map<Utf8, Utf8> metadata = null;
+        if (branch == mapBranchIndex) {
+            metadata = new HashMap<>();
+            for (long entries = decoder.readMapStart(); entries != 0; entries = decoder.mapNext()) {
+                for (long i = 0; i < entries; i++) {
+                    metadata.put(decoder.readString(null), decoder.readString(null));
+                }
+            }
+        } else {
+            GenericDatumReader.skip(metadataSchema.getTypes().get(branch), decoder);
+        }
+        // remaining fields are still walked through to reject payloads not matching the schema
+        skip(fieldsAfterMetadata, decoder);
+        return metadata;
+    }
+
+    private List<byte[]> metadataEntries(String id, long timestamp, Map<String, String> externalMetadata) {
+        List<byte[]> entries = new ArrayList<>(4 + 2 * externalMetadata.size());
+        entries.add(MESSAGE_ID_KEY);
+        entries.add(id.getBytes(UTF_8));
+        entries.add(TIMESTAMP_KEY);
+        entries.add(Long.toString(timestamp).getBytes(UTF_8));
+        externalMetadata.forEach((key, value) -> {
+            entries.add(key.getBytes(UTF_8));
+            entries.add(value.getBytes(UTF_8));
+        });
+        return entries;
+    }
+
+    private int encodedSize(List<byte[]> entries) {
+        int size = mapBranchIndex == NOT_A_UNION ? 0 : encodedSize(mapBranchIndex);
+        size += encodedSize(entries.size() / 2) + encodedSize(0);
+        for (byte[] entry : entries) {
+            size += encodedSize(entry.length) + entry.length;
+        }
+        return size;
+    }
+
+    private void writeMetadata(List<byte[]> entries, byte[] target, int offset) {
+        int position = offset;
+        if (mapBranchIndex != NOT_A_UNION) {
+            position += BinaryData.encodeLong(mapBranchIndex, target, position);
+        }
+        position += BinaryData.encodeLong(entries.size() / 2, target, position);
+        for (byte[] entry : entries) {
+            position += BinaryData.encodeLong(entry.length, target, position);
+            System.arraycopy(entry, 0, target, position, entry.length);
+            position += entry.length;
+        }
+        BinaryData.encodeLong(0, target, position);
+    }
+
+    private static int encodedSize(long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        int size = 1;
+        while ((zigZag & ~0x7FL) != 0) {
+            zigZag >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void skip(List<Schema> fields, Decoder decoder) throws IOException {
+        for (Schema field : fields) {
+            GenericDatumReader.skip(field, decoder);
+        }
+    }
+
+    private static int mapBranchIndex(Schema metadataSchema) {
+        if (isStringMap(metadataSchema)) {
+            return NOT_A_UNION;
+        }
+        if (metadataSchema.getType() == Schema.Type.UNION) {
+            List<Schema> branches = metadataSchema.getTypes();
+            for (int i = 0; i < branches.size(); i++) {
+                if (isStringMap(branches.get(i))) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException(METADATA_MARKER + " field is not a map of strings");
+    }
+
+    private static boolean isStringMap(Schema schema) {
+        return schema.getType() == Schema.Type.MAP && schema.getValueType().getType() == Schema.Type.STRING;
+    }
+
+    private static final class PositionAwareInputStream extends ByteArrayInputStream {
+
+        PositionAwareInputStream(byte[] buffer) {
+            super(buffer);
+        }
+
+        int position() {
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package pl.allegro.tech.hermes.common.message.wrapper;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.google.common.collect.ImmutableMap;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * A json message wrapped in Hermes envelope, not written anywhere yet.
+ * <p>
+ * All metadata strings are encoded up front, so that the size of the envelope is known before anything is written.
+ * The envelope can then be written straight into a target buffer, for example the buffer of a batch, instead of
+ * being materialized as a separate array first.
+ */
+public final class JsonEnvelope {
+
+    private static final byte[] SEPARATOR = ",".getBytes(UTF_8);
+    private static final byte[] TIMESTAMP_FIELD = "{\"timestamp\":".getBytes(UTF_8);
+    private static final byte[] ID_FIELD = ",\"id\":".getBytes(UTF_8);
+    private static final byte[] EXTERNAL_METADATA_FIELD = ",\"externalMetadata\":{".getBytes(UTF_8);
+    private static final byte[] NULL_VALUE = "null".getBytes(UTF_8);
+    private static final byte JSON_CLOSE = (byte) '}';
+    private static final byte QUOTE = (byte) '"';
+    private static final byte COLON = (byte) ':';
+    private static final byte COMMA = (byte) ',';
+    private static final int BRACKET_LENGTH = 1;
+    private static final int QUOTES_LENGTH = 2;
+
+    private final byte[] envelopePrefix;
+    private final byte[] contentRootField;
+    private final byte[] json;
+    private final byte[] timestamp;
+    private final byte[] id;
+    private final byte[][] externalMetadata;
+    private final int size;
+
+    JsonEnvelope(byte[] envelopePrefix, byte[] contentRootField, byte[] json, String id, long timestamp,
+                 Map<String, String> externalMetadata) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        this.envelopePrefix = envelopePrefix;
+        this.contentRootField = contentRootField;
+        this.json = json;
+        this.timestamp = Long.toString(timestamp).getBytes(UTF_8);
+        this.id = id == null ? null : encoder.quoteAsUTF8(id);
+        Map<String, String> metadata = externalMetadata == null ? ImmutableMap.of() : externalMetadata;
+        this.externalMetadata = new byte[metadata.size() * 2][];
+        int i = 0;
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            this.externalMetadata[i++] = encoder.quoteAsUTF8(entry.getKey());
+            this.externalMetadata[i++] = entry.getValue() == null ? null : encoder.quoteAsUTF8(entry.getValue());
+        }
+        this.size = computeSize();
+    }
+
+    /**
+     * The number of bytes the wrapped message takes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes wrapped message at the current position of the buffer, advancing it by {@link #size()} bytes.
+     *
+     * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(envelopePrefix);
+        buffer.put(TIMESTAMP_FIELD);
+        buffer.put(timestamp);
+        buffer.put(ID_FIELD);
+        writeString(buffer, id);
+        buffer.put(EXTERNAL_METADATA_FIELD);
+        for (int i = 0; i < externalMetadata.length; i += 2) {
+            if (i > 0) {
+                buffer.put(COMMA);
+            }
+            writeString(buffer, externalMetadata[i]);
+            buffer.put(COLON);
+            writeString(buffer, externalMetadata[i + 1]);
+        }
+        buffer.put(JSON_CLOSE);
+        buffer.put(JSON_CLOSE);
+        buffer.put(SEPARATOR);
+        buffer.put(contentRootField);
+        buffer.put(json);
+        buffer.put(JSON_CLOSE);
+    }
+
+    public byte[] toByteArray() {
+        byte[] envelope = new byte[size];
+        writeTo(ByteBuffer.wrap(envelope));
+        return envelope;
+    }
+
+    private int computeSize() {
+        int size = envelopePrefix.length + TIMESTAMP_FIELD.length + timestamp.length + ID_FIELD.length + stringSize(id)
+                + EXTERNAL_METADATA_FIELD.length + 2 * BRACKET_LENGTH
+                + SEPARATOR.length + contentRootField.length + json.length + BRACKET_LENGTH;
+        for (int i = 0; i < externalMetadata.length; i += 2) {
+            size += stringSize(externalMetadata[i]) + 1 + stringSize(externalMetadata[i + 1]) + (i > 0 ? 1 : 0);
+        }
+        return size;
+    }
+
+    private static int stringSize(byte[] quoted) {
+        return quoted == null ? NULL_VALUE.length : quoted.length + QUOTES_LENGTH;
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] quoted) {
+        if (quoted == null) {
+            buffer.put(NULL_VALUE);
+        } else {
+            buffer.put(QUOTE).put(quoted).put(QUOTE);
+        }
+    }
+}
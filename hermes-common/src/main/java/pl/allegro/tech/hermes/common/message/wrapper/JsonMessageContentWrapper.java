@@ -1,5 +1,7 @@
 package pl.allegro.tech.hermes.common.message.wrapper;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
@@ -7,8 +9,8 @@ import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.common.config.ConfigFactory;
 
 import javax.inject.Inject;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -24,12 +26,13 @@ public class JsonMessageContentWrapper {
 
     private static final byte[] SEPARATOR = ",".getBytes(UTF_8);
     private static final byte[] WRAPPED_MARKER = "\"_w\":true".getBytes(UTF_8);
+    private static final int ENVELOPE_PREFIX_TOKENS = 4;
     private static final byte JSON_OPEN = (byte) '{';
-    private static final byte JSON_CLOSE = (byte) '}';
     private static final int BRACKET_LENGTH = 1;
     private final ObjectMapper mapper;
     private final byte[] contentRootField;
     private final byte[] metadataRootField;
+    private final byte[] envelopePrefix;
 
     @Inject
     public JsonMessageContentWrapper(ConfigFactory config, ObjectMapper mapper) {
@@ -39,33 +42,26 @@ public class JsonMessageContentWrapper {
     public JsonMessageContentWrapper(String contentRootName, String metadataRootName, ObjectMapper mapper) {
         this.contentRootField = formatNodeKey(contentRootName);
         this.metadataRootField = formatNodeKey(metadataRootName);
+        this.envelopePrefix = concat(new byte[]{JSON_OPEN}, WRAPPED_MARKER, SEPARATOR, metadataRootField);
         this.mapper = mapper;
     }
 
-    byte[] wrapContent(byte[] json, String id, long timestamp, Map<String, String> externalMetadata) {
+    public byte[] wrapContent(byte[] json, String id, long timestamp, Map<String, String> externalMetadata) {
+        return envelope(json, id, timestamp, externalMetadata).toByteArray();
+    }
+
+    public JsonEnvelope envelope(byte[] json, String id, long timestamp, Map<String, String> externalMetadata) {
         try {
-            return wrapContent(mapper.writeValueAsBytes(new MessageMetadata(timestamp, id, externalMetadata)), json);
-        } catch (IOException e) {
+            return new JsonEnvelope(envelopePrefix, contentRootField, json, id, timestamp, externalMetadata);
+        } catch (RuntimeException e) {
             throw new WrappingException("Could not wrap json message", e);
         }
     }
 
-    private byte[] wrapContent(byte[] attributes, byte[] message) throws IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        stream.write(JSON_OPEN);
-        stream.write(WRAPPED_MARKER);
-        stream.write(SEPARATOR);
-        stream.write(metadataRootField);
-        stream.write(attributes);
-        stream.write(SEPARATOR);
-        stream.write(contentRootField);
-        stream.write(message);
-        stream.write(JSON_CLOSE);
-        return stream.toByteArray();
-    }
-
     public UnwrappedMessageContent unwrapContent(byte[] json) {
-        if (isWrapped(json)) {
+        if (startsWith(json, envelopePrefix)) {
+            return unwrapEnvelope(json);
+        } else if (isWrapped(json)) {
             return unwrapMessageContent(json);
         } else {
             UUID id = UUID.randomUUID();
@@ -74,6 +70,60 @@ public class JsonMessageContentWrapper {
         }
     }
 
+    private UnwrappedMessageContent unwrapEnvelope(byte[] json) {
+        try (JsonParser parser = mapper.getFactory().createParser(json)) {
+            for (int i = 0; i < ENVELOPE_PREFIX_TOKENS; i++) {
+                parser.nextToken();
+            }
+            MessageMetadata metadata = readMetadata(parser);
+            int contentStart = (int) parser.getCurrentLocation().getByteOffset();
+            if (startsWith(json, contentStart, SEPARATOR) && startsWith(json, contentStart + SEPARATOR.length, contentRootField)) {
+                return new UnwrappedMessageContent(metadata,
+                        copyOfRange(json, contentStart + SEPARATOR.length + contentRootField.length, json.length - BRACKET_LENGTH));
+            }
+        } catch (Exception exception) {
+            LOGGER.debug("Could not unwrap json message in place, falling back to full scan", exception);
+        }
+        return unwrapMessageContent(json);
+    }
+
+    private MessageMetadata readMetadata(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Metadata is not a json object");
+        }
+        long timestamp = 0;
+        String id = null;
+        Map<String, String> externalMetadata = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("timestamp".equals(field)) {
+                timestamp = parser.getLongValue();
+            } else if ("id".equals(field)) {
+                id = parser.getValueAsString();
+            } else if ("externalMetadata".equals(field) && value == JsonToken.START_OBJECT) {
+                externalMetadata = readExternalMetadata(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+            throw new IOException("Malformed metadata object");
+        }
+        return new MessageMetadata(timestamp, id, externalMetadata);
+    }
+
+    private Map<String, String> readExternalMetadata(JsonParser parser) throws IOException {
+        Map<String, String> externalMetadata = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            externalMetadata.put(key, parser.getValueAsString());
+            parser.skipChildren();
+        }
+        return externalMetadata;
+    }
+
     private UnwrappedMessageContent unwrapMessageContent(byte[] json) {
         int rootIndex = indexOf(json, contentRootField);
         int metadataIndex = indexOf(json, metadataRootField);
@@ -89,11 +139,8 @@ public class JsonMessageContentWrapper {
     }
 
     private MessageMetadata unwrapMesssageMetadata(byte[] json, int metadataIndexStart, int metadataIndexEnd) throws IOException {
-        return mapper.readValue(unwrapMetadataBytes(json, metadataIndexStart, metadataIndexEnd), MessageMetadata.class);
-    }
-
-    private byte[] unwrapMetadataBytes(byte[] json, int metadataIndexStart, int metadataIndexEnd) {
-        return copyOfRange(json, metadataIndexStart + metadataRootField.length, metadataIndexEnd + BRACKET_LENGTH);
+        int offset = metadataIndexStart + metadataRootField.length;
+        return mapper.readValue(json, offset, metadataIndexEnd + BRACKET_LENGTH - offset, MessageMetadata.class);
     }
 
     private byte[] formatNodeKey(String keyName) {
@@ -104,4 +151,33 @@ public class JsonMessageContentWrapper {
         return indexOf(json, WRAPPED_MARKER) > 0;
     }
 
+    private static boolean startsWith(byte[] array, byte[] prefix) {
+        return startsWith(array, 0, prefix);
+    }
+
+    private static boolean startsWith(byte[] array, int offset, byte[] prefix) {
+        if (offset < 0 || array.length - offset < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (array[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = 0;
+        for (byte[] array : arrays) {
+            length += array.length;
+        }
+        byte[] result = new byte[length];
+        int position = 0;
+        for (byte[] array : arrays) {
+            System.arraycopy(array, 0, result, position, array.length);
+            position += array.length;
+        }
+        return result;
+    }
 }
@@ -113,4 +113,8 @@ public class MessageContentWrapper {
     public byte[] wrapJson(byte[] data, String id, long timestamp, Map<String, String> externalMetadata) {
         return jsonMessageContentWrapper.wrapContent(data, id, timestamp, externalMetadata);
     }
+
+    public JsonEnvelope jsonEnvelope(byte[] data, String id, long timestamp, Map<String, String> externalMetadata) {
+        return jsonMessageContentWrapper.envelope(data, id, timestamp, externalMetadata);
+    }
 }
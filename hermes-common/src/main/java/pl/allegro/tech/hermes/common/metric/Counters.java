@@ -18,5 +18,6 @@ public class Counters {
             MAXRATE_RATE_HISTORY_FAILURES =
                     "consumers-rate.max-rate.node." + GROUP + "." + TOPIC + "." + SUBSCRIPTION + ".history.failures",
             MAXRATE_FETCH_FAILURES =
-                    "consumers-rate.max-rate.node." + GROUP + "." + TOPIC + "." + SUBSCRIPTION + ".fetch.failures";
+                    "consumers-rate.max-rate.node." + GROUP + "." + TOPIC + "." + SUBSCRIPTION + ".fetch.failures",
+            OFFSET_COMMIT_FAILURES = "offset-committer." + GROUP + "." + TOPIC + "." + SUBSCRIPTION + ".failures";
 }
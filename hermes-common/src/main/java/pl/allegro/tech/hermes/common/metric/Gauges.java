@@ -12,11 +12,26 @@ public class Gauges {
             LEADER_CONFIRMS_BUFFER_TOTAL_BYTES = "leader-confirms-buffer-total-bytes",
             LEADER_CONFIRMS_BUFFER_AVAILABLE_BYTES = "leader-confirms-buffer-available-bytes",
             LEADER_CONFIRMS_COMPRESSION_RATE = "leader-confirms-compression-rate-avg",
+            EVERYONE_CONFIRMS_RECORDS_PER_REQUEST = "everyone-confirms-records-per-request-avg",
+            EVERYONE_CONFIRMS_BATCH_SIZE = "everyone-confirms-batch-size-avg",
+            EVERYONE_CONFIRMS_RECORD_QUEUE_TIME = "everyone-confirms-record-queue-time-avg",
+            LEADER_CONFIRMS_RECORDS_PER_REQUEST = "leader-confirms-records-per-request-avg",
+            LEADER_CONFIRMS_BATCH_SIZE = "leader-confirms-batch-size-avg",
+            LEADER_CONFIRMS_RECORD_QUEUE_TIME = "leader-confirms-record-queue-time-avg",
+            PRODUCER_TOPIC_RECORD_SEND_RATE = "producer." + GROUP + "." + TOPIC + ".record-send-rate",
+            PRODUCER_TOPIC_BYTE_RATE = "producer." + GROUP + "." + TOPIC + ".byte-rate",
+            PRODUCER_TOPIC_COMPRESSION_RATE = "producer." + GROUP + "." + TOPIC + ".compression-rate",
             BATCH_BUFFER_TOTAL_BYTES = "batch-buffer-total-bytes",
             BATCH_BUFFER_AVAILABLE_BYTES = "batch-buffer-available-bytes",
+            BATCH_BUFFER_FRAGMENTATION = "batch-buffer-fragmentation",
+            BATCH_BUFFER_WAITERS = "batch-buffer-waiters",
             JMX_PREFIX = "jmx",
 
             THREADS = "threads",
+            COOPERATIVE_CONSUMERS = "consumers-cooperative.subscriptions",
+            COOPERATIVE_CONSUMERS_PER_THREAD = "consumers-cooperative.subscriptions-per-thread",
+            TIMING_WHEEL_PENDING_TIMERS = "consumers-timer.pending-timers",
+            TIMING_WHEEL_SCHEDULING_LAG = "consumers-timer.scheduling-lag",
             INFLIGHT_REQUESTS = "inflight-requests",
             OUTPUT_RATE = "output-rate." + GROUP + "." + TOPIC + "." + SUBSCRIPTION,
             BACKUP_STORAGE_SIZE = "backup-storage.size",
@@ -4,10 +4,12 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import pl.allegro.tech.hermes.api.Subscription;
 import pl.allegro.tech.hermes.api.TopicName;
+import pl.allegro.tech.hermes.common.metric.reservoir.LogBucketReservoir;
 import pl.allegro.tech.hermes.common.metric.timer.ConsumerLatencyTimer;
 import pl.allegro.tech.hermes.common.schema.SchemaRepositoryType;
 import pl.allegro.tech.hermes.metrics.PathContext;
@@ -53,6 +55,14 @@ public class HermesMetrics {
         return metricRegistry.timer(metricRegistryName(metric, topicName, name));
     }
 
+    public Timer lightweightTimer(String metric) {
+        return getOrRegister(metricRegistryName(metric), new Timer(new LogBucketReservoir()));
+    }
+
+    public Timer lightweightTimer(String metric, TopicName topicName) {
+        return getOrRegister(metricRegistryName(metric, topicName), new Timer(new LogBucketReservoir()));
+    }
+
     public Meter meter(String metric) {
         return metricRegistry.meter(metricRegistryName(metric));
     }
@@ -156,6 +166,13 @@ public class HermesMetrics {
         }
     }
 
+    public void registerGauge(String name, TopicName topicName, Gauge<?> gauge) {
+        String path = metricRegistryName(name, topicName);
+        if (!metricRegistry.getGauges().containsKey(path)) {
+            metricRegistry.register(path, gauge);
+        }
+    }
+
     private String metricRegistryName(String metricDisplayName, TopicName topicName, String subscription) {
         PathContext pathContext = PathContext.pathContext()
                 .withGroup(escapeDots(topicName.getGroupName()))
@@ -178,6 +195,19 @@ public class HermesMetrics {
         return pathCompiler.compile(metricDisplayName);
     }
 
+    @SuppressWarnings("unchecked")
+    private <T extends Metric> T getOrRegister(String name, T metric) {
+        Metric existing = metricRegistry.getMetrics().get(name);
+        if (existing != null) {
+            return (T) existing;
+        }
+        try {
+            return metricRegistry.register(name, metric);
+        } catch (IllegalArgumentException e) {
+            return (T) metricRegistry.getMetrics().get(name);
+        }
+    }
+
     public Timer schemaTimer(String schemaMetric, SchemaRepositoryType schemaRepoType) {
         return metricRegistry.timer(pathCompiler.compile(schemaMetric, pathContext().withSchemaRepoType(schemaRepoType.toString()).build()));
     }
@@ -217,6 +247,17 @@ public class HermesMetrics {
                 .build()));
     }
 
+    public Histogram lightweightMessageContentSizeHistogram() {
+        return getOrRegister(pathCompiler.compile(Histograms.GLOBAL_MESSAGE_SIZE), new Histogram(new LogBucketReservoir()));
+    }
+
+    public Histogram lightweightMessageContentSizeHistogram(TopicName topic) {
+        return getOrRegister(pathCompiler.compile(Histograms.MESSAGE_SIZE, pathContext()
+                .withGroup(escapeDots(topic.getGroupName()))
+                .withTopic(escapeDots(topic.getName()))
+                .build()), new Histogram(new LogBucketReservoir()));
+    }
+
     public Histogram inflightTimeHistogram(Subscription subscription) {
         return metricRegistry.histogram(pathCompiler.compile(Histograms.INFLIGHT_TIME, pathContext()
                 .withGroup(escapeDots(subscription.getTopicName().getGroupName()))
@@ -268,6 +309,15 @@ public class HermesMetrics {
         return timer(SUBSCRIPTION_LATENCY, subscription.getTopicName(), subscription.getName());
     }
 
+    public Timer offsetCommitLatencyTimer(Subscription subscription) {
+        return timer(Timers.OFFSET_COMMIT_LATENCY, subscription.getTopicName(), subscription.getName());
+    }
+
+    public Counter offsetCommitFailuresCounter(Subscription subscription) {
+        return metricRegistry.counter(metricRegistryName(
+                Counters.OFFSET_COMMIT_FAILURES, subscription.getTopicName(), subscription.getName()));
+    }
+
     public Timer oAuthProviderLatencyTimer(String oAuthProviderName) {
         PathContext pathContext = pathContext()
                 .withOAuthProvider(escapeDots(oAuthProviderName))
@@ -17,6 +17,9 @@ public class Meters {
         TOPIC_THROUGHPUT_BYTES = THROUGHPUT_BYTES + "." + GROUP + "." + TOPIC,
         SUBSCRIPTION_THROUGHPUT_BYTES = TOPIC_THROUGHPUT_BYTES + "." + SUBSCRIPTION,
 
+        REQUEST_BODY_ALLOCATED_BYTES = "request-body.allocated-bytes",
+        REQUEST_BODY_COPIED_BYTES = "request-body.copied-bytes",
+
         FILTERED_METER = SUBSCRIPTION_METER + ".filtered",
 
         STATUS_CODES = "http-status-codes.code" + HTTP_CODE,
@@ -34,6 +34,11 @@ public class Timers {
 
             READ_LATENCY = "read-latency",
 
+            BATCH_BUFFER_ALLOCATION_LATENCY = "batch-buffer-allocation-latency",
+            COOPERATIVE_CONSUMER_WAKE_UP_LATENCY = "consumers-cooperative.wake-up-latency",
+
+            OFFSET_COMMIT_LATENCY = "offset-committer." + GROUP + "." + TOPIC + "." + SUBSCRIPTION + ".commit-latency",
+
             SCHEMA = "schema." + SCHEMA_REPO_TYPE,
             GET_SCHEMA_LATENCY = SCHEMA + ".get-schema",
             GET_SCHEMA_VERSIONS_LATENCY = SCHEMA + ".get-schema-versions",
@@ -0,0 +1,117 @@
+package pl.allegro.tech.hermes.common.metric.reservoir;
+
+import com.codahale.metrics.Snapshot;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import static pl.allegro.tech.hermes.common.metric.reservoir.LogBucketReservoir.representativeValue;
+
+class BucketSnapshot extends Snapshot {
+
+    private final long[] counts;
+    private final long count;
+
+    BucketSnapshot(long[] counts) {
+        this.counts = counts;
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return representativeValue(i);
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public long[] getValues() {
+        long[] values = new long[size()];
+        int position = 0;
+        for (int i = 0; i < counts.length && position < values.length; i++) {
+            long value = representativeValue(i);
+            for (long j = 0; j < counts[i] && position < values.length; j++) {
+                values[position++] = value;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return representativeValue(i);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public double getMean() {
+        if (count == 0) {
+            return 0.0;
+        }
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sum += (double) representativeValue(i) * counts[i];
+        }
+        return sum / count;
+    }
+
+    @Override
+    public long getMin() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                return representativeValue(i);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public double getStdDev() {
+        if (count <= 1) {
+            return 0.0;
+        }
+        double mean = getMean();
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            double diff = representativeValue(i) - mean;
+            sum += diff * diff * counts[i];
+        }
+        return Math.sqrt(sum / (count - 1));
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+            for (long value : getValues()) {
+                out.printf("%d%n", value);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package pl.allegro.tech.hermes.common.metric.reservoir;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Reservoir counting values in a fixed number of logarithmic buckets, each power of two range split into eight linear
+ * sub-buckets, so values are reported with at most 12.5% relative error. Update is a single atomic increment without
+ * locks or allocation and memory used by the reservoir does not depend on number of recorded values.
+ *
+ * <p>Values are counted in a current interval, which is rotated when a snapshot is taken after the interval has
+ * elapsed. Snapshot contains values from the current and previous interval.
+ */
+public class LogBucketReservoir implements Reservoir {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+    private final Clock clock;
+    private final long intervalNanos;
+
+    private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+    private AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+    private long intervalStart;
+
+    public LogBucketReservoir() {
+        this(DEFAULT_INTERVAL_SECONDS, TimeUnit.SECONDS, Clock.defaultClock());
+    }
+
+    public LogBucketReservoir(long interval, TimeUnit unit, Clock clock) {
+        this.clock = clock;
+        this.intervalNanos = unit.toNanos(interval);
+        this.intervalStart = clock.getTick();
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        current.incrementAndGet(bucketIndex(value));
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        long now = clock.getTick();
+        if (now - intervalStart >= intervalNanos) {
+            previous = current;
+            current = new AtomicLongArray(BUCKETS);
+            intervalStart = now;
+        }
+        AtomicLongArray recent = current;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = previous.get(i) + recent.get(i);
+        }
+        return new BucketSnapshot(counts);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    static long representativeValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        long lower = lowerBound(index);
+        long upper = lowerBound(index + 1) - 1;
+        return lower + (upper - lower) / 2;
+    }
+}
@@ -3,20 +3,24 @@ package pl.allegro.tech.hermes.common.metric.timer;
 import com.codahale.metrics.Timer;
 
 import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
 
 public class StartedTimersPair implements Closeable {
 
-    private final Timer.Context time1;
-    private final Timer.Context time2;
+    private final Timer timer1;
+    private final Timer timer2;
+    private final long startNanos;
 
     public StartedTimersPair(Timer timer1, Timer timer2) {
-        time1 = timer1.time();
-        time2 = timer2.time();
+        this.timer1 = timer1;
+        this.timer2 = timer2;
+        this.startNanos = System.nanoTime();
     }
 
     @Override
     public void close() {
-        time1.stop();
-        time2.stop();
+        long elapsed = System.nanoTime() - startNanos;
+        timer1.update(elapsed, TimeUnit.NANOSECONDS);
+        timer2.update(elapsed, TimeUnit.NANOSECONDS);
     }
 }
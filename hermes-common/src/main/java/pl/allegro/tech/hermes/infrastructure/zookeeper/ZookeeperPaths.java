@@ -2,7 +2,6 @@ package pl.allegro.tech.hermes.infrastructure.zookeeper;
 
 import com.google.common.base.Joiner;
 import pl.allegro.tech.hermes.api.Subscription;
-import pl.allegro.tech.hermes.api.SubscriptionName;
 import pl.allegro.tech.hermes.api.TopicName;
 import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
 
@@ -110,20 +109,27 @@ public class ZookeeperPaths {
         return Joiner.on(URL_SEPARATOR).join(basePath, CONSUMERS_WORKLOAD_PATH);
     }
 
-    public String consumersRateRuntimePath() {
+    /**
+     * Root of max rates stored per subscription and consumer by versions before {@link #consumersRateNodesPath()}.
+     */
+    public String legacyConsumersRateRuntimePath() {
         return Joiner.on(URL_SEPARATOR).join(basePath, CONSUMERS_RATE_PATH, "runtime");
     }
 
-    public String consumersRatePath(SubscriptionName subscription, String consumerId) {
-        return Joiner.on(URL_SEPARATOR).join(consumersRateRuntimePath(), subscription, consumerId);
+    public String consumersRateNodesPath() {
+        return Joiner.on(URL_SEPARATOR).join(basePath, CONSUMERS_RATE_PATH, "nodes");
     }
 
-    public String consumersRateHistoryPath(SubscriptionName subscription, String consumerId) {
-        return Joiner.on(URL_SEPARATOR).join(consumersRateRuntimePath(), subscription, consumerId, MAX_RATE_HISTORY_PATH);
+    public String consumersRateNodePath(String consumerId) {
+        return Joiner.on(URL_SEPARATOR).join(consumersRateNodesPath(), consumerId);
     }
 
-    public String consumersMaxRatePath(SubscriptionName subscription, String consumerId) {
-        return Joiner.on(URL_SEPARATOR).join(consumersRateRuntimePath(), subscription, consumerId, MAX_RATE_PATH);
+    public String consumersRateHistoryPath(String consumerId) {
+        return Joiner.on(URL_SEPARATOR).join(consumersRateNodePath(consumerId), MAX_RATE_HISTORY_PATH);
+    }
+
+    public String consumersMaxRatePath(String consumerId) {
+        return Joiner.on(URL_SEPARATOR).join(consumersRateNodePath(consumerId), MAX_RATE_PATH);
     }
 
     public String maxRateLeaderPath() {
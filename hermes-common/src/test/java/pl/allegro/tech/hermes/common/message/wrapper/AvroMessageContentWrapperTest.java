@@ -1,20 +1,28 @@
 package pl.allegro.tech.hermes.common.message.wrapper;
 
+import com.google.common.collect.ImmutableMap;
 import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
 import org.apache.avro.util.Utf8;
 import org.junit.Before;
 import org.junit.Test;
+import pl.allegro.tech.hermes.schema.CompiledSchema;
+import pl.allegro.tech.hermes.schema.SchemaVersion;
 import pl.allegro.tech.hermes.test.helper.avro.AvroUser;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.Clock;
 import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
 
 import static java.lang.Long.valueOf;
+import static java.util.Arrays.copyOf;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static pl.allegro.tech.hermes.common.message.converter.AvroRecordToBytesConverter.bytesToRecord;
 import static pl.allegro.tech.hermes.common.message.converter.AvroRecordToBytesConverter.recordToBytes;
 import static pl.allegro.tech.hermes.common.message.wrapper.AvroMetadataMarker.METADATA_MARKER;
@@ -76,6 +84,75 @@ public class AvroMessageContentWrapperTest {
         assertThat(unwrappedMessage.getContent()).startsWith(content);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldSpliceMetadataBetweenOtherFields() throws IOException {
+        // given
+        Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Event\",\"fields\":["
+                + "{\"name\":\"id\",\"type\":\"long\"},"
+                + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+                + "{\"name\":\"__metadata\",\"type\":[\"null\",{\"type\":\"map\",\"values\":\"string\"}],\"default\":null},"
+                + "{\"name\":\"payload\",\"type\":[\"null\",\"bytes\"]}]}");
+        GenericRecord record = new GenericRecordBuilder(schema)
+                .set("id", 42L)
+                .set("tags", new GenericData.Array<>(schema.getField("tags").schema(), Collections.singletonList(new Utf8("tag"))))
+                .set("payload", ByteBuffer.wrap(new byte[]{1, 2, 3}))
+                .build();
+        byte[] message = recordToBytes(record, schema);
+
+        // when
+        byte[] wrappedMessage = avroMessageContentWrapper.wrapContent(message, id, timestamp, schema, ImmutableMap.of("Trace-Id", "trace"));
+        UnwrappedMessageContent unwrapped = avroMessageContentWrapper.unwrapContent(wrappedMessage, new CompiledSchema<>(schema, SchemaVersion.valueOf(1)));
+
+        // then
+        GenericRecord messageWithMetadata = bytesToRecord(wrappedMessage, schema);
+        Map<Utf8, Utf8> metadata = (Map<Utf8, Utf8>) messageWithMetadata.get(METADATA_MARKER);
+        assertThat(messageWithMetadata.get("id")).isEqualTo(42L);
+        assertThat(messageWithMetadata.get("tags").toString()).isEqualTo("[tag]");
+        assertThat(messageWithMetadata.get("payload")).isEqualTo(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        assertThat(metadata.get(new Utf8("Trace-Id")).toString()).isEqualTo("trace");
+        assertThat(unwrapped.getMessageMetadata().getId()).isEqualTo(id);
+        assertThat(unwrapped.getMessageMetadata().getTimestamp()).isEqualTo(timestamp);
+        assertThat(unwrapped.getMessageMetadata().getExternalMetadata()).containsEntry("Trace-Id", "trace");
+    }
+
+    @Test
+    public void shouldNotWrapMessageWhenSchemaHasNoMetadataField() {
+        // given
+        Schema schema = new Schema.Parser().parse(
+                "{\"type\":\"record\",\"name\":\"Plain\",\"fields\":[{\"name\":\"id\",\"type\":\"long\"}]}");
+
+        // expect
+        assertThatThrownBy(() -> avroMessageContentWrapper.wrapContent(new byte[]{2}, id, timestamp, schema, Collections.emptyMap()))
+                .isInstanceOf(WrappingException.class);
+    }
+
+    @Test
+    public void shouldUnwrapMessageWithGeneratedMetadataWhenSchemaHasNoMetadataField() throws IOException {
+        // given
+        Schema schema = new Schema.Parser().parse(
+                "{\"type\":\"record\",\"name\":\"Plain\",\"fields\":[{\"name\":\"id\",\"type\":\"long\"}]}");
+        byte[] message = recordToBytes(new GenericRecordBuilder(schema).set("id", 42L).build(), schema);
+
+        // when
+        UnwrappedMessageContent unwrapped = avroMessageContentWrapper.unwrapContent(message, new CompiledSchema<>(schema, SchemaVersion.valueOf(1)));
+
+        // then
+        assertThat(unwrapped.getMessageMetadata().getId()).isNotEmpty();
+        assertThat(unwrapped.getMessageMetadata().getExternalMetadata()).isEmpty();
+        assertThat(unwrapped.getContent()).isEqualTo(message);
+    }
+
+    @Test
+    public void shouldNotUnwrapTruncatedMessage() {
+        // given
+        byte[] wrappedMessage = avroMessageContentWrapper.wrapContent(content, id, timestamp, avroUser.getSchema(), Collections.emptyMap());
+
+        // expect
+        assertThatThrownBy(() -> avroMessageContentWrapper.unwrapContent(copyOf(wrappedMessage, wrappedMessage.length - 2), avroUser.getCompiledSchema()))
+                .isInstanceOf(UnwrappingException.class);
+    }
+
     private byte[] wrapContentWithoutMetadata(byte[] message, Schema schema) throws Exception{
         GenericRecord genericRecord = bytesToRecord(message, schema);
         genericRecord.put(METADATA_MARKER, null);
@@ -8,6 +8,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
@@ -38,6 +39,24 @@ public class JsonMessageContentWrapperTest {
         assertThat(readMap(result)).containsExactly(unwrappingMarker, entry("metadata", metadataAsMap), content);
     }
 
+    @Test
+    public void shouldWriteEnvelopeIntoBufferAtCurrentPosition() {
+        //given
+        Map<String, String> externalMetadata = ImmutableMap.of("Trace-Id", TRACE_ID);
+        JsonEnvelope envelope = contentWrapper.envelope(CONTENT, metadata.getId(), metadata.getTimestamp(), externalMetadata);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(envelope.size() + 1).put((byte) '[');
+
+        //when
+        envelope.writeTo(buffer);
+
+        //then
+        byte[] written = new byte[envelope.size()];
+        buffer.position(1);
+        buffer.get(written);
+        assertThat(buffer.hasRemaining()).isFalse();
+        assertThat(written).isEqualTo(contentWrapper.wrapContent(CONTENT, metadata.getId(), metadata.getTimestamp(), externalMetadata));
+    }
+
     @Test
     public void shouldUnwrapMessageWithMetadata() {
         //when
@@ -48,6 +67,37 @@ public class JsonMessageContentWrapperTest {
         assertThat(result.getMessageMetadata()).isEqualTo(metadata);
     }
 
+    @Test
+    public void shouldWrapAndUnwrapExternalMetadataRequiringEscaping() {
+        //given
+        Map<String, String> externalMetadata = ImmutableMap.of("Trace-Id", TRACE_ID, "quoted\"key", "line\nbreak \\ \u017c");
+
+        //when
+        byte[] wrapped = contentWrapper.wrapContent(CONTENT, metadata.getId(), metadata.getTimestamp(), externalMetadata);
+        UnwrappedMessageContent result = contentWrapper.unwrapContent(wrapped);
+
+        //then
+        assertThat(readMap(wrapped)).containsEntry("metadata", ImmutableMap.of(
+                "timestamp", metadata.getTimestamp(), "id", metadata.getId(), "externalMetadata", externalMetadata));
+        assertThat(result.getContent()).isEqualTo(CONTENT);
+        assertThat(result.getMessageMetadata().getExternalMetadata()).isEqualTo(externalMetadata);
+    }
+
+    @Test
+    public void shouldUnwrapMessageWithMetadataFieldsInDifferentOrder() {
+        //given
+        byte[] wrapped = ("{\"_w\":true,\"metadata\":{\"id\":\"" + metadata.getId() + "\",\"unknown\":[1,2],\"timestamp\":"
+                + metadata.getTimestamp() + "},\"message\":" + new String(CONTENT) + "}").getBytes();
+
+        //when
+        UnwrappedMessageContent result = contentWrapper.unwrapContent(wrapped);
+
+        //then
+        assertThat(result.getContent()).isEqualTo(CONTENT);
+        assertThat(result.getMessageMetadata()).isEqualTo(metadata);
+        assertThat(result.getMessageMetadata().getExternalMetadata()).isEmpty();
+    }
+
     @Test
     public void shouldTolerateUnwrappingUnwrappedMessage() {
         //when
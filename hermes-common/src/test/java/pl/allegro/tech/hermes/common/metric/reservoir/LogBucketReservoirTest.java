@@ -0,0 +1,106 @@
+package pl.allegro.tech.hermes.common.metric.reservoir;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class LogBucketReservoirTest {
+
+    private final ManualClock clock = new ManualClock();
+
+    private final LogBucketReservoir reservoir = new LogBucketReservoir(60, TimeUnit.SECONDS, clock);
+
+    @Test
+    public void shouldRecordSmallValuesExactly() {
+        // given
+        for (int i = 0; i < 8; i++) {
+            reservoir.update(i);
+        }
+
+        // when
+        Snapshot snapshot = reservoir.getSnapshot();
+
+        // then
+        assertThat(snapshot.size()).isEqualTo(8);
+        assertThat(snapshot.getMin()).isEqualTo(0);
+        assertThat(snapshot.getMax()).isEqualTo(7);
+        assertThat(snapshot.getMean()).isEqualTo(3.5);
+        assertThat(snapshot.getValues()).containsExactly(0, 1, 2, 3, 4, 5, 6, 7);
+    }
+
+    @Test
+    public void shouldReportQuantilesWithBoundedRelativeError() {
+        // given
+        for (int i = 1; i <= 100_000; i++) {
+            reservoir.update(i * 1000L);
+        }
+
+        // when
+        Snapshot snapshot = reservoir.getSnapshot();
+
+        // then
+        assertThat(snapshot.getMedian()).isCloseTo(50_000_000, offset(50_000_000 * 0.125));
+        assertThat(snapshot.get99thPercentile()).isCloseTo(99_000_000, offset(99_000_000 * 0.125));
+        assertThat((double) snapshot.getMax()).isCloseTo(100_000_000, offset(100_000_000 * 0.125));
+        assertThat((double) snapshot.getMin()).isCloseTo(1000, offset(1000 * 0.125));
+    }
+
+    @Test
+    public void shouldPlaceEveryValueInBucketContainingIt() {
+        for (long value = 0; value < 1 << 16; value++) {
+            int index = LogBucketReservoir.bucketIndex(value);
+            assertThat(LogBucketReservoir.lowerBound(index)).isLessThanOrEqualTo(value);
+            assertThat(LogBucketReservoir.lowerBound(index + 1)).isGreaterThan(value);
+        }
+    }
+
+    @Test
+    public void shouldClampValuesOutOfRange() {
+        // when
+        reservoir.update(-5);
+        reservoir.update(Long.MAX_VALUE);
+
+        // then
+        assertThat(LogBucketReservoir.bucketIndex(-5)).isEqualTo(0);
+        assertThat(LogBucketReservoir.bucketIndex(Long.MAX_VALUE)).isEqualTo(LogBucketReservoir.BUCKETS - 1);
+        assertThat(reservoir.getSnapshot().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldForgetValuesOlderThanTwoIntervals() {
+        // given
+        reservoir.update(100);
+        clock.advance(61, TimeUnit.SECONDS);
+        reservoir.getSnapshot();
+        reservoir.update(200);
+
+        // when
+        Snapshot afterFirstInterval = reservoir.getSnapshot();
+        clock.advance(61, TimeUnit.SECONDS);
+        Snapshot afterSecondInterval = reservoir.getSnapshot();
+
+        // then
+        assertThat(afterFirstInterval.size()).isEqualTo(2);
+        assertThat(afterSecondInterval.size()).isEqualTo(1);
+        assertThat((double) afterSecondInterval.getMax()).isCloseTo(200, offset(200 * 0.125));
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long tick;
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            tick += unit.toNanos(duration);
+        }
+    }
+}
@@ -1,10 +1,6 @@
 package pl.allegro.tech.hermes.consumers.consumer;
 
 import com.codahale.metrics.Timer;
-import com.github.rholder.retry.Attempt;
-import com.github.rholder.retry.RetryListener;
-import com.github.rholder.retry.Retryer;
-import com.github.rholder.retry.RetryerBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.BatchSubscriptionPolicy;
@@ -28,20 +24,28 @@ import pl.allegro.tech.hermes.consumers.consumer.receiver.MessageReceiver;
 import pl.allegro.tech.hermes.consumers.consumer.receiver.ReceiverFactory;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageBatchSender;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
 import pl.allegro.tech.hermes.tracker.consumers.Trackers;
 
-import java.io.IOException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
-import static com.github.rholder.retry.WaitStrategies.fixedWait;
 import static java.util.Optional.of;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Consumes messages in batches. Batches are sent asynchronously and retries are scheduled on a shared timer, so
+ * the consumer thread can fill next batches while previous ones are being delivered, up to the configured number
+ * of batches in flight.
+ */
 public class BatchConsumer implements Consumer {
 
     private static final Logger logger = LoggerFactory.getLogger(BatchConsumer.class);
 
+    private static final int INFLIGHT_PERMIT_TIMEOUT_MS = 100;
+
     private final ReceiverFactory messageReceiverFactory;
     private final MessageBatchSender sender;
     private final MessageBatchFactory batchFactory;
@@ -50,10 +54,12 @@ public class BatchConsumer implements Consumer {
     private final MessageConverterResolver messageConverterResolver;
     private final MessageContentWrapper messageContentWrapper;
     private final Trackers trackers;
+    private final HashedTimingWheel retryTimer;
+    private final Semaphore inflightBatches;
 
     private Topic topic;
     private OffsetQueue offsetQueue;
-    private Subscription subscription;
+    private volatile Subscription subscription;
 
     private volatile boolean consuming = true;
 
@@ -70,7 +76,8 @@ public class BatchConsumer implements Consumer {
                          Trackers trackers,
                          Subscription subscription,
                          Topic topic,
-                         ConfigFactory configs) {
+                         ConfigFactory configs,
+                         HashedTimingWheel retryTimer) {
         this.messageReceiverFactory = messageReceiverFactory;
         this.sender = sender;
         this.batchFactory = batchFactory;
@@ -83,33 +90,46 @@ public class BatchConsumer implements Consumer {
         this.messageContentWrapper = messageContentWrapper;
         this.topic = topic;
         this.trackers = trackers;
+        this.retryTimer = retryTimer;
+        this.inflightBatches = new Semaphore(configs.getIntProperty(Configs.CONSUMER_BATCH_INFLIGHT_SIZE));
     }
 
     @Override
     public void consume(Runnable signalsInterrupt) {
+        signalsInterrupt.run();
+        if (!acquireInflightPermit()) {
+            return;
+        }
+
         Optional<MessageBatch> inflight = Optional.empty();
+        boolean delivering = false;
         try {
             logger.debug("Trying to create new batch [subscription={}].", subscription.getQualifiedName());
 
-            signalsInterrupt.run();
-
             MessageBatchingResult result = receiver.next(subscription, signalsInterrupt);
             inflight = of(result.getBatch());
 
-            inflight.ifPresent(batch -> {
-                logger.debug("Delivering batch [subscription={}].", subscription.getQualifiedName());
-                offerInflightOffsets(batch);
-
-                deliver(signalsInterrupt, batch, createRetryer(batch, subscription.getBatchSubscriptionPolicy()));
-
-                offerCommittedOffsets(batch);
-                logger.debug("Finished delivering batch [subscription={}]", subscription.getQualifiedName());
-            });
-
             result.getDiscarded().forEach(m -> monitoring.markDiscarded(m, subscription, "too large"));
+
+            logger.debug("Delivering batch [subscription={}].", subscription.getQualifiedName());
+            offerInflightOffsets(result.getBatch());
+            deliver(result.getBatch());
+            delivering = true;
         } finally {
-            logger.debug("Cleaning batch [subscription={}]", subscription.getQualifiedName());
-            inflight.ifPresent(this::clean);
+            if (!delivering) {
+                logger.debug("Cleaning batch [subscription={}]", subscription.getQualifiedName());
+                inflight.ifPresent(this::clean);
+                inflightBatches.release();
+            }
+        }
+    }
+
+    private boolean acquireInflightPermit() {
+        try {
+            return inflightBatches.tryAcquire(INFLIGHT_PERMIT_TIMEOUT_MS, MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
@@ -178,57 +198,79 @@ public class BatchConsumer implements Consumer {
         }
     }
 
-    private Retryer<MessageSendingResult> createRetryer(MessageBatch batch, BatchSubscriptionPolicy policy) {
-        return createRetryer(batch, policy.getMessageBackoff(), policy.getMessageTtl(), policy.isRetryClientErrors());
+    private void deliver(MessageBatch batch) {
+        Timer.Context timer = hermesMetrics.subscriptionLatencyTimer(subscription).time();
+        attempt(batch, timer, System.currentTimeMillis());
     }
 
-    private Retryer<MessageSendingResult> createRetryer(final MessageBatch batch, int messageBackoff, int messageTtl, boolean retryClientErrors) {
-        return RetryerBuilder.<MessageSendingResult>newBuilder()
-                .retryIfExceptionOfType(IOException.class)
-                .retryIfRuntimeException()
-                .retryIfResult(result -> consuming && !result.succeeded() && shouldRetryOnClientError(retryClientErrors, result))
-                .withWaitStrategy(fixedWait(messageBackoff, MILLISECONDS))
-                .withStopStrategy(attempt -> attempt.getDelaySinceFirstAttempt() > messageTtl)
-                .withRetryListener(getRetryListener(result -> {
+    private void attempt(MessageBatch batch, Timer.Context timer, long firstAttemptTime) {
+        Subscription subscription = this.subscription;
+        send(batch, subscription).whenComplete((result, throwable) -> {
+            // batch holds an inflight permit, so it has to be finished unless another attempt has been scheduled
+            boolean retryScheduled = false;
+            try {
+                MessageSendingResult sendingResult = throwable == null ? result : MessageSendingResult.failedResult(throwable);
+                BatchSubscriptionPolicy policy = subscription.getBatchSubscriptionPolicy();
+                if (!shouldRetry(sendingResult, policy)) {
+                    timer.stop();
+                    monitoring.markSendingResult(batch, subscription, sendingResult);
+                } else if (System.currentTimeMillis() - firstAttemptTime > policy.getMessageTtl()) {
+                    timer.stop();
+                    logger.error("Batch was rejected [batch_id={}, subscription={}].", batch.getId(), subscription.getQualifiedName());
+                    monitoring.markDiscarded(batch, subscription, "Message TTL exceeded");
+                } else {
                     batch.incrementRetryCounter();
-                    monitoring.markFailed(batch, subscription, result);
-                }))
-                .build();
-    }
-
-    private boolean shouldRetryOnClientError(boolean retryClientErrors, MessageSendingResult result) {
-        return !result.isClientError() || retryClientErrors;
-    }
-
-    private void deliver(Runnable signalsInterrupt, MessageBatch batch, Retryer<MessageSendingResult> retryer) {
-        try (Timer.Context timer = hermesMetrics.subscriptionLatencyTimer(subscription).time()) {
-            MessageSendingResult result = retryer.call(() -> {
-                signalsInterrupt.run();
-                return sender.send(
-                        batch,
-                        subscription.getEndpoint(),
-                        subscription.getEndpointAddressResolverMetadata(),
-                        subscription.getBatchSubscriptionPolicy().getRequestTimeout()
-                );
-            });
-            monitoring.markSendingResult(batch, subscription, result);
-        } catch (Exception e) {
-            logger.error("Batch was rejected [batch_id={}, subscription={}].", batch.getId(), subscription.getQualifiedName(), e);
-            monitoring.markDiscarded(batch, subscription, e.getMessage());
+                    monitoring.markFailed(batch, subscription, sendingResult);
+                    retryTimer.schedule(subscription.getQualifiedName(), () -> attempt(batch, timer, firstAttemptTime),
+                            policy.getMessageBackoff(), MILLISECONDS);
+                    retryScheduled = true;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to handle result of batch delivery [batch_id={}, subscription={}].",
+                        batch.getId(), subscription.getQualifiedName(), e);
+            } finally {
+                if (!retryScheduled) {
+                    finish(batch);
+                }
+            }
+        });
+    }
+
+    private CompletableFuture<MessageSendingResult> send(MessageBatch batch, Subscription subscription) {
+        try {
+            return sender.sendAsync(
+                    batch,
+                    subscription.getEndpoint(),
+                    subscription.getEndpointAddressResolverMetadata(),
+                    subscription.getBatchSubscriptionPolicy().getRequestTimeout()
+            );
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(MessageSendingResult.failedResult(e));
         }
     }
 
-    private void clean(MessageBatch batch) {
-        batchFactory.destroyBatch(batch);
-        monitoring.closeInflightMetrics(batch, subscription);
+    private boolean shouldRetry(MessageSendingResult result, BatchSubscriptionPolicy policy) {
+        return consuming && !result.succeeded() && (!result.isClientError() || policy.isRetryClientErrors());
     }
 
-    private RetryListener getRetryListener(java.util.function.Consumer<MessageSendingResult> consumer) {
-        return new RetryListener() {
-            @Override
-            public <V> void onRetry(Attempt<V> attempt) {
-                consumer.accept((MessageSendingResult) attempt.getResult());
+    private void finish(MessageBatch batch) {
+        try {
+            offerCommittedOffsets(batch);
+            logger.debug("Finished delivering batch [subscription={}]", subscription.getQualifiedName());
+        } catch (RuntimeException e) {
+            logger.error("Failed to offer offsets of delivered batch [batch_id={}, subscription={}].",
+                    batch.getId(), subscription.getQualifiedName(), e);
+        } finally {
+            try {
+                clean(batch);
+            } finally {
+                inflightBatches.release();
             }
-        };
+        }
+    }
+
+    private void clean(MessageBatch batch) {
+        batchFactory.destroyBatch(batch);
+        monitoring.closeInflightMetrics(batch, subscription);
     }
 }
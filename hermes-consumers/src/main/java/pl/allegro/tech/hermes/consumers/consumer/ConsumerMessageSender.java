@@ -4,6 +4,7 @@ import org.eclipse.jetty.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.Subscription;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
 import pl.allegro.tech.hermes.common.metric.timer.ConsumerLatencyTimer;
 import pl.allegro.tech.hermes.consumers.consumer.rate.InflightsPool;
@@ -15,15 +16,17 @@ import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSenderFactory;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResultLogInfo;
 import pl.allegro.tech.hermes.consumers.consumer.sender.timeout.FutureAsyncTimeout;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
 
 import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
@@ -38,14 +41,17 @@ public class ConsumerMessageSender {
     private final MessageSenderFactory messageSenderFactory;
     private final InflightsPool inflight;
     private final FutureAsyncTimeout<MessageSendingResult> async;
+    private final HashedTimingWheel retryTimer;
     private final int asyncTimeoutMs;
+    private final PartitionLanes partitionLanes;
 
     private int requestTimeoutMs;
     private ConsumerLatencyTimer consumerLatencyTimer;
     private MessageSender messageSender;
     private Subscription subscription;
+    private volatile int partitionInflightSize;
 
-    private ScheduledExecutorService retrySingleThreadExecutor;
+    private ExecutorService sendingSingleThreadExecutor;
     private volatile boolean running = true;
 
     public ConsumerMessageSender(Subscription subscription,
@@ -57,7 +63,9 @@ public class ConsumerMessageSender {
                                  InflightsPool inflight,
                                  HermesMetrics hermesMetrics,
                                  int asyncTimeoutMs,
-                                 FutureAsyncTimeout<MessageSendingResult> futureAsyncTimeout) {
+                                 int partitionLaneQueueSize,
+                                 FutureAsyncTimeout<MessageSendingResult> futureAsyncTimeout,
+                                 HashedTimingWheel retryTimer) {
         this.deliveryReportingExecutor = deliveryReportingExecutor;
         this.successHandlers = successHandlers;
         this.errorHandlers = errorHandlers;
@@ -67,33 +75,110 @@ public class ConsumerMessageSender {
         this.subscription = subscription;
         this.inflight = inflight;
         this.async = futureAsyncTimeout;
+        this.retryTimer = retryTimer;
         this.requestTimeoutMs = subscription.getSerialSubscriptionPolicy().getRequestTimeout();
         this.asyncTimeoutMs = asyncTimeoutMs;
+        this.partitionInflightSize = subscription.getSerialSubscriptionPolicy().getPartitionInflightSize();
+        this.partitionLanes = new PartitionLanes(laneInflightSize(partitionInflightSize), partitionLaneQueueSize);
         this.consumerLatencyTimer = hermesMetrics.latencyTimer(subscription);
     }
 
     public void initialize() {
         running = true;
-        this.retrySingleThreadExecutor = Executors.newScheduledThreadPool(1);
+        this.sendingSingleThreadExecutor = Executors.newSingleThreadExecutor();
     }
 
     public void shutdown() {
         running = false;
-        retrySingleThreadExecutor.shutdown();
+        sendingSingleThreadExecutor.shutdown();
         try {
-            retrySingleThreadExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            sendingSingleThreadExecutor.awaitTermination(1, TimeUnit.MINUTES);
         } catch (InterruptedException e) {
-            logger.warn("Failed to stop retry executor within one minute with following exception", e);
+            logger.warn("Failed to stop sending executor within one minute with following exception", e);
         }
     }
 
 
+    /**
+     * Schedules sending of the message. When subscription limits inflight messages per partition, the message may
+     * wait until earlier messages of its partition are done.
+     */
     public void sendAsync(Message message) {
-        sendAsync(message, 0);
+        if (partitionInflightSize > 0 && !partitionLanes.submit(message)) {
+            return;
+        }
+        sendingSingleThreadExecutor.execute(() -> sendMessage(message));
+    }
+
+    /**
+     * Tells whether messages of given partition wait for their turn in a full lane, so reading the partition should
+     * be paused until some of them are sent.
+     */
+    public boolean isPartitionLaneFull(KafkaTopicName topic, int partition) {
+        return partitionInflightSize > 0 && partitionLanes.isFull(topic, partition);
+    }
+
+    /**
+     * Schedules all messages as a single task, sending them one by one in given order.
+     */
+    public void sendAsync(List<Message> messages) {
+        if (partitionInflightSize > 0) {
+            List<Message> ready = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                if (partitionLanes.submit(message)) {
+                    ready.add(message);
+                }
+            }
+            if (!ready.isEmpty()) {
+                sendInOrder(ready);
+            }
+        } else {
+            sendInOrder(messages);
+        }
+    }
+
+    private void sendInOrder(List<Message> messages) {
+        sendingSingleThreadExecutor.execute(() -> {
+            for (Message message : messages) {
+                try {
+                    sendMessage(message);
+                } catch (Exception e) {
+                    logger.error("Failed to send message {} for subscription {}",
+                            message.getId(), subscription.getQualifiedName(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Hands messages which were waiting in partition lanes to the sending thread.
+     */
+    private void sendReady(List<Message> ready) {
+        if (ready.isEmpty() || !running) {
+            return;
+        }
+        try {
+            sendInOrder(ready);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Dropping waiting messages of subscription {}, sender is shutting down",
+                    subscription.getQualifiedName());
+        }
     }
 
-    private void sendAsync(Message message, int delayMillis) {
-        retrySingleThreadExecutor.schedule(() -> sendMessage(message), delayMillis, TimeUnit.MILLISECONDS);
+    /**
+     * Waits for the retry delay on the shared timer and then hands the retry over to the sending thread, as sending
+     * blocks on rate limiter and must not hold the timer thread.
+     */
+    private void scheduleRetry(Runnable retry, long delayMillis) {
+        retryTimer.schedule(subscription.getQualifiedName(), () -> {
+            if (running) {
+                try {
+                    sendingSingleThreadExecutor.execute(retry);
+                } catch (RejectedExecutionException e) {
+                    logger.debug("Dropping retry of subscription {}, sender is shutting down", subscription.getQualifiedName());
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -105,9 +190,10 @@ public class ConsumerMessageSender {
         ConsumerLatencyTimer.Context timer = consumerLatencyTimer.time();
         CompletableFuture<MessageSendingResult> response = async.within(
                 messageSender.send(message),
-                Duration.ofMillis(asyncTimeoutMs + requestTimeoutMs)
+                Duration.ofMillis(asyncTimeoutMs + requestTimeoutMs),
+                subscription.getQualifiedName()
         );
-        response.thenAcceptAsync(new ResponseHandlingListener(message, timer), deliveryReportingExecutor);
+        response.thenAcceptAsync(new ResponseHandlingListener(message, timer, System.nanoTime()), deliveryReportingExecutor);
     }
 
     public void updateSubscription(Subscription newSubscription) {
@@ -126,6 +212,7 @@ public class ConsumerMessageSender {
 
         this.subscription = newSubscription;
         this.requestTimeoutMs = newSubscription.getSerialSubscriptionPolicy().getRequestTimeout();
+        updatePartitionInflightSize(newSubscription.getSerialSubscriptionPolicy().getPartitionInflightSize());
 
         boolean httpClientChanged = this.subscription.isHttp2Enabled() != newSubscription.isHttp2Enabled();
 
@@ -135,6 +222,17 @@ public class ConsumerMessageSender {
         }
     }
 
+    private void updatePartitionInflightSize(int newPartitionInflightSize) {
+        if (partitionInflightSize != newPartitionInflightSize) {
+            partitionInflightSize = newPartitionInflightSize;
+            sendReady(partitionLanes.updateLaneInflightSize(laneInflightSize(newPartitionInflightSize)));
+        }
+    }
+
+    private static int laneInflightSize(int partitionInflightSize) {
+        return partitionInflightSize > 0 ? partitionInflightSize : Integer.MAX_VALUE;
+    }
+
     private boolean willExceedTtl(Message message, long delay) {
         long ttl = TimeUnit.SECONDS.toMillis(subscription.getSerialSubscriptionPolicy().getMessageTtl());
         long remainingTtl = Math.max(ttl - delay, 0);
@@ -152,11 +250,13 @@ public class ConsumerMessageSender {
     }
 
     private void handleMessageDiscarding(Message message, MessageSendingResult result) {
+        sendReady(partitionLanes.complete(message));
         inflight.release();
         errorHandlers.forEach(h -> h.handleDiscarded(message, subscription, result));
     }
 
     private void handleMessageSendingSuccess(Message message, MessageSendingResult result) {
+        sendReady(partitionLanes.complete(message));
         inflight.release();
         successHandlers.forEach(h -> h.handleSuccess(message, subscription, result));
     }
@@ -182,15 +282,18 @@ public class ConsumerMessageSender {
 
         private final Message message;
         private final ConsumerLatencyTimer.Context timer;
+        private final long sendingStartNanos;
 
-        public ResponseHandlingListener(Message message, ConsumerLatencyTimer.Context timer) {
+        public ResponseHandlingListener(Message message, ConsumerLatencyTimer.Context timer, long sendingStartNanos) {
             this.message = message;
             this.timer = timer;
+            this.sendingStartNanos = sendingStartNanos;
         }
 
         @Override
         public void accept(MessageSendingResult result) {
             timer.stop();
+            inflight.registerDeliveryAttempt(result, System.nanoTime() - sendingStartNanos);
             if (result.succeeded()) {
                 rateLimiter.registerSuccessfulSending();
                 handleMessageSendingSuccess(message, result);
@@ -202,7 +305,7 @@ public class ConsumerMessageSender {
 
                 long retryDelay = extractRetryDelay(result);
                 if (running && shouldAttemptResending(result, retryDelay)) {
-                    retrySingleThreadExecutor.schedule(() -> retrySending(result), retryDelay, TimeUnit.MILLISECONDS);
+                    scheduleRetry(() -> retrySending(result), retryDelay);
                 } else {
                     handleMessageDiscarding(message, result);
                 }
@@ -16,6 +16,7 @@ import pl.allegro.tech.hermes.consumers.consumer.result.SuccessHandler;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSenderFactory;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
 import pl.allegro.tech.hermes.consumers.consumer.sender.timeout.FutureAsyncTimeout;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
 import pl.allegro.tech.hermes.tracker.consumers.Trackers;
 
 import javax.inject.Inject;
@@ -24,6 +25,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_PARTITION_LANE_QUEUE_SIZE;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_RATE_LIMITER_REPORTING_THREAD_POOL_SIZE;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_SENDER_ASYNC_TIMEOUT_MS;
 import static pl.allegro.tech.hermes.common.config.Configs.KAFKA_CLUSTER_NAME;
@@ -35,6 +37,7 @@ public class ConsumerMessageSenderFactory {
     private final MessageSenderFactory messageSenderFactory;
     private final Trackers trackers;
     private final FutureAsyncTimeout<MessageSendingResult> futureAsyncTimeout;
+    private final HashedTimingWheel retryTimer;
     private final UndeliveredMessageLog undeliveredMessageLog;
     private final Clock clock;
     private final ConsumerAuthorizationHandler consumerAuthorizationHandler;
@@ -45,13 +48,15 @@ public class ConsumerMessageSenderFactory {
                                         Trackers trackers, FutureAsyncTimeout<MessageSendingResult> futureAsyncTimeout,
                                         UndeliveredMessageLog undeliveredMessageLog, Clock clock,
                                         InstrumentedExecutorServiceFactory instrumentedExecutorServiceFactory,
-                                        ConsumerAuthorizationHandler consumerAuthorizationHandler) {
+                                        ConsumerAuthorizationHandler consumerAuthorizationHandler,
+                                        HashedTimingWheel retryTimer) {
 
         this.configFactory = configFactory;
         this.hermesMetrics = hermesMetrics;
         this.messageSenderFactory = messageSenderFactory;
         this.trackers = trackers;
         this.futureAsyncTimeout = futureAsyncTimeout;
+        this.retryTimer = retryTimer;
         this.undeliveredMessageLog = undeliveredMessageLog;
         this.clock = clock;
         this.consumerAuthorizationHandler = consumerAuthorizationHandler;
@@ -81,7 +86,9 @@ public class ConsumerMessageSenderFactory {
                 inflight,
                 hermesMetrics,
                 configFactory.getIntProperty(CONSUMER_SENDER_ASYNC_TIMEOUT_MS),
-                futureAsyncTimeout);
+                configFactory.getIntProperty(CONSUMER_PARTITION_LANE_QUEUE_SIZE),
+                futureAsyncTimeout,
+                retryTimer);
     }
 
 }
@@ -0,0 +1,21 @@
+package pl.allegro.tech.hermes.consumers.consumer;
+
+/**
+ * A consumer which can share a thread with other consumers. Instead of looping in {@link #consume(Runnable)}, it is
+ * driven by a scheduler calling {@link #tryConsume(Runnable)} and parked by it when there is nothing to do.
+ */
+public interface CooperativeConsumer extends Consumer {
+
+    /**
+     * Consumes at most a single portion of messages without waiting for inflight permits or messages.
+     *
+     * @return false if there was nothing to consume
+     */
+    boolean tryConsume(Runnable signalsInterrupt);
+
+    /**
+     * Registers callback run whenever the consumer may have work again after {@link #tryConsume(Runnable)}
+     * returned false, e.g. when an inflight permit was released.
+     */
+    void onWakeUp(Runnable wakeUp);
+}
@@ -0,0 +1,165 @@
+package pl.allegro.tech.hermes.consumers.consumer;
+
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sequences delivery of messages per partition: each partition is a lane with its own limit of messages sent at once,
+ * while lanes of different partitions are delivered independently of each other.
+ * <p>
+ * Messages over the lane limit wait in the lane queue and are handed for sending in offset order, as earlier
+ * messages of the lane get delivered or discarded. With the limit of one the next message of a partition is not sent
+ * until the previous one is done, retries included, so partition order is kept end to end.
+ * <p>
+ * Lane queues are bounded: once a lane queue is full, reading of its partition should be paused until it drains, so
+ * that a slow partition does not take all inflight permits of the subscription. Only messages admitted through a
+ * lane take its place, so messages sent before lanes were enabled do not free places in the lanes when done.
+ * <p>
+ * Waiting messages stay inflight from the point of view of the offset committer, which tracks offsets per partition,
+ * so offsets are never committed past a message that was not delivered yet.
+ */
+class PartitionLanes {
+
+    private final Map<LaneKey, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final int laneQueueSize;
+
+    private volatile int laneInflightSize;
+
+    PartitionLanes(int laneInflightSize, int laneQueueSize) {
+        this.laneInflightSize = laneInflightSize;
+        this.laneQueueSize = laneQueueSize;
+    }
+
+    /**
+     * @return true if the message can be sent right away, false if it waits for its turn in the lane
+     */
+    boolean submit(Message message) {
+        LaneKey key = LaneKey.of(message);
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(key, k -> new Lane());
+            synchronized (lane) {
+                if (lane.removed) {
+                    continue;
+                }
+                if (lane.admitted.size() < laneInflightSize) {
+                    lane.admitted.add(message);
+                    return true;
+                }
+                lane.waiting.add(message);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Marks message as done, freeing its place in the lane.
+     *
+     * @return messages of the lane which can be sent now, in offset order
+     */
+    List<Message> complete(Message message) {
+        LaneKey key = LaneKey.of(message);
+        Lane lane = lanes.get(key);
+        if (lane == null) {
+            return Collections.emptyList();
+        }
+        synchronized (lane) {
+            if (!lane.admitted.remove(message)) {
+                return Collections.emptyList();
+            }
+            List<Message> ready = lane.takeReady(laneInflightSize);
+            if (lane.admitted.isEmpty() && lane.waiting.isEmpty()) {
+                lane.removed = true;
+                lanes.remove(key, lane);
+            }
+            return ready;
+        }
+    }
+
+    /**
+     * @return true if the queue of the partition lane is full and reading of the partition should be paused
+     */
+    boolean isFull(KafkaTopicName topic, int partition) {
+        Lane lane = lanes.get(new LaneKey(topic, partition));
+        if (lane == null) {
+            return false;
+        }
+        synchronized (lane) {
+            return lane.waiting.size() >= laneQueueSize;
+        }
+    }
+
+    /**
+     * Changes the limit of every lane, returning messages which can be sent under the new limit.
+     */
+    List<Message> updateLaneInflightSize(int laneInflightSize) {
+        this.laneInflightSize = laneInflightSize;
+        List<Message> ready = new ArrayList<>();
+        for (Lane lane : lanes.values()) {
+            synchronized (lane) {
+                ready.addAll(lane.takeReady(laneInflightSize));
+            }
+        }
+        return ready;
+    }
+
+    private static final class Lane {
+        private final Queue<Message> waiting = new ArrayDeque<>();
+        private final Set<Message> admitted = Collections.newSetFromMap(new IdentityHashMap<>());
+        private boolean removed;
+
+        private List<Message> takeReady(int laneInflightSize) {
+            if (waiting.isEmpty() || admitted.size() >= laneInflightSize) {
+                return Collections.emptyList();
+            }
+            List<Message> ready = new ArrayList<>();
+            while (admitted.size() < laneInflightSize && !waiting.isEmpty()) {
+                Message message = waiting.poll();
+                admitted.add(message);
+                ready.add(message);
+            }
+            return ready;
+        }
+    }
+
+    private static final class LaneKey {
+        private final KafkaTopicName topic;
+        private final int partition;
+
+        private LaneKey(KafkaTopicName topic, int partition) {
+            this.topic = topic;
+            this.partition = partition;
+        }
+
+        static LaneKey of(Message message) {
+            return new LaneKey(message.getKafkaTopic(), message.getPartition());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            LaneKey laneKey = (LaneKey) o;
+            return partition == laneKey.partition && Objects.equals(topic, laneKey.topic);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(topic, partition);
+        }
+    }
+}
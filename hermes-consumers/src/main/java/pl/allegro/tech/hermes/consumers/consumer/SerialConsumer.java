@@ -1,31 +1,43 @@
 package pl.allegro.tech.hermes.consumers.consumer;
 
+import org.eclipse.jetty.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.Subscription;
 import pl.allegro.tech.hermes.api.Topic;
 import pl.allegro.tech.hermes.common.config.ConfigFactory;
 import pl.allegro.tech.hermes.common.config.Configs;
+import pl.allegro.tech.hermes.common.kafka.offset.PartitionOffset;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
 import pl.allegro.tech.hermes.consumers.consumer.converter.MessageConverterResolver;
 import pl.allegro.tech.hermes.consumers.consumer.offset.OffsetQueue;
 import pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset;
+import pl.allegro.tech.hermes.consumers.consumer.rate.AdaptiveInflightLimit;
 import pl.allegro.tech.hermes.consumers.consumer.rate.AdjustableSemaphore;
+import pl.allegro.tech.hermes.consumers.consumer.rate.InflightsPool;
 import pl.allegro.tech.hermes.consumers.consumer.rate.SerialConsumerRateLimiter;
 import pl.allegro.tech.hermes.consumers.consumer.receiver.MessageReceiver;
 import pl.allegro.tech.hermes.consumers.consumer.receiver.ReceiverFactory;
 import pl.allegro.tech.hermes.consumers.consumer.receiver.UninitializedMessageReceiver;
+import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
 import pl.allegro.tech.hermes.tracker.consumers.Trackers;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_ADAPTIVE_INFLIGHT_BACKOFF_RATIO;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_ADAPTIVE_INFLIGHT_MIN_SIZE;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_ADAPTIVE_INFLIGHT_RTT_TOLERANCE;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_ADAPTIVE_INFLIGHT_SMOOTHING;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_INFLIGHT_SIZE;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_SERIAL_BURST_SIZE;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_SIGNAL_PROCESSING_INTERVAL;
 import static pl.allegro.tech.hermes.consumers.consumer.message.MessageConverter.toMessageMetadata;
 
-public class SerialConsumer implements Consumer {
+public class SerialConsumer implements CooperativeConsumer {
 
     private static final Logger logger = LoggerFactory.getLogger(SerialConsumer.class);
 
@@ -39,15 +51,24 @@ public class SerialConsumer implements Consumer {
     private final OffsetQueue offsetQueue;
     private final ConsumerAuthorizationHandler consumerAuthorizationHandler;
     private final AdjustableSemaphore inflightSemaphore;
+    private final AdaptiveInflightLimit adaptiveInflightLimit;
 
     private final int defaultInflight;
     private final int signalProcessingInterval;
+    private final int burstSize;
 
     private Topic topic;
     private Subscription subscription;
 
     private MessageReceiver messageReceiver;
 
+    /**
+     * Partitions whose reading was paused as their lanes were full, touched only by the consumer thread.
+     */
+    private final List<PartitionOffset> pausedPartitions = new ArrayList<>();
+
+    private volatile Runnable wakeUp = () -> { };
+
     public SerialConsumer(ReceiverFactory messageReceiverFactory,
                           HermesMetrics hermesMetrics,
                           Subscription subscription,
@@ -62,6 +83,13 @@ public class SerialConsumer implements Consumer {
 
         this.defaultInflight = configFactory.getIntProperty(CONSUMER_INFLIGHT_SIZE);
         this.signalProcessingInterval = configFactory.getIntProperty(CONSUMER_SIGNAL_PROCESSING_INTERVAL);
+        this.burstSize = configFactory.getIntProperty(CONSUMER_SERIAL_BURST_SIZE);
+        this.adaptiveInflightLimit = new AdaptiveInflightLimit(
+                configFactory.getIntProperty(CONSUMER_ADAPTIVE_INFLIGHT_MIN_SIZE),
+                calculateMaxInflightSize(subscription),
+                configFactory.getDoubleProperty(CONSUMER_ADAPTIVE_INFLIGHT_SMOOTHING),
+                configFactory.getDoubleProperty(CONSUMER_ADAPTIVE_INFLIGHT_RTT_TOLERANCE),
+                configFactory.getDoubleProperty(CONSUMER_ADAPTIVE_INFLIGHT_BACKOFF_RATIO));
         this.inflightSemaphore = new AdjustableSemaphore(calculateInflightSize(subscription));
         this.messageReceiverFactory = messageReceiverFactory;
         this.hermesMetrics = hermesMetrics;
@@ -74,10 +102,17 @@ public class SerialConsumer implements Consumer {
         this.messageConverterResolver = messageConverterResolver;
         this.messageReceiver = new UninitializedMessageReceiver();
         this.topic = topic;
-        this.sender = consumerMessageSenderFactory.create(subscription, rateLimiter, offsetQueue, inflightSemaphore::release);
+        this.sender = consumerMessageSenderFactory.create(subscription, rateLimiter, offsetQueue, new SemaphoreInflightsPool());
     }
 
     private int calculateInflightSize(Subscription subscription) {
+        if (subscription.getSerialSubscriptionPolicy().isAdaptiveInflightSize()) {
+            return adaptiveInflightLimit.getLimit();
+        }
+        return calculateMaxInflightSize(subscription);
+    }
+
+    private int calculateMaxInflightSize(Subscription subscription) {
         return Math.min(
                 subscription.getSerialSubscriptionPolicy().getInflightSize(),
                 defaultInflight
@@ -90,36 +125,125 @@ public class SerialConsumer implements Consumer {
             do {
                 signalsInterrupt.run();
             } while (!inflightSemaphore.tryAcquire(signalProcessingInterval, TimeUnit.MILLISECONDS));
+            resumeDrainedPartitions();
 
-            Optional<Message> maybeMessage = messageReceiver.next();
+            if (burstSize > 1) {
+                consumeBurst();
+            } else {
+                consumeSingle();
+            }
+        } catch (Exception e) {
+            logger.error("Consumer loop failed for {}", subscription.getQualifiedName(), e);
+        }
+    }
 
-            if (maybeMessage.isPresent()) {
-                Message message = maybeMessage.get();
+    @Override
+    public boolean tryConsume(Runnable signalsInterrupt) {
+        signalsInterrupt.run();
+        if (inflightSemaphore.tryAcquireUpTo(1) == 0) {
+            return false;
+        }
+        try {
+            resumeDrainedPartitions();
+            return burstSize > 1 ? consumeBurst() : consumeSingle();
+        } catch (Exception e) {
+            logger.error("Consumer loop failed for {}", subscription.getQualifiedName(), e);
+            return false;
+        }
+    }
 
-                if (logger.isDebugEnabled()) {
-                    logger.debug(
-                            "Read message {} partition {} offset {}",
-                            message.getContentType(), message.getPartition(), message.getOffset()
-                    );
-                }
+    @Override
+    public void onWakeUp(Runnable wakeUp) {
+        this.wakeUp = wakeUp;
+    }
 
-                Message convertedMessage = messageConverterResolver.converterFor(message, subscription).convert(message, topic);
-                sendMessage(convertedMessage);
-            } else {
+    private boolean consumeSingle() {
+        Optional<Message> maybeMessage = messageReceiver.next();
+
+        if (maybeMessage.isPresent() && isAccepted(maybeMessage.get())) {
+            Message convertedMessage = convert(maybeMessage.get());
+            registerInflight(convertedMessage);
+            sender.sendAsync(convertedMessage);
+            return true;
+        } else {
+            inflightSemaphore.release();
+            return maybeMessage.isPresent();
+        }
+    }
+
+    /**
+     * Takes all permits available at once (up to burst size) and fills them with messages that were already
+     * polled by the receiver, so that only the first message of the burst may cause polling the broker.
+     * Whole burst is handed to sender as a single task, which sends messages one by one in offset order. When conversion
+     * of a message fails, messages taken before it are still sent, just like each of them would be on its own.
+     */
+    private boolean consumeBurst() {
+        int permits = 1 + inflightSemaphore.tryAcquireUpTo(burstSize - 1);
+        List<Message> burst = new ArrayList<>(permits);
+        int used = 0;
+        try {
+            try {
+                messageReceiver.next().filter(this::isAccepted).ifPresent(message -> burst.add(convert(message)));
+                while (burst.size() < permits && messageReceiver.hasBufferedMessages()) {
+                    messageReceiver.next().filter(this::isAccepted).ifPresent(message -> burst.add(convert(message)));
+                }
+            } finally {
+                // messages converted before a failing one are already taken from receiver, so they are sent anyway
+                if (!burst.isEmpty()) {
+                    burst.forEach(this::registerInflight);
+                    sender.sendAsync(burst);
+                    used = burst.size();
+                }
+            }
+        } finally {
+            for (int i = used; i < permits; i++) {
                 inflightSemaphore.release();
             }
-        } catch (Exception e) {
-            logger.error("Consumer loop failed for {}", subscription.getQualifiedName(), e);
         }
+        return used > 0;
     }
 
-    private void sendMessage(Message message) {
+    /**
+     * Messages of partitions with full lanes are not taken: reading of the partition is paused and the message is
+     * read again once the lane drains, so a stalled partition holds at most a lane worth of inflight permits.
+     */
+    private boolean isAccepted(Message message) {
+        if (sender.isPartitionLaneFull(message.getKafkaTopic(), message.getPartition())) {
+            messageReceiver.pause(message.getPartitionOffset());
+            pausedPartitions.add(message.getPartitionOffset());
+            return false;
+        }
+        return true;
+    }
+
+    private void resumeDrainedPartitions() {
+        if (pausedPartitions.isEmpty()) {
+            return;
+        }
+        pausedPartitions.removeIf(paused -> {
+            if (sender.isPartitionLaneFull(paused.getTopic(), paused.getPartition())) {
+                return false;
+            }
+            messageReceiver.resume(paused.getTopic(), paused.getPartition());
+            return true;
+        });
+    }
+
+    private Message convert(Message message) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(
+                    "Read message {} partition {} offset {}",
+                    message.getContentType(), message.getPartition(), message.getOffset()
+            );
+        }
+        return messageConverterResolver.converterFor(message, subscription).convert(message, topic);
+    }
+
+    private void registerInflight(Message message) {
         offsetQueue.offerInflightOffset(SubscriptionPartitionOffset.subscriptionPartitionOffset(message, subscription));
 
         hermesMetrics.incrementInflightCounter(subscription);
         trackers.get(subscription).logInflight(toMessageMetadata(message, subscription));
-
-        sender.sendAsync(message);
     }
 
     @Override
@@ -132,6 +256,7 @@ public class SerialConsumer implements Consumer {
     }
 
     private void initializeMessageReceiver() {
+        pausedPartitions.clear();
         this.messageReceiver = messageReceiverFactory.createMessageReceiver(topic, subscription, rateLimiter);
     }
 
@@ -149,6 +274,7 @@ public class SerialConsumer implements Consumer {
     @Override
     public void updateSubscription(Subscription newSubscription) {
         logger.info("Updating consumer for subscription {}", subscription.getQualifiedName());
+        adaptiveInflightLimit.setMaxLimit(calculateMaxInflightSize(newSubscription));
         inflightSemaphore.setMaxPermits(calculateInflightSize(newSubscription));
         rateLimiter.updateSubscription(newSubscription);
         sender.updateSubscription(newSubscription);
@@ -182,4 +308,26 @@ public class SerialConsumer implements Consumer {
     public void moveOffset(SubscriptionPartitionOffset offset) {
         messageReceiver.moveOffset(offset);
     }
+
+    private class SemaphoreInflightsPool implements InflightsPool {
+
+        @Override
+        public void release() {
+            inflightSemaphore.release();
+            wakeUp.run();
+        }
+
+        @Override
+        public void registerDeliveryAttempt(MessageSendingResult result, long rttNanos) {
+            if (subscription.getSerialSubscriptionPolicy().isAdaptiveInflightSize()) {
+                inflightSemaphore.setMaxPermits(adaptiveInflightLimit.onSample(rttNanos, isOverloaded(result)));
+            }
+        }
+
+        private boolean isOverloaded(MessageSendingResult result) {
+            return result.isTimeout()
+                    || result.isRetryLater()
+                    || result.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS_429;
+        }
+    }
 }
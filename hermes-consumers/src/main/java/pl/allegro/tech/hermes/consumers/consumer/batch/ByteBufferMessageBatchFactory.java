@@ -1,9 +1,11 @@
 package pl.allegro.tech.hermes.consumers.consumer.batch;
 
+import com.codahale.metrics.Timer;
 import pl.allegro.tech.hermes.api.Subscription;
 import pl.allegro.tech.hermes.common.exception.InternalProcessingException;
 import pl.allegro.tech.hermes.common.metric.Gauges;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.common.metric.Timers;
 
 import java.nio.ByteBuffer;
 import java.time.Clock;
@@ -13,20 +15,24 @@ import static java.lang.String.format;
 import static java.util.UUID.randomUUID;
 
 public class ByteBufferMessageBatchFactory implements MessageBatchFactory {
-    private final DirectBufferPool bufferPool;
+    private final SizeClassedBufferPool bufferPool;
     private final Clock clock;
+    private final Timer allocationTimer;
 
     public ByteBufferMessageBatchFactory(int poolableSize, int maxPoolSize, Clock clock, HermesMetrics hermesMetrics) {
         this.clock = clock;
-        this.bufferPool = new DirectBufferPool(maxPoolSize, poolableSize, true);
+        this.bufferPool = new SizeClassedBufferPool(maxPoolSize, poolableSize);
+        this.allocationTimer = hermesMetrics.timer(Timers.BATCH_BUFFER_ALLOCATION_LATENCY);
         hermesMetrics.registerGauge(Gauges.BATCH_BUFFER_TOTAL_BYTES, bufferPool::totalMemory);
         hermesMetrics.registerGauge(Gauges.BATCH_BUFFER_AVAILABLE_BYTES, bufferPool::availableMemory);
+        hermesMetrics.registerGauge(Gauges.BATCH_BUFFER_FRAGMENTATION, bufferPool::fragmentation);
+        hermesMetrics.registerGauge(Gauges.BATCH_BUFFER_WAITERS, bufferPool::queued);
     }
 
     @Override
     public MessageBatch createBatch(Subscription subscription) {
         try {
-            ByteBuffer buffer = bufferPool.allocate(subscription.getBatchSubscriptionPolicy().getBatchVolume());
+            ByteBuffer buffer = allocate(subscription.getBatchSubscriptionPolicy().getBatchVolume());
             switch (subscription.getContentType()) {
                 case JSON:
                     return new JsonMessageBatch(randomUUID().toString(), buffer, subscription, clock);
@@ -39,6 +45,12 @@ public class ByteBufferMessageBatchFactory implements MessageBatchFactory {
         }
     }
 
+    private ByteBuffer allocate(int size) throws InterruptedException {
+        try (Timer.Context timer = allocationTimer.time()) {
+            return bufferPool.allocate(size);
+        }
+    }
+
     @Override
     public void destroyBatch(MessageBatch batch) {
         checkNotNull(batch);
@@ -14,6 +14,7 @@ import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -59,23 +60,26 @@ public class JsonMessageBatch implements MessageBatch {
     }
 
     @Override
-    public void append(byte[] data, MessageMetadata metadata) {
+    public void append(int size, Consumer<ByteBuffer> writer, MessageMetadata metadata) {
         checkState(!closed, "Batch already closed.");
-        if (!canFit(data)) throw new BufferOverflowException();
+        if (!canFit(size)) throw new BufferOverflowException();
         if (isEmpty()) batchStart = clock.millis();
 
-        byteBuffer.put((byte) (isEmpty() ? '[' : ',')).put(data);
+        byteBuffer.put((byte) (isEmpty() ? '[' : ','));
+        int start = byteBuffer.position();
+        writer.accept(byteBuffer);
+        checkState(byteBuffer.position() - start == size, "Appended element size differs from declared one.");
         this.metadata.add(metadata);
         elements++;
     }
 
     @Override
-    public boolean canFit(byte[] data) {
-        return byteBuffer.remaining() >= requiredFreeSpace(data);
+    public boolean canFit(int size) {
+        return byteBuffer.remaining() >= requiredFreeSpace(size);
     }
 
-    private int requiredFreeSpace(byte[] data) {
-        return data.length + 2;
+    private int requiredFreeSpace(int size) {
+        return size + 2;
     }
 
     @Override
@@ -147,8 +151,8 @@ public class JsonMessageBatch implements MessageBatch {
     }
 
     @Override
-    public boolean isBiggerThanTotalCapacity(byte[] data) {
-        return requiredFreeSpace(data) > getCapacity();
+    public boolean isBiggerThanTotalCapacity(int size) {
+        return requiredFreeSpace(size) > getCapacity();
     }
 
     @Override
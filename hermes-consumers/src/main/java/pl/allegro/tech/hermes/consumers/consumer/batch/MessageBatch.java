@@ -9,6 +9,7 @@ import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface MessageBatch {
 
@@ -16,9 +17,21 @@ public interface MessageBatch {
         return isClosed() || isFull() || isExpired();
     }
 
-    void append(byte[] data, MessageMetadata batchMessageMetadata) throws BufferOverflowException;
+    default void append(byte[] data, MessageMetadata batchMessageMetadata) throws BufferOverflowException {
+        append(data.length, buffer -> buffer.put(data), batchMessageMetadata);
+    }
+
+    /**
+     * Appends an element of given size, letting the writer put its content directly into the batch buffer.
+     * The writer has to advance the buffer by exactly {@code size} bytes.
+     */
+    void append(int size, Consumer<ByteBuffer> writer, MessageMetadata batchMessageMetadata) throws BufferOverflowException;
+
+    default boolean canFit(byte[] data) {
+        return canFit(data.length);
+    }
 
-    boolean canFit(byte[] data);
+    boolean canFit(int size);
 
     boolean isExpired();
 
@@ -46,7 +59,11 @@ public interface MessageBatch {
 
     boolean isEmpty();
 
-    boolean isBiggerThanTotalCapacity(byte[] data);
+    default boolean isBiggerThanTotalCapacity(byte[] data) {
+        return isBiggerThanTotalCapacity(data.length);
+    }
+
+    boolean isBiggerThanTotalCapacity(int size);
 
     int getCapacity();
 
@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.Subscription;
 import pl.allegro.tech.hermes.api.Topic;
+import pl.allegro.tech.hermes.common.message.wrapper.JsonEnvelope;
 import pl.allegro.tech.hermes.common.message.wrapper.MessageContentWrapper;
 import pl.allegro.tech.hermes.common.message.wrapper.UnsupportedContentTypeException;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
@@ -16,15 +17,16 @@ import pl.allegro.tech.hermes.tracker.consumers.MessageMetadata;
 import pl.allegro.tech.hermes.tracker.consumers.Trackers;
 
 import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static pl.allegro.tech.hermes.consumers.consumer.Message.message;
 import static pl.allegro.tech.hermes.consumers.consumer.message.MessageConverter.toMessageMetadata;
 
 @NotThreadSafe
@@ -38,7 +40,7 @@ public class MessageBatchReceiver {
     private final MessageContentWrapper messageContentWrapper;
     private final HermesMetrics hermesMetrics;
     private final Trackers trackers;
-    private final Queue<Message> inflight;
+    private final Queue<BatchElement> inflight;
     private final Topic topic;
     private boolean receiving = true;
 
@@ -72,24 +74,24 @@ public class MessageBatchReceiver {
 
         while (isReceiving() && !batch.isReadyForDelivery()) {
             signalsInterrupt.run();
-            Optional<Message> maybeMessage = inflight.isEmpty() ?
+            Optional<BatchElement> maybeElement = inflight.isEmpty() ?
                     readAndTransform(subscription, batch.getId()) : Optional.ofNullable(inflight.poll());
 
-            if (maybeMessage.isPresent()) {
-                Message message = maybeMessage.get();
+            if (maybeElement.isPresent()) {
+                BatchElement element = maybeElement.get();
 
-                if (batch.canFit(message.getData())) {
-                    batch.append(message.getData(), messageMetadata(subscription, batch.getId(), message));
-                } else if (batch.isBiggerThanTotalCapacity(message.getData())) {
+                if (batch.canFit(element.size)) {
+                    batch.append(element.size, element.writer, messageMetadata(subscription, batch.getId(), element.message));
+                } else if (batch.isBiggerThanTotalCapacity(element.size)) {
                     logger.error("Message size exceeds buffer total capacity [size={}, capacity={}, subscription={}]",
-                            message.getData().length, batch.getCapacity(), subscription.getQualifiedName());
-                    discarded.add(toMessageMetadata(message, subscription));
+                            element.size, batch.getCapacity(), subscription.getQualifiedName());
+                    discarded.add(toMessageMetadata(element.message, subscription));
                 } else {
                     logger.debug(
                             "Message too large for current batch [message_size={}, subscription={}]",
-                            message.getData().length, subscription.getQualifiedName()
+                            element.size, subscription.getQualifiedName()
                     );
-                    checkArgument(inflight.offer(message));
+                    checkArgument(inflight.offer(element));
                     break;
                 }
             }
@@ -100,28 +102,30 @@ public class MessageBatchReceiver {
         return new MessageBatchingResult(batch.close(), discarded);
     }
 
-    private Optional<Message> readAndTransform(Subscription subscription, String batchId) {
+    private Optional<BatchElement> readAndTransform(Subscription subscription, String batchId) {
         Optional<Message> maybeMessage = receiver.next();
 
         if (maybeMessage.isPresent()) {
             Message message = maybeMessage.get();
 
             Message transformed = messageConverterResolver.converterFor(message, subscription).convert(message, topic);
-            transformed = message().fromMessage(transformed).withData(wrap(subscription, transformed)).build();
+            BatchElement element = wrap(subscription, transformed);
             hermesMetrics.incrementInflightCounter(subscription);
             trackers.get(subscription).logInflight(messageMetadata(subscription, batchId, transformed));
 
-            return Optional.of(transformed);
+            return Optional.of(element);
         }
         return Optional.empty();
     }
 
-    private byte[] wrap(Subscription subscription, Message next) {
+    private BatchElement wrap(Subscription subscription, Message next) {
         switch (subscription.getContentType()) {
             case AVRO:
-                return messageContentWrapper.wrapAvro(next.getData(), next.getId(), next.getPublishingTimestamp(), topic, next.<Schema>getSchema().get(), next.getExternalMetadata());
+                byte[] wrapped = messageContentWrapper.wrapAvro(next.getData(), next.getId(), next.getPublishingTimestamp(), topic, next.<Schema>getSchema().get(), next.getExternalMetadata());
+                return new BatchElement(next, wrapped.length, buffer -> buffer.put(wrapped));
             case JSON:
-                return messageContentWrapper.wrapJson(next.getData(), next.getId(), next.getPublishingTimestamp(), next.getExternalMetadata());
+                JsonEnvelope envelope = messageContentWrapper.jsonEnvelope(next.getData(), next.getId(), next.getPublishingTimestamp(), next.getExternalMetadata());
+                return new BatchElement(next, envelope.size(), envelope::writeTo);
             default:
                 throw new UnsupportedContentTypeException(subscription);
         }
@@ -153,4 +157,20 @@ public class MessageBatchReceiver {
     public void moveOffset(SubscriptionPartitionOffset offset) {
         receiver.moveOffset(offset);
     };
+
+    /**
+     * A received message together with a writer putting its wrapped content into batch buffer. Json messages are
+     * wrapped straight into the buffer, so their payload is copied only once on the way to the subscriber.
+     */
+    private static class BatchElement {
+        private final Message message;
+        private final int size;
+        private final Consumer<ByteBuffer> writer;
+
+        BatchElement(Message message, int size, Consumer<ByteBuffer> writer) {
+            this.message = message;
+            this.size = size;
+            this.writer = writer;
+        }
+    }
 }
@@ -0,0 +1,419 @@
+package pl.allegro.tech.hermes.consumers.consumer.batch;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A pool of direct ByteBuffers kept under a given memory limit, which recycles buffers of all sizes.
+ * <p>
+ * Requested sizes are rounded up to power of two size classes, starting from the smallest poolable size. Each class
+ * has its own lock-free free list and every allocating thread caches one recently released buffer per class, so a
+ * consumer allocating buffers of the same size over and over does not touch shared state at all. Buffers released by
+ * threads which never allocate, like callback threads of the sender, go straight to free lists. Buffers of classes
+ * smaller than a slab are carved out of slabs allocated at once, larger ones are allocated one by one. Allocated
+ * buffers are slices of pooled ones, so their capacity is exactly the requested size.
+ * <p>
+ * When the limit is reached, idle buffers of classes at least as large as a slab are released first, from free lists
+ * and caches of all threads. If that is not enough, slabs with all of their buffers idle are released, so memory of
+ * one class can be reused by any other. Caches of threads which are gone are emptied into free lists. When nothing
+ * can be released, allocation blocks until some buffer is returned. Requests that would not fit in the limit after
+ * rounding up are served with buffers of exact size, which are not recycled.
+ */
+public final class SizeClassedBufferPool {
+
+    private static final int MAX_SLAB_SIZE = 1024 * 1024;
+
+    private static final int SLABS_PER_POOL = 64;
+
+    private static final int MAX_CLASS_SIZE = 1 << 30;
+
+    private final long totalMemory;
+    private final int minClassShift;
+    private final int slabSize;
+    private final List<Queue<Chunk>> free = new ArrayList<>();
+
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<>();
+    private final Queue<ThreadCache> threadCaches = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<BufferKey, Chunk> lent = new ConcurrentHashMap<>();
+
+    private final AtomicLong reservedMemory = new AtomicLong();
+    private final AtomicLong idleMemory = new AtomicLong();
+    private final AtomicLong lentMemory = new AtomicLong();
+    private final AtomicLong requestedMemory = new AtomicLong();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong releases = new AtomicLong();
+    private final Object memoryReleased = new Object();
+    private final Object releaseLock = new Object();
+
+    /**
+     * @param memory The maximum amount of memory that this buffer pool can allocate
+     * @param minPoolableSize The smallest size class, smaller requests are rounded up to it
+     */
+    public SizeClassedBufferPool(long memory, int minPoolableSize) {
+        this.totalMemory = memory;
+        this.minClassShift = shift(roundUpToPowerOfTwo(Math.max(1, minPoolableSize)));
+        int maxClassShift = shift(roundDownToPowerOfTwo(Math.min(memory, MAX_CLASS_SIZE)));
+        int classes = Math.max(0, maxClassShift - minClassShift + 1);
+        for (int i = 0; i < classes; i++) {
+            free.add(new ConcurrentLinkedQueue<>());
+        }
+        this.slabSize = (int) Math.min(MAX_SLAB_SIZE, roundDownToPowerOfTwo(Math.min(memory, MAX_CLASS_SIZE)) / SLABS_PER_POOL);
+    }
+
+    /**
+     * Allocate a buffer of the given size, blocking until there is enough memory.
+     *
+     * @param size The buffer size to allocate in bytes
+     * @return The buffer
+     * @throws InterruptedException If the thread is interrupted while blocked
+     * @throws IllegalArgumentException if size is larger than the total memory controlled by the pool
+     */
+    public ByteBuffer allocate(int size) throws InterruptedException {
+        if (size > totalMemory) {
+            throw new IllegalArgumentException("Attempt to allocate " + size + " bytes, but there is a hard limit of "
+                    + totalMemory + " on memory allocations.");
+        }
+        int sizeClass = sizeClass(size);
+        while (true) {
+            long seenReleases = releases.get();
+            Chunk chunk = sizeClass < 0 ? allocateUnpooled(size) : takeOrAllocate(sizeClass);
+            if (chunk != null) {
+                return lend(chunk, size);
+            }
+            awaitRelease(seenReleases);
+        }
+    }
+
+    /**
+     * Return buffer allocated by this pool. Pooled buffers are cached by the calling thread, if it allocates from
+     * this pool, or put back on the free list of their class.
+     */
+    public void deallocate(ByteBuffer buffer) {
+        Chunk chunk = lent.remove(new BufferKey(buffer));
+        if (chunk == null) {
+            throw new IllegalArgumentException("Buffer was not allocated by this pool or was already deallocated.");
+        }
+        int capacity = chunk.buffer.capacity();
+        lentMemory.addAndGet(-capacity);
+        requestedMemory.addAndGet(-buffer.capacity());
+
+        if (chunk.sizeClass < 0) {
+            reservedMemory.addAndGet(-capacity);
+        } else {
+            idleMemory.addAndGet(capacity);
+            ThreadCache cache = threadCache.get();
+            if (cache == null || !cache.offer(chunk)) {
+                free.get(chunk.sizeClass).offer(chunk);
+            }
+        }
+        signalRelease();
+    }
+
+    /**
+     * The free memory, both not allocated and held idle by the pool
+     */
+    public long availableMemory() {
+        return totalMemory - reservedMemory.get() + idleMemory.get();
+    }
+
+    /**
+     * The total memory managed by this pool
+     */
+    public long totalMemory() {
+        return totalMemory;
+    }
+
+    /**
+     * The fraction of memory of allocated buffers lost to rounding sizes up to size classes
+     */
+    public double fragmentation() {
+        long lentBytes = lentMemory.get();
+        return lentBytes == 0 ? 0.0 : 1.0 - (double) requestedMemory.get() / lentBytes;
+    }
+
+    /**
+     * The number of threads blocked waiting on memory
+     */
+    public int queued() {
+        return waiters.get();
+    }
+
+    private Chunk takeOrAllocate(int sizeClass) {
+        Chunk chunk = ownThreadCache().take(sizeClass);
+        if (chunk == null) {
+            chunk = free.get(sizeClass).poll();
+        }
+        if (chunk != null) {
+            idleMemory.addAndGet(-chunk.buffer.capacity());
+            return chunk;
+        }
+        return allocatePooled(sizeClass);
+    }
+
+    private Chunk allocatePooled(int sizeClass) {
+        int classSize = classSize(sizeClass);
+        if (classSize >= slabSize) {
+            return reserve(classSize) ? new Chunk(ByteBuffer.allocateDirect(classSize), sizeClass, null) : null;
+        }
+        if (!reserve(slabSize)) {
+            return null;
+        }
+        ByteBuffer slabBuffer = ByteBuffer.allocateDirect(slabSize);
+        Slab slab = new Slab(slabSize / classSize);
+        for (int offset = classSize; offset < slabSize; offset += classSize) {
+            idleMemory.addAndGet(classSize);
+            free.get(sizeClass).offer(new Chunk(slice(slabBuffer, offset, classSize), sizeClass, slab));
+        }
+        return new Chunk(slice(slabBuffer, 0, classSize), sizeClass, slab);
+    }
+
+    private Chunk allocateUnpooled(int size) {
+        return reserve(size) ? new Chunk(ByteBuffer.allocateDirect(size), -1, null) : null;
+    }
+
+    private ByteBuffer lend(Chunk chunk, int size) {
+        ByteBuffer buffer = slice(chunk.buffer, 0, size);
+        lent.put(new BufferKey(buffer), chunk);
+        lentMemory.addAndGet(chunk.buffer.capacity());
+        requestedMemory.addAndGet(size);
+        return buffer;
+    }
+
+    private boolean reserve(int size) {
+        while (true) {
+            long reserved = reservedMemory.get();
+            if (reserved + size <= totalMemory) {
+                if (reservedMemory.compareAndSet(reserved, reserved + size)) {
+                    return true;
+                }
+            } else if (!releaseIdle(reserved + size - totalMemory)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Releases idle buffers which are not slices of slabs, largest first, and then idle slabs, until at least given
+     * amount of memory is released or there is nothing more to release.
+     */
+    private boolean releaseIdle(long needed) {
+        synchronized (releaseLock) {
+            expungeDeadThreadCaches();
+            long released = 0;
+            int sizeClass = free.size() - 1;
+            for (; sizeClass >= 0 && released < needed && classSize(sizeClass) >= slabSize; sizeClass--) {
+                Chunk chunk;
+                while (released < needed && (chunk = free.get(sizeClass).poll()) != null) {
+                    released += release(chunk.buffer.capacity());
+                }
+                for (ThreadCache cache : threadCaches) {
+                    if (released >= needed) {
+                        break;
+                    }
+                    chunk = cache.take(sizeClass);
+                    if (chunk != null) {
+                        released += release(chunk.buffer.capacity());
+                    }
+                }
+            }
+            for (; sizeClass >= 0 && released < needed; sizeClass--) {
+                released += releaseIdleSlabs(sizeClass);
+            }
+            return released > 0;
+        }
+    }
+
+    /**
+     * Takes all idle buffers of a slab backed class and releases slabs whose buffers are all idle, putting the
+     * remaining buffers back on the free list.
+     */
+    private long releaseIdleSlabs(int sizeClass) {
+        List<Chunk> idle = new ArrayList<>();
+        Chunk chunk;
+        while ((chunk = free.get(sizeClass).poll()) != null) {
+            idle.add(chunk);
+        }
+        for (ThreadCache cache : threadCaches) {
+            chunk = cache.take(sizeClass);
+            if (chunk != null) {
+                idle.add(chunk);
+            }
+        }
+
+        Map<Slab, Integer> idleSlices = new IdentityHashMap<>();
+        for (Chunk idleChunk : idle) {
+            idleSlices.merge(idleChunk.slab, 1, Integer::sum);
+        }
+        long released = 0;
+        for (Map.Entry<Slab, Integer> slab : idleSlices.entrySet()) {
+            if (slab.getValue() == slab.getKey().slices) {
+                released += release(slabSize);
+            }
+        }
+        for (Chunk idleChunk : idle) {
+            if (idleSlices.get(idleChunk.slab) != idleChunk.slab.slices) {
+                free.get(sizeClass).offer(idleChunk);
+            }
+        }
+        return released;
+    }
+
+    private int release(int size) {
+        idleMemory.addAndGet(-size);
+        reservedMemory.addAndGet(-size);
+        return size;
+    }
+
+    private void awaitRelease(long seenReleases) throws InterruptedException {
+        waiters.incrementAndGet();
+        try {
+            synchronized (memoryReleased) {
+                while (releases.get() == seenReleases) {
+                    memoryReleased.wait();
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private void signalRelease() {
+        releases.incrementAndGet();
+        if (waiters.get() > 0) {
+            synchronized (memoryReleased) {
+                memoryReleased.notifyAll();
+            }
+        }
+    }
+
+    private ThreadCache ownThreadCache() {
+        ThreadCache cache = threadCache.get();
+        if (cache == null) {
+            synchronized (releaseLock) {
+                expungeDeadThreadCaches();
+                cache = new ThreadCache(Thread.currentThread(), free.size());
+                threadCaches.add(cache);
+            }
+            threadCache.set(cache);
+        }
+        return cache;
+    }
+
+    private void expungeDeadThreadCaches() {
+        for (ThreadCache cache : threadCaches) {
+            if (!cache.isOwnerAlive()) {
+                threadCaches.remove(cache);
+                for (int sizeClass = 0; sizeClass < free.size(); sizeClass++) {
+                    Chunk chunk = cache.take(sizeClass);
+                    if (chunk != null) {
+                        free.get(sizeClass).offer(chunk);
+                    }
+                }
+            }
+        }
+    }
+
+    private int sizeClass(int size) {
+        if (size > MAX_CLASS_SIZE) {
+            return -1;
+        }
+        int sizeClass = Math.max(0, shift(roundUpToPowerOfTwo(size)) - minClassShift);
+        return sizeClass < free.size() ? sizeClass : -1;
+    }
+
+    private int classSize(int sizeClass) {
+        return 1 << (sizeClass + minClassShift);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int size) {
+        ByteBuffer view = buffer.duplicate();
+        view.clear();
+        view.position(offset);
+        view.limit(offset + size);
+        return view.slice();
+    }
+
+    private static int roundUpToPowerOfTwo(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static long roundDownToPowerOfTwo(long size) {
+        return size < 1 ? 0 : Long.highestOneBit(size);
+    }
+
+    private static int shift(long powerOfTwo) {
+        return Long.numberOfTrailingZeros(powerOfTwo);
+    }
+
+    private static class Chunk {
+        private final ByteBuffer buffer;
+        private final int sizeClass;
+        private final Slab slab;
+
+        Chunk(ByteBuffer buffer, int sizeClass, Slab slab) {
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+            this.slab = slab;
+        }
+    }
+
+    private static class Slab {
+        private final int slices;
+
+        Slab(int slices) {
+            this.slices = slices;
+        }
+    }
+
+    private static class ThreadCache {
+        private final WeakReference<Thread> owner;
+        private final AtomicReferenceArray<Chunk> chunks;
+
+        ThreadCache(Thread owner, int classes) {
+            this.owner = new WeakReference<>(owner);
+            this.chunks = new AtomicReferenceArray<>(classes);
+        }
+
+        Chunk take(int sizeClass) {
+            return chunks.get(sizeClass) == null ? null : chunks.getAndSet(sizeClass, null);
+        }
+
+        boolean offer(Chunk chunk) {
+            return chunks.compareAndSet(chunk.sizeClass, null, chunk);
+        }
+
+        boolean isOwnerAlive() {
+            Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+    }
+
+    private static class BufferKey {
+        private final ByteBuffer buffer;
+
+        BufferKey(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BufferKey && ((BufferKey) o).buffer == buffer;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(buffer);
+        }
+    }
+}
@@ -4,7 +4,14 @@ import pl.allegro.tech.hermes.api.MessageFilterSpecification;
 
 import java.util.List;
 
+import static java.util.stream.Collectors.toList;
+
 public interface MessageFilterSource {
     MessageFilter compile(MessageFilterSpecification specification);
+
+    default List<MessageFilter> compile(List<MessageFilterSpecification> specifications) {
+        return specifications.stream().map(this::compile).collect(toList());
+    }
+
     List<MessageFilter> getGlobalFilters();
 }
@@ -2,10 +2,13 @@ package pl.allegro.tech.hermes.consumers.consumer.filtering;
 
 import pl.allegro.tech.hermes.api.MessageFilterSpecification;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 public class MessageFilters implements MessageFilterSource {
@@ -24,6 +27,24 @@ public class MessageFilters implements MessageFilterSource {
         return filters.get(specification.getType()).getMessageFilter(specification);
     }
 
+    /**
+     * Specifications of the same type are compiled together, which lets compilers merge them into fewer filters.
+     */
+    @Override
+    public List<MessageFilter> compile(List<MessageFilterSpecification> specifications) {
+        Map<String, List<MessageFilterSpecification>> specificationsByType = specifications.stream()
+                .collect(groupingBy(MessageFilterSpecification::getType, LinkedHashMap::new, toList()));
+        specificationsByType.keySet().stream()
+                .filter(type -> !filters.containsKey(type))
+                .findFirst()
+                .ifPresent(type -> {
+                    throw new NoSuchFilterException(type);
+                });
+        return specificationsByType.entrySet().stream()
+                .flatMap(entry -> filters.get(entry.getKey()).getMessageFilters(entry.getValue()).stream())
+                .collect(toList());
+    }
+
     @Override
     public List<MessageFilter> getGlobalFilters() {
         return globalFilters;
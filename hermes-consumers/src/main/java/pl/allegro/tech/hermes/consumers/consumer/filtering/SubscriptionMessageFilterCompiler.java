@@ -3,8 +3,11 @@ package pl.allegro.tech.hermes.consumers.consumer.filtering;
 import pl.allegro.tech.hermes.api.MessageFilterSpecification;
 import pl.allegro.tech.hermes.consumers.consumer.Message;
 
+import java.util.List;
 import java.util.function.Predicate;
 
+import static java.util.stream.Collectors.toList;
+
 public interface SubscriptionMessageFilterCompiler {
     String getType();
     Predicate<Message> compile(MessageFilterSpecification specification);
@@ -12,4 +15,8 @@ public interface SubscriptionMessageFilterCompiler {
     default MessageFilter getMessageFilter(MessageFilterSpecification specification) {
         return new MessageFilter(getType(), compile(specification));
     }
+
+    default List<MessageFilter> getMessageFilters(List<MessageFilterSpecification> specifications) {
+        return specifications.stream().map(this::getMessageFilter).collect(toList());
+    }
 }
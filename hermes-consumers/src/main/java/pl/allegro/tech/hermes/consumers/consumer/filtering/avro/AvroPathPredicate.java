@@ -5,9 +5,7 @@ import org.apache.avro.generic.GenericRecord;
 import pl.allegro.tech.hermes.api.ContentType;
 import pl.allegro.tech.hermes.consumers.consumer.Message;
 import pl.allegro.tech.hermes.consumers.consumer.filtering.FilteringException;
-import pl.allegro.tech.hermes.schema.CompiledSchema;
 
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -17,35 +15,43 @@ import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import static java.util.Optional.empty;
+import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang.StringUtils.strip;
-import static pl.allegro.tech.hermes.common.message.converter.AvroRecordToBytesConverter.bytesToRecord;
 import static pl.allegro.tech.hermes.consumers.consumer.filtering.FilteringException.check;
 
+/**
+ * Matches message when values under all paths match corresponding patterns. Message is decoded once, with
+ * a reader schema projected to fields the paths need.
+ */
 public class AvroPathPredicate implements Predicate<Message> {
-    private List<String> path;
-    private Pattern pattern;
+    private final List<List<String>> paths;
+    private final List<Pattern> patterns;
+    private final ProjectedRecordReader reader;
 
-    public AvroPathPredicate(String path, Pattern pattern) {
-        this.path = Arrays.asList(strip(path, ".").split("\\."));
-        this.pattern = pattern;
+    public AvroPathPredicate(List<String> paths, List<Pattern> patterns) {
+        this.paths = paths.stream().map(path -> Arrays.asList(strip(path, ".").split("\\."))).collect(toList());
+        this.patterns = patterns;
+        this.reader = new ProjectedRecordReader(this.paths);
     }
 
     @Override
     public boolean test(final Message message) {
         check(message.getContentType() == ContentType.AVRO, "This filter supports only AVRO contentType.");
         try {
-            return select(message).map(this::matches).orElse(false);
+            GenericRecord record = reader.read(message.getData(), message.<Schema>getSchema().get());
+            for (int i = 0; i < paths.size(); i++) {
+                Optional<String> value = select(record, paths.get(i));
+                if (!value.isPresent() || !patterns.get(i).matcher(value.get()).matches()) {
+                    return false;
+                }
+            }
+            return true;
         } catch (Exception exception) {
             throw new FilteringException(exception);
         }
     }
 
-    private Optional<Object> select(final Message message) throws IOException {
-        CompiledSchema<Schema> compiledSchema = message.<Schema>getSchema().get();
-        return select(bytesToRecord(message.getData(), compiledSchema.getSchema()));
-    }
-
-    private Optional<Object> select(GenericRecord record) {
+    private Optional<String> select(GenericRecord record, List<String> path) {
         Object current = record;
         Iterator<String> iter = path.iterator();
         while (iter.hasNext()) {
@@ -55,10 +61,6 @@ public class AvroPathPredicate implements Predicate<Message> {
                 break;
             }
         }
-        return iter.hasNext() ? empty() : Optional.ofNullable(current);
-    }
-
-    private boolean matches(Object value) {
-        return pattern.matcher(Objects.toString(value)).matches();
+        return iter.hasNext() || current == null ? empty() : Optional.of(Objects.toString(current));
     }
 }
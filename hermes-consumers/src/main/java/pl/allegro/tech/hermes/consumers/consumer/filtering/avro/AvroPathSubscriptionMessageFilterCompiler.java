@@ -2,11 +2,16 @@ package pl.allegro.tech.hermes.consumers.consumer.filtering.avro;
 
 import pl.allegro.tech.hermes.api.MessageFilterSpecification;
 import pl.allegro.tech.hermes.consumers.consumer.Message;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.MessageFilter;
 import pl.allegro.tech.hermes.consumers.consumer.filtering.SubscriptionMessageFilterCompiler;
 
+import java.util.List;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
 public class AvroPathSubscriptionMessageFilterCompiler implements SubscriptionMessageFilterCompiler {
 
     @Override
@@ -16,6 +21,21 @@ public class AvroPathSubscriptionMessageFilterCompiler implements SubscriptionMe
 
     @Override
     public Predicate<Message> compile(MessageFilterSpecification specification) {
-        return new AvroPathPredicate(specification.getPath(), Pattern.compile(specification.getMatcher()));
+        return compile(singletonList(specification));
+    }
+
+    /**
+     * All AvroPath filters of a subscription are compiled into a single one, so that message is decoded only once
+     * and only fields needed by any of the paths are read.
+     */
+    @Override
+    public List<MessageFilter> getMessageFilters(List<MessageFilterSpecification> specifications) {
+        return singletonList(new MessageFilter(getType(), compile(specifications)));
+    }
+
+    private Predicate<Message> compile(List<MessageFilterSpecification> specifications) {
+        return new AvroPathPredicate(
+                specifications.stream().map(MessageFilterSpecification::getPath).collect(toList()),
+                specifications.stream().map(s -> Pattern.compile(s.getMatcher())).collect(toList()));
     }
 }
@@ -0,0 +1,113 @@
+package pl.allegro.tech.hermes.consumers.consumer.filtering.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import pl.allegro.tech.hermes.schema.CompiledSchema;
+import pl.allegro.tech.hermes.schema.SchemaVersion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads Avro records with a reader schema projected to fields needed by given paths, so that the decoder skips
+ * all other fields instead of materializing them. Projected schemas and readers resolving them against writer
+ * schemas are built once per schema version.
+ * <p>
+ * Values selected by a path are read whole, records along the path keep only the fields some path descends
+ * into. When the writer schema defines the same named record more than once on the projected paths, it is read
+ * with the writer schema, as a single name can not stand for two different projections.
+ */
+class ProjectedRecordReader {
+
+    private final Node root = new Node();
+
+    private final Map<SchemaVersion, GenericDatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+
+    ProjectedRecordReader(List<List<String>> paths) {
+        paths.forEach(this::add);
+    }
+
+    GenericRecord read(byte[] data, CompiledSchema<Schema> compiledSchema) throws IOException {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, null);
+        return reader(compiledSchema).read(null, decoder);
+    }
+
+    Schema projectedSchema(Schema writerSchema) {
+        try {
+            return project(writerSchema, root, new HashSet<>());
+        } catch (NameRedefinedException exception) {
+            return writerSchema;
+        }
+    }
+
+    private GenericDatumReader<GenericRecord> reader(CompiledSchema<Schema> compiledSchema) {
+        GenericDatumReader<GenericRecord> reader = readers.get(compiledSchema.getVersion());
+        if (reader == null) {
+            Schema writerSchema = compiledSchema.getSchema();
+            reader = readers.computeIfAbsent(compiledSchema.getVersion(),
+                    version -> new GenericDatumReader<>(writerSchema, projectedSchema(writerSchema)));
+        }
+        return reader;
+    }
+
+    private Schema project(Schema schema, Node node, Set<String> projectedNames) {
+        if (node.selected) {
+            return schema;
+        }
+        switch (schema.getType()) {
+            case RECORD:
+                return projectRecord(schema, node, projectedNames);
+            case UNION:
+                List<Schema> types = new ArrayList<>();
+                schema.getTypes().forEach(type -> types.add(project(type, node, projectedNames)));
+                return Schema.createUnion(types);
+            default:
+                return schema;
+        }
+    }
+
+    private Schema projectRecord(Schema schema, Node node, Set<String> projectedNames) {
+        if (!projectedNames.add(schema.getFullName())) {
+            throw new NameRedefinedException();
+        }
+        List<Schema.Field> fields = new ArrayList<>();
+        for (Schema.Field field : schema.getFields()) {
+            Node child = node.fields.get(field.name());
+            if (child != null) {
+                Schema fieldSchema = project(field.schema(), child, projectedNames);
+                fields.add(new Schema.Field(field.name(), fieldSchema, field.doc(), field.defaultValue()));
+            }
+        }
+        Schema record = Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), schema.isError());
+        record.setFields(fields);
+        return record;
+    }
+
+    private void add(List<String> path) {
+        Node node = root;
+        for (String selector : path) {
+            node = node.fields.computeIfAbsent(selector, key -> new Node());
+        }
+        node.selected = true;
+    }
+
+    private static class Node {
+        private final Map<String, Node> fields = new LinkedHashMap<>();
+        private boolean selected;
+    }
+
+    private static class NameRedefinedException extends RuntimeException {
+        NameRedefinedException() {
+            super(null, null, false, false);
+        }
+    }
+}
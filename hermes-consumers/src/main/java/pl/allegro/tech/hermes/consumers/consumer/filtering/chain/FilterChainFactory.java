@@ -20,8 +20,7 @@ public class FilterChainFactory {
 
     public FilterChain create(final Subscription subscription) {
         Stream<MessageFilter> globalFilters = availableFilters.getGlobalFilters().stream();
-        Stream<MessageFilter> subscriptionFilters = subscription.getFilters().stream()
-                .map(availableFilters::compile);
+        Stream<MessageFilter> subscriptionFilters = availableFilters.compile(subscription.getFilters()).stream();
         return new FilterChain(concat(globalFilters, subscriptionFilters).collect(Collectors.toList()));
     }
 }
@@ -0,0 +1,225 @@
+package pl.allegro.tech.hermes.consumers.consumer.filtering.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads values of many definite JSONPath expressions (built only of property names and array indexes, like
+ * {@code $.a.b[1]['c']}) in a single pass over Jackson tokens. Paths are merged into a tree, subtrees no path
+ * descends into are skipped and reading stops as soon as all paths are resolved.
+ * <p>
+ * Values are rendered the same way as they are when read by JsonPath with its default provider. Paths pointing to
+ * objects or arrays are not rendered, in that case {@link #read(byte[])} returns empty result and the message has
+ * to be evaluated by JsonPath.
+ */
+class DefinitePathsReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int MAX_DOUBLE_LENGTH = 18;
+
+    private static final int MAX_INDEX_DIGITS = 3;
+
+    private final Node root = new Node();
+
+    private final int pathsCount;
+
+    private DefinitePathsReader(int pathsCount) {
+        this.pathsCount = pathsCount;
+    }
+
+    static Optional<DefinitePathsReader> compile(List<String> paths) {
+        DefinitePathsReader reader = new DefinitePathsReader(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            Optional<List<Object>> segments = segments(paths.get(i));
+            if (!segments.isPresent()) {
+                return Optional.empty();
+            }
+            reader.add(segments.get(), i);
+        }
+        return Optional.of(reader);
+    }
+
+    /**
+     * @return values of paths in order of compilation, with null for paths not found in the document
+     */
+    Optional<String[]> read(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            Reading reading = new Reading(pathsCount);
+            if (parser.nextToken() == null || !read(parser, root, reading)) {
+                return Optional.empty();
+            }
+            return Optional.of(reading.values);
+        }
+    }
+
+    private boolean read(JsonParser parser, Node node, Reading reading) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (node.paths.length > 0) {
+            if (token.isStructStart()) {
+                return false;
+            }
+            String value = render(parser, token);
+            for (int path : node.paths) {
+                reading.resolve(path, value);
+            }
+        }
+
+        if (token == JsonToken.START_OBJECT) {
+            while (!reading.isDone() && parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.fields.get(parser.getCurrentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (!read(parser, child, reading)) {
+                    return false;
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (!reading.isDone()) {
+                JsonToken element = parser.nextToken();
+                if (element == null || element == JsonToken.END_ARRAY) {
+                    break;
+                }
+                Node child = index < node.indexes.length ? node.indexes[index] : null;
+                index++;
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (!read(parser, child, reading)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String render(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return "null";
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue().toString();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getTextLength() > MAX_DOUBLE_LENGTH
+                        ? new BigDecimal(parser.getText()).toString()
+                        : Double.toString(parser.getDoubleValue());
+            default:
+                return parser.getText();
+        }
+    }
+
+    private void add(List<Object> segments, int path) {
+        Node node = root;
+        for (Object segment : segments) {
+            node = segment instanceof Integer ? node.index((Integer) segment) : node.field((String) segment);
+        }
+        node.paths = Arrays.copyOf(node.paths, node.paths.length + 1);
+        node.paths[node.paths.length - 1] = path;
+    }
+
+    /**
+     * Splits path into property names and array indexes, or returns empty result if the path is not definite or
+     * uses notation not supported here.
+     */
+    private static Optional<List<Object>> segments(String path) {
+        if (path == null || !path.startsWith("$")) {
+            return Optional.empty();
+        }
+        List<Object> segments = new ArrayList<>();
+        int position = 1;
+        while (position < path.length()) {
+            char character = path.charAt(position);
+            if (character == '.') {
+                int end = position + 1;
+                while (end < path.length() && isPropertyCharacter(path.charAt(end))) {
+                    end++;
+                }
+                if (end == position + 1) {
+                    return Optional.empty();
+                }
+                segments.add(path.substring(position + 1, end));
+                position = end;
+            } else if (path.startsWith("['", position)) {
+                int end = path.indexOf("']", position + 2);
+                if (end < 0) {
+                    return Optional.empty();
+                }
+                String name = path.substring(position + 2, end);
+                if (name.indexOf('\'') >= 0 || name.indexOf('\\') >= 0) {
+                    return Optional.empty();
+                }
+                segments.add(name);
+                position = end + 2;
+            } else if (character == '[') {
+                int end = position + 1;
+                while (end < path.length() && Character.isDigit(path.charAt(end))) {
+                    end++;
+                }
+                int digits = end - position - 1;
+                if (digits == 0 || digits > MAX_INDEX_DIGITS || end == path.length() || path.charAt(end) != ']') {
+                    return Optional.empty();
+                }
+                segments.add(Integer.parseInt(path.substring(position + 1, end)));
+                position = end + 1;
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(segments);
+    }
+
+    private static boolean isPropertyCharacter(char character) {
+        return Character.isLetterOrDigit(character) || character == '_' || character == '-';
+    }
+
+    private static class Node {
+        private final Map<String, Node> fields = new HashMap<>();
+        private Node[] indexes = new Node[0];
+        private int[] paths = new int[0];
+
+        Node field(String name) {
+            return fields.computeIfAbsent(name, key -> new Node());
+        }
+
+        Node index(int index) {
+            if (index >= indexes.length) {
+                indexes = Arrays.copyOf(indexes, index + 1);
+            }
+            if (indexes[index] == null) {
+                indexes[index] = new Node();
+            }
+            return indexes[index];
+        }
+    }
+
+    private static class Reading {
+        private final String[] values;
+        private int resolved;
+
+        Reading(int pathsCount) {
+            this.values = new String[pathsCount];
+        }
+
+        void resolve(int path, String value) {
+            if (values[path] == null) {
+                resolved++;
+            }
+            values[path] = value;
+        }
+
+        boolean isDone() {
+            return resolved >= values.length;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package pl.allegro.tech.hermes.consumers.consumer.filtering.json;
 
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import pl.allegro.tech.hermes.api.ContentType;
 import pl.allegro.tech.hermes.consumers.consumer.Message;
@@ -9,32 +10,66 @@ import pl.allegro.tech.hermes.consumers.consumer.filtering.FilteringException;
 import java.io.ByteArrayInputStream;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
+import static java.util.stream.Collectors.toList;
 import static pl.allegro.tech.hermes.consumers.consumer.filtering.FilteringException.check;
 
+/**
+ * Matches message when values under all paths match corresponding patterns. When all paths are definite, values are
+ * read in a single streaming pass, otherwise message is parsed by JsonPath once and all paths are read from it.
+ */
 public class JsonPathPredicate implements Predicate<Message> {
-    private Configuration configuration;
-    private String path;
-    private Pattern matcher;
+    private final Configuration configuration;
+    private final List<JsonPath> paths;
+    private final List<Pattern> matchers;
+    private final Optional<DefinitePathsReader> definitePathsReader;
 
-    public JsonPathPredicate(String path, Pattern matcher, Configuration configuration) {
-        this.path = path;
-        this.matcher = matcher;
+    public JsonPathPredicate(List<String> paths, List<Pattern> matchers, Configuration configuration) {
+        this.paths = paths.stream().map(JsonPath::compile).collect(toList());
+        this.matchers = matchers;
         this.configuration = configuration;
+        this.definitePathsReader = DefinitePathsReader.compile(paths);
     }
 
     @Override
     public boolean test(Message message) {
         check(message.getContentType() == ContentType.JSON, "This filter supports only JSON contentType.");
         try {
-            List<Object> result = JsonPath.parse(new ByteArrayInputStream(message.getData()), configuration).read(path);
-            return !result.isEmpty() && result.stream()
-                    .map(Objects::toString)
-                    .allMatch(o -> matcher.matcher(o).matches());
+            if (definitePathsReader.isPresent()) {
+                Optional<String[]> values = definitePathsReader.get().read(message.getData());
+                if (values.isPresent()) {
+                    return matchesAll(values.get());
+                }
+            }
+            return matchesAll(JsonPath.parse(new ByteArrayInputStream(message.getData()), configuration));
         } catch (Exception ex) {
             throw new FilteringException(ex);
         }
     }
+
+    private boolean matchesAll(String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null || !matchers.get(i).matcher(values[i]).matches()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesAll(DocumentContext document) {
+        for (int i = 0; i < paths.size(); i++) {
+            List<Object> result = document.read(paths.get(i));
+            Pattern matcher = matchers.get(i);
+            boolean matches = !result.isEmpty() && result.stream()
+                    .map(Objects::toString)
+                    .allMatch(o -> matcher.matcher(o).matches());
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -4,12 +4,16 @@ import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.Option;
 import pl.allegro.tech.hermes.api.MessageFilterSpecification;
 import pl.allegro.tech.hermes.consumers.consumer.Message;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.MessageFilter;
 import pl.allegro.tech.hermes.consumers.consumer.filtering.SubscriptionMessageFilterCompiler;
 
+import java.util.List;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import static com.jayway.jsonpath.Configuration.defaultConfiguration;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 
 public class JsonPathSubscriptionMessageFilterCompiler implements SubscriptionMessageFilterCompiler {
     private Configuration configuration = defaultConfiguration().addOptions(Option.ALWAYS_RETURN_LIST, Option.SUPPRESS_EXCEPTIONS);
@@ -21,6 +25,21 @@ public class JsonPathSubscriptionMessageFilterCompiler implements SubscriptionMe
 
     @Override
     public Predicate<Message> compile(MessageFilterSpecification specification) {
-        return new JsonPathPredicate(specification.getPath(), Pattern.compile(specification.getMatcher()), configuration);
+        return compile(singletonList(specification));
+    }
+
+    /**
+     * All JSONPath filters of a subscription are compiled into a single one, so that message is read only once.
+     */
+    @Override
+    public List<MessageFilter> getMessageFilters(List<MessageFilterSpecification> specifications) {
+        return singletonList(new MessageFilter(getType(), compile(specifications)));
+    }
+
+    private Predicate<Message> compile(List<MessageFilterSpecification> specifications) {
+        return new JsonPathPredicate(
+                specifications.stream().map(MessageFilterSpecification::getPath).collect(toList()),
+                specifications.stream().map(s -> Pattern.compile(s.getMatcher())).collect(toList()),
+                configuration);
     }
 }
@@ -0,0 +1,60 @@
+package pl.allegro.tech.hermes.consumers.consumer.load;
+
+import java.beans.ConstructorProperties;
+import java.util.Objects;
+
+/**
+ * Load a single consumer node puts on a subscription: rate of delivered messages and number of messages waiting
+ * in Kafka for the node's partitions.
+ */
+public final class SubscriptionLoad {
+
+    private final double rate;
+    private final long lag;
+
+    @ConstructorProperties({"rate", "lag"})
+    public SubscriptionLoad(double rate, long lag) {
+        this.rate = rate;
+        this.lag = lag;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public long getLag() {
+        return lag;
+    }
+
+    /**
+     * Rate the node would need to keep up with incoming messages and drain the lag within given time.
+     */
+    public double weight(int lagDrainSeconds) {
+        return rate + (double) lag / Math.max(lagDrainSeconds, 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SubscriptionLoad that = (SubscriptionLoad) o;
+        return Double.compare(that.rate, rate) == 0 && lag == that.lag;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rate, lag);
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionLoad{" +
+                "rate=" + rate +
+                ", lag=" + lag +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package pl.allegro.tech.hermes.consumers.consumer.load;
+
+import pl.allegro.tech.hermes.api.SubscriptionName;
+import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.common.metric.Meters;
+
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Gathers load of subscriptions consumed on this node. Rate is taken from the delivered messages meter, lag is
+ * provided by message receivers, which register themselves for the time they are running.
+ */
+public class SubscriptionLoadRecorder {
+
+    private final HermesMetrics hermesMetrics;
+    private final Map<SubscriptionName, LongSupplier> lags = new ConcurrentHashMap<>();
+
+    @Inject
+    public SubscriptionLoadRecorder(HermesMetrics hermesMetrics) {
+        this.hermesMetrics = hermesMetrics;
+    }
+
+    public void registerLag(SubscriptionName subscription, LongSupplier lag) {
+        lags.put(subscription, lag);
+    }
+
+    public void unregisterLag(SubscriptionName subscription) {
+        lags.remove(subscription);
+    }
+
+    public SubscriptionLoad load(SubscriptionName subscription) {
+        double rate = hermesMetrics.meter(Meters.SUBSCRIPTION_METER, subscription.getTopicName(), subscription.getName())
+                .getOneMinuteRate();
+        LongSupplier lag = lags.get(subscription);
+        return new SubscriptionLoad(rate, lag == null ? 0 : Math.max(lag.getAsLong(), 0));
+    }
+}
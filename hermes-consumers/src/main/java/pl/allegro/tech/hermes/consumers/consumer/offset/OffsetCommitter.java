@@ -1,8 +1,6 @@
 package pl.allegro.tech.hermes.consumers.consumer.offset;
 
 import com.codahale.metrics.Timer;
-import com.google.common.collect.Sets;
-import org.jctools.queues.MessagePassingQueue;
 import org.jctools.queues.MpscArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,8 +16,6 @@ import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.function.BiFunction;
-import java.util.function.Function;
 
 /**
  * Note on algorithm used to calculate offsets to actually commit.
@@ -36,29 +32,22 @@ import java.util.function.Function;
  * * inflightOffsets: message offsets that are currently being sent (inflight)
  * * committedOffsets: message offsets that are ready to get committed
  * <p>
- * This committer class holds internal state in form of inflightOffsets and failedToCommitOffsets set.
- * inlfightOffsets are all offsets that are currently in inflight state.
- * failedToCommitOffsets are offsets that could not be committed in previous algorithm iteration
+ * This committer class holds internal state in form of {@link PartitionOffsets} per subscription & partition:
+ * a sorted window of offsets that are currently in inflight state and offsets committed since the last run.
  * <p>
- * In scheduled periods, commit algorithm is run. It has three phases. First one is draining the queues and performing
- * reductions:
- * * drain committedOffsets queue to collection - it needs to be done before draining inflights, so this collection
- * will not grow anymore, resulting in having inflights unmatched by commits; commits are incremented by 1 to match
- * Kafka commit definition
- * * add all previously uncommitted offsets from failedToCommitOffsets collection to committedOffsets and clear
- * failedToCommitOffsets collection
- * * drain inflightOffset
+ * In scheduled periods, commit algorithm is run. It has two phases. First one is draining the queues:
+ * * drain committedOffsets queue - it needs to be done before draining inflights, so no commits will show up
+ * for inflights that were not drained yet, resulting in having inflights unmatched by commits
+ * * drain inflightOffsets queue
  * <p>
- * Second phase is calculating the offsets:
- * <p>
- * * calculate maximal committed offset for each subscription & partition
- * * calculate minimal inflight offset for each subscription & partition
- * <p>
- * Third phase is choosing which offset to commit for each subscription/partition. This is the minimal value of
- * * maximum committed offset
- * * minimum inflight offset
+ * Second phase is choosing which offset to commit for each subscription/partition. Offsets committed in this run
+ * are removed from the inflight window and the offset to commit is the minimal value of
+ * * maximum committed offset incremented by 1 to match Kafka commit definition
+ * * minimum inflight offset, which is the head of the window
  * <p>
  * This algorithm is very simple, memory efficient, can be performed in single thread and introduces no locks.
+ * State is kept in primitive arrays, so apart from queue entries no objects are created per message, and
+ * choosing offsets takes time proportional to the number of partitions and messages committed in this run.
  */
 public class OffsetCommitter implements Runnable {
 
@@ -74,7 +63,7 @@ public class OffsetCommitter implements Runnable {
 
     private final HermesMetrics metrics;
 
-    private final Set<SubscriptionPartitionOffset> inflightOffsets = new HashSet<>();
+    private final Map<SubscriptionPartition, PartitionOffsets> partitionOffsets = new HashMap<>();
 
     private final MpscArrayQueue<SubscriptionName> subscriptionsToCleanup = new MpscArrayQueue<>(1000);
 
@@ -95,22 +84,20 @@ public class OffsetCommitter implements Runnable {
         try (Timer.Context c = metrics.timer("offset-committer.duration").time()) {
             // committed offsets need to be drained first so that there is no possibility of new committed offsets
             // showing up after inflight queue is drained - this would lead to stall in committing offsets
-            ReducingConsumer committedOffsetsReducer = processCommittedOffsets();
-            Map<SubscriptionPartition, Long> maxCommittedOffsets = committedOffsetsReducer.reduced;
-
-            ReducingConsumer inflightOffsetReducer = processInflightOffsets(committedOffsetsReducer.all);
-            Map<SubscriptionPartition, Long> minInflightOffsets = inflightOffsetReducer.reduced;
+            offsetQueue.drainCommittedOffsets(o -> offsetsOf(o).addCommitted(o));
+            offsetQueue.drainInflightOffsets(o -> offsetsOf(o).addInflight(o));
 
             int scheduledToCommit = 0;
             OffsetsToCommit offsetsToCommit = new OffsetsToCommit();
-            for (SubscriptionPartition partition : Sets.union(minInflightOffsets.keySet(), maxCommittedOffsets.keySet())) {
-                long offset = Math.min(
-                        minInflightOffsets.getOrDefault(partition, Long.MAX_VALUE),
-                        maxCommittedOffsets.getOrDefault(partition, Long.MAX_VALUE)
-                );
-                if (offset >= 0 && offset < Long.MAX_VALUE) {
+            for (Iterator<PartitionOffsets> iterator = partitionOffsets.values().iterator(); iterator.hasNext(); ) {
+                PartitionOffsets offsets = iterator.next();
+                long offset = offsets.offsetToCommit();
+                if (offset >= 0) {
                     scheduledToCommit++;
-                    offsetsToCommit.add(new SubscriptionPartitionOffset(partition, offset));
+                    offsetsToCommit.add(new SubscriptionPartitionOffset(offsets.partition(), offset));
+                }
+                if (offsets.isEmpty()) {
+                    iterator.remove();
                 }
             }
 
@@ -124,30 +111,13 @@ public class OffsetCommitter implements Runnable {
         }
     }
 
-    private ReducingConsumer processCommittedOffsets() {
-        ReducingConsumer committedOffsetsReducer = new ReducingConsumer(Math::max, c -> c + 1);
-        offsetQueue.drainCommittedOffsets(committedOffsetsReducer);
-        committedOffsetsReducer.resetModifierFunction();
-        return committedOffsetsReducer;
-    }
-
-    private ReducingConsumer processInflightOffsets(Set<SubscriptionPartitionOffset> committedOffsets) {
-        ReducingConsumer inflightOffsetReducer = new ReducingConsumer(Math::min);
-        offsetQueue.drainInflightOffsets(o -> reduceIfNotCommitted(o, inflightOffsetReducer, committedOffsets));
-        inflightOffsets.forEach(o -> reduceIfNotCommitted(o, inflightOffsetReducer, committedOffsets));
-
-        inflightOffsets.clear();
-        inflightOffsets.addAll(inflightOffsetReducer.all);
-
-        return inflightOffsetReducer;
-    }
-
-    private void reduceIfNotCommitted(SubscriptionPartitionOffset offset,
-                                      ReducingConsumer inflightOffsetReducer,
-                                      Set<SubscriptionPartitionOffset> committedOffsets) {
-        if (!committedOffsets.contains(offset)) {
-            inflightOffsetReducer.accept(offset);
+    private PartitionOffsets offsetsOf(SubscriptionPartitionOffset offset) {
+        PartitionOffsets offsets = partitionOffsets.get(offset.getSubscriptionPartition());
+        if (offsets == null) {
+            offsets = new PartitionOffsets(offset.getSubscriptionPartition());
+            partitionOffsets.put(offset.getSubscriptionPartition(), offsets);
         }
+        return offsets;
     }
 
     public void removeUncommittedOffsets(SubscriptionName subscriptionName) {
@@ -157,10 +127,8 @@ public class OffsetCommitter implements Runnable {
     private void cleanupUnusedSubscriptions() {
         Set<SubscriptionName> subscriptionNames = new HashSet<>();
         subscriptionsToCleanup.drain(subscriptionNames::add);
-        for (Iterator<SubscriptionPartitionOffset> iterator = inflightOffsets.iterator(); iterator.hasNext(); ) {
-            if (subscriptionNames.contains(iterator.next().getSubscriptionName())) {
-                iterator.remove();
-            }
+        if (!subscriptionNames.isEmpty()) {
+            partitionOffsets.keySet().removeIf(partition -> subscriptionNames.contains(partition.getSubscriptionName()));
         }
     }
 
@@ -175,36 +143,4 @@ public class OffsetCommitter implements Runnable {
     public void shutdown() {
         scheduledExecutor.shutdown();
     }
-
-    private static final class ReducingConsumer implements MessagePassingQueue.Consumer<SubscriptionPartitionOffset> {
-        private final BiFunction<Long, Long, Long> reductor;
-        private Function<Long, Long> modifier;
-        private final Map<SubscriptionPartition, Long> reduced = new HashMap<>();
-        private final Set<SubscriptionPartitionOffset> all = new HashSet<>();
-
-        private ReducingConsumer(BiFunction<Long, Long, Long> reductor, Function<Long, Long> offsetModifier) {
-            this.reductor = reductor;
-            this.modifier = offsetModifier;
-        }
-
-        private ReducingConsumer(BiFunction<Long, Long, Long> reductor) {
-            this(reductor, Function.identity());
-        }
-
-        private void resetModifierFunction() {
-            this.modifier = Function.identity();
-        }
-
-        @Override
-        public void accept(SubscriptionPartitionOffset p) {
-            all.add(p);
-            reduced.compute(
-                    p.getSubscriptionPartition(),
-                    (k, v) -> {
-                        long offset = modifier.apply(p.getOffset());
-                        return v == null ? offset : reductor.apply(v, offset);
-                    }
-            );
-        }
-    }
 }
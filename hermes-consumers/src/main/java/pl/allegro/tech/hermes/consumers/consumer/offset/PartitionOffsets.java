@@ -0,0 +1,146 @@
+package pl.allegro.tech.hermes.consumers.consumer.offset;
+
+import java.util.Arrays;
+
+/**
+ * Offsets state of single subscription partition, kept by {@link OffsetCommitter} between its runs.
+ * <p>
+ * Inflight offsets are held in a sorted window of primitive longs. Consumers read partitions in order, so new
+ * offsets almost always land at the end of the window; offsets reported again after retransmission are inserted
+ * in place. Committed offsets are marked in the window and the head of the window skips marked offsets, so the
+ * smallest inflight offset is always at the head. Marked offsets behind the head are dropped when the window is full.
+ * <p>
+ * Committed offsets reported in a run are buffered until inflight offsets of that run are added, since
+ * an inflight offset can be drained in the same run as its commit.
+ * <p>
+ * Not thread safe, accessed only by the committer thread.
+ */
+class PartitionOffsets {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private SubscriptionPartition partition;
+
+    private long[] inflight = new long[INITIAL_CAPACITY];
+    private boolean[] done = new boolean[INITIAL_CAPACITY];
+    private int head;
+    private int tail;
+
+    private long[] committed = new long[INITIAL_CAPACITY];
+    private int committedCount;
+    private long maxCommitted = -1;
+
+    PartitionOffsets(SubscriptionPartition partition) {
+        this.partition = partition;
+    }
+
+    SubscriptionPartition partition() {
+        return partition;
+    }
+
+    void addCommitted(SubscriptionPartitionOffset offset) {
+        partition = offset.getSubscriptionPartition();
+        if (committedCount == committed.length) {
+            committed = Arrays.copyOf(committed, committedCount * 2);
+        }
+        committed[committedCount++] = offset.getOffset();
+        maxCommitted = Math.max(maxCommitted, offset.getOffset());
+    }
+
+    void addInflight(SubscriptionPartitionOffset offset) {
+        partition = offset.getSubscriptionPartition();
+        long value = offset.getOffset();
+        if (head == tail || inflight[tail - 1] < value) {
+            ensureCapacity();
+            inflight[tail] = value;
+            done[tail] = false;
+            tail++;
+        } else {
+            insert(value);
+        }
+    }
+
+    /**
+     * Removes offsets committed in this run from inflight ones and returns offset to commit: the smallest offset
+     * still inflight, but no larger than the largest offset committed in this run plus one, or -1 if there is
+     * nothing to commit.
+     */
+    long offsetToCommit() {
+        for (int i = 0; i < committedCount; i++) {
+            int index = Arrays.binarySearch(inflight, head, tail, committed[i]);
+            if (index >= 0) {
+                done[index] = true;
+            }
+        }
+        while (head < tail && done[head]) {
+            head++;
+        }
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+
+        long offset = Math.min(
+                head < tail ? inflight[head] : Long.MAX_VALUE,
+                maxCommitted >= 0 ? maxCommitted + 1 : Long.MAX_VALUE
+        );
+
+        committedCount = 0;
+        maxCommitted = -1;
+        return offset < Long.MAX_VALUE ? offset : -1;
+    }
+
+    boolean isEmpty() {
+        return head == tail && committedCount == 0;
+    }
+
+    private void insert(long value) {
+        ensureCapacity();
+        int index = Arrays.binarySearch(inflight, head, tail, value);
+        if (index >= 0) {
+            done[index] = false;
+            return;
+        }
+        int position = -index - 1;
+        System.arraycopy(inflight, position, inflight, position + 1, tail - position);
+        System.arraycopy(done, position, done, position + 1, tail - position);
+        inflight[position] = value;
+        done[position] = false;
+        tail++;
+    }
+
+    /**
+     * Makes room for one more offset at the end of the window, moving the window to the start of the array and
+     * dropping committed offsets from it, which shifts positions of all offsets. Offsets committed behind a long
+     * retried one are dropped as well, so the window is bounded by the number of offsets still inflight.
+     */
+    private void ensureCapacity() {
+        if (tail < inflight.length) {
+            return;
+        }
+        int remaining = 0;
+        for (int i = head; i < tail; i++) {
+            if (!done[i]) {
+                remaining++;
+            }
+        }
+        long[] targetInflight = inflight;
+        boolean[] targetDone = done;
+        if (remaining * 2 > inflight.length) {
+            targetInflight = new long[inflight.length * 2];
+            targetDone = new boolean[inflight.length * 2];
+        }
+        int position = 0;
+        for (int i = head; i < tail; i++) {
+            if (!done[i]) {
+                targetInflight[position] = inflight[i];
+                targetDone[position] = false;
+                position++;
+            }
+        }
+        inflight = targetInflight;
+        done = targetDone;
+        head = 0;
+        tail = position;
+    }
+}
@@ -0,0 +1,107 @@
+package pl.allegro.tech.hermes.consumers.consumer.rate;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Latency driven limit of inflight messages of a subscription, following the gradient algorithm.
+ * <p>
+ * Round trip times of delivery attempts are collected in windows of (at least) as many samples as the current limit,
+ * so that each window spans roughly a single round trip of all inflight messages. After each window the average RTT
+ * of the window is compared with the no load RTT, the lowest window RTT seen so far:
+ * <ul>
+ *     <li>while the window RTT stays within <i>rttTolerance</i> of the no load one, the endpoint is not queueing
+ *     messages and the limit grows by its square root,</li>
+ *     <li>when the window RTT grows beyond it, the limit shrinks proportionally to the RTT growth,</li>
+ *     <li>when any attempt in the window was dropped (timed out or rejected by overloaded endpoint), the limit is
+ *     multiplied by <i>backoffRatio</i> at once.</li>
+ * </ul>
+ * Latency driven changes are smoothed with <i>smoothing</i> factor. The limit always stays between given minimum and
+ * maximum. It starts from the minimum, so that the no load RTT is learned before the endpoint gets loaded. Whenever
+ * the limit falls back to the minimum, the no load RTT is measured anew, as the endpoint itself might have slowed down.
+ */
+@ThreadSafe
+public class AdaptiveInflightLimit {
+
+    private static final int MIN_WINDOW_SIZE = 10;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double backoffRatio;
+
+    private int maxLimit;
+    private double limit;
+    private double noLoadRtt = Double.MAX_VALUE;
+
+    private long windowRttSum;
+    private int windowRttSamples;
+    private int windowSamples;
+    private boolean windowDropped;
+
+    public AdaptiveInflightLimit(int minLimit, int maxLimit, double smoothing, double rttTolerance, double backoffRatio) {
+        checkArgument(minLimit >= 1, "Minimal limit must be at least 1");
+        checkArgument(smoothing > 0 && smoothing <= 1, "Smoothing must be in (0, 1]");
+        checkArgument(rttTolerance >= 1, "RTT tolerance must be at least 1");
+        checkArgument(backoffRatio > 0 && backoffRatio < 1, "Backoff ratio must be in (0, 1)");
+        this.minLimit = minLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.backoffRatio = backoffRatio;
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        this.limit = minLimit;
+    }
+
+    /**
+     * Registers outcome of a single delivery attempt.
+     *
+     * @param rttNanos time from sending the message to receiving the response
+     * @param dropped whether the attempt failed in a way signalling endpoint overload, RTT of such attempt is ignored
+     * @return current limit
+     */
+    public synchronized int onSample(long rttNanos, boolean dropped) {
+        if (dropped) {
+            windowDropped = true;
+        } else {
+            windowRttSum += rttNanos;
+            windowRttSamples++;
+        }
+        windowSamples++;
+        if (windowSamples >= Math.max(MIN_WINDOW_SIZE, (int) limit)) {
+            recalculate();
+        }
+        return getLimit();
+    }
+
+    public synchronized int getLimit() {
+        return (int) Math.round(limit);
+    }
+
+    /**
+     * Changes the upper bound of the limit, e.g. after subscription inflight size was updated.
+     */
+    public synchronized void setMaxLimit(int maxLimit) {
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        this.limit = Math.min(limit, this.maxLimit);
+    }
+
+    private void recalculate() {
+        double newLimit;
+        if (windowDropped) {
+            newLimit = limit * backoffRatio;
+        } else {
+            double shortRtt = (double) windowRttSum / windowRttSamples;
+            noLoadRtt = limit <= minLimit ? shortRtt : Math.min(noLoadRtt, shortRtt);
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * noLoadRtt / shortRtt));
+            newLimit = limit * (1 - smoothing) + (limit * gradient + Math.sqrt(limit)) * smoothing;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+
+        windowRttSum = 0;
+        windowRttSamples = 0;
+        windowSamples = 0;
+        windowDropped = false;
+    }
+}
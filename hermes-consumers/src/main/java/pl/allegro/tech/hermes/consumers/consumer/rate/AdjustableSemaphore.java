@@ -101,6 +101,19 @@ public final class AdjustableSemaphore {
         return this.semaphore.tryAcquire(timeout, unit);
     }
 
+    /**
+     * Acquire as many permits as are immediately available, but no more than given number.
+     *
+     * @return number of acquired permits
+     */
+    public int tryAcquireUpTo(int permits) {
+        int acquired = 0;
+        while (acquired < permits && this.semaphore.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+
     public int availablePermits(){
         return this.semaphore.availablePermits();
     }
@@ -1,5 +1,13 @@
 package pl.allegro.tech.hermes.consumers.consumer.rate;
 
+import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
+
 public interface InflightsPool {
     void release();
+
+    /**
+     * Registers outcome and round trip time of a single delivery attempt, letting the pool adapt its size.
+     */
+    default void registerDeliveryAttempt(MessageSendingResult result, long rttNanos) {
+    }
 }
@@ -0,0 +1,101 @@
+package pl.allegro.tech.hermes.consumers.consumer.rate.maxrate;
+
+import pl.allegro.tech.hermes.api.SubscriptionName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary encoding of rate histories and max rates of all subscriptions of a single consumer node.
+ * <p>
+ * Each blob starts with a format version followed by the number of entries. An entry holds the qualified
+ * subscription name and either the rates of its history (count followed by values) or its max rate. The whole blob
+ * is deflated, as names of subscriptions sharing a group compress well.
+ */
+class ConsumerRatesEncoder {
+
+    private static final byte VERSION = 1;
+
+    byte[] encodeRateHistories(Map<SubscriptionName, RateHistory> rateHistories) {
+        return encode(rateHistories, (history, output) -> {
+            List<Double> rates = history.getRates();
+            output.writeShort(rates.size());
+            for (double rate : rates) {
+                output.writeDouble(rate);
+            }
+        });
+    }
+
+    Map<SubscriptionName, RateHistory> decodeRateHistories(byte[] bytes) {
+        return decode(bytes, input -> {
+            int size = input.readUnsignedShort();
+            List<Double> rates = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                rates.add(input.readDouble());
+            }
+            return new RateHistory(rates);
+        });
+    }
+
+    byte[] encodeMaxRates(Map<SubscriptionName, MaxRate> maxRates) {
+        return encode(maxRates, (maxRate, output) -> output.writeDouble(maxRate.getMaxRate()));
+    }
+
+    Map<SubscriptionName, MaxRate> decodeMaxRates(byte[] bytes) {
+        return decode(bytes, input -> new MaxRate(input.readDouble()));
+    }
+
+    private <T> byte[] encode(Map<SubscriptionName, T> values, ValueWriter<T> valueWriter) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            output.writeByte(VERSION);
+            output.writeInt(values.size());
+            for (Map.Entry<SubscriptionName, T> entry : values.entrySet()) {
+                output.writeUTF(entry.getKey().getQualifiedName());
+                valueWriter.write(entry.getValue(), output);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode consumer rates", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private <T> Map<SubscriptionName, T> decode(byte[] bytes, ValueReader<T> valueReader) {
+        if (bytes == null || bytes.length == 0) {
+            return Collections.emptyMap();
+        }
+        try (DataInputStream input = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            byte version = input.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported consumer rates format version: " + version);
+            }
+            int size = input.readInt();
+            Map<SubscriptionName, T> values = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                SubscriptionName subscription = SubscriptionName.fromString(input.readUTF());
+                values.put(subscription, valueReader.read(input));
+            }
+            return values;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not decode consumer rates", e);
+        }
+    }
+
+    private interface ValueWriter<T> {
+        void write(T value, DataOutputStream output) throws IOException;
+    }
+
+    private interface ValueReader<T> {
+        T read(DataInputStream input) throws IOException;
+    }
+}
@@ -12,6 +12,7 @@ import java.time.Clock;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 class MaxRateCalculator {
 
@@ -54,6 +55,10 @@ class MaxRateCalculator {
             Map<SubscriptionName, Set<String>> subscriptionConsumers =
                     subscriptionConsumersCache.getSubscriptionsConsumers();
 
+            maxRateRegistry.onBeforeMaxRateCalculation(subscriptionConsumers.values().stream()
+                    .flatMap(Set::stream)
+                    .collect(Collectors.toSet()));
+
             subscriptionConsumers.entrySet().forEach(entry -> {
                 try {
                     Subscription subscription = subscriptionsCache.getSubscription(entry.getKey());
@@ -78,8 +83,11 @@ class MaxRateCalculator {
                 }
             });
 
+            int writtenNodes = maxRateRegistry.onAfterMaxRateCalculation();
+
             lastUpdateDurationMillis = clock.millis() - start;
-            logger.info("Max rate calculation done in {} ms", lastUpdateDurationMillis);
+            logger.info("Max rate calculation done in {} ms, max rates of {} consumers written",
+                    lastUpdateDurationMillis, writtenNodes);
         } catch (Exception e) {
             logger.error("Problem calculating max rate", e);
         }
@@ -1,140 +1,241 @@
 package pl.allegro.tech.hermes.consumers.consumer.rate.maxrate;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import org.apache.commons.collections4.ListUtils;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.NodeCache;
 import org.apache.zookeeper.KeeperException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.SubscriptionName;
+import pl.allegro.tech.hermes.common.config.ConfigFactory;
 import pl.allegro.tech.hermes.common.exception.InternalProcessingException;
 import pl.allegro.tech.hermes.infrastructure.zookeeper.ZookeeperPaths;
-import pl.allegro.tech.hermes.infrastructure.zookeeper.cache.HierarchicalCache;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.stream.Collectors;
 
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_NODE_ID;
+
+/**
+ * Stores rate histories and max rates in a single znode per consumer node, each covering all subscriptions
+ * of the node, instead of a pair of znodes per subscription and consumer.
+ * <p>
+ * Consumer side: rate histories are kept in memory and written in one go after each self update, only if any of
+ * them changed. Histories written before restart are used until the subscription records a new one. The max rates
+ * are read from a single watched node, written by the leader.
+ * <p>
+ * Leader side: before calculation histories and max rates of all consumers are read, one node each. New max rates
+ * are collected during calculation and written afterwards, only to the nodes whose content changed.
+ * <p>
+ * Consumers of versions storing rates per subscription and consumer do not write the per consumer nodes. Once every
+ * consumer taking part in calculation has its node, the leader removes the tree of the previous layout.
+ */
 public class MaxRateRegistry {
 
     private static final Logger logger = LoggerFactory.getLogger(MaxRateRegistry.class);
 
-    private static final int LEVEL_SUBSCRIPTION = 0;
-    private static final int LEVEL_CONSUMER = 1;
-    private static final int LEVEL_CONTENT = 2;
-
     private final CuratorFramework curator;
-    private final ObjectMapper objectMapper;
     private final ZookeeperPaths zookeeperPaths;
-    private final MaxRatePathSerializer pathSerializer;
-    private final HierarchicalCache cache;
+    private final String consumerId;
+    private final ConsumerRatesEncoder encoder = new ConsumerRatesEncoder();
+    private final NodeCache maxRateCache;
 
-    private final Map<ConsumerInstance, RateInfo> rateInfos = new ConcurrentHashMap<>();
+    private final Map<SubscriptionName, RateHistory> rateHistories = new ConcurrentHashMap<>();
+    private volatile Map<SubscriptionName, RateHistory> restoredRateHistories = Collections.emptyMap();
+    private volatile Map<SubscriptionName, MaxRate> maxRates = Collections.emptyMap();
+    private volatile boolean rateHistoriesChanged;
+
+    private final Map<String, Map<SubscriptionName, RateHistory>> consumersRateHistories = new ConcurrentHashMap<>();
+    private final Map<String, Map<SubscriptionName, MaxRate>> consumersMaxRates = new ConcurrentHashMap<>();
+    private final Map<String, Map<SubscriptionName, MaxRate>> consumersNewMaxRates = new ConcurrentHashMap<>();
+    private final Set<String> consumersWithoutNodes = ConcurrentHashMap.newKeySet();
 
     @Inject
-    public MaxRateRegistry(CuratorFramework curator, ObjectMapper objectMapper, ZookeeperPaths zookeeperPaths,
-                           MaxRatePathSerializer pathSerializer) {
+    public MaxRateRegistry(ConfigFactory configFactory, CuratorFramework curator, ZookeeperPaths zookeeperPaths) {
+        this(curator, zookeeperPaths, configFactory.getStringProperty(CONSUMER_WORKLOAD_NODE_ID));
+    }
+
+    MaxRateRegistry(CuratorFramework curator, ZookeeperPaths zookeeperPaths, String consumerId) {
         this.curator = curator;
-        this.objectMapper = objectMapper;
         this.zookeeperPaths = zookeeperPaths;
-        this.pathSerializer = pathSerializer;
-
-        ThreadFactory cacheThreadFactory = new ThreadFactoryBuilder().setNameFormat("max-rate-registry-%d").build();
-        this.cache = new HierarchicalCache(curator,
-                Executors.newSingleThreadScheduledExecutor(cacheThreadFactory),
-                zookeeperPaths.consumersRateRuntimePath(), 3, Collections.emptyList()
-        );
-
-        handleContentUpdates();
-        handleConsumerUpdates();
+        this.consumerId = consumerId;
+        this.maxRateCache = new NodeCache(curator, zookeeperPaths.consumersMaxRatePath(consumerId));
+        this.maxRateCache.getListenable().addListener(this::updateMaxRates);
     }
 
     public void start() throws Exception {
-        cache.start();
+        restoredRateHistories = read(zookeeperPaths.consumersRateHistoryPath(consumerId))
+                .map(encoder::decodeRateHistories)
+                .orElse(Collections.emptyMap());
+        maxRateCache.start(true);
+        updateMaxRates();
     }
 
     public void stop() throws Exception {
-        cache.stop();
+        maxRateCache.close();
     }
 
-    Set<ConsumerRateInfo> ensureCorrectAssignments(SubscriptionName subscriptionName, Set<String> currentConsumers) {
-        Set<ConsumerRateInfo> rateInfos = new HashSet<>();
-        try {
-            cleanupRegistry(subscriptionName, new ArrayList<>(currentConsumers));
+    Optional<MaxRate> getMaxRate(ConsumerInstance consumer) {
+        if (!consumerId.equals(consumer.getConsumerId())) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(maxRates.get(consumer.getSubscription()));
+    }
 
-            for (String consumerId : currentConsumers) {
-                ConsumerInstance consumerInstance = new ConsumerInstance(consumerId, subscriptionName);
-                RateInfo rateInfo = this.rateInfos.getOrDefault(consumerInstance, RateInfo.empty());
-                rateInfos.add(new ConsumerRateInfo(consumerId, rateInfo));
-            }
+    RateHistory getRateHistory(ConsumerInstance consumer) {
+        RateHistory rateHistory = rateHistories.get(consumer.getSubscription());
+        if (rateHistory == null) {
+            return restoredRateHistories.getOrDefault(consumer.getSubscription(), RateHistory.empty());
+        }
+        return rateHistory;
+    }
+
+    void writeRateHistory(ConsumerInstance consumer, RateHistory rateHistory) {
+        rateHistories.put(consumer.getSubscription(), rateHistory);
+        rateHistoriesChanged = true;
+    }
+
+    void removeRateHistory(ConsumerInstance consumer) {
+        if (rateHistories.remove(consumer.getSubscription()) != null) {
+            rateHistoriesChanged = true;
+        }
+    }
+
+    void onAfterWriteRateHistories() {
+        if (!rateHistoriesChanged) {
+            return;
+        }
+        rateHistoriesChanged = false;
+        try {
+            writeOrCreate(zookeeperPaths.consumersRateHistoryPath(consumerId),
+                    encoder.encodeRateHistories(new HashMap<>(rateHistories)));
         } catch (Exception e) {
-            throw new InternalProcessingException("Trouble ensuring assignments in zookeeper", e);
+            rateHistoriesChanged = true;
+            logger.warn("Problem writing rate histories of consumer {}", consumerId, e);
         }
-        return rateInfos;
     }
 
-    void update(SubscriptionName subscriptionName, Map<String, MaxRate> newMaxRates) {
+    void onBeforeMaxRateCalculation(Set<String> currentConsumers) {
+        consumersRateHistories.clear();
+        consumersMaxRates.clear();
+        consumersNewMaxRates.clear();
+        consumersWithoutNodes.clear();
         try {
-            for (Map.Entry<String, MaxRate> entry : newMaxRates.entrySet()) {
-                String maxRatePath = zookeeperPaths.consumersMaxRatePath(subscriptionName, entry.getKey());
-                writeOrCreate(maxRatePath, objectMapper.writeValueAsBytes(entry.getValue()));
+            for (String consumer : currentConsumers) {
+                Optional<byte[]> rateHistories = read(zookeeperPaths.consumersRateHistoryPath(consumer));
+                if (!rateHistories.isPresent()) {
+                    consumersWithoutNodes.add(consumer);
+                }
+                consumersRateHistories.put(consumer, rateHistories
+                        .map(encoder::decodeRateHistories)
+                        .orElse(Collections.emptyMap()));
+                consumersMaxRates.put(consumer, read(zookeeperPaths.consumersMaxRatePath(consumer))
+                        .map(encoder::decodeMaxRates)
+                        .orElse(Collections.emptyMap()));
+                consumersNewMaxRates.put(consumer, new HashMap<>());
             }
         } catch (Exception e) {
-            throw new InternalProcessingException(e);
+            throw new InternalProcessingException("Trouble reading consumer rates from zookeeper", e);
         }
     }
 
-    Optional<MaxRate> getMaxRate(ConsumerInstance consumer) {
-        RateInfo rateInfo = rateInfos.get(consumer);
-        return Optional.ofNullable(rateInfo).map(RateInfo::getMaxRate).orElse(Optional.empty());
+    Set<ConsumerRateInfo> ensureCorrectAssignments(SubscriptionName subscriptionName, Set<String> currentConsumers) {
+        Set<ConsumerRateInfo> rateInfos = new HashSet<>();
+        for (String consumer : currentConsumers) {
+            Optional<MaxRate> maxRate = Optional.ofNullable(
+                    consumersMaxRates.getOrDefault(consumer, Collections.emptyMap()).get(subscriptionName));
+            RateHistory rateHistory = consumersRateHistories.getOrDefault(consumer, Collections.emptyMap())
+                    .getOrDefault(subscriptionName, RateHistory.empty());
+
+            maxRate.ifPresent(rate -> newMaxRatesOf(consumer).put(subscriptionName, rate));
+            rateInfos.add(new ConsumerRateInfo(consumer, new RateInfo(maxRate, rateHistory)));
+        }
+        return rateInfos;
     }
 
-    RateHistory getRateHistory(ConsumerInstance consumer) {
-        return Optional.ofNullable(rateInfos.get(consumer)).map(RateInfo::getRateHistory).orElse(RateHistory.empty());
+    void update(SubscriptionName subscriptionName, Map<String, MaxRate> newMaxRates) {
+        newMaxRates.forEach((consumer, maxRate) -> newMaxRatesOf(consumer).put(subscriptionName, maxRate));
     }
 
-    void writeRateHistory(ConsumerInstance consumer, RateHistory rateHistory) {
-        String path = zookeeperPaths.consumersRateHistoryPath(consumer.getSubscription(), consumer.getConsumerId());
+    /**
+     * Writes max rates of consumers whose rates changed and removes nodes of consumers which have no subscriptions,
+     * as well as the previous layout when no consumer uses it anymore.
+     *
+     * @return the number of written max rate nodes
+     */
+    int onAfterMaxRateCalculation() {
+        int written = 0;
         try {
-            byte[] serialized = objectMapper.writeValueAsBytes(rateHistory);
-            writeOrCreate(path, serialized);
+            for (Map.Entry<String, Map<SubscriptionName, MaxRate>> entry : consumersNewMaxRates.entrySet()) {
+                String consumer = entry.getKey();
+                if (!entry.getValue().equals(consumersMaxRates.get(consumer))) {
+                    writeOrCreate(zookeeperPaths.consumersMaxRatePath(consumer), encoder.encodeMaxRates(entry.getValue()));
+                    written++;
+                }
+            }
+            removeInactiveConsumers();
+            removeLegacyRates();
         } catch (Exception e) {
-            throw new InternalProcessingException(e);
+            throw new InternalProcessingException("Trouble writing max rates to zookeeper", e);
         }
+        return written;
     }
 
-    private void cleanupRegistry(SubscriptionName subscriptionName, List<String> currentConsumers) throws Exception {
-        List<String> previousConsumers = rateInfos.keySet().stream()
-                .filter(c -> c.getSubscription().equals(subscriptionName))
-                .map(c -> c.getConsumerId()).collect(Collectors.toList());
-
-        List<String> toRemove = ListUtils.subtract(previousConsumers, currentConsumers);
+    private Map<SubscriptionName, MaxRate> newMaxRatesOf(String consumer) {
+        return consumersNewMaxRates.computeIfAbsent(consumer, key -> new HashMap<>());
+    }
 
-        if (!toRemove.isEmpty()) {
-            logger.info("Removing consumers for max rates for subscription {}: {}", subscriptionName, toRemove);
+    private void removeInactiveConsumers() throws Exception {
+        List<String> consumers;
+        try {
+            consumers = curator.getChildren().forPath(zookeeperPaths.consumersRateNodesPath());
+        } catch (KeeperException.NoNodeException e) {
+            return;
         }
+        for (String consumer : consumers) {
+            if (!consumersNewMaxRates.containsKey(consumer)) {
+                logger.info("Removing max rates of inactive consumer {}", consumer);
+                try {
+                    curator.delete().deletingChildrenIfNeeded().forPath(zookeeperPaths.consumersRateNodePath(consumer));
+                } catch (KeeperException.NoNodeException e) {
+                    // ignore
+                }
+            }
+        }
+    }
 
-        toRemove.forEach(removedConsumer -> removeConsumerEntries(subscriptionName, removedConsumer));
+    /**
+     * Consumers which did not write their rate histories yet, either just started or of previous version, may still
+     * use the previous layout, so it is removed only when all consumers taking part in calculation have their nodes.
+     */
+    private void removeLegacyRates() throws Exception {
+        if (!consumersWithoutNodes.isEmpty()) {
+            logger.debug("Keeping max rates of previous layout, consumers without rate nodes: {}", consumersWithoutNodes);
+            return;
+        }
+        String legacyPath = zookeeperPaths.legacyConsumersRateRuntimePath();
+        if (curator.checkExists().forPath(legacyPath) != null) {
+            logger.info("Removing max rates stored per subscription and consumer under {}", legacyPath);
+            try {
+                curator.delete().deletingChildrenIfNeeded().forPath(legacyPath);
+            } catch (KeeperException.NoNodeException e) {
+                // ignore
+            }
+        }
     }
 
-    private void removeConsumerEntries(SubscriptionName subscriptionName, String consumerId) {
+    private Optional<byte[]> read(String path) throws Exception {
         try {
-            curator.delete().deletingChildrenIfNeeded()
-                    .forPath(zookeeperPaths.consumersRatePath(subscriptionName, consumerId));
+            return Optional.of(curator.getData().forPath(path));
         } catch (KeeperException.NoNodeException e) {
-            // ignore
-        } catch (Exception e) {
-            throw new InternalProcessingException(e);
+            return Optional.empty();
         }
     }
 
@@ -145,64 +246,17 @@ public class MaxRateRegistry {
             try {
                 curator.create().creatingParentContainersIfNeeded().forPath(path, serializedData);
             } catch (KeeperException.NodeExistsException ex) {
-                // ignore
+                curator.setData().forPath(path, serializedData);
             }
         }
     }
 
-    private void handleConsumerUpdates() {
-        cache.registerCallback(LEVEL_CONSUMER, event -> {
-            String path = event.getData().getPath();
-            ConsumerInstance consumer = pathSerializer.consumerInstanceFromConsumerPath(path);
-            switch (event.getType()) {
-                case CHILD_REMOVED:
-                    rateInfos.remove(consumer);
-                    break;
-            }
-        });
-    }
-
-    private void handleContentUpdates() {
-        cache.registerCallback(LEVEL_CONTENT, event -> {
-            String path = event.getData().getPath();
-            byte[] bytes = event.getData().getData();
-
-            ConsumerInstance consumer = pathSerializer.consumerInstanceFromContentPath(path);
-            String content = pathSerializer.content(path);
-
-            switch (event.getType()) {
-                case CHILD_ADDED:
-                case CHILD_UPDATED:
-                    switch (content) {
-                        case ZookeeperPaths.MAX_RATE_PATH:
-                            updateMaxRateInCache(consumer, bytes);
-                            break;
-                        case ZookeeperPaths.MAX_RATE_HISTORY_PATH:
-                            updateRateHistoryInCache(consumer, bytes);
-                            break;
-                    }
-                    break;
-            }
-        });
-    }
-
-    private void updateMaxRateInCache(ConsumerInstance consumer, byte[] bytes) {
-        try {
-            MaxRate maxRate = objectMapper.readValue(bytes, MaxRate.class);
-            rateInfos.compute(consumer, (key, oldValue) -> oldValue == null ?
-                    RateInfo.withNoHistory(maxRate) : oldValue.copyWithNewMaxRate(maxRate));
-        } catch (Exception e) {
-            logger.warn("Problem updating max rate for consumer {}", consumer, e);
-        }
-    }
-
-    private void updateRateHistoryInCache(ConsumerInstance consumer, byte[] bytes) {
+    private void updateMaxRates() {
+        ChildData data = maxRateCache.getCurrentData();
         try {
-            RateHistory rateHistory = objectMapper.readValue(bytes, RateHistory.class);
-            rateInfos.compute(consumer, (key, oldValue) -> oldValue == null ?
-                    RateInfo.withNoMaxRate(rateHistory) : oldValue.copyWithNewRateHistory(rateHistory));
+            maxRates = data == null ? Collections.emptyMap() : encoder.decodeMaxRates(data.getData());
         } catch (Exception e) {
-            logger.warn("Problem updating rate history for consumer {}", consumer, e);
+            logger.warn("Problem updating max rates of consumer {}", consumerId, e);
         }
     }
 }
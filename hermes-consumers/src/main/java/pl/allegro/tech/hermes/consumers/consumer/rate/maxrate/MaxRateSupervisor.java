@@ -86,6 +86,7 @@ public class MaxRateSupervisor implements Runnable {
     @Override
     public void run() {
         providers.forEach(NegotiatedMaxRateProvider::tickForHistory);
+        maxRateRegistry.onAfterWriteRateHistories();
     }
 
     public void register(NegotiatedMaxRateProvider maxRateProvider) {
@@ -95,6 +95,7 @@ public class NegotiatedMaxRateProvider implements MaxRateProvider {
 
     public void shutdown() {
         maxRateSupervisor.unregister(this);
+        registry.removeRateHistory(consumer);
         metrics.unregisterMaxRateGauge(subscription);
         metrics.unregisterRateGauge(subscription);
     }
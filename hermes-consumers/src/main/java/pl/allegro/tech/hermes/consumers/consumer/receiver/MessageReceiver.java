@@ -1,6 +1,8 @@
 package pl.allegro.tech.hermes.consumers.consumer.receiver;
 
 import pl.allegro.tech.hermes.api.Subscription;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
+import pl.allegro.tech.hermes.common.kafka.offset.PartitionOffset;
 import pl.allegro.tech.hermes.consumers.consumer.Message;
 import pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset;
 
@@ -11,10 +13,25 @@ public interface MessageReceiver {
 
     Optional<Message> next();
 
+    /**
+     * Tells whether next call to {@link #next()} can return a message without polling the broker.
+     */
+    default boolean hasBufferedMessages() {
+        return false;
+    }
+
     default void stop() {}
 
     default void update(Subscription newSubscription) {}
 
+    /**
+     * Stops reading the partition of given offset until it is resumed. Messages of the partition which were already
+     * fetched but not handed out yet are dropped and reading is resumed from given offset.
+     */
+    default void pause(PartitionOffset from) {}
+
+    default void resume(KafkaTopicName topic, int partition) {}
+
     void commit(Set<SubscriptionPartitionOffset> offsets);
 
     void moveOffset(SubscriptionPartitionOffset offset);
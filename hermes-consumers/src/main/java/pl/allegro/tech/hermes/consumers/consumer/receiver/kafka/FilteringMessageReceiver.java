@@ -1,6 +1,8 @@
 package pl.allegro.tech.hermes.consumers.consumer.receiver.kafka;
 
 import pl.allegro.tech.hermes.api.Subscription;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
+import pl.allegro.tech.hermes.common.kafka.offset.PartitionOffset;
 import pl.allegro.tech.hermes.consumers.consumer.Message;
 import pl.allegro.tech.hermes.consumers.consumer.filtering.FilteredMessageHandler;
 import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChain;
@@ -39,6 +41,11 @@ public class FilteringMessageReceiver implements MessageReceiver {
         );
     }
 
+    @Override
+    public boolean hasBufferedMessages() {
+        return receiver.hasBufferedMessages();
+    }
+
     private boolean allow(Message message) {
         FilterResult result = filterChain.apply(message);
         filteredMessageHandler.handle(result, message, subscription);
@@ -59,6 +66,16 @@ public class FilteringMessageReceiver implements MessageReceiver {
         this.receiver.update(newSubscription);
     }
 
+    @Override
+    public void pause(PartitionOffset from) {
+        receiver.pause(from);
+    }
+
+    @Override
+    public void resume(KafkaTopicName topic, int partition) {
+        receiver.resume(topic, partition);
+    }
+
     @Override
     public void commit(Set<SubscriptionPartitionOffset> offsets) {
         receiver.commit(offsets);
@@ -1,6 +1,8 @@
 package pl.allegro.tech.hermes.consumers.consumer.receiver.kafka;
 
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.Subscription;
 import pl.allegro.tech.hermes.api.Topic;
 import pl.allegro.tech.hermes.common.config.ConfigFactory;
@@ -11,20 +13,28 @@ import pl.allegro.tech.hermes.common.message.wrapper.MessageContentWrapper;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
 import pl.allegro.tech.hermes.consumers.consumer.filtering.FilteredMessageHandler;
 import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChainFactory;
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoadRecorder;
 import pl.allegro.tech.hermes.consumers.consumer.offset.OffsetQueue;
 import pl.allegro.tech.hermes.consumers.consumer.rate.ConsumerRateLimiter;
 import pl.allegro.tech.hermes.consumers.consumer.receiver.MessageReceiver;
 import pl.allegro.tech.hermes.consumers.consumer.receiver.ReceiverFactory;
 import pl.allegro.tech.hermes.tracker.consumers.Trackers;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.time.Clock;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.kafka.clients.consumer.ConsumerConfig.*;
 
 public class KafkaMessageReceiverFactory implements ReceiverFactory {
 
+    private static final Logger logger = LoggerFactory.getLogger(KafkaMessageReceiverFactory.class);
+
     private final ConfigFactory configs;
     private final MessageContentWrapper messageContentWrapper;
     private final HermesMetrics hermesMetrics;
@@ -33,6 +43,8 @@ public class KafkaMessageReceiverFactory implements ReceiverFactory {
     private final KafkaNamesMapper kafkaNamesMapper;
     private final FilterChainFactory filterChainFactory;
     private final Trackers trackers;
+    private final Optional<ForkJoinPool> filteringPool;
+    private final SubscriptionLoadRecorder loadRecorder;
 
     @Inject
     public KafkaMessageReceiverFactory(ConfigFactory configs,
@@ -42,7 +54,8 @@ public class KafkaMessageReceiverFactory implements ReceiverFactory {
                                        Clock clock,
                                        KafkaNamesMapper kafkaNamesMapper,
                                        FilterChainFactory filterChainFactory,
-                                       Trackers trackers) {
+                                       Trackers trackers,
+                                       SubscriptionLoadRecorder loadRecorder) {
         this.configs = configs;
         this.messageContentWrapper = messageContentWrapper;
         this.hermesMetrics = hermesMetrics;
@@ -51,6 +64,8 @@ public class KafkaMessageReceiverFactory implements ReceiverFactory {
         this.kafkaNamesMapper = kafkaNamesMapper;
         this.filterChainFactory = filterChainFactory;
         this.trackers = trackers;
+        this.loadRecorder = loadRecorder;
+        this.filteringPool = createFilteringPool(configs.getIntProperty(Configs.CONSUMER_FILTERING_PARALLELISM));
     }
 
     @Override
@@ -66,8 +81,9 @@ public class KafkaMessageReceiverFactory implements ReceiverFactory {
                 topic,
                 subscription,
                 clock,
-                configs.getIntProperty(Configs.CONSUMER_RECEIVER_POOL_TIMEOUT),
-                configs.getIntProperty(Configs.CONSUMER_RECEIVER_READ_QUEUE_CAPACITY));
+                pollTimeout(subscription),
+                configs.getBooleanProperty(Configs.CONSUMER_COMMIT_OFFSET_ASYNC),
+                loadRecorder);
 
         if (configs.getBooleanProperty(Configs.CONSUMER_FILTERING_ENABLED)) {
             FilteredMessageHandler filteredMessageHandler = new FilteredMessageHandler(
@@ -75,11 +91,47 @@ public class KafkaMessageReceiverFactory implements ReceiverFactory {
                     consumerRateLimiter,
                     trackers,
                     hermesMetrics);
-            receiver = new FilteringMessageReceiver(receiver, filteredMessageHandler, filterChainFactory, subscription);
+            if (filteringPool.isPresent()) {
+                receiver = new ParallelFilteringMessageReceiver(receiver, filteredMessageHandler, filterChainFactory,
+                        subscription, filteringPool.get(), configs.getIntProperty(Configs.CONSUMER_FILTERING_PARALLEL_BATCH_SIZE));
+            } else {
+                receiver = new FilteringMessageReceiver(receiver, filteredMessageHandler, filterChainFactory, subscription);
+            }
         }
         return receiver;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        filteringPool.ifPresent(ForkJoinPool::shutdownNow);
+    }
+
+    private static Optional<ForkJoinPool> createFilteringPool(int parallelism) {
+        if (parallelism <= 0) {
+            return Optional.empty();
+        }
+        AtomicInteger threads = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("parallel-filtering-" + threads.getAndIncrement());
+            return thread;
+        };
+        return Optional.of(new ForkJoinPool(parallelism, threadFactory,
+                (t, e) -> logger.error("Exception from parallel filtering thread {}", t.getName(), e), false));
+    }
+
+    /**
+     * Serial consumers scheduled cooperatively share threads with other consumers, so they must not block waiting
+     * for records; they are parked by the scheduler instead. Polling with zero timeout still blocks while Kafka
+     * consumer looks up the group coordinator or joins the group.
+     */
+    private int pollTimeout(Subscription subscription) {
+        if (configs.getBooleanProperty(Configs.CONSUMER_COOPERATIVE_SCHEDULING_ENABLED) && !subscription.isBatchSubscription()) {
+            return 0;
+        }
+        return configs.getIntProperty(Configs.CONSUMER_RECEIVER_POOL_TIMEOUT);
+    }
+
     private KafkaConsumer<byte[], byte[]> createKafkaConsumer(Topic topic, Subscription subscription) {
         ConsumerGroupId groupId = kafkaNamesMapper.toConsumerGroupId(subscription.getQualifiedName());
         Properties props = new Properties();
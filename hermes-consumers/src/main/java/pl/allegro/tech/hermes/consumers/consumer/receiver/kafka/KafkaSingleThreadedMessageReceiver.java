@@ -1,11 +1,14 @@
 package pl.allegro.tech.hermes.consumers.consumer.receiver.kafka;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableList;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.Metric;
 import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +16,7 @@ import pl.allegro.tech.hermes.api.ContentType;
 import pl.allegro.tech.hermes.api.Subscription;
 import pl.allegro.tech.hermes.api.Topic;
 import pl.allegro.tech.hermes.common.kafka.KafkaNamesMapper;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
 import pl.allegro.tech.hermes.common.kafka.KafkaTopic;
 import pl.allegro.tech.hermes.common.kafka.KafkaTopics;
 import pl.allegro.tech.hermes.common.kafka.offset.PartitionOffset;
@@ -21,28 +25,38 @@ import pl.allegro.tech.hermes.common.message.wrapper.UnsupportedContentTypeExcep
 import pl.allegro.tech.hermes.common.message.wrapper.UnwrappedMessageContent;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
 import pl.allegro.tech.hermes.consumers.consumer.Message;
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoadRecorder;
 import pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset;
 import pl.allegro.tech.hermes.consumers.consumer.receiver.MessageReceiver;
 
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class KafkaSingleThreadedMessageReceiver implements MessageReceiver {
     private static final Logger logger = LoggerFactory.getLogger(KafkaSingleThreadedMessageReceiver.class);
 
+    private static final String RECORDS_LAG_MAX_METRIC = "records-lag-max";
+
     private KafkaConsumer<byte[], byte[]> consumer;
     private final MessageContentWrapper messageContentWrapper;
     private final Clock clock;
 
-    private final BlockingQueue<Message> readQueue;
+    /**
+     * Records from the last poll which were not handed out yet. Touched only by the consumer thread, records are
+     * converted to messages one at a time, so the ones dropped on stop never get unwrapped.
+     */
+    private Iterator<ConsumerRecord<byte[], byte[]>> records = Collections.emptyIterator();
 
     private final HermesMetrics metrics;
     private Topic topic;
@@ -52,6 +66,20 @@ public class KafkaSingleThreadedMessageReceiver implements MessageReceiver {
 
     private final int pollTimeout;
 
+    private final boolean commitAsync;
+    private final Timer commitLatencyTimer;
+    private final Counter commitFailuresCounter;
+
+    /**
+     * Offsets waiting for asynchronous commit, coalesced per partition. Like the records, touched only by the
+     * consumer thread, which is also the one running commit callbacks.
+     */
+    private final Map<TopicPartition, OffsetAndMetadata> pendingCommits = new HashMap<>();
+    private Map<TopicPartition, OffsetAndMetadata> inflightCommit = Collections.emptyMap();
+
+    private final SubscriptionLoadRecorder loadRecorder;
+    private volatile Metric recordsLagMax;
+
     public KafkaSingleThreadedMessageReceiver(KafkaConsumer<byte[], byte[]> consumer,
                                               MessageContentWrapper messageContentWrapper,
                                               HermesMetrics metrics,
@@ -60,18 +88,23 @@ public class KafkaSingleThreadedMessageReceiver implements MessageReceiver {
                                               Subscription subscription,
                                               Clock clock,
                                               int pollTimeout,
-                                              int readQueueCapacity) {
+                                              boolean commitAsync,
+                                              SubscriptionLoadRecorder loadRecorder) {
         this.metrics = metrics;
         this.topic = topic;
         this.subscription = subscription;
         this.pollTimeout = pollTimeout;
+        this.commitAsync = commitAsync;
+        this.commitLatencyTimer = metrics.offsetCommitLatencyTimer(subscription);
+        this.commitFailuresCounter = metrics.offsetCommitFailuresCounter(subscription);
         this.topics = getKafkaTopics(topic, kafkaNamesMapper).stream()
                 .collect(Collectors.toMap(t -> t.name().asString(), Function.identity()));
         this.consumer = consumer;
         this.messageContentWrapper = messageContentWrapper;
         this.clock = clock;
-        this.readQueue = new ArrayBlockingQueue<Message>(readQueueCapacity);
         this.consumer.subscribe(topics.keySet());
+        this.loadRecorder = loadRecorder;
+        this.loadRecorder.registerLag(subscription.getQualifiedName(), this::lag);
     }
 
     private Collection<KafkaTopic> getKafkaTopics(Topic topic, KafkaNamesMapper kafkaNamesMapper) {
@@ -84,33 +117,41 @@ public class KafkaSingleThreadedMessageReceiver implements MessageReceiver {
     @Override
     public Optional<Message> next() {
         try {
-            if (readQueue.isEmpty()) {
-                ConsumerRecords<byte[], byte[]> records = consumer.poll(pollTimeout);
-                try {
-                    for (ConsumerRecord<byte[], byte[]> record : records) {
-                        readQueue.add(convertToMessage(record));
-                    }
-                } catch (Exception ex) {
-                    logger.error("Failed to read message for subscription {}, readQueueSize {}, records {}",
-                            subscription.getQualifiedName(),
-                            readQueue.size(),
-                            records.count(),
-                            ex);
+            if (!records.hasNext()) {
+                records = consumer.poll(pollTimeout).iterator();
+                if (commitAsync) {
+                    commitPendingAsync();
                 }
             }
-            return Optional.ofNullable(readQueue.poll());
         } catch (KafkaException ex) {
             logger.error("Error while reading message for subscription {}", subscription.getQualifiedName(), ex);
             return Optional.empty();
         } catch (Exception ex) {
-            logger.error("Failed to read message for subscription {}, readQueueSize {}",
+            logger.error("Failed to read message for subscription {}", subscription.getQualifiedName(), ex);
+            return Optional.empty();
+        }
+
+        if (!records.hasNext()) {
+            return Optional.empty();
+        }
+        ConsumerRecord<byte[], byte[]> record = records.next();
+        try {
+            return Optional.of(convertToMessage(record));
+        } catch (Exception ex) {
+            logger.error("Failed to read message for subscription {}, partition {}, offset {}",
                     subscription.getQualifiedName(),
-                    readQueue.size(),
+                    record.partition(),
+                    record.offset(),
                     ex);
             return Optional.empty();
         }
     }
 
+    @Override
+    public boolean hasBufferedMessages() {
+        return records.hasNext();
+    }
+
     private Message convertToMessage(ConsumerRecord<byte[], byte[]> record) {
         UnwrappedMessageContent unwrappedContent = getUnwrappedMessageContent(record);
         KafkaTopic kafkaTopic = topics.get(record.topic());
@@ -137,11 +178,62 @@ public class KafkaSingleThreadedMessageReceiver implements MessageReceiver {
         throw new UnsupportedContentTypeException(topic);
     }
 
+    /**
+     * Lag of the most lagging partition consumed by this receiver in the recent fetches, as measured by Kafka
+     * consumer. Read from the metric, as the consumer itself must not be touched outside of the consumer thread.
+     */
+    private long lag() {
+        Metric metric = recordsLagMax;
+        if (metric == null) {
+            metric = consumer.metrics().entrySet().stream()
+                    .filter(entry -> RECORDS_LAG_MAX_METRIC.equals(entry.getKey().name()))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElse(null);
+            recordsLagMax = metric;
+        }
+        double lag = metric == null ? 0 : metric.value();
+        return Double.isFinite(lag) ? (long) lag : 0;
+    }
+
     @Override
     public void stop() {
+        loadRecorder.unregisterLag(subscription.getQualifiedName());
+        if (commitAsync) {
+            commitPendingSync();
+        }
         consumer.close();
     }
 
+    /**
+     * Pauses fetching of the partition and seeks it back to given offset, dropping its records from the last poll
+     * which were not handed out yet. Kafka consumer forgets paused partitions on rebalance, in which case the
+     * partition is paused again when its next message is read.
+     */
+    @Override
+    public void pause(PartitionOffset from) {
+        TopicPartition partition = new TopicPartition(from.getTopic().asString(), from.getPartition());
+        List<ConsumerRecord<byte[], byte[]>> remaining = new ArrayList<>();
+        records.forEachRemaining(record -> {
+            if (record.partition() != partition.partition() || !record.topic().equals(partition.topic())) {
+                remaining.add(record);
+            }
+        });
+        records = remaining.iterator();
+        if (consumer.assignment().contains(partition)) {
+            consumer.pause(Collections.singleton(partition));
+            consumer.seek(partition, from.getOffset());
+        }
+    }
+
+    @Override
+    public void resume(KafkaTopicName topic, int partition) {
+        TopicPartition topicPartition = new TopicPartition(topic.asString(), partition);
+        if (consumer.assignment().contains(topicPartition)) {
+            consumer.resume(Collections.singleton(topicPartition));
+        }
+    }
+
     @Override
     public void update(Subscription newSubscription) {
         this.subscription = newSubscription;
@@ -149,22 +241,96 @@ public class KafkaSingleThreadedMessageReceiver implements MessageReceiver {
 
     @Override
     public void commit(Set<SubscriptionPartitionOffset> offsets) {
+        if (commitAsync) {
+            try {
+                pendingCommits.putAll(createOffset(offsets));
+                commitPendingAsync();
+            } catch (Exception ex) {
+                logger.error("Error while committing offset for subscription {}", subscription.getQualifiedName(), ex);
+                markCommitFailure();
+            }
+        } else {
+            Timer.Context timer = commitLatencyTimer.time();
+            try {
+                consumer.commitSync(createOffset(offsets));
+            } catch (Exception ex) {
+                logger.error("Error while committing offset for subscription {}", subscription.getQualifiedName(), ex);
+                markCommitFailure();
+            } finally {
+                timer.stop();
+            }
+        }
+    }
+
+    /**
+     * Sends all pending offsets in a single request, unless previous one is not acknowledged yet. Offsets of a failed
+     * request go back to pending ones, where they give way to newer offsets of the same partition, and are retried
+     * with the next commit or poll.
+     */
+    private void commitPendingAsync() {
+        if (!inflightCommit.isEmpty() || pendingCommits.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsetsData = new HashMap<>(pendingCommits);
+        pendingCommits.clear();
+        inflightCommit = offsetsData;
+        Timer.Context timer = commitLatencyTimer.time();
         try {
-            consumer.commitSync(createOffset(offsets));
+            consumer.commitAsync(offsetsData, (committed, exception) -> {
+                timer.stop();
+                inflightCommit = Collections.emptyMap();
+                if (exception != null) {
+                    logger.warn("Failed to commit offsets for subscription {}, will retry",
+                            subscription.getQualifiedName(), exception);
+                    markCommitFailure();
+                    retryLater(offsetsData);
+                }
+            });
         } catch (Exception ex) {
+            inflightCommit = Collections.emptyMap();
             logger.error("Error while committing offset for subscription {}", subscription.getQualifiedName(), ex);
-            metrics.counter("offset-committer.failed").inc();
+            markCommitFailure();
+            retryLater(offsetsData);
         }
     }
 
+    private void retryLater(Map<TopicPartition, OffsetAndMetadata> offsetsData) {
+        Set<TopicPartition> assignment = consumer.assignment();
+        offsetsData.forEach((partition, offset) -> {
+            if (assignment.contains(partition)) {
+                pendingCommits.putIfAbsent(partition, offset);
+            }
+        });
+    }
+
+    private void commitPendingSync() {
+        inflightCommit.forEach(pendingCommits::putIfAbsent);
+        if (pendingCommits.isEmpty()) {
+            return;
+        }
+        try {
+            consumer.commitSync(pendingCommits);
+        } catch (Exception ex) {
+            logger.error("Error while committing offset for subscription {}", subscription.getQualifiedName(), ex);
+            markCommitFailure();
+        }
+    }
+
+    private void markCommitFailure() {
+        metrics.counter("offset-committer.failed").inc();
+        commitFailuresCounter.inc();
+    }
+
     private Map<TopicPartition, OffsetAndMetadata> createOffset(Set<SubscriptionPartitionOffset> partitionOffsets) {
+        Set<TopicPartition> assignment = consumer.assignment();
         Map<TopicPartition, OffsetAndMetadata> offsetsData = new LinkedHashMap<>();
         for (SubscriptionPartitionOffset partitionOffset : partitionOffsets) {
             TopicPartition topicAndPartition = new TopicPartition(
                     partitionOffset.getKafkaTopicName().asString(),
                     partitionOffset.getPartition());
 
-            if (consumer.position(topicAndPartition) >= partitionOffset.getOffset()) {
+            if (assignment.contains(topicAndPartition)
+                    && consumer.position(topicAndPartition) >= partitionOffset.getOffset()) {
                 offsetsData.put(topicAndPartition, new OffsetAndMetadata(partitionOffset.getOffset()));
             }
         }
@@ -0,0 +1,158 @@
+package pl.allegro.tech.hermes.consumers.consumer.receiver.kafka;
+
+import pl.allegro.tech.hermes.api.Subscription;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
+import pl.allegro.tech.hermes.common.kafka.offset.PartitionOffset;
+import pl.allegro.tech.hermes.consumers.consumer.Message;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.FilteredMessageHandler;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChain;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChainFactory;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterResult;
+import pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset;
+import pl.allegro.tech.hermes.consumers.consumer.receiver.MessageReceiver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Filters messages like {@link FilteringMessageReceiver}, but evaluates filter chain for all messages already
+ * polled by the underlying receiver at once, in parallel on a fork-join pool shared by all subscriptions.
+ * <p>
+ * Only evaluation is parallel. Evaluated messages are handed out in polling order and filtered ones are passed to
+ * {@link FilteredMessageHandler} on the consumer thread just before the next message is returned, so offsets of
+ * filtered messages are committed in the same order relative to delivered ones as when filtering inline.
+ * Evaluated messages of a paused partition are dropped, they are read and evaluated again after resuming.
+ */
+public class ParallelFilteringMessageReceiver implements MessageReceiver {
+    private final MessageReceiver receiver;
+    private final FilteredMessageHandler filteredMessageHandler;
+    private final FilterChainFactory filterChainFactory;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    private final ArrayDeque<Evaluated> evaluated = new ArrayDeque<>();
+
+    private volatile FilterChain filterChain;
+    private Subscription subscription;
+
+    public ParallelFilteringMessageReceiver(MessageReceiver receiver,
+                                            FilteredMessageHandler filteredMessageHandler,
+                                            FilterChainFactory filterChainFactory,
+                                            Subscription subscription,
+                                            ForkJoinPool pool,
+                                            int batchSize) {
+        this.receiver = receiver;
+        this.filteredMessageHandler = filteredMessageHandler;
+        this.filterChainFactory = filterChainFactory;
+        this.subscription = subscription;
+        this.pool = pool;
+        this.batchSize = Math.max(1, batchSize);
+        this.filterChain = filterChainFactory.create(subscription);
+    }
+
+    @Override
+    public Optional<Message> next() {
+        if (evaluated.isEmpty()) {
+            evaluate(receiveBatch());
+        }
+        while (!evaluated.isEmpty()) {
+            Evaluated next = evaluated.poll();
+            filteredMessageHandler.handle(next.result, next.message, subscription);
+            if (!next.result.isFiltered()) {
+                return Optional.of(next.message);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean hasBufferedMessages() {
+        return !evaluated.isEmpty() || receiver.hasBufferedMessages();
+    }
+
+    private List<Message> receiveBatch() {
+        List<Message> batch = new ArrayList<>();
+        receiver.next().ifPresent(batch::add);
+        while (batch.size() < batchSize && receiver.hasBufferedMessages()) {
+            receiver.next().ifPresent(batch::add);
+        }
+        return batch;
+    }
+
+    private void evaluate(List<Message> batch) {
+        FilterChain chain = filterChain;
+        if (batch.size() == 1) {
+            evaluated.add(new Evaluated(batch.get(0), chain.apply(batch.get(0))));
+            return;
+        }
+        List<FilterResult> results = apply(chain, batch);
+        for (int i = 0; i < batch.size(); i++) {
+            evaluated.add(new Evaluated(batch.get(i), results.get(i)));
+        }
+    }
+
+    private List<FilterResult> apply(FilterChain chain, List<Message> batch) {
+        try {
+            return pool.submit(() -> batch.parallelStream().map(chain::apply).collect(toList())).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return batch.stream().map(chain::apply).collect(toList());
+        } catch (ExecutionException exception) {
+            return batch.stream().map(chain::apply).collect(toList());
+        }
+    }
+
+    @Override
+    public void stop() {
+        receiver.stop();
+    }
+
+    @Override
+    public void update(Subscription newSubscription) {
+        if (!Objects.equals(subscription.getFilters(), newSubscription.getFilters())) {
+            this.filterChain = filterChainFactory.create(newSubscription);
+        }
+        this.subscription = newSubscription;
+        this.receiver.update(newSubscription);
+    }
+
+    @Override
+    public void pause(PartitionOffset from) {
+        evaluated.removeIf(next -> next.message.getKafkaTopic().equals(from.getTopic())
+                && next.message.getPartition() == from.getPartition());
+        receiver.pause(from);
+    }
+
+    @Override
+    public void resume(KafkaTopicName topic, int partition) {
+        receiver.resume(topic, partition);
+    }
+
+    @Override
+    public void commit(Set<SubscriptionPartitionOffset> offsets) {
+        receiver.commit(offsets);
+    }
+
+    @Override
+    public void moveOffset(SubscriptionPartitionOffset offset) {
+        receiver.moveOffset(offset);
+    }
+
+    private static class Evaluated {
+        private final Message message;
+        private final FilterResult result;
+
+        Evaluated(Message message, FilterResult result) {
+            this.message = message;
+            this.result = result;
+        }
+    }
+}
@@ -1,29 +1,60 @@
 package pl.allegro.tech.hermes.consumers.consumer.sender;
 
+import org.eclipse.jetty.client.HttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.Subscription;
 import pl.allegro.tech.hermes.common.config.ConfigFactory;
 import pl.allegro.tech.hermes.common.config.Configs;
-import pl.allegro.tech.hermes.consumers.consumer.sender.http.ApacheHttpClientMessageBatchSender;
+import pl.allegro.tech.hermes.consumers.consumer.sender.http.HttpClientFactory;
+import pl.allegro.tech.hermes.consumers.consumer.sender.http.JettyMessageBatchSender;
 import pl.allegro.tech.hermes.consumers.consumer.sender.resolver.SimpleEndpointAddressResolver;
 
 import javax.inject.Inject;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkState;
+import static java.util.Optional.empty;
 
 public class HttpMessageBatchSenderFactory implements MessageBatchSenderFactory {
-    private ConfigFactory configFactory;
+    private static final Logger logger = LoggerFactory.getLogger(HttpMessageBatchSenderFactory.class);
+
+    private final ConfigFactory configFactory;
+    private final HttpClient httpClient;
+    private final Optional<HttpClient> http2Client;
 
     @Inject
-    public HttpMessageBatchSenderFactory(ConfigFactory configFactory) {
+    public HttpMessageBatchSenderFactory(ConfigFactory configFactory, HttpClientFactory httpClientFactory) {
         this.configFactory = configFactory;
+        this.httpClient = startClient(httpClientFactory.createClientForHttp1("jetty-http-batch-client"));
+        this.http2Client = configFactory.getBooleanProperty(Configs.CONSUMER_HTTP2_ENABLED) ?
+                Optional.of(startClient(httpClientFactory.createClientForHttp2("jetty-http2-batch-client"))) : empty();
     }
 
     @Override
     public MessageBatchSender create(Subscription subscription) {
         checkState(subscription.getEndpoint().getProtocol().contains("http"), "Batching is only supported for http/s currently.");
-        return new ApacheHttpClientMessageBatchSender(
-                configFactory.getIntProperty(Configs.CONSUMER_BATCH_CONNECTION_TIMEOUT),
+        return new JettyMessageBatchSender(
+                getHttpClient(subscription),
                 configFactory.getIntProperty(Configs.CONSUMER_BATCH_SOCKET_TIMEOUT),
                 new SimpleEndpointAddressResolver());
     }
+
+    private HttpClient getHttpClient(Subscription subscription) {
+        if (subscription.isHttp2Enabled() && http2Client.isPresent()) {
+            logger.info("Using http/2 for batch subscription {}.", subscription.getQualifiedName());
+            return http2Client.get();
+        }
+        return httpClient;
+    }
+
+    private HttpClient startClient(HttpClient client) {
+        client.setConnectTimeout(configFactory.getIntProperty(Configs.CONSUMER_BATCH_CONNECTION_TIMEOUT));
+        try {
+            client.start();
+        } catch (Exception ex) {
+            logger.error("Could not start http client for batch subscriptions.", ex);
+        }
+        return client;
+    }
 }
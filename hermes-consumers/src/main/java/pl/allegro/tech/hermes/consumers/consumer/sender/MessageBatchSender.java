@@ -4,6 +4,13 @@ import pl.allegro.tech.hermes.api.EndpointAddress;
 import pl.allegro.tech.hermes.api.EndpointAddressResolverMetadata;
 import pl.allegro.tech.hermes.consumers.consumer.batch.MessageBatch;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface MessageBatchSender {
     MessageSendingResult send(MessageBatch message, EndpointAddress address, EndpointAddressResolverMetadata metadata, int requestTimeout);
+
+    default CompletableFuture<MessageSendingResult> sendAsync(MessageBatch message, EndpointAddress address,
+                                                              EndpointAddressResolverMetadata metadata, int requestTimeout) {
+        return CompletableFuture.completedFuture(send(message, address, metadata, requestTimeout));
+    }
 }
@@ -0,0 +1,82 @@
+package pl.allegro.tech.hermes.consumers.consumer.sender.http;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.util.ByteBufferContentProvider;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import pl.allegro.tech.hermes.api.ContentType;
+import pl.allegro.tech.hermes.api.EndpointAddress;
+import pl.allegro.tech.hermes.api.EndpointAddressResolverMetadata;
+import pl.allegro.tech.hermes.consumers.consumer.batch.MessageBatch;
+import pl.allegro.tech.hermes.consumers.consumer.sender.MessageBatchSender;
+import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
+import pl.allegro.tech.hermes.consumers.consumer.sender.resolver.EndpointAddressResolutionException;
+import pl.allegro.tech.hermes.consumers.consumer.sender.resolver.EndpointAddressResolver;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static pl.allegro.tech.hermes.api.AvroMediaType.AVRO_BINARY;
+import static pl.allegro.tech.hermes.api.ContentType.AVRO;
+import static pl.allegro.tech.hermes.common.http.MessageMetadataHeaders.BATCH_ID;
+import static pl.allegro.tech.hermes.common.http.MessageMetadataHeaders.RETRY_COUNT;
+
+/**
+ * Sends batches with asynchronous Jetty client, sending thread is not blocked while waiting for the response.
+ * Batch content is not copied, so the batch has to be kept until the result is completed.
+ */
+public class JettyMessageBatchSender implements MessageBatchSender {
+
+    private static final String APPLICATION_JSON_UTF8 = "application/json; charset=UTF-8";
+
+    private final HttpClient client;
+    private final int socketTimeout;
+    private final EndpointAddressResolver resolver;
+
+    public JettyMessageBatchSender(HttpClient client, int socketTimeout, EndpointAddressResolver resolver) {
+        this.client = client;
+        this.socketTimeout = socketTimeout;
+        this.resolver = resolver;
+    }
+
+    @Override
+    public MessageSendingResult send(MessageBatch batch, EndpointAddress address, EndpointAddressResolverMetadata metadata,
+                                     int requestTimeout) {
+        return sendAsync(batch, address, metadata, requestTimeout).join();
+    }
+
+    @Override
+    public CompletableFuture<MessageSendingResult> sendAsync(MessageBatch batch, EndpointAddress address,
+                                                             EndpointAddressResolverMetadata metadata, int requestTimeout) {
+        CompletableFuture<MessageSendingResult> resultFuture = new CompletableFuture<>();
+        try {
+            buildRequest(batch, resolver.resolve(address, batch, metadata), requestTimeout)
+                    .send(result -> resultFuture.complete(MessageSendingResult.of(result)));
+        } catch (EndpointAddressResolutionException exception) {
+            resultFuture.complete(MessageSendingResult.failedResult(exception));
+        }
+        return resultFuture;
+    }
+
+    private Request buildRequest(MessageBatch batch, URI address, int requestTimeout) {
+        Request request = client.newRequest(address)
+                .method(HttpMethod.POST)
+                .header(HttpHeader.KEEP_ALIVE.toString(), "true")
+                .header(BATCH_ID.getName(), batch.getId())
+                .header(RETRY_COUNT.getName(), Integer.toString(batch.getRetryCounter()))
+                .header(HttpHeader.CONTENT_TYPE.toString(), mediaType(batch.getContentType()))
+                .timeout(requestTimeout, TimeUnit.MILLISECONDS)
+                .idleTimeout(socketTimeout, TimeUnit.MILLISECONDS)
+                .content(new ByteBufferContentProvider(batch.getContent()));
+
+        batch.getAdditionalHeaders().forEach(header -> request.header(header.getName(), header.getValue()));
+
+        return request;
+    }
+
+    private static String mediaType(ContentType contentType) {
+        return AVRO.equals(contentType) ? AVRO_BINARY : APPLICATION_JSON_UTF8;
+    }
+}
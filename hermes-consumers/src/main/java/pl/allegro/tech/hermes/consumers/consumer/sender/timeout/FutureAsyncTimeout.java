@@ -1,8 +1,9 @@
 package pl.allegro.tech.hermes.consumers.consumer.sender.timeout;
 
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
+
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
@@ -12,28 +13,28 @@ import java.util.function.Function;
  */
 public class FutureAsyncTimeout<T> {
 
-    private final ScheduledExecutorService executor;
+    private final HashedTimingWheel timer;
     private final Function<TimeoutException, T> failure;
 
-    public FutureAsyncTimeout(Function<TimeoutException, T> failure, ScheduledExecutorService scheduledExecutorService) {
-        this.executor = scheduledExecutorService;
+    public FutureAsyncTimeout(Function<TimeoutException, T> failure, HashedTimingWheel timer) {
+        this.timer = timer;
         this.failure = failure;
     }
 
     public CompletableFuture<T> within(CompletableFuture<T> future, Duration duration) {
-        return future.applyToEither(failAfter(duration), Function.identity());
+        return within(future, duration, null);
     }
 
-    private CompletableFuture<T> failAfter(Duration duration) {
+    /**
+     * @param owner Key of the timeout used to expire timeouts of different owners fairly, e.g. subscription name
+     */
+    public CompletableFuture<T> within(CompletableFuture<T> future, Duration duration, Object owner) {
         final CompletableFuture<T> promise = new CompletableFuture<>();
-        executor.schedule(() -> {
+        HashedTimingWheel.Timeout timeout = timer.schedule(owner, () -> {
             TimeoutException ex = new TimeoutException("Timeout after " + duration);
-            return promise.complete(failure.apply(ex));
+            promise.complete(failure.apply(ex));
         }, duration.toMillis(), TimeUnit.MILLISECONDS);
-        return promise;
-    }
-
-    public void shutdown() {
-        executor.shutdown();
+        future.whenComplete((result, throwable) -> timeout.cancel());
+        return future.applyToEither(promise, Function.identity());
     }
 }
@@ -1,34 +1,27 @@
 package pl.allegro.tech.hermes.consumers.consumer.sender.timeout;
 
 import org.glassfish.hk2.api.Factory;
-import pl.allegro.tech.hermes.common.config.ConfigFactory;
-import pl.allegro.tech.hermes.common.metric.executor.InstrumentedExecutorServiceFactory;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
 
 import javax.inject.Inject;
-import java.util.concurrent.ScheduledExecutorService;
-
-import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_SENDER_ASYNC_TIMEOUT_THREAD_POOL_MONITORING;
-import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_SENDER_ASYNC_TIMEOUT_THREAD_POOL_SIZE;
 
 public class FutureAsyncTimeoutFactory implements Factory<FutureAsyncTimeout<MessageSendingResult>> {
 
-    private final ScheduledExecutorService timeoutExecutorService;
+    private final HashedTimingWheel timer;
 
     @Inject
-    public FutureAsyncTimeoutFactory(ConfigFactory configFactory, InstrumentedExecutorServiceFactory executorFactory) {
-        this.timeoutExecutorService = executorFactory.getScheduledExecutorService("async-timeout", configFactory.getIntProperty(CONSUMER_SENDER_ASYNC_TIMEOUT_THREAD_POOL_SIZE),
-                configFactory.getBooleanProperty(CONSUMER_SENDER_ASYNC_TIMEOUT_THREAD_POOL_MONITORING));
+    public FutureAsyncTimeoutFactory(HashedTimingWheel timer) {
+        this.timer = timer;
     }
 
     @Override
     public FutureAsyncTimeout<MessageSendingResult> provide() {
-        return new FutureAsyncTimeout<>(MessageSendingResult::failedResult, timeoutExecutorService);
+        return new FutureAsyncTimeout<>(MessageSendingResult::failedResult, timer);
     }
 
     @Override
     public void dispose(FutureAsyncTimeout instance) {
-        instance.shutdown();
     }
 
 }
@@ -21,6 +21,7 @@ import pl.allegro.tech.hermes.consumers.consumer.filtering.MessageFilters;
 import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChainFactory;
 import pl.allegro.tech.hermes.consumers.consumer.interpolation.MessageBodyInterpolator;
 import pl.allegro.tech.hermes.consumers.consumer.interpolation.UriInterpolator;
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoadRecorder;
 import pl.allegro.tech.hermes.consumers.consumer.oauth.OAuthAccessTokens;
 import pl.allegro.tech.hermes.consumers.consumer.oauth.OAuthAccessTokensLoader;
 import pl.allegro.tech.hermes.consumers.consumer.oauth.OAuthConsumerAuthorizationHandler;
@@ -33,7 +34,6 @@ import pl.allegro.tech.hermes.consumers.consumer.oauth.client.OAuthClient;
 import pl.allegro.tech.hermes.consumers.consumer.oauth.client.OAuthHttpClient;
 import pl.allegro.tech.hermes.consumers.consumer.offset.OffsetQueue;
 import pl.allegro.tech.hermes.consumers.consumer.rate.ConsumerRateLimitSupervisor;
-import pl.allegro.tech.hermes.consumers.consumer.rate.maxrate.MaxRatePathSerializer;
 import pl.allegro.tech.hermes.consumers.consumer.rate.maxrate.MaxRateProviderFactory;
 import pl.allegro.tech.hermes.consumers.consumer.rate.maxrate.MaxRateRegistry;
 import pl.allegro.tech.hermes.consumers.consumer.rate.maxrate.MaxRateSupervisor;
@@ -77,6 +77,8 @@ import pl.allegro.tech.hermes.consumers.supervisor.workload.SupervisorController
 import pl.allegro.tech.hermes.consumers.supervisor.workload.SupervisorControllerFactory;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.WorkTracker;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.WorkTrackerFactory;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheelFactory;
 
 import javax.inject.Singleton;
 import javax.jms.Message;
@@ -120,6 +122,7 @@ public class ConsumersBinder extends AbstractBinder {
         bind(DefaultHttpMetadataAppender.class).in(Singleton.class)
                 .to(new TypeLiteral<MetadataAppender<Request>>() {});
 
+        bindFactory(HashedTimingWheelFactory.class).in(Singleton.class).to(HashedTimingWheel.class);
         bindFactory(FutureAsyncTimeoutFactory.class).in(Singleton.class)
                 .to(new TypeLiteral<FutureAsyncTimeout<MessageSendingResult>>(){});
         bindSingleton(HttpClientFactory.class);
@@ -135,10 +138,10 @@ public class ConsumersBinder extends AbstractBinder {
         bindFactory(ConsumersRuntimeMonitorFactory.class).in(Singleton.class).to(ConsumersRuntimeMonitor.class);
 
         bindSingleton(SubscriptionConsumersCache.class);
-        bindSingleton(MaxRatePathSerializer.class);
         bindSingleton(MaxRateSupervisor.class);
         bindSingleton(MaxRateProviderFactory.class);
         bindSingleton(MaxRateRegistry.class);
+        bindSingleton(SubscriptionLoadRecorder.class);
 
         bindSingleton(UndeliveredMessageLogPersister.class);
         bindFactory(ByteBufferMessageBatchFactoryProvider.class).in(Singleton.class).to(MessageBatchFactory.class);
@@ -18,6 +18,7 @@ import pl.allegro.tech.hermes.consumers.consumer.rate.SerialConsumerRateLimiter;
 import pl.allegro.tech.hermes.consumers.consumer.rate.calculator.OutputRateCalculatorFactory;
 import pl.allegro.tech.hermes.consumers.consumer.receiver.ReceiverFactory;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageBatchSenderFactory;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
 import pl.allegro.tech.hermes.domain.topic.TopicRepository;
 import pl.allegro.tech.hermes.tracker.consumers.Trackers;
 
@@ -41,6 +42,7 @@ public class ConsumerFactory {
     private final MessageBatchSenderFactory batchSenderFactory;
     private final ConsumerAuthorizationHandler consumerAuthorizationHandler;
     private final Clock clock;
+    private final HashedTimingWheel retryTimer;
 
     @Inject
     public ConsumerFactory(ReceiverFactory messageReceiverFactory,
@@ -57,7 +59,8 @@ public class ConsumerFactory {
                            MessageContentWrapper messageContentWrapper,
                            MessageBatchSenderFactory batchSenderFactory,
                            ConsumerAuthorizationHandler consumerAuthorizationHandler,
-                           Clock clock) {
+                           Clock clock,
+                           HashedTimingWheel retryTimer) {
 
         this.messageReceiverFactory = messageReceiverFactory;
         this.hermesMetrics = hermesMetrics;
@@ -74,6 +77,7 @@ public class ConsumerFactory {
         this.batchSenderFactory = batchSenderFactory;
         this.consumerAuthorizationHandler = consumerAuthorizationHandler;
         this.clock = clock;
+        this.retryTimer = retryTimer;
     }
 
     public Consumer createConsumer(Subscription subscription) {
@@ -89,7 +93,8 @@ public class ConsumerFactory {
                     trackers,
                     subscription,
                     topic,
-                    configFactory);
+                    configFactory,
+                    retryTimer);
         } else {
             SerialConsumerRateLimiter consumerRateLimiter = new SerialConsumerRateLimiter(subscription,
                     outputRateCalculatorFactory, hermesMetrics, consumerRateLimitSupervisor, clock);
@@ -6,9 +6,11 @@ import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.common.config.ConfigFactory;
 import pl.allegro.tech.hermes.common.config.Configs;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.consumers.consumer.CooperativeConsumer;
 import pl.allegro.tech.hermes.consumers.supervisor.process.ConsumerProcess;
 
 import javax.inject.Inject;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
@@ -19,6 +21,7 @@ public class ConsumersExecutorService {
 
     private static final Logger logger = LoggerFactory.getLogger(ConsumersExecutorService.class);
     private final ThreadPoolExecutor executor;
+    private final Optional<CooperativeConsumersExecutor> cooperativeExecutor;
 
     @Inject
     public ConsumersExecutorService(ConfigFactory configFactory, HermesMetrics hermesMetrics) {
@@ -30,13 +33,32 @@ public class ConsumersExecutorService {
         executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(poolSize, threadFactory);
 
         hermesMetrics.registerConsumersThreadGauge(() -> executor.getActiveCount());
+
+        if (configFactory.getBooleanProperty(Configs.CONSUMER_COOPERATIVE_SCHEDULING_ENABLED)) {
+            cooperativeExecutor = Optional.of(new CooperativeConsumersExecutor(
+                    configFactory.getIntProperty(Configs.CONSUMER_COOPERATIVE_THREAD_POOL_SIZE),
+                    configFactory.getIntProperty(Configs.CONSUMER_COOPERATIVE_LIFECYCLE_THREAD_POOL_SIZE),
+                    configFactory.getIntProperty(Configs.CONSUMER_COOPERATIVE_SLICE_SIZE),
+                    configFactory.getIntProperty(Configs.CONSUMER_COOPERATIVE_IDLE_PARK_TIME),
+                    hermesMetrics));
+        } else {
+            cooperativeExecutor = Optional.empty();
+        }
     }
 
+    /**
+     * Runs the process on a dedicated thread, unless cooperative scheduling is enabled and its consumer supports it,
+     * in which case the process shares threads with other cooperative processes.
+     */
     public Future execute(ConsumerProcess consumer) {
+        if (cooperativeExecutor.isPresent() && consumer.getConsumer() instanceof CooperativeConsumer) {
+            return cooperativeExecutor.get().execute(consumer, (CooperativeConsumer) consumer.getConsumer());
+        }
         return executor.submit(consumer);
     }
 
     public void shutdown() {
+        cooperativeExecutor.ifPresent(CooperativeConsumersExecutor::shutdown);
         executor.shutdownNow();
         try {
             executor.awaitTermination(1, TimeUnit.MINUTES);
@@ -0,0 +1,275 @@
+package pl.allegro.tech.hermes.consumers.supervisor;
+
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.allegro.tech.hermes.common.metric.Gauges;
+import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.common.metric.Timers;
+import pl.allegro.tech.hermes.consumers.consumer.CooperativeConsumer;
+import pl.allegro.tech.hermes.consumers.supervisor.process.ConsumerProcess;
+import pl.allegro.tech.hermes.consumers.supervisor.process.ConsumerProcess.SliceResult;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs processes of cooperative consumers in slices on a small pool of threads shared by all of them, instead of
+ * giving each subscription a dedicated thread.
+ * <p>
+ * A process runs until its consumer has nothing to do or for a limited number of iterations, after which it yields
+ * to other processes. An idle process is parked until its consumer may have work again (an inflight permit was
+ * released), a signal arrives for the process, or the park time passes. The last one bounds the delay of noticing
+ * new messages on Kafka, as Kafka consumer does not notify about data availability.
+ * <p>
+ * Signals which may block, like starting and stopping the consumer, retransmission or commits, are processed on a
+ * separate pool of lifecycle threads, during which the process is not scheduled. Polling Kafka with zero timeout
+ * still blocks the shared thread while the consumer looks up the group coordinator or joins the group, which happens
+ * on the first poll after start and on rebalance.
+ */
+class CooperativeConsumersExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CooperativeConsumersExecutor.class);
+
+    private static final int PARKED = 0;
+    private static final int SCHEDULED = 1;
+    private static final int WOKEN = 2;
+    private static final int DONE = 3;
+
+    private final ScheduledThreadPoolExecutor carriers;
+    private final ExecutorService lifecycle;
+    private final int sliceSize;
+    private final long parkTime;
+    private final Timer wakeUpLatency;
+    private final Set<Task> tasks = ConcurrentHashMap.newKeySet();
+
+    CooperativeConsumersExecutor(int threads, int lifecycleThreads, int sliceSize, long parkTime, HermesMetrics hermesMetrics) {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("cooperative-consumer-%d")
+                .setUncaughtExceptionHandler((t, e) -> logger.error("Exception from cooperative consumer thread {}", t.getName(), e))
+                .build();
+        this.carriers = new ScheduledThreadPoolExecutor(threads, threadFactory);
+        this.carriers.setRemoveOnCancelPolicy(true);
+        this.carriers.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.lifecycle = Executors.newFixedThreadPool(lifecycleThreads, new ThreadFactoryBuilder()
+                .setNameFormat("cooperative-lifecycle-%d")
+                .setUncaughtExceptionHandler((t, e) -> logger.error("Exception from cooperative lifecycle thread {}", t.getName(), e))
+                .build());
+        this.sliceSize = sliceSize;
+        this.parkTime = parkTime;
+        this.wakeUpLatency = hermesMetrics.timer(Timers.COOPERATIVE_CONSUMER_WAKE_UP_LATENCY);
+
+        hermesMetrics.registerGauge(Gauges.COOPERATIVE_CONSUMERS, tasks::size);
+        hermesMetrics.registerGauge(Gauges.COOPERATIVE_CONSUMERS_PER_THREAD, () -> (double) tasks.size() / threads);
+    }
+
+    Future<?> execute(ConsumerProcess process, CooperativeConsumer consumer) {
+        Task task = new Task(process, consumer);
+        tasks.add(task);
+        consumer.onWakeUp(task::wakeUp);
+        process.onSignal(task::wakeUp);
+        task.wakeUp();
+        return task;
+    }
+
+    void shutdown() {
+        tasks.forEach(task -> task.cancel(true));
+        carriers.shutdown();
+        try {
+            carriers.awaitTermination(1, TimeUnit.MINUTES);
+            lifecycle.shutdown();
+            lifecycle.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            logger.error("Termination of cooperative consumers executor interrupted.", e);
+        }
+    }
+
+    private class Task implements Runnable, Future<Object> {
+
+        private final ConsumerProcess process;
+        private final CooperativeConsumer consumer;
+
+        private final AtomicInteger state = new AtomicInteger(PARKED);
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private volatile boolean cancelled = false;
+        private volatile long wokenAt;
+        private volatile ScheduledFuture<?> parkTimeout;
+
+        Task(ConsumerProcess process, CooperativeConsumer consumer) {
+            this.process = process;
+            this.consumer = consumer;
+        }
+
+        void wakeUp() {
+            while (true) {
+                int current = state.get();
+                if (current == PARKED) {
+                    if (state.compareAndSet(PARKED, SCHEDULED)) {
+                        cancelParkTimeout();
+                        wokenAt = System.nanoTime();
+                        schedule();
+                        return;
+                    }
+                } else if (current == SCHEDULED) {
+                    if (state.compareAndSet(SCHEDULED, WOKEN)) {
+                        return;
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            recordWakeUpLatency();
+            state.set(SCHEDULED);
+            try {
+                if (cancelled) {
+                    runOnLifecycleThread(this::terminate);
+                    return;
+                }
+                SliceResult result = process.runSlice(consumer, sliceSize);
+                if (result == SliceResult.FINISHED) {
+                    finish();
+                } else if (cancelled) {
+                    runOnLifecycleThread(this::terminate);
+                } else if (result == SliceResult.BLOCKED) {
+                    runOnLifecycleThread(this::runBlockingSignals);
+                } else if (result == SliceResult.BUSY) {
+                    schedule();
+                } else {
+                    park();
+                }
+            } catch (Exception e) {
+                logger.error("Cooperative consumer process {} failed", process.getSubscriptionName(), e);
+                finish();
+            }
+        }
+
+        /**
+         * Runs on a lifecycle thread while the task stays scheduled, so wake-ups in the meantime only mark it as
+         * woken and no slice of the process runs concurrently.
+         */
+        private void runBlockingSignals() {
+            SliceResult result = process.runBlockingSignals();
+            if (result == SliceResult.FINISHED) {
+                finish();
+            } else if (cancelled) {
+                terminate();
+            } else {
+                schedule();
+            }
+        }
+
+        private void runOnLifecycleThread(Runnable work) {
+            try {
+                lifecycle.execute(() -> {
+                    try {
+                        work.run();
+                    } catch (Exception e) {
+                        logger.error("Cooperative consumer process {} failed", process.getSubscriptionName(), e);
+                        finish();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.warn("Cooperative consumer process {} rejected, executor is shutting down", process.getSubscriptionName());
+                terminate();
+            }
+        }
+
+        private void park() {
+            parkTimeout = carriers.schedule(this::wakeUp, parkTime, TimeUnit.MILLISECONDS);
+            if (!state.compareAndSet(SCHEDULED, PARKED)) {
+                cancelParkTimeout();
+                state.set(SCHEDULED);
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            try {
+                carriers.execute(this);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Cooperative consumer process {} rejected, executor is shutting down", process.getSubscriptionName());
+                terminate();
+            }
+        }
+
+        private void cancelParkTimeout() {
+            ScheduledFuture<?> timeout = parkTimeout;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+
+        private void recordWakeUpLatency() {
+            long woken = wokenAt;
+            if (woken != 0) {
+                wokenAt = 0;
+                wakeUpLatency.update(System.nanoTime() - woken, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void terminate() {
+            try {
+                process.terminate();
+            } finally {
+                finish();
+            }
+        }
+
+        private void finish() {
+            state.set(DONE);
+            tasks.remove(this);
+            finished.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (state.get() == DONE) {
+                return false;
+            }
+            cancelled = true;
+            wakeUp();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return state.get() == DONE;
+        }
+
+        @Override
+        public Object get() throws InterruptedException {
+            finished.await();
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            if (!finished.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return null;
+        }
+    }
+}
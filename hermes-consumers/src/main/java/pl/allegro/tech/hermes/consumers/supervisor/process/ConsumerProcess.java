@@ -6,18 +6,38 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.SubscriptionName;
 import pl.allegro.tech.hermes.consumers.consumer.Consumer;
+import pl.allegro.tech.hermes.consumers.consumer.CooperativeConsumer;
 
 import java.time.Clock;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static pl.allegro.tech.hermes.consumers.supervisor.process.Signal.SignalType.COMMIT;
+import static pl.allegro.tech.hermes.consumers.supervisor.process.Signal.SignalType.RESTART;
+import static pl.allegro.tech.hermes.consumers.supervisor.process.Signal.SignalType.RETRANSMIT;
 import static pl.allegro.tech.hermes.consumers.supervisor.process.Signal.SignalType.START;
+import static pl.allegro.tech.hermes.consumers.supervisor.process.Signal.SignalType.STOP;
+import static pl.allegro.tech.hermes.consumers.supervisor.process.Signal.SignalType.UPDATE_TOPIC;
 
 public class ConsumerProcess implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(ConsumerProcess.class);
 
+    public enum SliceResult {
+        BUSY, IDLE, BLOCKED, FINISHED
+    }
+
+    /**
+     * Signals which may block the thread processing them: starting, stopping and recreating the Kafka consumer,
+     * reading offsets for retransmission and synchronous commits.
+     */
+    private static final Set<Signal.SignalType> BLOCKING_SIGNALS = EnumSet.of(
+            START, RESTART, STOP, RETRANSMIT, UPDATE_TOPIC, COMMIT
+    );
+
     private final SpscArrayQueue<Signal> signals = new SpscArrayQueue<>(100);
 
     private final Clock clock;
@@ -36,6 +56,8 @@ public class ConsumerProcess implements Runnable {
 
     private volatile long healthcheckRefreshTime;
 
+    private volatile Runnable signalListener = () -> { };
+
     private Map<Signal.SignalType, Long> signalTimesheet = new ConcurrentHashMap<>();
     private Signal lastSignal;
 
@@ -70,18 +92,83 @@ public class ConsumerProcess implements Runnable {
         } catch (Exception ex) {
             logger.error("Consumer process of subscription {} failed", subscriptionName, ex);
         } finally {
-            logger.info("Releasing consumer process thread of subscription {}", subscriptionName);
-            shutdownCallback.accept(lastSignal);
-            refreshHealthcheck();
+            release();
             Thread.currentThread().setName("consumer-released-thread");
         }
     }
 
+    /**
+     * Runs at most given number of iterations of the consumer loop on a thread shared with other processes.
+     * Returns as soon as the consumer has nothing to do, so that it can be parked until it is woken up, or when
+     * a signal which may block is pending, so that it is processed with {@link #runBlockingSignals()} on another
+     * thread. Signals are processed in order, so the ones following a blocking signal wait for it as well.
+     */
+    public SliceResult runSlice(CooperativeConsumer cooperativeConsumer, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            if (!running || hasBlockingSignal()) {
+                return SliceResult.BLOCKED;
+            }
+            boolean consumed;
+            try {
+                consumed = cooperativeConsumer.tryConsume(this::processNonBlockingSignals);
+            } catch (Exception ex) {
+                logger.error("Consumer process of subscription {} failed", subscriptionName, ex);
+                release();
+                return SliceResult.FINISHED;
+            }
+            if (!consumed) {
+                return running && !hasBlockingSignal() ? SliceResult.IDLE : SliceResult.BLOCKED;
+            }
+        }
+        return running && !hasBlockingSignal() ? SliceResult.BUSY : SliceResult.BLOCKED;
+    }
+
+    /**
+     * Processes all pending signals of a process run in slices, including the ones which block, and stops the
+     * process if it was requested. Must not run concurrently with a slice of the same process.
+     */
+    public SliceResult runBlockingSignals() {
+        try {
+            processSignals();
+            if (running) {
+                return SliceResult.BUSY;
+            }
+            stop();
+        } catch (Exception ex) {
+            logger.error("Consumer process of subscription {} failed", subscriptionName, ex);
+        }
+        release();
+        return SliceResult.FINISHED;
+    }
+
+    /**
+     * Stops process which was run in slices and will not be scheduled anymore.
+     */
+    public void terminate() {
+        try {
+            stop();
+        } catch (Exception ex) {
+            logger.error("Failed to stop consumer process of subscription {}", subscriptionName, ex);
+        }
+        release();
+    }
+
+    private void release() {
+        logger.info("Releasing consumer process thread of subscription {}", subscriptionName);
+        shutdownCallback.accept(lastSignal);
+        refreshHealthcheck();
+    }
+
     public ConsumerProcess accept(Signal signal) {
         this.signals.add(signal);
+        signalListener.run();
         return this;
     }
 
+    public void onSignal(Runnable signalListener) {
+        this.signalListener = signalListener;
+    }
+
     public boolean isHealthy() {
         return unhealthyAfter > lastSeen();
     }
@@ -100,6 +187,20 @@ public class ConsumerProcess implements Runnable {
         refreshHealthcheck();
     }
 
+    private void processNonBlockingSignals() {
+        refreshHealthcheck();
+        Signal signal;
+        while ((signal = signals.peek()) != null && !BLOCKING_SIGNALS.contains(signal.getType())) {
+            process(signals.poll());
+        }
+        refreshHealthcheck();
+    }
+
+    private boolean hasBlockingSignal() {
+        Signal signal = signals.peek();
+        return signal != null && BLOCKING_SIGNALS.contains(signal.getType());
+    }
+
     private void refreshHealthcheck() {
         this.healthcheckRefreshTime = clock.millis();
     }
@@ -1,5 +1,6 @@
 package pl.allegro.tech.hermes.consumers.supervisor.workload;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.curator.framework.CuratorFramework;
@@ -11,10 +12,12 @@ import pl.allegro.tech.hermes.common.config.ConfigFactory;
 import pl.allegro.tech.hermes.common.config.Configs;
 import pl.allegro.tech.hermes.common.di.CuratorType;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoadRecorder;
 import pl.allegro.tech.hermes.consumers.subscription.cache.SubscriptionsCache;
 import pl.allegro.tech.hermes.consumers.supervisor.ConsumersSupervisor;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.ConsumerWorkloadAlgorithm.UnsupportedConsumerWorkloadAlgorithm;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.mirror.MirroringSupervisorController;
+import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.ConsumerNodeLoadRegistry;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.ConsumerNodesRegistry;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.SelectiveSupervisorController;
 import pl.allegro.tech.hermes.domain.notifications.InternalNotificationsBus;
@@ -34,6 +37,7 @@ import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_ALGORITHM;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_ASSIGNMENT_PROCESSING_THREAD_POOL_SIZE;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_DEAD_AFTER_SECONDS;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_WEIGHTED_LAG_DRAIN_SECONDS;
 import static pl.allegro.tech.hermes.consumers.supervisor.workload.ConsumerWorkloadAlgorithm.MIRROR;
 import static pl.allegro.tech.hermes.consumers.supervisor.workload.ConsumerWorkloadAlgorithm.SELECTIVE;
 
@@ -53,12 +57,15 @@ public class SupervisorControllerFactory implements Factory<SupervisorController
                                        ZookeeperAdminCache adminCache,
                                        HermesMetrics metrics,
                                        ConfigFactory configs,
-                                       Clock clock) {
+                                       Clock clock,
+                                       ObjectMapper objectMapper,
+                                       SubscriptionLoadRecorder loadRecorder) {
         this.configs = configs;
         this.availableImplementations = ImmutableMap.of(
                 MIRROR, () -> new MirroringSupervisorController(supervisor, notificationsBus, assignmentRegistry, subscriptionsCache, workTracker, adminCache, configs),
                 SELECTIVE, () -> new SelectiveSupervisorController(supervisor, notificationsBus, subscriptionsCache, assignmentRegistry, workTracker,
-                        createConsumersRegistry(configs, curator, clock), adminCache,
+                        createConsumersRegistry(configs, curator, clock),
+                        createLoadRegistry(configs, curator, objectMapper, loadRecorder), adminCache,
                         getAssignmentExecutor(configs),
                         configs, metrics));
     }
@@ -82,6 +89,17 @@ public class SupervisorControllerFactory implements Factory<SupervisorController
                 clock);
     }
 
+    private static ConsumerNodeLoadRegistry createLoadRegistry(ConfigFactory configs, CuratorFramework curator,
+                                                               ObjectMapper objectMapper,
+                                                               SubscriptionLoadRecorder loadRecorder) {
+        return new ConsumerNodeLoadRegistry(curator,
+                objectMapper,
+                new ZookeeperPaths(configs.getStringProperty(Configs.ZOOKEEPER_ROOT)).consumersRegistryPath(configs.getStringProperty(Configs.KAFKA_CLUSTER_NAME)),
+                configs.getStringProperty(Configs.CONSUMER_WORKLOAD_NODE_ID),
+                loadRecorder,
+                configs.getIntProperty(CONSUMER_WORKLOAD_WEIGHTED_LAG_DRAIN_SECONDS));
+    }
+
     @Override
     public SupervisorController provide() {
         return ofNullable(availableImplementations.get(configs.getStringProperty(CONSUMER_WORKLOAD_ALGORITHM)))
@@ -19,12 +19,15 @@ public class AvailableWork extends Spliterators.AbstractSpliterator<Subscription
     private SubscriptionAssignmentView state;
     private final int consumersPerSubscription;
     private final int maxSubscriptionsPerConsumer;
+    private final Comparator<String> consumerNodesOrder;
 
-    private AvailableWork(SubscriptionAssignmentView state, int consumersPerSubscription, int maxSubscriptionsPerConsumer) {
+    private AvailableWork(SubscriptionAssignmentView state, int consumersPerSubscription, int maxSubscriptionsPerConsumer,
+                          Comparator<String> consumerNodesOrder) {
         super(Long.MAX_VALUE, 0);
         this.state = state;
         this.consumersPerSubscription = consumersPerSubscription;
         this.maxSubscriptionsPerConsumer = maxSubscriptionsPerConsumer;
+        this.consumerNodesOrder = consumerNodesOrder;
     }
 
     @Override
@@ -53,7 +56,7 @@ public class AvailableWork extends Spliterators.AbstractSpliterator<Subscription
                                                                  SubscriptionName subscriptionName) {
         return availableConsumerNodes.stream()
                 .filter(s -> !state.getSubscriptionsForConsumerNode(s).contains(subscriptionName))
-                .min(Comparator.comparingInt(state::getAssignmentsCountForConsumerNode))
+                .min(consumerNodesOrder)
                 .map(s -> new SubscriptionAssignment(s, subscriptionName))
                 .get();
     }
@@ -68,7 +71,19 @@ public class AvailableWork extends Spliterators.AbstractSpliterator<Subscription
     public static Stream<SubscriptionAssignment> stream(SubscriptionAssignmentView state,
                                                         int consumersPerSubscription,
                                                         int maxSubscriptionsPerConsumer) {
-        AvailableWork work = new AvailableWork(state, consumersPerSubscription, maxSubscriptionsPerConsumer);
+        return stream(state, consumersPerSubscription, maxSubscriptionsPerConsumer,
+                Comparator.comparingInt(state::getAssignmentsCountForConsumerNode));
+    }
+
+    /**
+     * @param consumerNodesOrder Order of preference of consumer nodes for new assignments, the first one is chosen
+     */
+    public static Stream<SubscriptionAssignment> stream(SubscriptionAssignmentView state,
+                                                        int consumersPerSubscription,
+                                                        int maxSubscriptionsPerConsumer,
+                                                        Comparator<String> consumerNodesOrder) {
+        AvailableWork work = new AvailableWork(state, consumersPerSubscription, maxSubscriptionsPerConsumer,
+                consumerNodesOrder);
         return StreamSupport.stream(work, false);
     }
 }
@@ -9,6 +9,8 @@ import pl.allegro.tech.hermes.consumers.subscription.cache.SubscriptionsCache;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.SubscriptionAssignmentView;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.WorkTracker;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -23,6 +25,7 @@ public class BalancingJob implements Runnable {
     private final SubscriptionsCache subscriptionsCache;
     private final SelectiveWorkBalancer workBalancer;
     private final WorkTracker workTracker;
+    private final Optional<ConsumerNodeLoadRegistry> loadRegistry;
     private final HermesMetrics metrics;
     private final String kafkaCluster;
     private final ScheduledExecutorService executorService;
@@ -37,6 +40,7 @@ public class BalancingJob implements Runnable {
                         SubscriptionsCache subscriptionsCache,
                         SelectiveWorkBalancer workBalancer,
                         WorkTracker workTracker,
+                        Optional<ConsumerNodeLoadRegistry> loadRegistry,
                         HermesMetrics metrics,
                         int intervalSeconds,
                         String kafkaCluster) {
@@ -44,6 +48,7 @@ public class BalancingJob implements Runnable {
         this.subscriptionsCache = subscriptionsCache;
         this.workBalancer = workBalancer;
         this.workTracker = workTracker;
+        this.loadRegistry = loadRegistry;
         this.metrics = metrics;
         this.kafkaCluster = kafkaCluster;
         ThreadFactory threadFactory = new ThreadFactoryBuilder()
@@ -68,6 +73,14 @@ public class BalancingJob implements Runnable {
                 gaugeName(kafkaCluster, ".selective.created-assignments"),
                 () -> balancingMetrics.createdAssignments
         );
+        metrics.registerGauge(
+                gaugeName(kafkaCluster, "selective.transferred-assignments"),
+                () -> balancingMetrics.transferredAssignments
+        );
+        metrics.registerGauge(
+                gaugeName(kafkaCluster, "selective.load-imbalance"),
+                () -> balancingMetrics.loadImbalance
+        );
     }
 
     private String gaugeName(String kafkaCluster, String name) {
@@ -78,16 +91,15 @@ public class BalancingJob implements Runnable {
     public void run() {
         try {
             consumersRegistry.refresh();
+            loadRegistry.ifPresent(registry -> registry.publish(
+                    workTracker.getAssignments().getSubscriptionsForConsumerNode(consumersRegistry.getId())));
             if (consumersRegistry.isLeader() && workTracker.isReady()) {
                 try (Timer.Context ctx = metrics.consumersWorkloadRebalanceDurationTimer(kafkaCluster).time()) {
                     logger.info("Initializing workload balance.");
 
                     SubscriptionAssignmentView initialState = workTracker.getAssignments();
 
-                    WorkBalancingResult work = workBalancer.balance(
-                            subscriptionsCache.listActiveSubscriptionNames(),
-                            consumersRegistry.list(),
-                            initialState);
+                    WorkBalancingResult work = balance(initialState);
 
                     if (consumersRegistry.isLeader()) {
                         WorkTracker.WorkDistributionChanges changes =
@@ -108,6 +120,18 @@ public class BalancingJob implements Runnable {
         }
     }
 
+    private WorkBalancingResult balance(SubscriptionAssignmentView initialState) {
+        List<String> consumerNodes = consumersRegistry.list();
+        if (loadRegistry.isPresent()) {
+            return workBalancer.balance(
+                    subscriptionsCache.listActiveSubscriptionNames(),
+                    consumerNodes,
+                    initialState,
+                    loadRegistry.get().readWeights(consumerNodes));
+        }
+        return workBalancer.balance(subscriptionsCache.listActiveSubscriptionNames(), consumerNodes, initialState);
+    }
+
     public void start() {
         job = executorService.scheduleAtFixedRate(this, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
     }
@@ -123,6 +147,8 @@ public class BalancingJob implements Runnable {
         this.balancingMetrics.missingResources = balancingResult.getMissingResources();
         this.balancingMetrics.createdAssignments = changes.getCreatedAssignmentsCount();
         this.balancingMetrics.deletedAssignments = changes.getDeletedAssignmentsCount();
+        this.balancingMetrics.transferredAssignments = balancingResult.getTransfersCount();
+        this.balancingMetrics.loadImbalance = balancingResult.getLoadImbalance();
     }
 
     private static class BalancingJobMetrics {
@@ -135,11 +161,17 @@ public class BalancingJob implements Runnable {
 
         volatile int createdAssignments;
 
+        volatile int transferredAssignments;
+
+        volatile double loadImbalance;
+
         void reset() {
             this.allAssignments = 0;
             this.missingResources = 0;
             this.deletedAssignments = 0;
             this.createdAssignments = 0;
+            this.transferredAssignments = 0;
+            this.loadImbalance = 0;
         }
     }
 }
@@ -0,0 +1,48 @@
+package pl.allegro.tech.hermes.consumers.supervisor.workload.selective;
+
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoad;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Loads of all subscriptions assigned to a single consumer node, keyed by qualified subscription name.
+ */
+public final class ConsumerNodeLoad {
+
+    private final Map<String, SubscriptionLoad> subscriptions;
+
+    @ConstructorProperties({"subscriptions"})
+    public ConsumerNodeLoad(Map<String, SubscriptionLoad> subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    public Map<String, SubscriptionLoad> getSubscriptions() {
+        return subscriptions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ConsumerNodeLoad that = (ConsumerNodeLoad) o;
+        return Objects.equals(subscriptions, that.subscriptions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(subscriptions);
+    }
+
+    @Override
+    public String toString() {
+        return "ConsumerNodeLoad{" +
+                "subscriptions=" + subscriptions +
+                '}';
+    }
+}
@@ -0,0 +1,91 @@
+package pl.allegro.tech.hermes.consumers.supervisor.workload.selective;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.allegro.tech.hermes.api.SubscriptionName;
+import pl.allegro.tech.hermes.common.exception.InternalProcessingException;
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoad;
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoadRecorder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.zookeeper.CreateMode.EPHEMERAL;
+
+/**
+ * Keeps loads of subscriptions published by each consumer node, one ephemeral node per consumer node, so that load
+ * of a node which is gone disappears together with it.
+ */
+public class ConsumerNodeLoadRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerNodeLoadRegistry.class);
+
+    private final CuratorFramework curator;
+    private final ObjectMapper objectMapper;
+    private final String prefix;
+    private final String consumerNodeId;
+    private final SubscriptionLoadRecorder loadRecorder;
+    private final int lagDrainSeconds;
+
+    public ConsumerNodeLoadRegistry(CuratorFramework curator,
+                                    ObjectMapper objectMapper,
+                                    String prefix,
+                                    String consumerNodeId,
+                                    SubscriptionLoadRecorder loadRecorder,
+                                    int lagDrainSeconds) {
+        this.curator = curator;
+        this.objectMapper = objectMapper;
+        this.prefix = prefix;
+        this.consumerNodeId = consumerNodeId;
+        this.loadRecorder = loadRecorder;
+        this.lagDrainSeconds = lagDrainSeconds;
+    }
+
+    public void publish(Set<SubscriptionName> assignedSubscriptions) {
+        Map<String, SubscriptionLoad> loads = new HashMap<>();
+        assignedSubscriptions.forEach(subscription ->
+                loads.put(subscription.getQualifiedName(), loadRecorder.load(subscription)));
+        try {
+            writeOrCreate(getLoadPath(consumerNodeId), objectMapper.writeValueAsBytes(new ConsumerNodeLoad(loads)));
+        } catch (Exception e) {
+            logger.warn("Could not publish load of consumer node {}", consumerNodeId, e);
+        }
+    }
+
+    public SubscriptionWeights readWeights(List<String> consumerNodes) {
+        List<ConsumerNodeLoad> nodeLoads = new ArrayList<>();
+        for (String consumerNode : consumerNodes) {
+            try {
+                byte[] data = curator.getData().forPath(getLoadPath(consumerNode));
+                nodeLoads.add(objectMapper.readValue(data, ConsumerNodeLoad.class));
+            } catch (KeeperException.NoNodeException e) {
+                logger.info("Consumer node {} has not published its load yet", consumerNode);
+            } catch (Exception e) {
+                throw new InternalProcessingException(e);
+            }
+        }
+        return SubscriptionWeights.from(nodeLoads, lagDrainSeconds);
+    }
+
+    private void writeOrCreate(String path, byte[] serializedData) throws Exception {
+        try {
+            curator.setData().forPath(path, serializedData);
+        } catch (KeeperException.NoNodeException e) {
+            try {
+                curator.create().creatingParentsIfNeeded().withMode(EPHEMERAL).forPath(path, serializedData);
+            } catch (KeeperException.NodeExistsException ex) {
+                // ignore
+            }
+        }
+    }
+
+    private String getLoadPath(String consumerNodeId) {
+        return prefix + "/load/" + consumerNodeId;
+    }
+}
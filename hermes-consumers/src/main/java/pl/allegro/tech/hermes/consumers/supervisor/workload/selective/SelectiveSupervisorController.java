@@ -25,6 +25,9 @@ import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_CON
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_MAX_SUBSCRIPTIONS_PER_CONSUMER;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_NODE_ID;
 import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_REBALANCE_INTERVAL;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_WEIGHTED_ENABLED;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_WEIGHTED_IMBALANCE_TOLERANCE;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_WORKLOAD_WEIGHTED_MAX_TRANSFERS;
 import static pl.allegro.tech.hermes.common.config.Configs.KAFKA_CLUSTER_NAME;
 
 public class SelectiveSupervisorController implements SupervisorController {
@@ -49,6 +52,7 @@ public class SelectiveSupervisorController implements SupervisorController {
                                          SubscriptionAssignmentRegistry registry,
                                          WorkTracker workTracker,
                                          ConsumerNodesRegistry consumersRegistry,
+                                         ConsumerNodeLoadRegistry loadRegistry,
                                          ZookeeperAdminCache adminCache,
                                          ExecutorService assignmentExecutor,
                                          ConfigFactory configFactory,
@@ -67,8 +71,12 @@ public class SelectiveSupervisorController implements SupervisorController {
                 consumersRegistry,
                 subscriptionsCache,
                 new SelectiveWorkBalancer(configFactory.getIntProperty(CONSUMER_WORKLOAD_CONSUMERS_PER_SUBSCRIPTION),
-                        configFactory.getIntProperty(CONSUMER_WORKLOAD_MAX_SUBSCRIPTIONS_PER_CONSUMER)),
-                workTracker, metrics,
+                        configFactory.getIntProperty(CONSUMER_WORKLOAD_MAX_SUBSCRIPTIONS_PER_CONSUMER),
+                        configFactory.getIntProperty(CONSUMER_WORKLOAD_WEIGHTED_MAX_TRANSFERS),
+                        configFactory.getDoubleProperty(CONSUMER_WORKLOAD_WEIGHTED_IMBALANCE_TOLERANCE)),
+                workTracker,
+                configFactory.getBooleanProperty(CONSUMER_WORKLOAD_WEIGHTED_ENABLED) ? Optional.of(loadRegistry) : Optional.empty(),
+                metrics,
                 configFactory.getIntProperty(CONSUMER_WORKLOAD_REBALANCE_INTERVAL),
                 configFactory.getStringProperty(KAFKA_CLUSTER_NAME));
     }
@@ -139,7 +147,8 @@ public class SelectiveSupervisorController implements SupervisorController {
                         CONSUMER_WORKLOAD_ALGORITHM,
                         CONSUMER_WORKLOAD_REBALANCE_INTERVAL,
                         CONSUMER_WORKLOAD_CONSUMERS_PER_SUBSCRIPTION,
-                        CONSUMER_WORKLOAD_MAX_SUBSCRIPTIONS_PER_CONSUMER));
+                        CONSUMER_WORKLOAD_MAX_SUBSCRIPTIONS_PER_CONSUMER,
+                        CONSUMER_WORKLOAD_WEIGHTED_ENABLED));
     }
 
     @Override
@@ -1,5 +1,6 @@
 package pl.allegro.tech.hermes.consumers.supervisor.workload.selective;
 
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.SubscriptionName;
@@ -9,8 +10,13 @@ import pl.allegro.tech.hermes.consumers.supervisor.workload.SubscriptionAssignme
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingDouble;
 import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toList;
 
@@ -20,47 +26,95 @@ public class SelectiveWorkBalancer {
 
     private final int consumersPerSubscription;
     private final int maxSubscriptionsPerConsumer;
+    private final int maxTransfersPerRebalance;
+    private final double imbalanceTolerance;
 
     public SelectiveWorkBalancer(int consumersPerSubscription, int maxSubscriptionsPerConsumer) {
+        this(consumersPerSubscription, maxSubscriptionsPerConsumer, Integer.MAX_VALUE, 0.0);
+    }
+
+    /**
+     * @param maxTransfersPerRebalance Maximum number of assignments moved between nodes by a single weighted balancing
+     * @param imbalanceTolerance How much load of a node may exceed the average one before weighted balancing moves
+     *                           assignments away from it, as a fraction of the average load
+     */
+    public SelectiveWorkBalancer(int consumersPerSubscription,
+                                 int maxSubscriptionsPerConsumer,
+                                 int maxTransfersPerRebalance,
+                                 double imbalanceTolerance) {
         this.consumersPerSubscription = consumersPerSubscription;
         this.maxSubscriptionsPerConsumer = maxSubscriptionsPerConsumer;
+        this.maxTransfersPerRebalance = maxTransfersPerRebalance;
+        this.imbalanceTolerance = imbalanceTolerance;
     }
 
     public WorkBalancingResult balance(List<SubscriptionName> subscriptions,
                                        List<String> activeConsumerNodes,
                                        SubscriptionAssignmentView currentState) {
+        return balance(subscriptions, activeConsumerNodes, currentState, Optional.empty());
+    }
+
+    /**
+     * Balances the work by weights of subscriptions instead of numbers of assignments. New assignments go to the
+     * least loaded nodes, then assignments are moved from nodes loaded above the tolerated imbalance to less loaded
+     * ones, at most the configured number of them, so that a single run does not restart too many consumers.
+     * Limits of assignments per subscription and per node are respected just like in count based balancing.
+     */
+    public WorkBalancingResult balance(List<SubscriptionName> subscriptions,
+                                       List<String> activeConsumerNodes,
+                                       SubscriptionAssignmentView currentState,
+                                       SubscriptionWeights weights) {
+        return balance(subscriptions, activeConsumerNodes, currentState, Optional.of(weights));
+    }
+
+    private WorkBalancingResult balance(List<SubscriptionName> subscriptions,
+                                        List<String> activeConsumerNodes,
+                                        SubscriptionAssignmentView currentState,
+                                        Optional<SubscriptionWeights> weights) {
 
         List<SubscriptionName> removedSubscriptions = findRemovedSubscriptions(currentState, subscriptions);
         List<String> inactiveConsumers = findInactiveConsumers(currentState, activeConsumerNodes);
         List<SubscriptionName> newSubscriptions = findNewSubscriptions(currentState, subscriptions);
         List<String> newConsumers = findNewConsumers(currentState, activeConsumerNodes);
+        AtomicInteger transfers = new AtomicInteger();
 
-        SubscriptionAssignmentView balancedState =
-                balance(currentState, removedSubscriptions, inactiveConsumers, newSubscriptions, newConsumers);
+        SubscriptionAssignmentView balancedState = balance(currentState, removedSubscriptions, inactiveConsumers,
+                newSubscriptions, newConsumers, weights, transfers);
 
         log(subscriptions, activeConsumerNodes, currentState, balancedState);
 
-        return new WorkBalancingResult.Builder(balancedState)
+        WorkBalancingResult.Builder result = new WorkBalancingResult.Builder(balancedState)
                 .withSubscriptionsStats(subscriptions.size(), removedSubscriptions.size(), newSubscriptions.size())
                 .withConsumersStats(activeConsumerNodes.size(), inactiveConsumers.size(), newConsumers.size())
-                .withMissingResources(countMissingResources(subscriptions, balancedState))
-                .build();
+                .withMissingResources(countMissingResources(subscriptions, balancedState));
+        weights.ifPresent(w -> result.withWeightedStats(transfers.get(), new WeightedWorkload(balancedState, w).imbalance()));
+        return result.build();
     }
 
     private SubscriptionAssignmentView balance(SubscriptionAssignmentView currentState,
                                                List<SubscriptionName> removedSubscriptions,
                                                List<String> inactiveConsumers,
                                                List<SubscriptionName> newSubscriptions,
-                                               List<String> newConsumers) {
+                                               List<String> newConsumers,
+                                               Optional<SubscriptionWeights> weights,
+                                               AtomicInteger transfers) {
         return currentState.transform((state, transformer) -> {
             removedSubscriptions.forEach(transformer::removeSubscription);
             inactiveConsumers.forEach(transformer::removeConsumerNode);
             newSubscriptions.forEach(transformer::addSubscription);
             newConsumers.forEach(transformer::addConsumerNode);
             minimizeWorkload(state, transformer);
-            AvailableWork.stream(state, consumersPerSubscription, maxSubscriptionsPerConsumer)
-                    .forEach(transformer::addAssignment);
-            equalizeWorkload(state, transformer);
+            if (weights.isPresent()) {
+                WeightedWorkload workload = new WeightedWorkload(state, weights.get());
+                AvailableWork.stream(state, consumersPerSubscription, maxSubscriptionsPerConsumer,
+                        workload.leastLoadedFirst())
+                        .forEach(transformer::addAssignment);
+                transfers.set(equalizeWeightedWorkload(state, transformer, workload));
+            } else {
+                AvailableWork.stream(state, consumersPerSubscription, maxSubscriptionsPerConsumer)
+                        .forEach(transformer::addAssignment);
+                equalizeWorkload(state, transformer);
+            }
         });
     }
 
@@ -144,6 +198,114 @@ public class SelectiveWorkBalancer {
                 .findAny();
     }
 
+    private int equalizeWeightedWorkload(SubscriptionAssignmentView state,
+                                         SubscriptionAssignmentView.Transformer transformer,
+                                         WeightedWorkload workload) {
+        int transfers = 0;
+        while (transfers < maxTransfersPerRebalance) {
+            Optional<List<Transfer>> move = findWeightedMove(state, workload, maxTransfersPerRebalance - transfers);
+            if (!move.isPresent()) {
+                break;
+            }
+            for (Transfer transfer : move.get()) {
+                logger.info("Transferring {} from {} to {} to even out load",
+                        transfer.subscription, transfer.from, transfer.to);
+                transformer.transferAssignment(transfer.from, transfer.to, transfer.subscription);
+                transfers++;
+            }
+        }
+        return transfers;
+    }
+
+    /**
+     * Looks for a way to take load off the most loaded node possible and give it to the least loaded node possible,
+     * by moving a single assignment or, when none fits, by swapping two assignments. Moved load has to be lower than
+     * the load difference of the nodes, so the target does not end up more loaded than the source was; out of such
+     * moves the one closest to half of the difference is chosen, as it evens out the nodes best.
+     */
+    private Optional<List<Transfer>> findWeightedMove(SubscriptionAssignmentView state,
+                                                      WeightedWorkload workload,
+                                                      int transfersLeft) {
+        double maxAllowedLoad = workload.averageNodeLoad() * (1 + imbalanceTolerance);
+        List<String> nodesByLoad = state.getConsumerNodes().stream()
+                .sorted(workload.leastLoadedFirst())
+                .collect(toList());
+        for (String from : Lists.reverse(nodesByLoad)) {
+            double fromLoad = workload.nodeLoad(from);
+            if (fromLoad <= maxAllowedLoad) {
+                break;
+            }
+            for (String to : nodesByLoad) {
+                double difference = fromLoad - workload.nodeLoad(to);
+                if (difference <= 0) {
+                    break;
+                }
+                if (state.getAssignmentsCountForConsumerNode(to) < maxSubscriptionsPerConsumer) {
+                    Optional<SubscriptionName> subscription = bestFittingSubscription(state, workload, from, to, difference);
+                    if (subscription.isPresent()) {
+                        return Optional.of(singletonList(new Transfer(from, to, subscription.get())));
+                    }
+                }
+            }
+            if (transfersLeft >= 2) {
+                for (String to : nodesByLoad) {
+                    double difference = fromLoad - workload.nodeLoad(to);
+                    if (difference <= 0) {
+                        break;
+                    }
+                    Optional<List<Transfer>> swap = bestFittingSwap(state, workload, from, to, difference);
+                    if (swap.isPresent()) {
+                        return swap;
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<SubscriptionName> bestFittingSubscription(SubscriptionAssignmentView state,
+                                                               WeightedWorkload workload,
+                                                               String from,
+                                                               String to,
+                                                               double loadDifference) {
+        return state.getSubscriptionsForConsumerNode(from).stream()
+                .filter(s -> !state.getConsumerNodesForSubscription(s).contains(to))
+                .filter(s -> workload.assignmentWeight(s) > 0 && workload.assignmentWeight(s) < loadDifference)
+                .min(comparingDouble((SubscriptionName s) -> Math.abs(workload.assignmentWeight(s) - loadDifference / 2))
+                        .thenComparing(SubscriptionName::getQualifiedName));
+    }
+
+    private Optional<List<Transfer>> bestFittingSwap(SubscriptionAssignmentView state,
+                                                     WeightedWorkload workload,
+                                                     String from,
+                                                     String to,
+                                                     double loadDifference) {
+        List<SubscriptionName> fromCandidates = swapCandidates(state, from, to);
+        List<SubscriptionName> toCandidates = swapCandidates(state, to, from);
+        Optional<List<Transfer>> best = Optional.empty();
+        double bestDistance = Double.MAX_VALUE;
+        for (SubscriptionName fromSubscription : fromCandidates) {
+            for (SubscriptionName toSubscription : toCandidates) {
+                double moved = workload.assignmentWeight(fromSubscription) - workload.assignmentWeight(toSubscription);
+                double distance = Math.abs(moved - loadDifference / 2);
+                if (moved > 0 && moved < loadDifference && distance < bestDistance) {
+                    bestDistance = distance;
+                    best = Optional.of(asList(
+                            new Transfer(from, to, fromSubscription),
+                            new Transfer(to, from, toSubscription)));
+                }
+            }
+        }
+        return best;
+    }
+
+    private List<SubscriptionName> swapCandidates(SubscriptionAssignmentView state, String node, String otherNode) {
+        return state.getSubscriptionsForConsumerNode(node).stream()
+                .filter(s -> !state.getConsumerNodesForSubscription(s).contains(otherNode))
+                .sorted(comparing(SubscriptionName::getQualifiedName))
+                .collect(toList());
+    }
+
     private List<SubscriptionName> findRemovedSubscriptions(SubscriptionAssignmentView state,
                                                             List<SubscriptionName> subscriptions) {
         return state.getSubscriptions().stream().filter(s -> !subscriptions.contains(s)).collect(toList());
@@ -171,4 +333,16 @@ public class SelectiveWorkBalancer {
                 currentState.getAllAssignments().size(),
                 balancedState.getAllAssignments().size());
     }
+
+    private static class Transfer {
+        private final String from;
+        private final String to;
+        private final SubscriptionName subscription;
+
+        Transfer(String from, String to, SubscriptionName subscription) {
+            this.from = from;
+            this.to = to;
+            this.subscription = subscription;
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package pl.allegro.tech.hermes.consumers.supervisor.workload.selective;
+
+import pl.allegro.tech.hermes.api.SubscriptionName;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+
+/**
+ * Weights of subscriptions in the whole cluster, expressed as the rate of messages (per second) their consumers
+ * have to handle. Subscriptions without measurements, e.g. the ones just created, weigh as much as an average
+ * measured subscription.
+ */
+public class SubscriptionWeights {
+
+    private static final double DEFAULT_WEIGHT = 1.0;
+
+    public static final SubscriptionWeights EMPTY = new SubscriptionWeights(emptyMap());
+
+    private final Map<SubscriptionName, Double> weights;
+    private final double defaultWeight;
+
+    public SubscriptionWeights(Map<SubscriptionName, Double> weights) {
+        this.weights = weights;
+        this.defaultWeight = weights.values().stream().mapToDouble(Double::doubleValue).average().orElse(DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Sums loads reported by consumer nodes, as each node reports only its own share of a subscription.
+     */
+    public static SubscriptionWeights from(Collection<ConsumerNodeLoad> nodeLoads, int lagDrainSeconds) {
+        Map<SubscriptionName, Double> weights = new HashMap<>();
+        nodeLoads.forEach(nodeLoad -> nodeLoad.getSubscriptions().forEach((subscription, load) ->
+                weights.merge(SubscriptionName.fromString(subscription), load.weight(lagDrainSeconds), Double::sum)));
+        return new SubscriptionWeights(weights);
+    }
+
+    public double weightOf(SubscriptionName subscription) {
+        return weights.getOrDefault(subscription, defaultWeight);
+    }
+
+    public boolean isEmpty() {
+        return weights.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionWeights{" +
+                "weights=" + weights +
+                ", defaultWeight=" + defaultWeight +
+                '}';
+    }
+}
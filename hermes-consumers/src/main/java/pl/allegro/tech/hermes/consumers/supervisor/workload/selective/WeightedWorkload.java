@@ -0,0 +1,58 @@
+package pl.allegro.tech.hermes.consumers.supervisor.workload.selective;
+
+import pl.allegro.tech.hermes.api.SubscriptionName;
+import pl.allegro.tech.hermes.consumers.supervisor.workload.SubscriptionAssignmentView;
+
+import java.util.Comparator;
+
+import static java.util.Comparator.comparingDouble;
+import static java.util.Comparator.comparingInt;
+
+/**
+ * Load of consumer nodes in given assignment state, being the sum of weights of their assignments. Weight of
+ * a subscription is split evenly among its assignments, as consumers of a subscription share its partitions.
+ * Computed from the state on each call, so it follows the changes made while balancing.
+ */
+class WeightedWorkload {
+
+    private final SubscriptionAssignmentView state;
+    private final SubscriptionWeights weights;
+
+    WeightedWorkload(SubscriptionAssignmentView state, SubscriptionWeights weights) {
+        this.state = state;
+        this.weights = weights;
+    }
+
+    double assignmentWeight(SubscriptionName subscription) {
+        return weights.weightOf(subscription) / Math.max(state.getAssignmentsCountForSubscription(subscription), 1);
+    }
+
+    double nodeLoad(String consumerNode) {
+        return state.getSubscriptionsForConsumerNode(consumerNode).stream()
+                .mapToDouble(this::assignmentWeight)
+                .sum();
+    }
+
+    double averageNodeLoad() {
+        return state.getConsumerNodes().stream().mapToDouble(this::nodeLoad).average().orElse(0);
+    }
+
+    /**
+     * Ratio of the highest node load to the average one, 1 meaning perfectly even distribution.
+     */
+    double imbalance() {
+        double average = averageNodeLoad();
+        double max = state.getConsumerNodes().stream().mapToDouble(this::nodeLoad).max().orElse(0);
+        return average > 0 ? max / average : 1.0;
+    }
+
+    /**
+     * Orders nodes from the least loaded, falling back to the number of assignments and node id for equal loads,
+     * so that balancing is deterministic.
+     */
+    Comparator<String> leastLoadedFirst() {
+        return comparingDouble(this::nodeLoad)
+                .thenComparing(comparingInt(state::getAssignmentsCountForConsumerNode))
+                .thenComparing(Comparator.naturalOrder());
+    }
+}
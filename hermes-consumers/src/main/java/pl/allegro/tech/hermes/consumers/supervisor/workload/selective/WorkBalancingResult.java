@@ -9,12 +9,16 @@ public class WorkBalancingResult {
     private Counts subscriptionsCounts;
     private Counts consumersCounts;
     private int missingResources;
+    private int transfers;
+    private double loadImbalance;
 
     private WorkBalancingResult(Builder builder) {
         this.state = builder.state;
         this.subscriptionsCounts = builder.subscriptionsCounts;
         this.consumersCounts = builder.consumersCounts;
         this.missingResources = builder.missingResources;
+        this.transfers = builder.transfers;
+        this.loadImbalance = builder.loadImbalance;
     }
 
     public SubscriptionAssignmentView getAssignmentsView() {
@@ -30,13 +34,28 @@ public class WorkBalancingResult {
     }
 
     public String toString() {
-        return format("subscriptions_stats %s, consumers_stats %s, missing_resources=%s", subscriptionsCounts, consumersCounts, missingResources);
+        return format("subscriptions_stats %s, consumers_stats %s, missing_resources=%s, transfers=%s, load_imbalance=%.2f",
+                subscriptionsCounts, consumersCounts, missingResources, transfers, loadImbalance);
     }
 
     public int getMissingResources() {
         return missingResources;
     }
 
+    /**
+     * Number of assignments moved between nodes by weighted balancing.
+     */
+    public int getTransfersCount() {
+        return transfers;
+    }
+
+    /**
+     * Ratio of the highest node load to the average one after weighted balancing.
+     */
+    public double getLoadImbalance() {
+        return loadImbalance;
+    }
+
     private static class Counts {
         int activeCount, inactiveCount, newCount;
 
@@ -59,6 +78,8 @@ public class WorkBalancingResult {
         private Counts subscriptionsCounts = new Counts();
         private Counts consumersCounts = new Counts();
         private int missingResources;
+        private int transfers;
+        private double loadImbalance;
 
         public Builder(SubscriptionAssignmentView state) {
             this.state = state;
@@ -79,6 +100,12 @@ public class WorkBalancingResult {
             return this;
         }
 
+        public Builder withWeightedStats(int transfers, double loadImbalance) {
+            this.transfers = transfers;
+            this.loadImbalance = loadImbalance;
+            return this;
+        }
+
         public WorkBalancingResult build() {
             return new WorkBalancingResult(this);
         }
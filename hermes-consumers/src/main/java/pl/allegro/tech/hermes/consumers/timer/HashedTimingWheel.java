@@ -0,0 +1,284 @@
+package pl.allegro.tech.hermes.consumers.timer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A timer shared by all subscriptions, handling retry backoffs and send timeouts of the whole node on a single
+ * thread.
+ * <p>
+ * Timers are kept in a wheel of buckets, each covering one tick, so scheduling and cancelling take constant time
+ * regardless of the number of pending timers. Both only enqueue the timer, buckets are touched by the worker
+ * thread alone. Timers expire with tick precision, never earlier than their delay.
+ * <p>
+ * Expired timers are run on the worker thread, so tasks have to be short and hand off any real work. To keep
+ * subscriptions with a lot of expiring timers from delaying the others, expired timers are run round-robin by
+ * owner, at most a limited number per owner in a single tick; the rest waits for the next tick.
+ */
+public class HashedTimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private static final Object NO_OWNER = new Object();
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final int expirationsPerOwnerPerTick;
+
+    private final Queue<Entry> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final Map<Object, ArrayDeque<Entry>> expired = new LinkedHashMap<>();
+    private final AtomicLong pendingTimers = new AtomicLong();
+
+    private final Thread worker;
+    private final long startTime;
+
+    private volatile boolean running = true;
+    private volatile long schedulingLagMillis;
+    private long tick;
+
+    /**
+     * @param tick Duration of a single tick, the precision of the timer
+     * @param unit Unit of tick duration
+     * @param ticksPerWheel Number of buckets, rounded up to a power of two
+     * @param expirationsPerOwnerPerTick Maximum number of timers of a single owner run in one tick
+     */
+    public HashedTimingWheel(long tick, TimeUnit unit, int ticksPerWheel, int expirationsPerOwnerPerTick) {
+        checkArgument(tick > 0, "Tick duration must be positive");
+        checkArgument(ticksPerWheel > 0, "Wheel must have at least one bucket");
+        checkArgument(expirationsPerOwnerPerTick > 0, "At least one timer per owner has to expire in a tick");
+        this.tickNanos = unit.toNanos(tick);
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.expirationsPerOwnerPerTick = expirationsPerOwnerPerTick;
+        this.startTime = System.nanoTime();
+        this.worker = new ThreadFactoryBuilder()
+                .setNameFormat("timing-wheel-%d")
+                .setDaemon(true)
+                .build()
+                .newThread(this::work);
+        this.worker.start();
+    }
+
+    /**
+     * Runs the task on the timer thread after given delay.
+     *
+     * @param owner Key by which expirations are spread fairly, e.g. subscription name; may be null
+     */
+    public Timeout schedule(Object owner, Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay));
+        Entry entry = new Entry(owner == null ? NO_OWNER : owner, task, deadline);
+        pendingTimers.incrementAndGet();
+        scheduled.add(entry);
+        return entry;
+    }
+
+    /**
+     * The number of timers which were scheduled but neither run nor cancelled yet
+     */
+    public long pendingTimers() {
+        return pendingTimers.get();
+    }
+
+    /**
+     * How late the last tick started in relation to when it should have, in milliseconds
+     */
+    public long schedulingLag() {
+        return schedulingLagMillis;
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            if (!sleepUntil(deadline)) {
+                return;
+            }
+            long now = System.nanoTime() - startTime;
+            schedulingLagMillis = TimeUnit.NANOSECONDS.toMillis(now - deadline);
+
+            removeCancelled();
+            transferScheduled();
+            wheel[(int) (tick & mask)].expire(now);
+            runExpired();
+            tick++;
+        }
+    }
+
+    private boolean sleepUntil(long deadline) {
+        long sleepNanos;
+        while ((sleepNanos = deadline - (System.nanoTime() - startTime)) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return false;
+                }
+            }
+        }
+        return running;
+    }
+
+    private void removeCancelled() {
+        Entry entry;
+        while ((entry = cancelled.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    private void transferScheduled() {
+        Entry entry;
+        while ((entry = scheduled.poll()) != null) {
+            if (entry.state.get() == CANCELLED) {
+                continue;
+            }
+            long expirationTick = (entry.deadline + tickNanos - 1) / tickNanos;
+            long ticks = Math.max(expirationTick, tick);
+            entry.remainingRounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(entry);
+        }
+    }
+
+    private void runExpired() {
+        for (int round = 0; round < expirationsPerOwnerPerTick && !expired.isEmpty(); round++) {
+            Iterator<ArrayDeque<Entry>> owners = expired.values().iterator();
+            while (owners.hasNext()) {
+                ArrayDeque<Entry> entries = owners.next();
+                entries.poll().run();
+                if (entries.isEmpty()) {
+                    owners.remove();
+                }
+            }
+        }
+    }
+
+    public interface Timeout {
+
+        /**
+         * @return false if the timer has already run or was cancelled before
+         */
+        boolean cancel();
+    }
+
+    private final class Entry implements Timeout {
+        private final Object owner;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+
+        private long remainingRounds;
+        private Bucket bucket;
+        private Entry previous;
+        private Entry next;
+
+        Entry(Object owner, Runnable task, long deadline) {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            pendingTimers.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        void run() {
+            if (!state.compareAndSet(INIT, EXPIRED)) {
+                return;
+            }
+            pendingTimers.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("Timer task of {} failed", owner, t);
+            }
+        }
+    }
+
+    private final class Bucket {
+        private Entry head;
+        private Entry tail;
+
+        void add(Entry entry) {
+            entry.bucket = this;
+            if (head == null) {
+                head = tail = entry;
+            } else {
+                tail.next = entry;
+                entry.previous = tail;
+                tail = entry;
+            }
+        }
+
+        void expire(long now) {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.remainingRounds <= 0 && entry.deadline <= now) {
+                    remove(entry);
+                    expired.computeIfAbsent(entry.owner, owner -> new ArrayDeque<>()).add(entry);
+                } else if (entry.remainingRounds > 0) {
+                    entry.remainingRounds--;
+                }
+                entry = next;
+            }
+        }
+
+        void remove(Entry entry) {
+            if (entry.previous != null) {
+                entry.previous.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.previous = entry.previous;
+            } else {
+                tail = entry.previous;
+            }
+            entry.previous = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+    }
+}
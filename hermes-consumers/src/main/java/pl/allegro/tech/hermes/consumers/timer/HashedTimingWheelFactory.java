@@ -0,0 +1,43 @@
+package pl.allegro.tech.hermes.consumers.timer;
+
+import org.glassfish.hk2.api.Factory;
+import pl.allegro.tech.hermes.common.config.ConfigFactory;
+import pl.allegro.tech.hermes.common.metric.Gauges;
+import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_TIMER_EXPIRATIONS_PER_SUBSCRIPTION_PER_TICK;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_TIMER_TICK_MS;
+import static pl.allegro.tech.hermes.common.config.Configs.CONSUMER_TIMER_WHEEL_SIZE;
+
+public class HashedTimingWheelFactory implements Factory<HashedTimingWheel> {
+
+    private final ConfigFactory configFactory;
+    private final HermesMetrics hermesMetrics;
+
+    @Inject
+    public HashedTimingWheelFactory(ConfigFactory configFactory, HermesMetrics hermesMetrics) {
+        this.configFactory = configFactory;
+        this.hermesMetrics = hermesMetrics;
+    }
+
+    @Override
+    public HashedTimingWheel provide() {
+        HashedTimingWheel timingWheel = new HashedTimingWheel(
+                configFactory.getIntProperty(CONSUMER_TIMER_TICK_MS),
+                TimeUnit.MILLISECONDS,
+                configFactory.getIntProperty(CONSUMER_TIMER_WHEEL_SIZE),
+                configFactory.getIntProperty(CONSUMER_TIMER_EXPIRATIONS_PER_SUBSCRIPTION_PER_TICK)
+        );
+        hermesMetrics.registerGauge(Gauges.TIMING_WHEEL_PENDING_TIMERS, timingWheel::pendingTimers);
+        hermesMetrics.registerGauge(Gauges.TIMING_WHEEL_SCHEDULING_LAG, timingWheel::schedulingLag);
+        return timingWheel;
+    }
+
+    @Override
+    public void dispose(HashedTimingWheel instance) {
+        instance.stop();
+    }
+}
@@ -92,4 +92,30 @@ class JsonMessageBatchTest extends Specification {
         then:
         !jsonMessageBatch.isReadyForDelivery()
     }
+
+    def "should append element written directly into batch buffer"() {
+        given:
+        JsonMessageBatch batch = new JsonMessageBatch(BATCH_ID, allocateDirect(LARGE_BATCH_VOLUME), LARGE_BATCH_SIZE, LARGE_BATCH_TIME, systemDefaultZone(), emptyList())
+
+        when:
+        batch.append(2, { ByteBuffer buffer -> buffer.put("xx".bytes) }, Stub(MessageMetadata))
+        batch.append("yy".bytes, Stub(MessageMetadata))
+        batch.close()
+
+        then:
+        def content = new byte[batch.getContent().remaining()]
+        batch.getContent().get(content)
+        new String(content) == '[xx,yy]'
+    }
+
+    def "should reject element not matching declared size"() {
+        given:
+        JsonMessageBatch batch = new JsonMessageBatch(BATCH_ID, allocateDirect(LARGE_BATCH_VOLUME), LARGE_BATCH_SIZE, LARGE_BATCH_TIME, systemDefaultZone(), emptyList())
+
+        when:
+        batch.append(3, { ByteBuffer buffer -> buffer.put("xx".bytes) }, Stub(MessageMetadata))
+
+        then:
+        thrown IllegalStateException
+    }
 }
@@ -3,6 +3,7 @@ package pl.allegro.tech.hermes.consumers.consumer.filtering
 import pl.allegro.tech.hermes.api.ContentType
 import pl.allegro.tech.hermes.api.MessageFilterSpecification
 import pl.allegro.tech.hermes.consumers.consumer.filtering.avro.AvroPathSubscriptionMessageFilterCompiler
+import pl.allegro.tech.hermes.consumers.consumer.filtering.avro.ProjectedRecordReader
 import pl.allegro.tech.hermes.consumers.test.MessageBuilder
 import pl.allegro.tech.hermes.test.helper.avro.AvroUserSchemaLoader
 import spock.lang.Specification
@@ -11,30 +12,30 @@ import tech.allegro.schema.json2avro.converter.JsonAvroConverter
 
 class AvroPathMessageFilterSpec extends Specification {
 
+    static final String JSON = '''
+        {
+            "id": "0001",
+            "type": "donut",
+            "name": "Cake",
+            "ppu": 0.55,
+            "batter": {
+                 "id": "1003",
+                 "type": "Blueberry"
+            },
+            "topping": {
+                 "id": "5004",
+                 "type": "Maple",
+                 "description": "Maple syrup"
+            }
+        }
+    '''
+
     @Unroll
     def "basic paths"(String path, String matcher, boolean result) {
         given:
         def schema = AvroUserSchemaLoader.load("/cake.avsc")
 
-        def json = '''
-            {
-                "id": "0001",
-                "type": "donut",
-                "name": "Cake",
-                "ppu": 0.55,
-                "batter": {
-                     "id": "1003",
-                     "type": "Blueberry"
-                },
-                "topping": {
-                     "id": "5004",
-                     "type": "Maple",
-                     "description": "Maple syrup"
-                }
-            }
-        '''
-
-        def avro = new JsonAvroConverter().convertToAvro(json.bytes, schema)
+        def avro = new JsonAvroConverter().convertToAvro(JSON.bytes, schema)
         def spec = new MessageFilterSpecification([path: path, matcher: matcher])
         def msg = MessageBuilder
                 .withTestMessage()
@@ -77,6 +78,41 @@ class AvroPathMessageFilterSpec extends Specification {
         then:
         thrown FilteringException
     }
-}
 
+    @Unroll
+    def "should match multiple paths in a single filter"(List<String> paths, List<String> matchers, boolean result) {
+        given:
+        def schema = AvroUserSchemaLoader.load("/cake.avsc")
+        def specs = [paths, matchers].transpose().collect { new MessageFilterSpecification([path: it[0], matcher: it[1]]) }
+        def filters = new AvroPathSubscriptionMessageFilterCompiler().getMessageFilters(specs)
 
+        expect:
+        filters.size() == 1
+        result == filters[0].test(MessageBuilder
+                .withTestMessage()
+                .withContent(new JsonAvroConverter().convertToAvro(JSON.bytes, schema))
+                .withSchema(schema, 0)
+                .withContentType(ContentType.AVRO)
+                .build())
+
+        where:
+        paths                                  | matchers                       | result
+        [".id", ".batter.id", ".topping.type"] | ["0001", "1003", "Maple"]      | true
+        [".id", ".batter.id", ".topping.type"] | ["0001", "1004", "Maple"]      | false
+        [".batter", ".batter.id"]              | [".*Blueberry.*", "1003"]      | true
+        [".ppu", ".does.not.exist"]            | ["0.55", ".*"]                 | false
+    }
+
+    def "should project schema to fields needed by paths"() {
+        given:
+        def schema = AvroUserSchemaLoader.load("/cake.avsc")
+
+        when:
+        def projected = new ProjectedRecordReader([["id"], ["topping", "type"], ["batter"]]).projectedSchema(schema)
+
+        then:
+        projected.fields*.name() == ["id", "topping", "batter"]
+        projected.getField("topping").schema().types[1].fields*.name() == ["type"]
+        projected.getField("batter").schema() == schema.getField("batter").schema()
+    }
+}
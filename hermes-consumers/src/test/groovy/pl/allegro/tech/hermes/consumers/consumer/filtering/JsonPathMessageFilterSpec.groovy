@@ -10,10 +10,7 @@ import static pl.allegro.tech.hermes.consumers.test.MessageBuilder.withTestMessa
 
 class JsonPathMessageFilterSpec extends Specification {
 
-    @Unroll
-    def "should filter '#path' matching '#matcher' with result: #result"(String path, String matcher, boolean result) {
-        given:
-        def json = '''
+    static final String JSON = '''
             {
                 "id": "0001",
                 "type": "donut",
@@ -38,16 +35,22 @@ class JsonPathMessageFilterSpec extends Specification {
                         { "id": "5006", "type": "Chocolate with Sprinkles" },
                         { "id": "5003", "type": "Chocolate" },
                         { "id": "5004", "type": "Maple" }
-                    ]
+                    ],
+                "count": 12,
+                "vegan": false,
+                "discount": null
             }
         '''
 
+    @Unroll
+    def "should filter '#path' matching '#matcher' with result: #result"(String path, String matcher, boolean result) {
+        given:
         def spec = new MessageFilterSpecification([path: path, matcher: matcher])
 
         expect:
         result == new JsonPathSubscriptionMessageFilterCompiler().compile(spec)
                 .test(withTestMessage()
-                .withContent(json, defaultCharset())
+                .withContent(JSON, defaultCharset())
                 .build())
 
         where:
@@ -64,5 +67,38 @@ class JsonPathMessageFilterSpec extends Specification {
         '$.topping[?(@.id == 5001)].type' | "None"        | true
         '$.topping[4:6].type'             | "^Choco.*"    | true
         '$.topping[4:7].type'             | "^Choco.*"    | false
+        "\$['name']"                      | "Cake"        | true
+        '$.ppu'                           | "0.55"        | true
+        '$.count'                         | "12"          | true
+        '$.vegan'                         | "false"       | true
+        '$.discount'                      | "null"        | true
+        '$.batters.batter[3].type'        | "Devil's.*"   | true
+        '$.batters.batter[4].type'        | ".*"          | false
+        '$.batters'                       | ".*batter.*"  | true
+        '$.type.name'                     | ".*"          | false
+    }
+
+    @Unroll
+    def "should match only if all filters of subscription match: #result"(List<String> paths, List<String> matchers, boolean result) {
+        given:
+        def specs = [paths, matchers].transpose().collect { path, matcher ->
+            new MessageFilterSpecification([type: 'jsonpath', path: path, matcher: matcher])
+        }
+        def filters = new JsonPathSubscriptionMessageFilterCompiler().getMessageFilters(specs)
+
+        expect:
+        filters.size() == 1
+        result == filters[0].test(withTestMessage()
+                .withContent(JSON, defaultCharset())
+                .build())
+
+        where:
+        paths                                           | matchers                           | result
+        ['$.type', '$.name', '$.batters.batter[0].id']  | ['donut', 'Cake', '1001']          | true
+        ['$.type', '$.name', '$.batters.batter[0].id']  | ['donut', 'Cake', '1002']          | false
+        ['$.type', '$.type']                            | ['donut', 'd.*']                   | true
+        ['$.type', '$.topping[?(@.id == 5001)].type']   | ['donut', 'None']                  | true
+        ['$.type', '$.topping[?(@.id == 5001)].type']   | ['donut', 'Glazed']                | false
+        ['$.count', '$.missing']                        | ['12', '.*']                       | false
     }
 }
@@ -102,6 +102,76 @@ class OffsetCommitterTest extends Specification {
         messageCommitter.wereCommitted(1, offset(1, 5), offset(2, 10))
     }
 
+    def "should keep track of inflight offsets reported out of order across iterations"() {
+        given:
+        queue.offerInflightOffset(offset(1, 5))
+        queue.offerInflightOffset(offset(1, 6))
+        queue.offerInflightOffset(offset(1, 7))
+        queue.offerCommittedOffset(offset(1, 5))
+
+        when:
+        committer.run()
+
+        then:
+        messageCommitter.wereCommitted(1, offset(1, 6))
+
+        when:
+        queue.offerCommittedOffset(offset(1, 6))
+        queue.offerCommittedOffset(offset(1, 7))
+        queue.offerInflightOffset(offset(1, 3))
+
+        committer.run()
+
+        then:
+        messageCommitter.wereCommitted(2, offset(1, 3))
+
+        when:
+        queue.offerCommittedOffset(offset(1, 3))
+        committer.run()
+
+        then:
+        messageCommitter.wereCommitted(3, offset(1, 4))
+    }
+
+    def "should insert inflight offset reported out of order when window is full"() {
+        given:
+        (1..16).each { queue.offerInflightOffset(offset(1, it)) }
+        (1..5).each { queue.offerCommittedOffset(offset(1, it)) }
+        committer.run()
+
+        when:
+        queue.offerInflightOffset(offset(1, 3))
+        committer.run()
+
+        then:
+        messageCommitter.wereCommitted(2, offset(1, 3))
+
+        when:
+        queue.offerCommittedOffset(offset(1, 3))
+        queue.offerCommittedOffset(offset(1, 6))
+        committer.run()
+
+        then:
+        messageCommitter.wereCommitted(3, offset(1, 7))
+    }
+
+    def "should not keep offsets committed behind long inflight offset"() {
+        given:
+        PartitionOffsets offsets = new PartitionOffsets(offset(1, 0).subscriptionPartition)
+        offsets.addInflight(offset(1, 0))
+
+        when:
+        (1..10_000).each {
+            offsets.addInflight(offset(1, it))
+            offsets.addCommitted(offset(1, it))
+            offsets.offsetToCommit()
+        }
+
+        then:
+        offsets.@inflight.length == 16
+        offsets.offsetToCommit() == 0
+    }
+
     def "should get rid of leftover inflight offset commits on second iteration when removing subscription"() {
         given:
         queue.offerInflightOffset(offset(1, 3))
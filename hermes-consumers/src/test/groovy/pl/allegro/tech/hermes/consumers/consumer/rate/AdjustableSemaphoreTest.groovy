@@ -40,6 +40,19 @@ class AdjustableSemaphoreTest extends Specification {
         semaphore.availablePermits() == 0
     }
 
+    def "should acquire only immediately available permits"() {
+        given:
+        def semaphore = new AdjustableSemaphore(5)
+        semaphore.acquire()
+        semaphore.acquire()
+
+        expect:
+        semaphore.tryAcquireUpTo(2) == 2
+        semaphore.tryAcquireUpTo(4) == 1
+        semaphore.tryAcquireUpTo(4) == 0
+        semaphore.availablePermits() == 0
+    }
+
     def "should expose view with release-only functionality"() {
         given:
         def semaphore = new AdjustableSemaphore(2)
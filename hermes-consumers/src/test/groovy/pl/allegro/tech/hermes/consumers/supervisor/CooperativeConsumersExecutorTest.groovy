@@ -0,0 +1,242 @@
+package pl.allegro.tech.hermes.consumers.supervisor
+
+import com.codahale.metrics.MetricRegistry
+import pl.allegro.tech.hermes.api.Subscription
+import pl.allegro.tech.hermes.api.SubscriptionName
+import pl.allegro.tech.hermes.api.Topic
+import pl.allegro.tech.hermes.common.metric.HermesMetrics
+import pl.allegro.tech.hermes.common.metric.Timers
+import pl.allegro.tech.hermes.consumers.consumer.CooperativeConsumer
+import pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset
+import pl.allegro.tech.hermes.consumers.supervisor.process.ConsumerProcess
+import pl.allegro.tech.hermes.consumers.supervisor.process.Retransmitter
+import pl.allegro.tech.hermes.consumers.supervisor.process.Signal
+import pl.allegro.tech.hermes.metrics.PathsCompiler
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Clock
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
+
+class CooperativeConsumersExecutorTest extends Specification {
+
+    static final long LONG_PARK_TIME = 60_000
+
+    HermesMetrics hermesMetrics = new HermesMetrics(new MetricRegistry(), new PathsCompiler("localhost"))
+
+    PollingConditions conditions = new PollingConditions(timeout: 5)
+
+    List<SubscriptionName> released = Collections.synchronizedList([])
+
+    def "should run many consumers on few threads"() {
+        given:
+        CooperativeConsumersExecutor executor = new CooperativeConsumersExecutor(2, 2, 10, 10, hermesMetrics)
+        List<CooperativeConsumerStub> consumers = (1..50).collect { new CooperativeConsumerStub(100) }
+
+        when:
+        consumers.eachWithIndex { consumer, i -> executor.execute(process("sub$i", consumer), consumer) }
+
+        then:
+        conditions.eventually {
+            assert consumers.every { it.consumed.get() == 100 && it.initialized }
+        }
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "should wake up parked consumer before park time passes"() {
+        given:
+        CooperativeConsumersExecutor executor = new CooperativeConsumersExecutor(1, 2, 10, LONG_PARK_TIME, hermesMetrics)
+        CooperativeConsumerStub consumer = new CooperativeConsumerStub(0)
+        executor.execute(process("sub", consumer), consumer)
+        conditions.eventually {
+            assert consumer.attempts.get() > 0
+        }
+        int attempts = consumer.attempts.get()
+
+        when:
+        consumer.available.set(1)
+        consumer.wakeUp.run()
+
+        then:
+        conditions.eventually {
+            assert consumer.consumed.get() == 1
+        }
+        consumer.attempts.get() <= attempts + 2
+        hermesMetrics.timer(Timers.COOPERATIVE_CONSUMER_WAKE_UP_LATENCY).count > 0
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "should stop parked consumer on stop signal"() {
+        given:
+        CooperativeConsumersExecutor executor = new CooperativeConsumersExecutor(1, 2, 10, LONG_PARK_TIME, hermesMetrics)
+        CooperativeConsumerStub consumer = new CooperativeConsumerStub(0)
+        ConsumerProcess process = process("sub", consumer)
+        Future future = executor.execute(process, consumer)
+        conditions.eventually {
+            assert consumer.initialized
+        }
+
+        when:
+        process.accept(Signal.of(Signal.SignalType.STOP, process.subscriptionName))
+
+        then:
+        conditions.eventually {
+            assert future.done
+            assert consumer.tornDown
+            assert released == [process.subscriptionName]
+        }
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "should stop consumer when its process is cancelled"() {
+        given:
+        CooperativeConsumersExecutor executor = new CooperativeConsumersExecutor(1, 2, 10, LONG_PARK_TIME, hermesMetrics)
+        CooperativeConsumerStub consumer = new CooperativeConsumerStub(0)
+        Future future = executor.execute(process("sub", consumer), consumer)
+        conditions.eventually {
+            assert consumer.initialized
+        }
+
+        when:
+        future.cancel(true)
+
+        then:
+        conditions.eventually {
+            assert future.done
+            assert consumer.tornDown
+        }
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "should process blocking signals outside of shared threads"() {
+        given:
+        CooperativeConsumersExecutor executor = new CooperativeConsumersExecutor(1, 2, 10, LONG_PARK_TIME, hermesMetrics)
+        CooperativeConsumerStub consumer = new CooperativeConsumerStub(0)
+        ConsumerProcess process = process("sub", consumer)
+
+        when:
+        executor.execute(process, consumer)
+        process.accept(Signal.of(Signal.SignalType.COMMIT, process.subscriptionName, [] as Set))
+
+        then:
+        conditions.eventually {
+            assert consumer.committingThread != null
+        }
+        consumer.initializingThread.startsWith("cooperative-lifecycle-")
+        consumer.committingThread.startsWith("cooperative-lifecycle-")
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "should keep running other consumers while one of them is starting"() {
+        given:
+        CooperativeConsumersExecutor executor = new CooperativeConsumersExecutor(1, 2, 10, LONG_PARK_TIME, hermesMetrics)
+        CooperativeConsumerStub starting = new CooperativeConsumerStub(0)
+        starting.initialization = new CountDownLatch(1)
+        CooperativeConsumerStub running = new CooperativeConsumerStub(100)
+
+        when:
+        executor.execute(process("starting", starting), starting)
+        executor.execute(process("running", running), running)
+
+        then:
+        conditions.eventually {
+            assert running.consumed.get() == 100
+        }
+        !starting.initialized
+
+        cleanup:
+        starting.initialization.countDown()
+        executor.shutdown()
+    }
+
+    private ConsumerProcess process(String name, CooperativeConsumer consumer) {
+        SubscriptionName subscription = SubscriptionName.fromString("group.topic\$$name")
+        return new ConsumerProcess(
+                Signal.of(Signal.SignalType.START, subscription, consumer),
+                Stub(Retransmitter),
+                { signal -> released.add(subscription) },
+                Clock.systemDefaultZone(),
+                LONG_PARK_TIME
+        )
+    }
+
+    static class CooperativeConsumerStub implements CooperativeConsumer {
+
+        final AtomicInteger available
+        final AtomicInteger consumed = new AtomicInteger()
+        final AtomicInteger attempts = new AtomicInteger()
+
+        volatile boolean initialized
+        volatile boolean tornDown
+        volatile Runnable wakeUp
+        volatile String initializingThread
+        volatile String committingThread
+        CountDownLatch initialization = new CountDownLatch(0)
+
+        CooperativeConsumerStub(int available) {
+            this.available = new AtomicInteger(available)
+        }
+
+        @Override
+        boolean tryConsume(Runnable signalsInterrupt) {
+            signalsInterrupt.run()
+            attempts.incrementAndGet()
+            if (available.getAndUpdate({ it > 0 ? it - 1 : 0 }) > 0) {
+                consumed.incrementAndGet()
+                return true
+            }
+            return false
+        }
+
+        @Override
+        void onWakeUp(Runnable wakeUp) {
+            this.wakeUp = wakeUp
+        }
+
+        @Override
+        void consume(Runnable signalsInterrupt) {
+            tryConsume(signalsInterrupt)
+        }
+
+        @Override
+        void initialize() {
+            initializingThread = Thread.currentThread().name
+            initialization.await()
+            initialized = true
+        }
+
+        @Override
+        void tearDown() {
+            tornDown = true
+        }
+
+        @Override
+        void updateSubscription(Subscription subscription) {
+        }
+
+        @Override
+        void updateTopic(Topic topic) {
+        }
+
+        @Override
+        void commit(Set<SubscriptionPartitionOffset> offsets) {
+            committingThread = Thread.currentThread().name
+        }
+
+        @Override
+        void moveOffset(SubscriptionPartitionOffset subscriptionPartitionOffset) {
+        }
+    }
+}
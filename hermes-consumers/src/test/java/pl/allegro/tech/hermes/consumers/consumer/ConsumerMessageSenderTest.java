@@ -4,6 +4,7 @@ import com.codahale.metrics.Meter;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import pl.allegro.tech.hermes.api.Subscription;
@@ -19,12 +20,14 @@ import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSenderFactory;
 import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
 import pl.allegro.tech.hermes.consumers.consumer.sender.timeout.FutureAsyncTimeout;
 import pl.allegro.tech.hermes.consumers.test.MessageBuilder;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
 import pl.allegro.tech.hermes.test.helper.builder.SubscriptionBuilder;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -38,6 +41,11 @@ import static pl.allegro.tech.hermes.test.helper.builder.SubscriptionBuilder.sub
 public class ConsumerMessageSenderTest {
 
     public static final int ASYNC_TIMEOUT_MS = 2000;
+
+    private static final int PARTITION_LANE_QUEUE_SIZE = 1;
+
+    private static final HashedTimingWheel timingWheel = new HashedTimingWheel(1, TimeUnit.MILLISECONDS, 512, 1000);
+
     private Subscription subscription = subscriptionWithTtl(10);
 
     private Subscription subscriptionWith4xxRetry = subscriptionWithTtlAndClientErrorRetry(10);
@@ -109,6 +117,61 @@ public class ConsumerMessageSenderTest {
         verifyZeroInteractions(failedMeter);
     }
 
+    @Test
+    public void shouldSendBurstOfMessagesInOrder() {
+        // given
+        Message first = MessageBuilder.withTestMessage().withId("first").build();
+        Message second = MessageBuilder.withTestMessage().withId("second").build();
+        when(messageSender.send(first)).thenReturn(success());
+        when(messageSender.send(second)).thenReturn(success());
+
+        // when
+        sender.sendAsync(Arrays.asList(first, second));
+        verify(successHandler, timeout(1000)).handleSuccess(eq(first), eq(subscription), any(MessageSendingResult.class));
+        verify(successHandler, timeout(1000)).handleSuccess(eq(second), eq(subscription), any(MessageSendingResult.class));
+
+        // then
+        InOrder inOrder = inOrder(messageSender);
+        inOrder.verify(messageSender).send(first);
+        inOrder.verify(messageSender).send(second);
+        verify(rateLimiter, times(2)).acquire();
+        assertThat(inflightSemaphore.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldSendNextMessageOfPartitionOnlyAfterPreviousIsDelivered() {
+        // given
+        Subscription subscription = subscriptionWithPartitionInflightSize(1);
+        setUpMetrics(subscription);
+        ConsumerMessageSender sender = consumerMessageSender(subscription);
+
+        Message first = MessageBuilder.withTestMessage().withId("first").withPartitionOffset("kafka_topic", 0, 1).build();
+        Message second = MessageBuilder.withTestMessage().withId("second").withPartitionOffset("kafka_topic", 0, 2).build();
+        Message other = MessageBuilder.withTestMessage().withId("other").withPartitionOffset("kafka_topic", 1, 1).build();
+        CompletableFuture<MessageSendingResult> firstResult = new CompletableFuture<>();
+        when(messageSender.send(first)).thenReturn(firstResult);
+        when(messageSender.send(second)).thenReturn(success());
+        when(messageSender.send(other)).thenReturn(success());
+
+        // when
+        sender.sendAsync(first);
+        sender.sendAsync(second);
+        sender.sendAsync(other);
+        verify(successHandler, timeout(1000)).handleSuccess(eq(other), eq(subscription), any(MessageSendingResult.class));
+
+        // then
+        verify(messageSender, never()).send(second);
+
+        // when
+        firstResult.complete(MessageSendingResult.succeededResult());
+
+        // then
+        verify(successHandler, timeout(1000)).handleSuccess(eq(second), eq(subscription), any(MessageSendingResult.class));
+        InOrder inOrder = inOrder(messageSender);
+        inOrder.verify(messageSender).send(first);
+        inOrder.verify(messageSender).send(second);
+    }
+
     @Test
     public void shouldKeepTryingToSendMessageFailedSending() throws InterruptedException {
         // given
@@ -350,7 +413,9 @@ public class ConsumerMessageSenderTest {
                 () -> inflightSemaphore.release(),
                 hermesMetrics,
                 ASYNC_TIMEOUT_MS,
-                new FutureAsyncTimeout<>(MessageSendingResult::failedResult, Executors.newSingleThreadScheduledExecutor())
+                PARTITION_LANE_QUEUE_SIZE,
+                new FutureAsyncTimeout<>(MessageSendingResult::failedResult, timingWheel),
+                timingWheel
         );
         sender.initialize();
 
@@ -400,6 +465,14 @@ public class ConsumerMessageSenderTest {
                 .build();
     }
 
+    private Subscription subscriptionWithPartitionInflightSize(int partitionInflightSize) {
+        return subscriptionBuilderWithTestValues()
+                .withSubscriptionPolicy(subscriptionPolicy().applyDefaults()
+                        .withPartitionInflightSize(partitionInflightSize)
+                        .build())
+                .build();
+    }
+
     private Subscription subscriptionWithBackoff(int backoff) {
         return subscriptionBuilderWithTestValues()
                 .withSubscriptionPolicy(subscriptionPolicy().applyDefaults()
@@ -0,0 +1,153 @@
+package pl.allegro.tech.hermes.consumers.consumer;
+
+import org.junit.Test;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
+import pl.allegro.tech.hermes.consumers.test.MessageBuilder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionLanesTest {
+
+    @Test
+    public void shouldHoldNextMessageOfPartitionUntilPreviousIsDone() {
+        // given
+        PartitionLanes lanes = new PartitionLanes(1, 10);
+        Message first = message(0, 1);
+        Message second = message(0, 2);
+
+        // when
+        boolean firstSent = lanes.submit(first);
+        boolean secondSent = lanes.submit(second);
+
+        // then
+        assertThat(firstSent).isTrue();
+        assertThat(secondSent).isFalse();
+        assertThat(lanes.complete(first)).containsExactly(second);
+        assertThat(lanes.complete(second)).isEmpty();
+    }
+
+    @Test
+    public void shouldDeliverPartitionsIndependently() {
+        // given
+        PartitionLanes lanes = new PartitionLanes(1, 10);
+        lanes.submit(message(0, 1));
+
+        // when
+        boolean otherPartitionSent = lanes.submit(message(1, 1));
+        boolean otherTopicSent = lanes.submit(MessageBuilder.withTestMessage()
+                .withId("other-topic")
+                .withPartitionOffset("other_kafka_topic", 0, 1)
+                .build());
+
+        // then
+        assertThat(otherPartitionSent).isTrue();
+        assertThat(otherTopicSent).isTrue();
+    }
+
+    @Test
+    public void shouldReleaseWaitingMessagesInOffsetOrder() {
+        // given
+        PartitionLanes lanes = new PartitionLanes(1, 10);
+        Message first = message(0, 1);
+        lanes.submit(first);
+        lanes.submit(message(0, 2));
+        lanes.submit(message(0, 3));
+
+        // when
+        Message released = lanes.complete(first).get(0);
+
+        // then
+        assertThat(released.getOffset()).isEqualTo(2);
+        assertThat(lanes.complete(released)).extracting("offset").containsExactly(3L);
+    }
+
+    @Test
+    public void shouldSendUpToLaneInflightSizeOfPartitionAtOnce() {
+        // given
+        PartitionLanes lanes = new PartitionLanes(2, 10);
+        Message first = message(0, 1);
+
+        // when
+        boolean firstSent = lanes.submit(first);
+        boolean secondSent = lanes.submit(message(0, 2));
+        boolean thirdSent = lanes.submit(message(0, 3));
+
+        // then
+        assertThat(firstSent).isTrue();
+        assertThat(secondSent).isTrue();
+        assertThat(thirdSent).isFalse();
+        assertThat(lanes.complete(first)).extracting("offset").containsExactly(3L);
+    }
+
+    @Test
+    public void shouldReleaseWaitingMessagesWhenLaneInflightSizeIsRaised() {
+        // given
+        PartitionLanes lanes = new PartitionLanes(1, 10);
+        lanes.submit(message(0, 1));
+        lanes.submit(message(0, 2));
+        lanes.submit(message(0, 3));
+        lanes.submit(message(1, 1));
+        lanes.submit(message(1, 2));
+
+        // when
+        int released = lanes.updateLaneInflightSize(Integer.MAX_VALUE).size();
+
+        // then
+        assertThat(released).isEqualTo(3);
+        assertThat(lanes.submit(message(0, 4))).isTrue();
+    }
+
+    @Test
+    public void shouldIgnoreCompletionOfMessageSentOutsideOfLanes() {
+        // given
+        PartitionLanes lanes = new PartitionLanes(1, 10);
+
+        // expect
+        assertThat(lanes.complete(message(0, 1))).isEmpty();
+        assertThat(lanes.submit(message(0, 2))).isTrue();
+    }
+
+    @Test
+    public void shouldNotFreePlaceInLaneOnCompletionOfMessageNotAdmittedThroughIt() {
+        // given
+        PartitionLanes lanes = new PartitionLanes(1, 10);
+        Message sentBeforeLanes = message(0, 1);
+        lanes.submit(message(0, 2));
+
+        // when
+        List<Message> ready = lanes.complete(sentBeforeLanes);
+
+        // then
+        assertThat(ready).isEmpty();
+        assertThat(lanes.submit(message(0, 3))).isFalse();
+    }
+
+    @Test
+    public void shouldReportLaneAsFullWhenItsQueueIsFull() {
+        // given
+        PartitionLanes lanes = new PartitionLanes(1, 2);
+        Message first = message(0, 1);
+        lanes.submit(first);
+        lanes.submit(message(0, 2));
+        lanes.submit(message(0, 3));
+
+        // expect
+        assertThat(lanes.isFull(KafkaTopicName.valueOf("kafka_topic"), 0)).isTrue();
+        assertThat(lanes.isFull(KafkaTopicName.valueOf("kafka_topic"), 1)).isFalse();
+
+        // when
+        lanes.complete(first);
+
+        // then
+        assertThat(lanes.isFull(KafkaTopicName.valueOf("kafka_topic"), 0)).isFalse();
+    }
+
+    private static Message message(int partition, long offset) {
+        return MessageBuilder.withTestMessage()
+                .withId(partition + "-" + offset)
+                .withPartitionOffset("kafka_topic", partition, offset)
+                .build();
+    }
+}
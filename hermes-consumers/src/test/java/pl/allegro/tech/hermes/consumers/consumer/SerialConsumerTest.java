@@ -0,0 +1,241 @@
+package pl.allegro.tech.hermes.consumers.consumer;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.allegro.tech.hermes.api.Subscription;
+import pl.allegro.tech.hermes.api.Topic;
+import pl.allegro.tech.hermes.common.config.Configs;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
+import pl.allegro.tech.hermes.common.kafka.offset.PartitionOffset;
+import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.consumers.consumer.converter.MessageConverter;
+import pl.allegro.tech.hermes.consumers.consumer.converter.MessageConverterResolver;
+import pl.allegro.tech.hermes.consumers.consumer.offset.OffsetQueue;
+import pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset;
+import pl.allegro.tech.hermes.consumers.consumer.rate.InflightsPool;
+import pl.allegro.tech.hermes.consumers.consumer.rate.SerialConsumerRateLimiter;
+import pl.allegro.tech.hermes.consumers.consumer.receiver.MessageReceiver;
+import pl.allegro.tech.hermes.consumers.consumer.receiver.ReceiverFactory;
+import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSender;
+import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSenderFactory;
+import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
+import pl.allegro.tech.hermes.consumers.consumer.sender.timeout.FutureAsyncTimeout;
+import pl.allegro.tech.hermes.consumers.test.MessageBuilder;
+import pl.allegro.tech.hermes.consumers.test.TestTrackers;
+import pl.allegro.tech.hermes.consumers.timer.HashedTimingWheel;
+import pl.allegro.tech.hermes.metrics.PathsCompiler;
+import pl.allegro.tech.hermes.test.helper.config.MutableConfigFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static pl.allegro.tech.hermes.api.SubscriptionPolicy.Builder.subscriptionPolicy;
+import static pl.allegro.tech.hermes.test.helper.builder.SubscriptionBuilder.subscription;
+import static pl.allegro.tech.hermes.test.helper.builder.TopicBuilder.topic;
+
+public class SerialConsumerTest {
+
+    private static final int INFLIGHT_SIZE = 5;
+    private static final int PARTITION_LANE_QUEUE_SIZE = 2;
+
+    private final HashedTimingWheel timingWheel = new HashedTimingWheel(1, TimeUnit.MILLISECONDS, 512, 1000);
+
+    private final HermesMetrics hermesMetrics = new HermesMetrics(new MetricRegistry(), new PathsCompiler("localhost"));
+
+    private final MutableConfigFactory configFactory = new MutableConfigFactory();
+
+    private final Topic topic = topic("group", "topic").build();
+
+    private final Subscription subscription = subscription(topic, "subscription")
+            .withSubscriptionPolicy(subscriptionPolicy().applyDefaults()
+                    .withInflightSize(INFLIGHT_SIZE)
+                    .withPartitionInflightSize(1)
+                    .build())
+            .build();
+
+    private final MessageSender messageSender = mock(MessageSender.class);
+
+    private final InMemoryMessageReceiver receiver = new InMemoryMessageReceiver();
+
+    private final MessageConverter converter = mock(MessageConverter.class);
+
+    private ConsumerMessageSenderFactory consumerMessageSenderFactory;
+
+    private ReceiverFactory receiverFactory;
+
+    private MessageConverterResolver converterResolver;
+
+    private SerialConsumer consumer;
+
+    @Before
+    public void setUp() {
+        MessageSenderFactory messageSenderFactory = mock(MessageSenderFactory.class);
+        when(messageSenderFactory.create(any(Subscription.class))).thenReturn(messageSender);
+
+        consumerMessageSenderFactory = mock(ConsumerMessageSenderFactory.class);
+        when(consumerMessageSenderFactory.create(any(Subscription.class), any(SerialConsumerRateLimiter.class),
+                any(OffsetQueue.class), any(InflightsPool.class))).thenAnswer(invocation -> new ConsumerMessageSender(
+                subscription,
+                messageSenderFactory,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                (SerialConsumerRateLimiter) invocation.getArguments()[1],
+                Executors.newSingleThreadExecutor(),
+                (InflightsPool) invocation.getArguments()[3],
+                hermesMetrics,
+                60_000,
+                PARTITION_LANE_QUEUE_SIZE,
+                new FutureAsyncTimeout<>(MessageSendingResult::failedResult, timingWheel),
+                timingWheel));
+
+        receiverFactory = mock(ReceiverFactory.class);
+        when(receiverFactory.createMessageReceiver(any(Topic.class), any(Subscription.class), any())).thenReturn(receiver);
+
+        when(converter.convert(any(Message.class), any(Topic.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        converterResolver = mock(MessageConverterResolver.class);
+        when(converterResolver.converterFor(any(Message.class), any(Subscription.class))).thenReturn(converter);
+    }
+
+    @After
+    public void tearDown() {
+        if (consumer != null) {
+            consumer.tearDown();
+        }
+    }
+
+    @Test
+    public void shouldKeepDeliveringOtherPartitionsWhenOnePartitionIsStalled() {
+        // given
+        startConsumer();
+        List<Message> stalled = receiver.addPartition(0, 20);
+        List<Message> healthy = receiver.addPartition(1, 10);
+        stalled.forEach(message -> when(messageSender.send(message)).thenReturn(new CompletableFuture<>()));
+        healthy.forEach(message -> when(messageSender.send(message)).thenReturn(
+                CompletableFuture.completedFuture(MessageSendingResult.succeededResult())));
+
+        // when
+        long deadline = System.currentTimeMillis() + 5000;
+        while (receiver.position(1) < healthy.size() && System.currentTimeMillis() < deadline) {
+            consumer.tryConsume(() -> { });
+        }
+
+        // then
+        healthy.forEach(message -> verify(messageSender, timeout(1000)).send(message));
+        verify(messageSender).send(stalled.get(0));
+        verify(messageSender, never()).send(stalled.get(1));
+        assertThat(receiver.isPaused(0)).isTrue();
+        assertThat(receiver.position(0)).isEqualTo(1 + PARTITION_LANE_QUEUE_SIZE);
+    }
+
+    @Test
+    public void shouldSendMessagesOfBurstTakenBeforeMessageFailingConversion() {
+        // given
+        configFactory.overrideProperty(Configs.CONSUMER_SERIAL_BURST_SIZE, 3);
+        startConsumer();
+        List<Message> messages = receiver.addPartition(0, 3);
+        messages.forEach(message -> when(messageSender.send(message)).thenReturn(
+                CompletableFuture.completedFuture(MessageSendingResult.succeededResult())));
+        when(converter.convert(messages.get(1), topic)).thenThrow(new IllegalStateException("conversion failed"));
+
+        // when
+        consumer.tryConsume(() -> { });
+        consumer.tryConsume(() -> { });
+
+        // then
+        verify(messageSender, timeout(1000)).send(messages.get(0));
+        verify(messageSender, timeout(1000)).send(messages.get(2));
+        verify(messageSender, never()).send(messages.get(1));
+    }
+
+    private void startConsumer() {
+        consumer = new SerialConsumer(receiverFactory, hermesMetrics, subscription, mock(SerialConsumerRateLimiter.class),
+                consumerMessageSenderFactory, new TestTrackers(), converterResolver, topic, configFactory,
+                new OffsetQueue(hermesMetrics, configFactory), mock(ConsumerAuthorizationHandler.class));
+        consumer.initialize();
+    }
+
+    private static class InMemoryMessageReceiver implements MessageReceiver {
+
+        private static final String KAFKA_TOPIC = "kafka_topic";
+
+        private final Map<Integer, List<Message>> partitions = new LinkedHashMap<>();
+        private final Map<Integer, Integer> positions = new LinkedHashMap<>();
+        private final Set<Integer> paused = new HashSet<>();
+
+        synchronized List<Message> addPartition(int partition, int messages) {
+            List<Message> backlog = new ArrayList<>();
+            for (int offset = 0; offset < messages; offset++) {
+                backlog.add(MessageBuilder.withTestMessage()
+                        .withId(partition + "-" + offset)
+                        .withPartitionOffset(KAFKA_TOPIC, partition, offset)
+                        .build());
+            }
+            partitions.put(partition, backlog);
+            positions.put(partition, 0);
+            return backlog;
+        }
+
+        synchronized int position(int partition) {
+            return positions.get(partition);
+        }
+
+        synchronized boolean isPaused(int partition) {
+            return paused.contains(partition);
+        }
+
+        @Override
+        public synchronized Optional<Message> next() {
+            for (Map.Entry<Integer, List<Message>> partition : partitions.entrySet()) {
+                int position = positions.get(partition.getKey());
+                if (!paused.contains(partition.getKey()) && position < partition.getValue().size()) {
+                    positions.put(partition.getKey(), position + 1);
+                    return Optional.of(partition.getValue().get(position));
+                }
+            }
+            return Optional.empty();
+        }
+
+        @Override
+        public synchronized boolean hasBufferedMessages() {
+            return partitions.entrySet().stream().anyMatch(partition -> !paused.contains(partition.getKey())
+                    && positions.get(partition.getKey()) < partition.getValue().size());
+        }
+
+        @Override
+        public synchronized void pause(PartitionOffset from) {
+            paused.add(from.getPartition());
+            positions.put(from.getPartition(), (int) from.getOffset());
+        }
+
+        @Override
+        public synchronized void resume(KafkaTopicName topic, int partition) {
+            paused.remove(partition);
+        }
+
+        @Override
+        public void commit(Set<SubscriptionPartitionOffset> offsets) {
+        }
+
+        @Override
+        public void moveOffset(SubscriptionPartitionOffset offset) {
+        }
+    }
+}
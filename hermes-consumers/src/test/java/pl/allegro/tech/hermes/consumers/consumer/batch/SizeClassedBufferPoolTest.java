@@ -0,0 +1,165 @@
+package pl.allegro.tech.hermes.consumers.consumer.batch;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SizeClassedBufferPoolTest {
+    long totalMemory = 64 * 1024;
+    int poolableSize = 1024;
+
+    SizeClassedBufferPool pool = new SizeClassedBufferPool(totalMemory, poolableSize);
+
+    @Test
+    public void shouldAllocateBufferOfExactlyRequestedSize() throws InterruptedException {
+        // when
+        ByteBuffer buffer = pool.allocate(3000);
+
+        // then
+        assertEquals("Buffer capacity should equal requested size.", 3000, buffer.capacity());
+        assertEquals("Buffer should be cleared.", 0, buffer.position());
+        assertEquals("Available memory should have shrunk by size class", totalMemory - 4096, pool.availableMemory());
+        assertEquals("Rounding up to size class should be reported", 1.0 - 3000.0 / 4096, pool.fragmentation(), 0.0001);
+    }
+
+    @Test
+    public void shouldMakeMemoryAvailableAfterDeallocation() throws InterruptedException {
+        // given
+        ByteBuffer buffer = pool.allocate(3000).putInt(1);
+
+        // when
+        pool.deallocate(buffer);
+
+        // then
+        assertEquals("All memory should be available", totalMemory, pool.availableMemory());
+        assertEquals("Nothing is allocated", 0.0, pool.fragmentation(), 0.0);
+    }
+
+    @Test
+    public void shouldRecycleBuffersOfDifferentSizesWithinSizeClass() throws InterruptedException {
+        // given
+        ByteBuffer first = pool.allocate(2500);
+        first.putInt(1);
+        pool.deallocate(first);
+
+        // when
+        ByteBuffer second = pool.allocate(4000);
+
+        // then
+        assertEquals("Recycled buffer should be cleared.", 0, second.position());
+        assertEquals("Recycled buffer should have requested capacity.", 4000, second.capacity());
+        assertEquals("Recycled buffer should share memory of released one.", 1, second.getInt(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllocateMoreMemoryThanTotalMemoryWeHave() throws InterruptedException {
+        // when
+        pool.allocate((int) totalMemory + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectBufferNotAllocatedByPool() {
+        // when
+        pool.deallocate(ByteBuffer.allocateDirect(1024));
+    }
+
+    @Test
+    public void shouldBlockOnAllocationUntilMemoryIsReleased() throws Exception {
+        // given
+        int total = 5 * 1024;
+        SizeClassedBufferPool pool = new SizeClassedBufferPool(total, 1024);
+        ByteBuffer buffer = pool.allocate(1024);
+        CountDownLatch allocation = new CountDownLatch(1);
+        new Thread(() -> {
+            try {
+                pool.allocate(total);
+                allocation.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+
+        // when
+        Thread.sleep(100);
+
+        // then
+        assertEquals("Allocation shouldn't have happened yet, waiting on memory.", 1L, allocation.getCount());
+        assertEquals("Allocating thread should be waiting.", 1, pool.queued());
+
+        // when
+        pool.deallocate(buffer);
+
+        // then
+        assertTrue("Allocation should happen after memory was released.", allocation.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldReuseMemoryOfIdleSlabsForOtherSizeClasses() throws Exception {
+        // given
+        int total = 256 * 1024;
+        SizeClassedBufferPool pool = new SizeClassedBufferPool(total, 1024);
+        List<ByteBuffer> buffers = IntStream.range(0, total / 1024)
+                .mapToObj(i -> allocateUnchecked(pool, 1024))
+                .collect(Collectors.toList());
+        Thread releasingThread = new Thread(() -> buffers.subList(0, buffers.size() / 2).forEach(pool::deallocate));
+        releasingThread.start();
+        releasingThread.join();
+        buffers.subList(buffers.size() / 2, buffers.size()).forEach(pool::deallocate);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // when
+        Future<ByteBuffer> allocation = executor.submit(() -> pool.allocate(total));
+
+        // then
+        assertEquals("Whole memory should be allocated at once", total, allocation.get(5, TimeUnit.SECONDS).capacity());
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldNotLoseMemoryUnderConcurrentAllocations() throws Exception {
+        // given
+        int threads = 8;
+        int iterations = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // when
+        List<Future<Object>> futures = IntStream.range(0, threads)
+                .mapToObj(i -> executor.submit(() -> {
+                    Random random = new Random();
+                    for (int j = 0; j < iterations; j++) {
+                        ByteBuffer buffer = pool.allocate(1 + random.nextInt((int) totalMemory / 4));
+                        buffer.put(0, (byte) j);
+                        pool.deallocate(buffer);
+                    }
+                    return null;
+                }))
+                .collect(Collectors.toList());
+        for (Future<Object> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals("All memory should be available", totalMemory, pool.availableMemory());
+    }
+
+    private static ByteBuffer allocateUnchecked(SizeClassedBufferPool pool, int size) {
+        try {
+            return pool.allocate(size);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
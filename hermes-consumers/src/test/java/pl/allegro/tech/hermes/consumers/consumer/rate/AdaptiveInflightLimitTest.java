@@ -0,0 +1,195 @@
+package pl.allegro.tech.hermes.consumers.consumer.rate;
+
+import org.junit.Test;
+
+import java.util.PriorityQueue;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulates delivery to a fake endpoint serving a limited number of requests at once and queueing the rest.
+ * Simulation runs in virtual time: each request occupies one of the endpoint workers for its service time. Requests
+ * which would wait in the queue for longer than allowed are rejected by the endpoint after waiting that long.
+ */
+public class AdaptiveInflightLimitTest {
+
+    private static final long SERVICE_TIME = MILLISECONDS.toNanos(10);
+    private static final long NO_REJECTIONS = Long.MAX_VALUE;
+
+    private static final int MAX_INFLIGHT = 100;
+    private static final int REQUESTS = 50_000;
+
+    @Test
+    public void shouldKeepInflightCloseToCapacityOfSlowEndpoint() {
+        // given
+        AdaptiveInflightLimit limit = limit(1.5);
+        FakeEndpoint endpoint = new FakeEndpoint(10, SERVICE_TIME, NO_REJECTIONS);
+
+        // when
+        Stats stats = simulate(limit, endpoint, REQUESTS);
+
+        // then
+        assertThat(stats.averageLimit()).isBetween(10.0, 25.0);
+        assertThat(stats.averageRtt()).isLessThan(2.5 * SERVICE_TIME);
+    }
+
+    @Test
+    public void shouldUseWholeInflightSizeForFastEndpoint() {
+        // given
+        AdaptiveInflightLimit limit = limit(1.5);
+        FakeEndpoint endpoint = new FakeEndpoint(1000, SERVICE_TIME, NO_REJECTIONS);
+
+        // when
+        Stats stats = simulate(limit, endpoint, REQUESTS);
+
+        // then
+        assertThat(stats.averageLimit()).isGreaterThan(0.95 * MAX_INFLIGHT);
+        assertThat(stats.averageRtt()).isEqualTo(SERVICE_TIME);
+    }
+
+    @Test
+    public void shouldBackOffWhenEndpointRejectsRequests() {
+        // given
+        AdaptiveInflightLimit limit = limit(1.5);
+        FakeEndpoint endpoint = new FakeEndpoint(20, SERVICE_TIME, SERVICE_TIME / 2);
+
+        // when
+        Stats stats = simulate(limit, endpoint, REQUESTS);
+
+        // then
+        assertThat(stats.averageLimit()).isLessThan(30.0);
+        assertThat(stats.dropRate()).isLessThan(0.05);
+    }
+
+    @Test
+    public void shouldShrinkLimitWhenEndpointSlowsDown() {
+        // given
+        AdaptiveInflightLimit limit = limit(1.5);
+        simulate(limit, new FakeEndpoint(MAX_INFLIGHT, SERVICE_TIME, NO_REJECTIONS), REQUESTS);
+        int limitBeforeSlowdown = limit.getLimit();
+
+        // when
+        Stats stats = simulate(limit, new FakeEndpoint(10, SERVICE_TIME, NO_REJECTIONS), REQUESTS);
+
+        // then
+        assertThat(limitBeforeSlowdown).isGreaterThan(50);
+        assertThat(stats.averageLimit()).isLessThan(30.0);
+    }
+
+    @Test
+    public void shouldNotExceedLoweredMaximum() {
+        // given
+        AdaptiveInflightLimit limit = limit(1.5);
+        simulate(limit, new FakeEndpoint(1000, SERVICE_TIME, NO_REJECTIONS), REQUESTS);
+
+        // when
+        limit.setMaxLimit(20);
+
+        // then
+        assertThat(limit.getLimit()).isEqualTo(20);
+        assertThat(limit.onSample(SERVICE_TIME, false)).isEqualTo(20);
+    }
+
+    private static AdaptiveInflightLimit limit(double rttTolerance) {
+        return new AdaptiveInflightLimit(1, MAX_INFLIGHT, 0.2, rttTolerance, 0.9);
+    }
+
+    /**
+     * Keeps as many requests inflight as the limit allows, feeding the limit with their outcomes.
+     * Statistics are gathered from the second half of requests, after the limit had time to converge.
+     */
+    private static Stats simulate(AdaptiveInflightLimit limit, FakeEndpoint endpoint, int requests) {
+        PriorityQueue<Response> inflight = new PriorityQueue<>();
+        Stats stats = new Stats();
+        long now = 0;
+        int sent = 0;
+        int completed = 0;
+        while (completed < requests) {
+            while (inflight.size() < limit.getLimit() && sent < requests) {
+                inflight.add(endpoint.send(now));
+                sent++;
+            }
+            Response response = inflight.poll();
+            now = response.completedAt;
+            int currentLimit = limit.onSample(response.rtt, response.rejected);
+            if (++completed > requests / 2) {
+                stats.record(currentLimit, response);
+            }
+        }
+        return stats;
+    }
+
+    private static class FakeEndpoint {
+
+        private final PriorityQueue<Long> workersFreeAt = new PriorityQueue<>();
+        private final long serviceTime;
+        private final long maxWaitTime;
+
+        FakeEndpoint(int workers, long serviceTime, long maxWaitTime) {
+            for (int i = 0; i < workers; i++) {
+                workersFreeAt.add(0L);
+            }
+            this.serviceTime = serviceTime;
+            this.maxWaitTime = maxWaitTime;
+        }
+
+        Response send(long now) {
+            long start = Math.max(now, workersFreeAt.peek());
+            if (start - now > maxWaitTime) {
+                return new Response(now, maxWaitTime, true);
+            }
+            workersFreeAt.poll();
+            workersFreeAt.add(start + serviceTime);
+            return new Response(now, start + serviceTime - now, false);
+        }
+    }
+
+    private static class Response implements Comparable<Response> {
+
+        private final long completedAt;
+        private final long rtt;
+        private final boolean rejected;
+
+        Response(long sentAt, long rtt, boolean rejected) {
+            this.completedAt = sentAt + rtt;
+            this.rtt = rtt;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public int compareTo(Response other) {
+            return Long.compare(completedAt, other.completedAt);
+        }
+    }
+
+    private static class Stats {
+
+        private long samples;
+        private long limitSum;
+        private long rttSum;
+        private long drops;
+
+        void record(int limit, Response response) {
+            samples++;
+            limitSum += limit;
+            if (response.rejected) {
+                drops++;
+            } else {
+                rttSum += response.rtt;
+            }
+        }
+
+        double averageLimit() {
+            return (double) limitSum / samples;
+        }
+
+        double averageRtt() {
+            return (double) rttSum / (samples - drops);
+        }
+
+        double dropRate() {
+            return (double) drops / samples;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package pl.allegro.tech.hermes.consumers.consumer.rate.maxrate;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import pl.allegro.tech.hermes.api.SubscriptionName;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsumerRatesEncoderTest {
+
+    private final ConsumerRatesEncoder encoder = new ConsumerRatesEncoder();
+
+    @Test
+    public void shouldEncodeAndDecodeRateHistories() {
+        // given
+        Map<SubscriptionName, RateHistory> rateHistories = ImmutableMap.of(
+                subscription("first"), new RateHistory(Arrays.asList(0.5, 0.25)),
+                subscription("second"), RateHistory.empty()
+        );
+
+        // when
+        Map<SubscriptionName, RateHistory> decoded = encoder.decodeRateHistories(
+                encoder.encodeRateHistories(rateHistories));
+
+        // then
+        assertThat(decoded).isEqualTo(rateHistories);
+    }
+
+    @Test
+    public void shouldEncodeAndDecodeMaxRates() {
+        // given
+        Map<SubscriptionName, MaxRate> maxRates = ImmutableMap.of(
+                subscription("first"), new MaxRate(350.0),
+                subscription("second"), new MaxRate(0.5)
+        );
+
+        // when
+        Map<SubscriptionName, MaxRate> decoded = encoder.decodeMaxRates(encoder.encodeMaxRates(maxRates));
+
+        // then
+        assertThat(decoded).isEqualTo(maxRates);
+    }
+
+    @Test
+    public void shouldDecodeMissingContentAsEmpty() {
+        // expect
+        assertThat(encoder.decodeMaxRates(new byte[0])).isEmpty();
+        assertThat(encoder.decodeMaxRates(encoder.encodeMaxRates(Collections.emptyMap()))).isEmpty();
+    }
+
+    @Test
+    public void shouldEncodeManySubscriptionsCompactly() {
+        // given
+        Map<SubscriptionName, MaxRate> maxRates = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            maxRates.put(subscription("subscription" + i), new MaxRate(i));
+        }
+
+        // when
+        byte[] encoded = encoder.encodeMaxRates(maxRates);
+
+        // then
+        assertThat(encoded.length).isLessThan(200_000);
+        assertThat(encoder.decodeMaxRates(encoded)).isEqualTo(maxRates);
+    }
+
+    private static SubscriptionName subscription(String name) {
+        return SubscriptionName.fromString("pl.allegro.group.topic$" + name);
+    }
+}
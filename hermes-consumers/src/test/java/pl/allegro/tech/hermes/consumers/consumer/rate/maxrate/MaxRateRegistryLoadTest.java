@@ -0,0 +1,159 @@
+package pl.allegro.tech.hermes.consumers.consumer.rate.maxrate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.allegro.tech.hermes.api.SubscriptionName;
+import pl.allegro.tech.hermes.infrastructure.zookeeper.ZookeeperPaths;
+import pl.allegro.tech.hermes.test.helper.zookeeper.ZookeeperBaseTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.DoubleSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs negotiation cycles of many subscriptions on embedded ZooKeeper and counts ZooKeeper transactions of each
+ * cycle, by comparing transaction ids of writes to a marker node done before and after the cycle.
+ */
+public class MaxRateRegistryLoadTest extends ZookeeperBaseTest {
+
+    private static final int CONSUMERS = 10;
+    private static final int SUBSCRIPTIONS = 2000;
+    private static final int CONSUMERS_PER_SUBSCRIPTION = 2;
+    private static final int HISTORY_SIZE = 2;
+    private static final double SUBSCRIPTION_RATE = 1000.0;
+
+    private static final String MARKER_PATH = "/hermes/marker";
+
+    private final ZookeeperPaths zookeeperPaths = new ZookeeperPaths("/hermes");
+    private final MaxRateBalancer balancer = new MaxRateBalancer(0.1, 1.0, 1.0);
+    private final Random random = new Random(42);
+
+    private final Map<String, MaxRateRegistry> consumerRegistries = new HashMap<>();
+    private final MaxRateRegistry leaderRegistry = new MaxRateRegistry(zookeeperClient, zookeeperPaths, "leader");
+    private final Map<SubscriptionName, Set<String>> assignments = new HashMap<>();
+
+    @Before
+    public void setUp() throws Exception {
+        createPath(MARKER_PATH);
+        leaderRegistry.start();
+        for (int i = 0; i < CONSUMERS; i++) {
+            MaxRateRegistry registry = new MaxRateRegistry(zookeeperClient, zookeeperPaths, "consumer" + i);
+            registry.start();
+            consumerRegistries.put("consumer" + i, registry);
+        }
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            Set<String> consumers = new HashSet<>();
+            for (int j = 0; j < CONSUMERS_PER_SUBSCRIPTION; j++) {
+                consumers.add("consumer" + ((i + j) % CONSUMERS));
+            }
+            assignments.put(SubscriptionName.fromString("pl.allegro.group.topic" + i + "$subscription" + i), consumers);
+        }
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        leaderRegistry.stop();
+        for (MaxRateRegistry registry : consumerRegistries.values()) {
+            registry.stop();
+        }
+        deleteData(zookeeperPaths.basePath());
+    }
+
+    @Test
+    public void shouldWriteAtMostOneNodePerConsumerAndCycle() throws Exception {
+        // given
+        runCycle();
+
+        // when
+        List<Long> transactionsPerCycle = new ArrayList<>();
+        for (int cycle = 0; cycle < 5; cycle++) {
+            long before = markerTransaction();
+            runCycle();
+            transactionsPerCycle.add(markerTransaction() - before - 1);
+        }
+
+        // then
+        for (long transactions : transactionsPerCycle) {
+            assertThat(transactions).isLessThanOrEqualTo(2 * CONSUMERS);
+        }
+    }
+
+    @Test
+    public void shouldNotWriteAnythingWhenRatesDoNotChange() throws Exception {
+        // given
+        recordRates(() -> 0.3);
+        flushRateHistories();
+        runLeaderCycle();
+        runLeaderCycle();
+
+        // when
+        long before = markerTransaction();
+        flushRateHistories();
+        runLeaderCycle();
+        long transactions = markerTransaction() - before - 1;
+
+        // then
+        assertThat(transactions).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNegotiateMaxRatesOfAllSubscriptions() throws Exception {
+        // when
+        runCycle();
+        runCycle();
+
+        // then
+        for (Map.Entry<SubscriptionName, Set<String>> assignment : assignments.entrySet()) {
+            for (String consumer : assignment.getValue()) {
+                Optional<MaxRate> maxRate = leaderRegistry.ensureCorrectAssignments(
+                        assignment.getKey(), assignment.getValue()).stream()
+                        .filter(rateInfo -> rateInfo.getConsumerId().equals(consumer))
+                        .findFirst()
+                        .flatMap(ConsumerRateInfo::getMaxRate);
+                assertThat(maxRate.isPresent()).isTrue();
+            }
+        }
+    }
+
+    private void runCycle() {
+        recordRates(random::nextDouble);
+        flushRateHistories();
+        runLeaderCycle();
+    }
+
+    private void recordRates(DoubleSupplier usedRate) {
+        assignments.forEach((subscription, consumers) -> consumers.forEach(consumer -> {
+            MaxRateRegistry registry = consumerRegistries.get(consumer);
+            ConsumerInstance instance = new ConsumerInstance(consumer, subscription);
+            registry.writeRateHistory(instance,
+                    RateHistory.updatedRates(registry.getRateHistory(instance), usedRate.getAsDouble(), HISTORY_SIZE));
+        }));
+    }
+
+    private void flushRateHistories() {
+        consumerRegistries.values().forEach(MaxRateRegistry::onAfterWriteRateHistories);
+    }
+
+    private void runLeaderCycle() {
+        leaderRegistry.onBeforeMaxRateCalculation(consumerRegistries.keySet());
+        assignments.forEach((subscription, consumers) -> {
+            Set<ConsumerRateInfo> rateInfos = leaderRegistry.ensureCorrectAssignments(subscription, consumers);
+            balancer.balance(SUBSCRIPTION_RATE, rateInfos)
+                    .ifPresent(rates -> leaderRegistry.update(subscription, rates));
+        });
+        leaderRegistry.onAfterMaxRateCalculation();
+    }
+
+    private long markerTransaction() throws Exception {
+        return zookeeperClient.setData().forPath(MARKER_PATH).getMzxid();
+    }
+}
@@ -1,6 +1,5 @@
 package pl.allegro.tech.hermes.consumers.consumer.rate.maxrate;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import org.junit.After;
@@ -11,36 +10,50 @@ import pl.allegro.tech.hermes.infrastructure.zookeeper.ZookeeperPaths;
 import pl.allegro.tech.hermes.test.helper.zookeeper.ZookeeperBaseTest;
 
 import java.util.Optional;
+import java.util.Set;
 
+import static com.jayway.awaitility.Awaitility.await;
+import static com.jayway.awaitility.Duration.FIVE_SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
 public class MaxRateRegistryTest extends ZookeeperBaseTest {
 
     private final ZookeeperPaths zookeeperPaths = new ZookeeperPaths("/hermes");
     private final SubscriptionName subscription = qualifiedName("subscription");
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final MaxRatePathSerializer pathSerializer = new MaxRatePathSerializer();
-    private final MaxRateRegistry maxRateRegistry = new MaxRateRegistry(
-            zookeeperClient, objectMapper, zookeeperPaths, pathSerializer);
+
+    private final MaxRateRegistry leaderRegistry = new MaxRateRegistry(zookeeperClient, zookeeperPaths, "leader");
+    private final MaxRateRegistry consumer1Registry = new MaxRateRegistry(zookeeperClient, zookeeperPaths, "consumer1");
+    private final MaxRateRegistry consumer2Registry = new MaxRateRegistry(zookeeperClient, zookeeperPaths, "consumer2");
 
     @Before
     public void setUp() throws Exception {
-        maxRateRegistry.start();
+        leaderRegistry.start();
+        consumer1Registry.start();
+        consumer2Registry.start();
     }
 
     @After
     public void cleanup() throws Exception {
-        deleteAllNodes();
+        leaderRegistry.stop();
+        consumer1Registry.stop();
+        consumer2Registry.stop();
+        deleteData(zookeeperPaths.basePath());
     }
 
     @Test
     public void shouldReturnEmptyHistoryOnInit() throws Exception {
         // when
-        maxRateRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet("consumer1", "consumer2"));
+        Set<ConsumerRateInfo> rateInfos = leaderRegistry.ensureCorrectAssignments(
+                subscription, Sets.newHashSet("consumer1", "consumer2"));
 
         // then
-        assertEquals(RateHistory.empty(), maxRateRegistry.getRateHistory(consumer("consumer1")));
-        assertEquals(RateHistory.empty(), maxRateRegistry.getRateHistory(consumer("consumer2")));
+        assertEquals(2, rateInfos.size());
+        rateInfos.forEach(rateInfo -> {
+            assertEquals(RateHistory.empty(), rateInfo.getHistory());
+            assertEquals(Optional.empty(), rateInfo.getMaxRate());
+        });
     }
 
     @Test
@@ -50,73 +63,137 @@ public class MaxRateRegistryTest extends ZookeeperBaseTest {
         RateHistory rateHistory = RateHistory.create(0.5);
 
         // when
-        maxRateRegistry.writeRateHistory(consumer, rateHistory);
-        wait.untilZookeeperPathIsCreated(
-                zookeeperPaths.consumersRateHistoryPath(consumer.getSubscription(), consumer.getConsumerId()));
+        consumer1Registry.writeRateHistory(consumer, rateHistory);
+        consumer1Registry.onAfterWriteRateHistories();
 
         // then
-        assertEquals(rateHistory, maxRateRegistry.getRateHistory(consumer));
+        assertEquals(rateHistory, consumer1Registry.getRateHistory(consumer));
+        assertEquals(rateHistory, leaderRateInfo("consumer1").getHistory());
     }
 
     @Test
     public void shouldWriteAndReadMaxRateProperly() throws Exception {
         // given
-        ConsumerInstance consumer1 = consumer("consumer1");
-        ConsumerInstance consumer2 = consumer("consumer2");
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet("consumer1", "consumer2"));
 
         // when
-        maxRateRegistry.update(subscription,
-                ImmutableMap.of(
-                        "consumer1", new MaxRate(350.0),
-                        "consumer2", new MaxRate(0.5)
-                ));
+        leaderRegistry.update(subscription, ImmutableMap.of(
+                "consumer1", new MaxRate(350.0),
+                "consumer2", new MaxRate(0.5)
+        ));
+        leaderRegistry.onAfterMaxRateCalculation();
+
+        // then
+        await().atMost(FIVE_SECONDS).until(() ->
+                consumer1Registry.getMaxRate(consumer("consumer1")).equals(Optional.of(new MaxRate(350.0))));
+        await().atMost(FIVE_SECONDS).until(() ->
+                consumer2Registry.getMaxRate(consumer("consumer2")).equals(Optional.of(new MaxRate(0.5))));
+        assertEquals(Optional.of(new MaxRate(350.0)), leaderRateInfo("consumer1").getMaxRate());
+    }
+
+    @Test
+    public void shouldNotWriteUnchangedMaxRates() throws Exception {
+        // given
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.update(subscription, ImmutableMap.of(
+                "consumer1", new MaxRate(350.0),
+                "consumer2", new MaxRate(0.5)
+        ));
+        leaderRegistry.onAfterMaxRateCalculation();
 
-        wait.untilZookeeperPathIsCreated(
-                zookeeperPaths.consumersMaxRatePath(consumer1.getSubscription(), consumer1.getConsumerId()));
-        wait.untilZookeeperPathIsCreated(
-                zookeeperPaths.consumersMaxRatePath(consumer2.getSubscription(), consumer2.getConsumerId()));
+        // when
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.update(subscription, ImmutableMap.of("consumer1", new MaxRate(350.0)));
+        int written = leaderRegistry.onAfterMaxRateCalculation();
 
         // then
-        assertEquals(new MaxRate(350.0), maxRateRegistry.getMaxRate(consumer1).get());
-        assertEquals(new MaxRate(0.5), maxRateRegistry.getMaxRate(consumer2).get());
+        assertEquals(0, written);
     }
 
     @Test
     public void shouldRemoveInactiveConsumerEntries() throws Exception {
         // given
-        ConsumerInstance consumer1 = consumer("consumer1");
-        ConsumerInstance consumer2 = consumer("consumer2");
-        maxRateRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet("consumer1", "consumer2"));
-        maxRateRegistry.update(subscription, ImmutableMap.of(
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.update(subscription, ImmutableMap.of(
                 "consumer1", new MaxRate(350.0),
                 "consumer2", new MaxRate(0.5)
         ));
+        leaderRegistry.onAfterMaxRateCalculation();
+        wait.untilZookeeperPathIsCreated(zookeeperPaths.consumersMaxRatePath("consumer2"));
+
+        // when
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet("consumer1", "consumer3"));
+        leaderRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet("consumer1", "consumer3"));
+        leaderRegistry.onAfterMaxRateCalculation();
+        wait.untilZookeeperPathNotExists(zookeeperPaths.consumersRateNodePath("consumer2"));
+
+        // then
+        await().atMost(FIVE_SECONDS).until(() ->
+                !consumer2Registry.getMaxRate(consumer("consumer2")).isPresent());
+        assertEquals(Optional.of(new MaxRate(350.0)), leaderRateInfo("consumer1").getMaxRate());
+    }
+
+    @Test
+    public void shouldRemoveLegacyMaxRatesOnlyWhenAllConsumersHaveRateNodes() throws Exception {
+        // given
+        String legacyNode = zookeeperPaths.legacyConsumersRateRuntimePath() + "/com.test.topic$subscription/consumer2/max-rate";
+        zookeeperClient.create().creatingParentsIfNeeded().forPath(legacyNode);
+        consumer1Registry.writeRateHistory(consumer("consumer1"), RateHistory.create(0.5));
+        consumer1Registry.onAfterWriteRateHistories();
+
+        // when
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.onAfterMaxRateCalculation();
+
+        // then
+        assertNotNull(zookeeperClient.checkExists().forPath(legacyNode));
+
+        // when
+        consumer2Registry.writeRateHistory(consumer("consumer2"), RateHistory.create(0.5));
+        consumer2Registry.onAfterWriteRateHistories();
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet("consumer1", "consumer2"));
+        leaderRegistry.onAfterMaxRateCalculation();
 
-        wait.untilZookeeperPathIsCreated(
-                zookeeperPaths.consumersMaxRatePath(consumer1.getSubscription(), consumer1.getConsumerId()));
-        wait.untilZookeeperPathIsCreated(
-                zookeeperPaths.consumersMaxRatePath(consumer2.getSubscription(), consumer2.getConsumerId()));
+        // then
+        wait.untilZookeeperPathNotExists(zookeeperPaths.legacyConsumersRateRuntimePath());
+    }
+
+    @Test
+    public void shouldRestoreRateHistoryAfterRestart() throws Exception {
+        // given
+        ConsumerInstance consumer = consumer("consumer1");
+        consumer1Registry.writeRateHistory(consumer, RateHistory.create(0.5));
+        consumer1Registry.onAfterWriteRateHistories();
 
         // when
-        maxRateRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet("consumer1", "consumer3"));
-        wait.untilZookeeperPathNotExists(
-                zookeeperPaths.consumersRatePath(consumer2.getSubscription(), consumer2.getConsumerId()));
+        MaxRateRegistry restartedRegistry = new MaxRateRegistry(zookeeperClient, zookeeperPaths, "consumer1");
+        restartedRegistry.start();
 
         // then
-        assertEquals(Optional.empty(), maxRateRegistry.getMaxRate(consumer2));
+        assertEquals(RateHistory.create(0.5), restartedRegistry.getRateHistory(consumer));
+        restartedRegistry.stop();
     }
 
     @Test
     public void shouldProvideConsumerWithSensibleDefaults() throws Exception {
         // when
-        RateHistory rateHistory = maxRateRegistry.getRateHistory(consumer("consumer1"));
-        Optional<MaxRate> maxRate = maxRateRegistry.getMaxRate(consumer("consumer1"));
+        RateHistory rateHistory = consumer1Registry.getRateHistory(consumer("consumer1"));
+        Optional<MaxRate> maxRate = consumer1Registry.getMaxRate(consumer("consumer1"));
 
         // then
         assertEquals(RateHistory.empty(), rateHistory);
         assertEquals(Optional.empty(), maxRate);
     }
 
+    private ConsumerRateInfo leaderRateInfo(String consumerId) {
+        leaderRegistry.onBeforeMaxRateCalculation(Sets.newHashSet(consumerId));
+        return leaderRegistry.ensureCorrectAssignments(subscription, Sets.newHashSet(consumerId)).iterator().next();
+    }
+
     private ConsumerInstance consumer(String consumerId) {
         return new ConsumerInstance(consumerId, subscription);
     }
@@ -0,0 +1,181 @@
+package pl.allegro.tech.hermes.consumers.consumer.receiver.kafka;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import pl.allegro.tech.hermes.api.Subscription;
+import pl.allegro.tech.hermes.api.Topic;
+import pl.allegro.tech.hermes.common.kafka.KafkaNamesMapper;
+import pl.allegro.tech.hermes.common.kafka.KafkaTopicName;
+import pl.allegro.tech.hermes.common.kafka.NamespaceKafkaNamesMapper;
+import pl.allegro.tech.hermes.common.kafka.offset.PartitionOffset;
+import pl.allegro.tech.hermes.common.message.wrapper.MessageContentWrapper;
+import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoadRecorder;
+import pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset;
+import pl.allegro.tech.hermes.metrics.PathsCompiler;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static pl.allegro.tech.hermes.consumers.consumer.offset.SubscriptionPartitionOffset.subscriptionPartitionOffset;
+import static pl.allegro.tech.hermes.test.helper.builder.SubscriptionBuilder.subscription;
+import static pl.allegro.tech.hermes.test.helper.builder.TopicBuilder.topic;
+
+public class KafkaSingleThreadedMessageReceiverTest {
+
+    private final Topic topic = topic("group", "topic").build();
+
+    private final Subscription subscription = subscription(topic, "subscription").build();
+
+    private final KafkaNamesMapper kafkaNamesMapper = new NamespaceKafkaNamesMapper("");
+
+    private final String kafkaTopic = kafkaNamesMapper.toKafkaTopics(topic).getPrimary().name().asString();
+
+    private final HermesMetrics metrics = new HermesMetrics(new MetricRegistry(), new PathsCompiler("localhost"));
+
+    @SuppressWarnings("unchecked")
+    private final KafkaConsumer<byte[], byte[]> consumer = mock(KafkaConsumer.class);
+
+    private KafkaSingleThreadedMessageReceiver receiver;
+
+    @Before
+    public void setUp() {
+        when(consumer.assignment()).thenReturn(ImmutableSet.of(partition(0), partition(1)));
+        when(consumer.position(any(TopicPartition.class))).thenReturn(100L);
+        when(consumer.poll(anyLong())).thenReturn(ConsumerRecords.empty());
+
+        receiver = new KafkaSingleThreadedMessageReceiver(consumer, mock(MessageContentWrapper.class), metrics,
+                kafkaNamesMapper, topic, subscription, Clock.systemUTC(), 10, true, new SubscriptionLoadRecorder(metrics));
+    }
+
+    @Test
+    public void shouldCoalesceOffsetsWhileCommitIsInFlight() {
+        // given
+        receiver.commit(ImmutableSet.of(offset(0, 10)));
+
+        // when
+        receiver.commit(ImmutableSet.of(offset(0, 20)));
+        receiver.commit(ImmutableSet.of(offset(0, 30), offset(1, 5)));
+
+        // then
+        verify(consumer, times(1)).commitAsync(anyMap(), any(OffsetCommitCallback.class));
+
+        // when
+        completeCommit(0, null);
+        receiver.next();
+
+        // then
+        assertThat(committedOffsets(1)).isEqualTo(ImmutableMap.of(
+                partition(0), new OffsetAndMetadata(30),
+                partition(1), new OffsetAndMetadata(5)));
+    }
+
+    @Test
+    public void shouldRetryFailedCommitWithoutOverridingNewerOffsets() {
+        // given
+        receiver.commit(ImmutableSet.of(offset(0, 10), offset(1, 5)));
+        receiver.commit(ImmutableSet.of(offset(0, 20)));
+
+        // when
+        completeCommit(0, new RuntimeException("broker unavailable"));
+        receiver.next();
+
+        // then
+        assertThat(committedOffsets(1)).isEqualTo(ImmutableMap.of(
+                partition(0), new OffsetAndMetadata(20),
+                partition(1), new OffsetAndMetadata(5)));
+        assertThat(metrics.offsetCommitFailuresCounter(subscription).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCommitPendingOffsetsSynchronouslyOnStop() {
+        // given
+        receiver.commit(ImmutableSet.of(offset(0, 10)));
+        receiver.commit(ImmutableSet.of(offset(1, 5)));
+
+        // when
+        receiver.stop();
+
+        // then
+        verify(consumer).commitSync(ImmutableMap.of(
+                partition(0), new OffsetAndMetadata(10),
+                partition(1), new OffsetAndMetadata(5)));
+    }
+
+    @Test
+    public void shouldDropBufferedRecordsOfPausedPartitionAndSeekBackToGivenOffset() {
+        // given
+        when(consumer.poll(anyLong())).thenReturn(new ConsumerRecords<>(ImmutableMap.of(
+                partition(0), Arrays.asList(record(0, 1), record(0, 2)),
+                partition(1), Collections.singletonList(record(1, 1)))));
+        receiver.next();
+
+        // when
+        receiver.pause(new PartitionOffset(KafkaTopicName.valueOf(kafkaTopic), 2, 0));
+
+        // then
+        verify(consumer).pause(Collections.singleton(partition(0)));
+        verify(consumer).seek(partition(0), 2);
+        assertThat(receiver.hasBufferedMessages()).isTrue();
+
+        // when
+        receiver.pause(new PartitionOffset(KafkaTopicName.valueOf(kafkaTopic), 1, 1));
+
+        // then
+        assertThat(receiver.hasBufferedMessages()).isFalse();
+    }
+
+    @Test
+    public void shouldResumePausedPartition() {
+        // when
+        receiver.resume(KafkaTopicName.valueOf(kafkaTopic), 1);
+
+        // then
+        verify(consumer).resume(Collections.singleton(partition(1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<TopicPartition, OffsetAndMetadata> committedOffsets(int commit) {
+        ArgumentCaptor<Map> offsets = ArgumentCaptor.forClass(Map.class);
+        verify(consumer, times(commit + 1)).commitAsync(offsets.capture(), any(OffsetCommitCallback.class));
+        return offsets.getAllValues().get(commit);
+    }
+
+    private void completeCommit(int commit, Exception exception) {
+        ArgumentCaptor<OffsetCommitCallback> callback = ArgumentCaptor.forClass(OffsetCommitCallback.class);
+        verify(consumer, times(commit + 1)).commitAsync(anyMap(), callback.capture());
+        callback.getAllValues().get(commit).onComplete(ImmutableMap.of(), exception);
+    }
+
+    private SubscriptionPartitionOffset offset(int partition, long offset) {
+        return subscriptionPartitionOffset(kafkaTopic, subscription.getQualifiedName().toString(), partition, offset);
+    }
+
+    private ConsumerRecord<byte[], byte[]> record(int partition, long offset) {
+        return new ConsumerRecord<>(kafkaTopic, partition, offset, new byte[0], new byte[0]);
+    }
+
+    private TopicPartition partition(int partition) {
+        return new TopicPartition(kafkaTopic, partition);
+    }
+}
@@ -0,0 +1,113 @@
+package pl.allegro.tech.hermes.consumers.consumer.receiver.kafka;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import pl.allegro.tech.hermes.api.Subscription;
+import pl.allegro.tech.hermes.consumers.consumer.Message;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.FilteredMessageHandler;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.MessageFilter;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChain;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterChainFactory;
+import pl.allegro.tech.hermes.consumers.consumer.filtering.chain.FilterResult;
+import pl.allegro.tech.hermes.consumers.consumer.receiver.MessageReceiver;
+
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static pl.allegro.tech.hermes.consumers.test.MessageBuilder.withTestMessage;
+import static pl.allegro.tech.hermes.test.helper.builder.SubscriptionBuilder.subscription;
+
+public class ParallelFilteringMessageReceiverTest {
+
+    private final Subscription subscription = subscription("group.topic", "subscription").build();
+
+    private final Message first = withTestMessage().withId("first").build();
+    private final Message filtered = withTestMessage().withId("filtered").build();
+    private final Message second = withTestMessage().withId("second").build();
+
+    private final MessageReceiver receiver = mock(MessageReceiver.class);
+
+    private final FilteredMessageHandler filteredMessageHandler = mock(FilteredMessageHandler.class);
+
+    private final FilterChainFactory filterChainFactory = mock(FilterChainFactory.class);
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    private ParallelFilteringMessageReceiver filteringReceiver;
+
+    @Before
+    public void setUp() {
+        MessageFilter filter = new MessageFilter("test", message -> !message.getId().equals("filtered"));
+        when(filterChainFactory.create(subscription)).thenReturn(new FilterChain(singletonList(filter)));
+        when(receiver.next()).thenReturn(Optional.of(first), Optional.of(filtered), Optional.of(second));
+        when(receiver.hasBufferedMessages()).thenReturn(true, true, false);
+
+        filteringReceiver = new ParallelFilteringMessageReceiver(receiver, filteredMessageHandler, filterChainFactory,
+                subscription, pool, 10);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldEvaluateAllPolledMessagesAtOnceAndReturnThemInOrder() {
+        // when
+        Optional<Message> firstReceived = filteringReceiver.next();
+
+        // then
+        assertThat(firstReceived).contains(first);
+        verify(receiver, times(3)).next();
+        assertThat(filteringReceiver.hasBufferedMessages()).isTrue();
+
+        // when
+        Optional<Message> secondReceived = filteringReceiver.next();
+
+        // then
+        assertThat(secondReceived).contains(second);
+        verify(receiver, times(3)).next();
+    }
+
+    @Test
+    public void shouldDropEvaluatedMessagesOfPausedPartition() {
+        // given
+        filteringReceiver.next();
+
+        // when
+        filteringReceiver.pause(filtered.getPartitionOffset());
+
+        // then
+        verify(receiver).pause(filtered.getPartitionOffset());
+        assertThat(filteringReceiver.hasBufferedMessages()).isFalse();
+        verify(filteredMessageHandler, never()).handle(any(FilterResult.class), eq(filtered), eq(subscription));
+    }
+
+    @Test
+    public void shouldHandleFilteredMessageOnlyAfterPrecedingMessagesWereReturned() {
+        // when
+        filteringReceiver.next();
+
+        // then
+        verify(filteredMessageHandler, never()).handle(any(FilterResult.class), eq(filtered), eq(subscription));
+
+        // when
+        filteringReceiver.next();
+
+        // then
+        ArgumentCaptor<FilterResult> result = ArgumentCaptor.forClass(FilterResult.class);
+        verify(filteredMessageHandler).handle(result.capture(), eq(filtered), eq(subscription));
+        assertThat(result.getValue().isFiltered()).isTrue();
+    }
+}
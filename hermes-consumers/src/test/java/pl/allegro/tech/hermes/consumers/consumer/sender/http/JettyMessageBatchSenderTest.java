@@ -0,0 +1,145 @@
+package pl.allegro.tech.hermes.consumers.consumer.sender.http;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.util.HttpCookieStore;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pl.allegro.tech.hermes.api.EndpointAddress;
+import pl.allegro.tech.hermes.api.EndpointAddressResolverMetadata;
+import pl.allegro.tech.hermes.consumers.consumer.batch.JsonMessageBatch;
+import pl.allegro.tech.hermes.consumers.consumer.batch.MessageBatch;
+import pl.allegro.tech.hermes.consumers.consumer.sender.MessageSendingResult;
+import pl.allegro.tech.hermes.consumers.consumer.sender.resolver.SimpleEndpointAddressResolver;
+import pl.allegro.tech.hermes.test.helper.endpoint.RemoteServiceEndpoint;
+import pl.allegro.tech.hermes.test.helper.util.Ports;
+import pl.allegro.tech.hermes.tracker.consumers.MessageMetadata;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class JettyMessageBatchSenderTest {
+
+    private static final int ENDPOINT_PORT = Ports.nextAvailable();
+    private static final EndpointAddress ENDPOINT = EndpointAddress.of(format("http://localhost:%d/", ENDPOINT_PORT));
+    private static final EndpointAddressResolverMetadata METADATA = EndpointAddressResolverMetadata.empty();
+    private static final String MESSAGE = "{\"id\":1}";
+
+    private static HttpClient client;
+    private static WireMockServer wireMockServer;
+
+    private RemoteServiceEndpoint remoteServiceEndpoint;
+    private JettyMessageBatchSender batchSender;
+
+    @BeforeClass
+    public static void setupEnvironment() throws Exception {
+        wireMockServer = new WireMockServer(ENDPOINT_PORT);
+        wireMockServer.start();
+
+        client = new HttpClient();
+        client.setCookieStore(new HttpCookieStore.Empty());
+        client.setConnectTimeout(1000);
+        client.setIdleTimeout(1000);
+        client.start();
+    }
+
+    @AfterClass
+    public static void cleanEnvironment() throws Exception {
+        wireMockServer.shutdown();
+        client.stop();
+    }
+
+    @Before
+    public void setUp() {
+        remoteServiceEndpoint = new RemoteServiceEndpoint(wireMockServer);
+        batchSender = new JettyMessageBatchSender(client, 1000, new SimpleEndpointAddressResolver());
+    }
+
+    @Test
+    public void shouldSendBatchWithoutBlocking() throws Exception {
+        // given
+        remoteServiceEndpoint.expectMessages("[" + MESSAGE + "]");
+
+        // when
+        CompletableFuture<MessageSendingResult> future = batchSender.sendAsync(batch(), ENDPOINT, METADATA, 1000);
+
+        // then
+        remoteServiceEndpoint.waitUntilReceived();
+        assertThat(future.get(1, TimeUnit.SECONDS).succeeded()).isTrue();
+    }
+
+    @Test
+    public void shouldReturnFailedResultWhenSubscriberRespondsWithError() throws Exception {
+        // given
+        remoteServiceEndpoint.setReturnedStatusCode(INTERNAL_SERVER_ERROR.getStatusCode());
+        remoteServiceEndpoint.expectMessages("[" + MESSAGE + "]");
+
+        // when
+        CompletableFuture<MessageSendingResult> future = batchSender.sendAsync(batch(), ENDPOINT, METADATA, 1000);
+
+        // then
+        MessageSendingResult result = future.get(1, TimeUnit.SECONDS);
+        assertThat(result.succeeded()).isFalse();
+        assertThat(result.getStatusCode()).isEqualTo(INTERNAL_SERVER_ERROR.getStatusCode());
+    }
+
+    @Test
+    public void shouldSendBatchIdAndRetryCounterInHeaders() {
+        // given
+        remoteServiceEndpoint.expectMessages("[" + MESSAGE + "]");
+        MessageBatch batch = batch();
+        batch.incrementRetryCounter();
+
+        // when
+        batchSender.send(batch, ENDPOINT, METADATA, 1000);
+
+        // then
+        remoteServiceEndpoint.waitUntilReceived();
+        assertThat(remoteServiceEndpoint.getLastReceivedRequest().getHeader("Hermes-Batch-Id")).isEqualTo("batch");
+        assertThat(remoteServiceEndpoint.getLastReceivedRequest().getHeader("Hermes-Retry-Count")).isEqualTo("1");
+    }
+
+    @Test
+    public void shouldSendJsonBatchWithUtf8Charset() {
+        // given
+        remoteServiceEndpoint.expectMessages("[" + MESSAGE + "]");
+
+        // when
+        batchSender.send(batch(), ENDPOINT, METADATA, 1000);
+
+        // then
+        remoteServiceEndpoint.waitUntilReceived();
+        assertThat(remoteServiceEndpoint.getLastReceivedRequest().getHeader("Content-Type"))
+                .isEqualTo("application/json; charset=UTF-8");
+    }
+
+    @Test
+    public void shouldUseSuppliedTimeout() throws Exception {
+        // given
+        remoteServiceEndpoint.setDelay(500);
+        remoteServiceEndpoint.expectMessages("[" + MESSAGE + "]");
+
+        // when
+        MessageSendingResult result = batchSender.sendAsync(batch(), ENDPOINT, METADATA, 100).get(1, TimeUnit.SECONDS);
+
+        // then
+        assertThat(result.isTimeout()).isTrue();
+    }
+
+    private MessageBatch batch() {
+        JsonMessageBatch batch = new JsonMessageBatch("batch", ByteBuffer.allocateDirect(64), 10, Integer.MAX_VALUE,
+                Clock.systemDefaultZone(), emptyList());
+        batch.append(MESSAGE.getBytes(), mock(MessageMetadata.class));
+        return batch.close();
+    }
+}
@@ -22,6 +22,7 @@ import pl.allegro.tech.hermes.consumers.supervisor.ConsumersSupervisor;
 import pl.allegro.tech.hermes.consumers.supervisor.NonblockingConsumersSupervisor;
 import pl.allegro.tech.hermes.consumers.supervisor.monitor.ConsumersRuntimeMonitor;
 import pl.allegro.tech.hermes.consumers.supervisor.process.Retransmitter;
+import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.ConsumerNodeLoadRegistry;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.ConsumerNodesRegistry;
 import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.SelectiveSupervisorController;
 import pl.allegro.tech.hermes.domain.group.GroupRepository;
@@ -149,7 +150,7 @@ class ConsumerTestRuntimeEnvironment {
 
         SelectiveSupervisorController supervisor = new SelectiveSupervisorController(
                 consumersSupervisor, notificationsBus, subscriptionsCache, assignmentRegistry, workTracker, registry,
-                mock(ZookeeperAdminCache.class), executorService, configFactory, metricsSupplier.get()
+                mock(ConsumerNodeLoadRegistry.class), mock(ZookeeperAdminCache.class), executorService, configFactory, metricsSupplier.get()
         );
 
         return new ConsumerControllers(subscriptionAssignmentCaches, supervisor);
@@ -0,0 +1,344 @@
+package pl.allegro.tech.hermes.consumers.supervisor.workload;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import pl.allegro.tech.hermes.api.SubscriptionName;
+import pl.allegro.tech.hermes.consumers.consumer.load.SubscriptionLoad;
+import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.ConsumerNodeLoad;
+import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.SelectiveWorkBalancer;
+import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.SubscriptionWeights;
+import pl.allegro.tech.hermes.consumers.supervisor.workload.selective.WorkBalancingResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs weighted balancing round after round, like consecutive runs of the balancing job, on synthetic clusters with
+ * loads drawn from seeded random generators, so every run of the suite sees the same cluster.
+ */
+public class WeightedWorkBalancingSimulationTest {
+
+    private static final int CONSUMERS_PER_SUBSCRIPTION = 2;
+    private static final int MAX_SUBSCRIPTIONS_PER_CONSUMER = 200;
+    private static final int MAX_TRANSFERS = 10;
+    private static final double IMBALANCE_TOLERANCE = 0.1;
+    private static final int MAX_ROUNDS = 100;
+
+    @Test
+    public void shouldEvenOutSkewedLoadOfCountBalancedCluster() {
+        // given
+        Cluster cluster = Cluster.countBalanced(10, skewedWeights(200, 1));
+        double initialImbalance = cluster.imbalance();
+
+        // when
+        cluster.balanceUntilStable();
+
+        // then
+        assertThat(initialImbalance).isGreaterThan(1.3);
+        assertThat(cluster.imbalance()).isLessThanOrEqualTo(1 + IMBALANCE_TOLERANCE);
+    }
+
+    @Test
+    public void shouldNeverMoveMoreAssignmentsThanAllowedInSingleRun() {
+        // given
+        Cluster cluster = Cluster.countBalanced(10, skewedWeights(200, 2));
+
+        // when
+        List<Integer> movedPerRound = cluster.balanceUntilStable();
+
+        // then
+        assertThat(movedPerRound).isNotEmpty();
+        assertThat(Collections.max(movedPerRound)).isLessThanOrEqualTo(MAX_TRANSFERS);
+        assertThat(cluster.rounds).isLessThan(MAX_ROUNDS);
+    }
+
+    @Test
+    public void shouldNotMoveAnythingOnceBalanced() {
+        // given
+        Cluster cluster = Cluster.countBalanced(10, skewedWeights(200, 3));
+        cluster.balanceUntilStable();
+        SubscriptionAssignmentView balanced = cluster.state;
+
+        // when
+        WorkBalancingResult result = cluster.balance();
+
+        // then
+        assertThat(result.getTransfersCount()).isZero();
+        assertThat(cluster.state).isEqualTo(balanced);
+    }
+
+    @Test
+    public void shouldSpreadHotSubscriptionsOfSingleNode() {
+        // given
+        List<String> nodes = nodes(5);
+        Map<SubscriptionName, Double> weights = new HashMap<>();
+        Map<SubscriptionName, NodePair> assignments = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            SubscriptionName hot = subscription("hot" + i);
+            weights.put(hot, 10_000.0);
+            assignments.put(hot, new NodePair(nodes.get(0), nodes.get(1)));
+        }
+        for (int i = 0; i < 20; i++) {
+            SubscriptionName idle = subscription("idle" + i);
+            weights.put(idle, 0.0);
+            assignments.put(idle, new NodePair(nodes.get(2 + i % 3), nodes.get(2 + (i + 1) % 3)));
+        }
+        Cluster cluster = new Cluster(nodes, weights, view(assignments));
+
+        // when
+        cluster.balanceUntilStable();
+
+        // then
+        assertThat(cluster.imbalance()).isLessThanOrEqualTo(1 + IMBALANCE_TOLERANCE);
+        nodes.forEach(node -> assertThat(cluster.hotAssignments(node, 10_000.0)).isBetween(1L, 3L));
+    }
+
+    @Test
+    public void shouldCountLagAsLoad() {
+        // given
+        List<String> nodes = nodes(2);
+        SubscriptionName lagging = subscription("lagging");
+        List<SubscriptionName> busy = asList(subscription("busy0"), subscription("busy1"), subscription("busy2"));
+        Set<SubscriptionAssignment> assignments = new HashSet<>();
+        assignments.add(new SubscriptionAssignment(nodes.get(0), lagging));
+        busy.forEach(subscription -> assignments.add(new SubscriptionAssignment(nodes.get(1), subscription)));
+        SubscriptionAssignmentView state = SubscriptionAssignmentView.of(assignments);
+        List<SubscriptionName> subscriptions = new ArrayList<>(busy);
+        subscriptions.add(lagging);
+        SelectiveWorkBalancer balancer = new SelectiveWorkBalancer(1, MAX_SUBSCRIPTIONS_PER_CONSUMER, MAX_TRANSFERS, IMBALANCE_TOLERANCE);
+
+        // when
+        WorkBalancingResult withLag = balancer.balance(subscriptions, nodes, state, weights(busy, lagging, 300_000));
+        WorkBalancingResult withoutLag = balancer.balance(subscriptions, nodes, state, weights(busy, lagging, 0));
+
+        // then
+        assertThat(withLag.getTransfersCount()).isZero();
+        assertThat(withoutLag.getTransfersCount()).isGreaterThan(0);
+    }
+
+    private static SubscriptionWeights weights(List<SubscriptionName> busy, SubscriptionName lagging, long lag) {
+        Map<String, SubscriptionLoad> busyLoads = new HashMap<>();
+        busy.forEach(subscription -> busyLoads.put(subscription.getQualifiedName(), new SubscriptionLoad(400, 0)));
+        ConsumerNodeLoad laggingNodeLoad = new ConsumerNodeLoad(
+                ImmutableMap.of(lagging.getQualifiedName(), new SubscriptionLoad(0, lag)));
+        return SubscriptionWeights.from(asList(laggingNodeLoad, new ConsumerNodeLoad(busyLoads)), 300);
+    }
+
+    @Test
+    public void shouldNotMoveSubscriptionHeavierThanAnyNodeCanTake() {
+        // given
+        List<String> nodes = nodes(4);
+        Map<SubscriptionName, Double> weights = new HashMap<>();
+        weights.put(subscription("giant"), 100_000.0);
+        IntStream.range(0, 40).forEach(i -> weights.put(subscription("small" + i), 10.0));
+        Cluster cluster = Cluster.countBalanced(nodes.size(), weights);
+
+        // when
+        cluster.balanceUntilStable();
+        WorkBalancingResult result = cluster.balance();
+
+        // then
+        assertThat(cluster.rounds).isLessThan(MAX_ROUNDS);
+        assertThat(result.getTransfersCount()).isZero();
+    }
+
+    @Test
+    public void shouldPlaceNewSubscriptionsOnLeastLoadedNodes() {
+        // given
+        Cluster cluster = Cluster.countBalanced(6, skewedWeights(60, 4));
+        cluster.balanceUntilStable();
+        List<String> leastLoaded = cluster.nodes.stream()
+                .sorted((first, second) -> Double.compare(cluster.load(first), cluster.load(second)))
+                .limit(CONSUMERS_PER_SUBSCRIPTION)
+                .collect(toList());
+        SubscriptionName created = subscription("created");
+        cluster.weights.put(created, 0.0);
+
+        // when
+        cluster.balance();
+
+        // then
+        assertThat(leastLoaded).containsAll(cluster.state.getConsumerNodesForSubscription(created));
+    }
+
+    @Test
+    public void shouldShiftLoadToNewNodeWithBoundedChurn() {
+        // given
+        Cluster cluster = Cluster.countBalanced(8, skewedWeights(160, 5));
+        cluster.balanceUntilStable();
+
+        // when
+        cluster.nodes.add("new-node");
+        List<Integer> movedPerRound = cluster.balanceUntilStable();
+
+        // then
+        assertThat(Collections.max(movedPerRound)).isLessThanOrEqualTo(MAX_TRANSFERS);
+        assertThat(cluster.imbalance()).isLessThanOrEqualTo(1 + IMBALANCE_TOLERANCE);
+        assertThat(cluster.load("new-node")).isGreaterThan(0.75 * cluster.averageLoad());
+    }
+
+    @Test
+    public void shouldRespectMaxSubscriptionsPerConsumer() {
+        // given
+        int maxSubscriptionsPerConsumer = 25;
+        SelectiveWorkBalancer balancer = new SelectiveWorkBalancer(
+                CONSUMERS_PER_SUBSCRIPTION, maxSubscriptionsPerConsumer, MAX_TRANSFERS, IMBALANCE_TOLERANCE);
+        Cluster cluster = new Cluster(balancer, nodes(5), skewedWeights(60, 6), new SubscriptionAssignmentView(emptyMap()));
+
+        // when
+        cluster.balanceUntilStable();
+
+        // then
+        cluster.nodes.forEach(node ->
+                assertThat(cluster.state.getAssignmentsCountForConsumerNode(node)).isLessThanOrEqualTo(maxSubscriptionsPerConsumer));
+    }
+
+    @Test
+    public void shouldProduceSameAssignmentsForSameCluster() {
+        // given
+        Cluster first = Cluster.countBalanced(10, skewedWeights(200, 7));
+        Cluster second = Cluster.countBalanced(10, skewedWeights(200, 7));
+
+        // when
+        first.balanceUntilStable();
+        second.balanceUntilStable();
+
+        // then
+        assertThat(first.state).isEqualTo(second.state);
+    }
+
+    /**
+     * Weights following Pareto distribution, so that a few subscriptions carry most of the traffic. Capped, so that
+     * a single subscription does not outweigh an average node and even distribution remains possible.
+     */
+    private static Map<SubscriptionName, Double> skewedWeights(int subscriptions, long seed) {
+        Random random = new Random(seed);
+        Map<SubscriptionName, Double> weights = new HashMap<>();
+        for (int i = 0; i < subscriptions; i++) {
+            double pareto = 10 / Math.pow(1 - random.nextDouble(), 1 / 1.2);
+            weights.put(subscription("s" + i), Math.min(pareto, 1000));
+        }
+        return weights;
+    }
+
+    private static SubscriptionName subscription(String name) {
+        return SubscriptionName.fromString("group.topic$" + name);
+    }
+
+    private static List<String> nodes(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "node" + i).collect(toList());
+    }
+
+    private static SubscriptionAssignmentView view(Map<SubscriptionName, NodePair> assignments) {
+        Set<SubscriptionAssignment> all = new HashSet<>();
+        assignments.forEach((subscription, nodes) -> {
+            all.add(new SubscriptionAssignment(nodes.first, subscription));
+            all.add(new SubscriptionAssignment(nodes.second, subscription));
+        });
+        return SubscriptionAssignmentView.of(all);
+    }
+
+    private static class NodePair {
+        private final String first;
+        private final String second;
+
+        NodePair(String first, String second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private static class Cluster {
+
+        private final SelectiveWorkBalancer balancer;
+        private final List<String> nodes;
+        private final Map<SubscriptionName, Double> weights;
+        private SubscriptionAssignmentView state;
+        private int rounds;
+
+        Cluster(List<String> nodes, Map<SubscriptionName, Double> weights, SubscriptionAssignmentView state) {
+            this(new SelectiveWorkBalancer(CONSUMERS_PER_SUBSCRIPTION, MAX_SUBSCRIPTIONS_PER_CONSUMER, MAX_TRANSFERS,
+                    IMBALANCE_TOLERANCE), nodes, weights, state);
+        }
+
+        Cluster(SelectiveWorkBalancer balancer, List<String> nodes, Map<SubscriptionName, Double> weights,
+                SubscriptionAssignmentView state) {
+            this.balancer = balancer;
+            this.nodes = new ArrayList<>(nodes);
+            this.weights = new HashMap<>(weights);
+            this.state = state;
+        }
+
+        /**
+         * A cluster balanced by counts alone, the way it looks before weighted balancing is enabled.
+         */
+        static Cluster countBalanced(int nodesCount, Map<SubscriptionName, Double> weights) {
+            List<String> nodes = nodes(nodesCount);
+            SubscriptionAssignmentView state = new SelectiveWorkBalancer(CONSUMERS_PER_SUBSCRIPTION, MAX_SUBSCRIPTIONS_PER_CONSUMER)
+                    .balance(subscriptions(weights), nodes, new SubscriptionAssignmentView(emptyMap()))
+                    .getAssignmentsView();
+            return new Cluster(nodes, weights, state);
+        }
+
+        WorkBalancingResult balance() {
+            WorkBalancingResult result = balancer.balance(subscriptions(weights), nodes, state,
+                    new SubscriptionWeights(weights));
+            state = result.getAssignmentsView();
+            rounds++;
+            return result;
+        }
+
+        /**
+         * @return number of assignments moved in each round which moved anything
+         */
+        List<Integer> balanceUntilStable() {
+            List<Integer> movedPerRound = new ArrayList<>();
+            while (rounds < MAX_ROUNDS) {
+                SubscriptionAssignmentView previous = state;
+                balance();
+                int moved = previous.deletions(state).getAllAssignments().size();
+                if (moved == 0) {
+                    break;
+                }
+                movedPerRound.add(moved);
+            }
+            return movedPerRound;
+        }
+
+        double load(String node) {
+            return state.getSubscriptionsForConsumerNode(node).stream()
+                    .mapToDouble(s -> weights.get(s) / state.getAssignmentsCountForSubscription(s))
+                    .sum();
+        }
+
+        double averageLoad() {
+            return nodes.stream().mapToDouble(this::load).average().orElse(0);
+        }
+
+        double imbalance() {
+            return nodes.stream().mapToDouble(this::load).max().orElse(0) / averageLoad();
+        }
+
+        long hotAssignments(String node, double hotWeight) {
+            return state.getSubscriptionsForConsumerNode(node).stream().filter(s -> weights.get(s) >= hotWeight).count();
+        }
+
+        private static List<SubscriptionName> subscriptions(Map<SubscriptionName, Double> weights) {
+            return weights.keySet().stream()
+                    .sorted((first, second) -> first.getQualifiedName().compareTo(second.getQualifiedName()))
+                    .collect(toList());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package pl.allegro.tech.hermes.consumers.timer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashedTimingWheelTest {
+
+    private HashedTimingWheel timingWheel;
+
+    @After
+    public void cleanup() {
+        timingWheel.stop();
+    }
+
+    @Test
+    public void shouldRunTaskNotEarlierThanAfterDelay() throws InterruptedException {
+        // given
+        timingWheel = new HashedTimingWheel(1, MILLISECONDS, 16, 10);
+        CountDownLatch executed = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // when
+        timingWheel.schedule("owner", executed::countDown, 50, MILLISECONDS);
+
+        // then
+        assertThat(executed.await(1, SECONDS)).isTrue();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void shouldRunTaskScheduledMoreThanOneRotationAhead() throws InterruptedException {
+        // given
+        timingWheel = new HashedTimingWheel(1, MILLISECONDS, 4, 10);
+        CountDownLatch executed = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // when
+        timingWheel.schedule("owner", executed::countDown, 30, MILLISECONDS);
+
+        // then
+        assertThat(executed.await(1, SECONDS)).isTrue();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void shouldNotRunCancelledTask() throws InterruptedException {
+        // given
+        timingWheel = new HashedTimingWheel(1, MILLISECONDS, 16, 10);
+        AtomicBoolean executed = new AtomicBoolean();
+        CountDownLatch laterExecuted = new CountDownLatch(1);
+        HashedTimingWheel.Timeout timeout = timingWheel.schedule("owner", () -> executed.set(true), 20, MILLISECONDS);
+
+        // when
+        boolean cancelled = timeout.cancel();
+        timingWheel.schedule("owner", laterExecuted::countDown, 40, MILLISECONDS);
+
+        // then
+        assertThat(cancelled).isTrue();
+        assertThat(laterExecuted.await(1, SECONDS)).isTrue();
+        assertThat(executed.get()).isFalse();
+        assertThat(timeout.cancel()).isFalse();
+    }
+
+    @Test
+    public void shouldCountPendingTimers() {
+        // given
+        timingWheel = new HashedTimingWheel(1, MILLISECONDS, 16, 10);
+        HashedTimingWheel.Timeout timeout = timingWheel.schedule("owner", () -> {}, 1, TimeUnit.MINUTES);
+        timingWheel.schedule("owner", () -> {}, 1, TimeUnit.MINUTES);
+
+        // when
+        timeout.cancel();
+
+        // then
+        assertThat(timingWheel.pendingTimers()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRunExpiredTimersOfDifferentOwnersInTurns() throws InterruptedException {
+        // given
+        timingWheel = new HashedTimingWheel(1, MILLISECONDS, 16, 1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        timingWheel.schedule("blocker", () -> {
+            blocked.countDown();
+            awaitUninterruptibly(released);
+        }, 0, MILLISECONDS);
+        assertThat(blocked.await(1, SECONDS)).isTrue();
+
+        List<String> executionOrder = new CopyOnWriteArrayList<>();
+        CountDownLatch executed = new CountDownLatch(101);
+        for (int i = 0; i < 100; i++) {
+            timingWheel.schedule("busy", () -> {
+                executionOrder.add("busy");
+                executed.countDown();
+            }, 0, MILLISECONDS);
+        }
+        timingWheel.schedule("quiet", () -> {
+            executionOrder.add("quiet");
+            executed.countDown();
+        }, 0, MILLISECONDS);
+
+        // when
+        released.countDown();
+
+        // then
+        assertThat(executed.await(5, SECONDS)).isTrue();
+        assertThat(executionOrder.indexOf("quiet")).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    public void shouldReportSchedulingLagWhenTimerThreadIsBlocked() throws InterruptedException {
+        // given
+        timingWheel = new HashedTimingWheel(1, MILLISECONDS, 16, 10);
+        CountDownLatch executed = new CountDownLatch(1);
+        AtomicLong lag = new AtomicLong();
+
+        // when
+        timingWheel.schedule("owner", () -> sleepUninterruptibly(100), 0, MILLISECONDS);
+        timingWheel.schedule("owner", () -> {
+            lag.set(timingWheel.schedulingLag());
+            executed.countDown();
+        }, 20, MILLISECONDS);
+
+        // then
+        assertThat(executed.await(1, SECONDS)).isTrue();
+        assertThat(lag.get()).isGreaterThanOrEqualTo(50);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -21,6 +21,7 @@ import pl.allegro.tech.hermes.frontend.listeners.BrokerAcknowledgeListener;
 import pl.allegro.tech.hermes.frontend.listeners.BrokerErrorListener;
 import pl.allegro.tech.hermes.frontend.listeners.BrokerListeners;
 import pl.allegro.tech.hermes.frontend.listeners.BrokerTimeoutListener;
+import pl.allegro.tech.hermes.frontend.publishing.message.MessageIdGenerator;
 import pl.allegro.tech.hermes.frontend.publishing.metadata.HeadersPropagator;
 import pl.allegro.tech.hermes.frontend.server.AbstractShutdownHook;
 import pl.allegro.tech.hermes.frontend.server.HermesServer;
@@ -245,6 +246,10 @@ public final class HermesFrontend {
             return withBinding(sslContextFactory, SslContextFactory.class);
         }
 
+        public Builder withMessageIdGenerator(MessageIdGenerator messageIdGenerator) {
+            return withBinding(messageIdGenerator, MessageIdGenerator.class);
+        }
+
         public <T> Builder withBinding(T instance, Class<T> clazz) {
             return withBinding(instance, clazz, clazz.getName());
         }
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.time.Clock;
 import java.util.List;
 import java.util.Optional;
+import java.util.regex.Pattern;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
@@ -19,19 +20,35 @@ public class BackupFilesManager {
     private static final Logger logger = LoggerFactory.getLogger(BackupFilesManager.class);
 
     private static final String FILE_NAME = "hermes-buffer";
-    private static final String TIMESTAMPED_BACKUP_FILE_PATTERN = FILE_NAME + "-\\d+\\.dat";
+    private static final String FILE_EXTENSION = ".dat";
+    private static final String LOG_DIRECTORY_NAME = "hermes-buffer-log";
 
     private final String baseDir;
+    private final String fileName;
+    private final String extension;
     private final Clock clock;
     private final File backupFile;
 
     public BackupFilesManager(String baseDir, Clock clock) {
+        this(baseDir, FILE_NAME, FILE_EXTENSION, clock);
+    }
+
+    private BackupFilesManager(String baseDir, String fileName, String extension, Clock clock) {
         this.baseDir = baseDir;
+        this.fileName = fileName;
+        this.extension = extension;
         this.clock = clock;
 
         backupFile = getBackupFile();
     }
 
+    /**
+     * Backup files manager for log repository, which keeps each backup as a directory of segments.
+     */
+    public static BackupFilesManager logDirectories(String baseDir, Clock clock) {
+        return new BackupFilesManager(baseDir, LOG_DIRECTORY_NAME, "", clock);
+    }
+
     public File getCurrentBackupFile() {
         return backupFile;
     }
@@ -42,10 +59,14 @@ public class BackupFilesManager {
             return Optional.empty();
         }
 
-        File timestampedBackupFile = new File(format("%s/%s-%s.dat", baseDir, FILE_NAME, clock.millis()));
+        File timestampedBackupFile = new File(format("%s/%s-%s%s", baseDir, fileName, clock.millis(), extension));
 
         try {
-            FileUtils.moveFile(backupFile, timestampedBackupFile);
+            if (backupFile.isDirectory()) {
+                FileUtils.moveDirectory(backupFile, timestampedBackupFile);
+            } else {
+                FileUtils.moveFile(backupFile, timestampedBackupFile);
+            }
         } catch (IOException e) {
             logger.error("Error while moving backup file from path {} to path {}.",
                 backupFile.getAbsolutePath(),
@@ -63,10 +84,11 @@ public class BackupFilesManager {
     }
     
     private File getBackupFile() {
-        return new File(format("%s/%s.dat", baseDir, FILE_NAME));
+        return new File(format("%s/%s%s", baseDir, fileName, extension));
     }
 
     public List<File> getRolledBackupFiles() {
-        return newArrayList(new File(baseDir).listFiles(new PatternFilenameFilter(TIMESTAMPED_BACKUP_FILE_PATTERN)));
+        String timestampedBackupFilePattern = Pattern.quote(fileName) + "-\\d+" + Pattern.quote(extension);
+        return newArrayList(new File(baseDir).listFiles(new PatternFilenameFilter(timestampedBackupFilePattern)));
     }
 }
@@ -1,8 +1,6 @@
 package pl.allegro.tech.hermes.frontend.buffer;
 
-import com.google.common.collect.Lists;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.allegro.tech.hermes.api.Topic;
@@ -22,16 +20,28 @@ import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static pl.allegro.tech.hermes.common.config.Configs.*;
 
+/**
+ * Replays messages from backup storage. Messages are streamed from the repository and queued per topic, every topic
+ * is drained by a pool of workers independently of the others. Topic which is not available in the broker is parked
+ * and checked again later, its queued messages do not count towards the in-flight limit, so they never hold back
+ * reading messages of other topics.
+ */
 public class BackupMessagesLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(BackupMessagesLoader.class);
@@ -44,9 +54,10 @@ public class BackupMessagesLoader {
     private final int maxResendRetries;
     private final long resendSleep;
     private final long readTopicInfoSleep;
+    private final int threadPoolSize;
+    private final long maxInflightBytes;
 
-    private final Set<Topic> topicsAvailabilityCache = new HashSet<>();
-    private final AtomicReference<ConcurrentLinkedQueue<Pair<Message, CachedTopic>>> toResend = new AtomicReference<>();
+    private final Set<Topic> topicsAvailabilityCache = ConcurrentHashMap.newKeySet();
 
     @Inject
     public BackupMessagesLoader(BrokerMessageProducer brokerMessageProducer,
@@ -62,142 +73,275 @@ public class BackupMessagesLoader {
         this.resendSleep = config.getIntProperty(MESSAGES_LOADING_PAUSE_BETWEEN_RESENDS);
         this.readTopicInfoSleep = TimeUnit.SECONDS.toMillis(config.getIntProperty(MESSAGES_LOADING_WAIT_FOR_BROKER_TOPIC_INFO));
         this.maxResendRetries = config.getIntProperty(MESSAGES_LOCAL_STORAGE_MAX_RESEND_RETRIES);
+        this.threadPoolSize = Math.max(1, config.getIntProperty(MESSAGES_LOADING_THREAD_POOL_SIZE));
+        this.maxInflightBytes = config.getLongProperty(MESSAGES_LOADING_MAX_INFLIGHT_BYTES);
     }
 
     public void loadMessages(MessageRepository messageRepository) {
-        List<BackupMessage> messages = messageRepository.findAll();
-        logger.info("Loading {} messages from backup storage.", messages.size());
-        int retry = 0;
-        toResend.set(new ConcurrentLinkedQueue<>());
+        logger.info("Loading messages from backup storage.");
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(threadPoolSize,
+                new ThreadFactoryBuilder().setNameFormat("backup-messages-loader-%d").setDaemon(true).build());
+        Replay replay = new Replay(executor);
+        try (Stream<BackupMessage> messages = messageRepository.stream()) {
+            messages.forEach(replay::add);
+            replay.awaitCompletion();
+        } catch (InterruptedException e) {
+            logger.warn("Loading messages from backup storage interrupted.", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("Loaded and sent {} messages, resent {} messages, discarded {} messages and gave up on {} messages from the backup storage.",
+                replay.sentCounter.get(), replay.resentCounter.get(), replay.discardedCounter.get(), replay.failedCounter.get());
+    }
 
-        sendMessages(messages);
+    public void clearTopicsAvailabilityCache() {
+        topicsAvailabilityCache.clear();
+    }
 
-        if (toResend.get().size() == 0) {
-            logger.info("No messages to resend.");
-            return;
+    private boolean isBrokerTopicAvailable(CachedTopic cachedTopic) {
+        if (topicsAvailabilityCache.contains(cachedTopic.getTopic())) {
+            return true;
         }
 
-        do {
-            if (retry > 0) {
-                List<Pair<Message, CachedTopic>> retryMessages = Lists.newArrayList(toResend.getAndSet(new ConcurrentLinkedQueue<>()));
-                resendMessages(retryMessages, retry);
-            }
-            try {
-                Thread.sleep(resendSleep);
-            } catch (InterruptedException e) {
-                logger.warn("Sleep interrupted", e);
-            }
-            retry++;
-        } while (toResend.get().size() > 0 && retry <= maxResendRetries);
+        if (brokerMessageProducer.isTopicAvailable(cachedTopic)) {
+            topicsAvailabilityCache.add(cachedTopic.getTopic());
+            logger.info("Broker topic {} is available.", cachedTopic.getTopic().getQualifiedName());
+            return true;
+        }
 
-        logger.info("Finished resending messages from backup storage after retry #{} with {} unsent messages.", retry - 1, toResend.get().size());
+        return false;
     }
 
-    public void clearTopicsAvailabilityCache() {
-        topicsAvailabilityCache.clear();
+    private boolean isNotStale(Message message) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(message.getTimestamp()), ZoneId.systemDefault())
+                .isAfter(LocalDateTime.now().minusHours(messageMaxAgeHours));
     }
 
-    private void sendMessages(List<BackupMessage> messages) {
-        logger.info("Sending {} messages from backup storage.", messages.size());
-        int sentCounter = 0;
-        int discardedCounter = 0;
-        for (BackupMessage backupMessage : messages) {
+    private final class Replay {
+
+        private final ScheduledExecutorService executor;
+        private final InflightBytesLimiter limiter = new InflightBytesLimiter(maxInflightBytes);
+        private final ConcurrentMap<String, TopicReplay> topics = new ConcurrentHashMap<>();
+        private final AtomicInteger sentCounter = new AtomicInteger();
+        private final AtomicInteger resentCounter = new AtomicInteger();
+        private final AtomicInteger discardedCounter = new AtomicInteger();
+        private final AtomicInteger failedCounter = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        // messages read from the repository and not yet handed over to the producer, including awaiting retry
+        private int pending;
+
+        Replay(ScheduledExecutorService executor) {
+            this.executor = executor;
+        }
+
+        void add(BackupMessage backupMessage) {
             Message message = new JsonMessage(backupMessage.getMessageId(), backupMessage.getData(), backupMessage.getTimestamp());
             String topicQualifiedName = backupMessage.getQualifiedTopicName();
-            Optional<CachedTopic> optionalCachedTopic = topicsCache.getTopic(topicQualifiedName);
-            if (sendMessageIfNeeded(message, topicQualifiedName, optionalCachedTopic, "sending")) {
-                sentCounter++;
-            } else {
-                discardedCounter++;
+            Optional<CachedTopic> cachedTopic = topicsCache.getTopic(topicQualifiedName);
+            if (!cachedTopic.isPresent()) {
+                logger.error("Topic {} not present. Not sending message {} {}", topicQualifiedName,
+                        message.getId(), new String(message.getData(), Charset.defaultCharset()));
+                discardedCounter.incrementAndGet();
+                return;
+            }
+            if (!isNotStale(message)) {
+                logger.warn("Not sending stale message {} {} {}", message.getId(),
+                        topicQualifiedName, new String(message.getData(), Charset.defaultCharset()));
+                discardedCounter.incrementAndGet();
+                return;
             }
-        }
-        logger.info("Loaded and sent {} messages and discarded {} messages from the backup storage.", sentCounter, discardedCounter);
-    }
 
-    private void resendMessages(List<Pair<Message, CachedTopic>> messageAndTopicList, int retry) {
-        logger.info("Resending {} messages from backup storage retry {}.", messageAndTopicList.size(), retry);
+            TopicReplay topic = topics.computeIfAbsent(topicQualifiedName, name -> new TopicReplay(cachedTopic.get()));
+            PendingMessage pendingMessage = new PendingMessage(message);
+            if (!topic.isParked()) {
+                try {
+                    limiter.acquire(pendingMessage.size());
+                    pendingMessage.budgetHeld = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Reading messages from backup storage interrupted", e);
+                }
+            }
+            pendingIncrement();
+            topic.add(pendingMessage);
+        }
 
-        int sentCounter = 0;
-        int discardedCounter = 0;
-        for (Pair<Message, CachedTopic> messageAndTopic : messageAndTopicList) {
-            Message message = messageAndTopic.getKey();
-            Optional<CachedTopic> cachedTopic = Optional.of(messageAndTopic.getValue());
-            if (sendMessageIfNeeded(message, cachedTopic.get().getQualifiedName(), cachedTopic, "resending")) {
-                sentCounter++;
-            } else {
-                discardedCounter++;
+        void awaitCompletion() throws InterruptedException {
+            synchronized (this) {
+                while (pending > 0) {
+                    wait();
+                }
             }
+            // failures reported after this point are already stored by broker listeners and are not retried here
+            finished.set(true);
         }
 
-        logger.info("Resent {}/{} messages and discarded {} messages from the backup storage retry {}.", sentCounter, messageAndTopicList.size(), discardedCounter, retry);
-    }
+        private synchronized void pendingIncrement() {
+            pending++;
+        }
 
-    private boolean sendMessageIfNeeded(Message message, String topicQualifiedName, Optional<CachedTopic> cachedTopic, String contextName) {
-        if (cachedTopic.isPresent()) {
-            if (isNotStale(message)) {
-                waitOnBrokerTopicAvailability(cachedTopic.get());
-                sendMessage(message, cachedTopic.get());
-                return true;
+        private synchronized void pendingDecrement() {
+            pending--;
+            if (pending == 0) {
+                notifyAll();
             }
-            logger.warn("Not {} stale message {} {} {}", contextName, message.getId(),
-                    topicQualifiedName, new String(message.getData(), Charset.defaultCharset()));
-            return false;
         }
-        logger.error("Topic {} not present. Not {} message {} {}", topicQualifiedName, contextName,
-                message.getId(), new String(message.getData(), Charset.defaultCharset()));
-        return false;
-    }
 
-    private void waitOnBrokerTopicAvailability(CachedTopic cachedTopic) {
-        int tries = 0;
-        while(!isBrokerTopicAvailable(cachedTopic)) {
-            try {
-                tries++;
-                logger.info("Broker topic {} is not available, checked {} times.", cachedTopic.getTopic().getQualifiedName(), tries);
-                Thread.sleep(readTopicInfoSleep);
-            } catch (InterruptedException e) {
-                logger.warn("Waiting for broker topic availability interrupted. Topic: {}", cachedTopic.getTopic().getQualifiedName());
+        private void releaseBudget(PendingMessage message) {
+            if (message.budgetHeld) {
+                message.budgetHeld = false;
+                limiter.release(message.size());
             }
         }
-    }
 
-    private boolean isBrokerTopicAvailable(CachedTopic cachedTopic) {
-        if (topicsAvailabilityCache.contains(cachedTopic.getTopic())) {
-            return true;
-        }
+        private final class TopicReplay {
 
-        if (brokerMessageProducer.isTopicAvailable(cachedTopic)) {
-            topicsAvailabilityCache.add(cachedTopic.getTopic());
-            logger.info("Broker topic {} is available.", cachedTopic.getTopic().getQualifiedName());
-            return true;
+            private final CachedTopic cachedTopic;
+            private final Queue<PendingMessage> queue = new ConcurrentLinkedQueue<>();
+            private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+            private volatile boolean parked;
+            private int availabilityChecks;
+
+            TopicReplay(CachedTopic cachedTopic) {
+                this.cachedTopic = cachedTopic;
+            }
+
+            boolean isParked() {
+                return parked;
+            }
+
+            void add(PendingMessage message) {
+                synchronized (this) {
+                    queue.add(message);
+                    if (parked) {
+                        releaseBudget(message);
+                    }
+                }
+                scheduleDrain(0);
+            }
+
+            private void scheduleDrain(long delayMs) {
+                if (drainScheduled.compareAndSet(false, true)) {
+                    schedule(this::drain, delayMs);
+                }
+            }
+
+            private void drain() {
+                if (!isBrokerTopicAvailable(cachedTopic)) {
+                    park();
+                    schedule(this::drain, readTopicInfoSleep);
+                    return;
+                }
+                parked = false;
+                try {
+                    PendingMessage message;
+                    while ((message = queue.poll()) != null) {
+                        send(message);
+                    }
+                } finally {
+                    drainScheduled.set(false);
+                    if (!queue.isEmpty()) {
+                        scheduleDrain(0);
+                    }
+                }
+            }
+
+            private synchronized void park() {
+                availabilityChecks++;
+                logger.info("Broker topic {} is not available, checked {} times.", cachedTopic.getQualifiedName(), availabilityChecks);
+                parked = true;
+                queue.forEach(Replay.this::releaseBudget);
+            }
+
+            private void send(PendingMessage pendingMessage) {
+                if (!pendingMessage.budgetHeld) {
+                    limiter.forceAcquire(pendingMessage.size());
+                    pendingMessage.budgetHeld = true;
+                }
+                if (pendingMessage.attempt == 0) {
+                    sentCounter.incrementAndGet();
+                } else {
+                    resentCounter.incrementAndGet();
+                }
+                Message message = pendingMessage.message;
+                StartedTimersPair brokerTimers = cachedTopic.startBrokerLatencyTimers();
+                try {
+                    sendMessage(pendingMessage, message, brokerTimers);
+                } finally {
+                    pendingDecrement();
+                }
+            }
+
+            private void sendMessage(PendingMessage pendingMessage, Message message, StartedTimersPair brokerTimers) {
+                brokerMessageProducer.send(message, cachedTopic, new PublishingCallback() {
+                    @Override
+                    public void onUnpublished(Message message, Topic topic, Exception exception) {
+                        brokerTimers.close();
+                        brokerListeners.onError(message, topic, exception);
+                        trackers.get(topic).logError(message.getId(), topic.getName(), exception.getMessage(), "");
+                        retry(pendingMessage);
+                    }
+
+                    @Override
+                    public void onPublished(Message message, Topic topic) {
+                        brokerTimers.close();
+                        cachedTopic.incrementPublished();
+                        brokerListeners.onAcknowledge(message, topic);
+                        trackers.get(topic).logPublished(message.getId(), topic.getName(), "");
+                        releaseBudget(pendingMessage);
+                    }
+                });
+            }
+
+            private void retry(PendingMessage message) {
+                if (message.attempt >= maxResendRetries || finished.get()) {
+                    giveUp(message);
+                    return;
+                }
+                message.attempt++;
+                pendingIncrement();
+                try {
+                    schedule(() -> add(message), resendSleep);
+                } catch (RejectedExecutionException e) {
+                    pendingDecrement();
+                    giveUp(message);
+                }
+            }
+
+            private void giveUp(PendingMessage message) {
+                failedCounter.incrementAndGet();
+                releaseBudget(message);
+                logger.warn("Giving up on resending message {} to topic {} after {} retries.",
+                        message.message.getId(), cachedTopic.getQualifiedName(), message.attempt);
+            }
         }
 
-        return false;
+        private void schedule(Runnable task, long delayMs) {
+            executor.schedule(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error while replaying messages from backup storage.", e);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
     }
 
-    private boolean isNotStale(Message message) {
-        return LocalDateTime.ofInstant(Instant.ofEpochMilli(message.getTimestamp()), ZoneId.systemDefault())
-                .isAfter(LocalDateTime.now().minusHours(messageMaxAgeHours));
-    }
+    private static final class PendingMessage {
 
-    private void sendMessage(Message message, CachedTopic cachedTopic) {
-        StartedTimersPair brokerTimers = cachedTopic.startBrokerLatencyTimers();
-        brokerMessageProducer.send(message, cachedTopic, new PublishingCallback() {
-            @Override
-            public void onUnpublished(Message message, Topic topic, Exception exception) {
-                brokerTimers.close();
-                brokerListeners.onError(message, topic, exception);
-                trackers.get(topic).logError(message.getId(), topic.getName(), exception.getMessage(), "");
-                toResend.get().add(ImmutablePair.of(message, cachedTopic));
-            }
-
-            @Override
-            public void onPublished(Message message, Topic topic) {
-                brokerTimers.close();
-                cachedTopic.incrementPublished();
-                brokerListeners.onAcknowledge(message, topic);
-                trackers.get(topic).logPublished(message.getId(), topic.getName(), "");
-            }
-        });
+        private final Message message;
+        private volatile boolean budgetHeld;
+        private volatile int attempt;
+
+        PendingMessage(Message message) {
+            this.message = message;
+        }
+
+        long size() {
+            return message.getData().length;
+        }
     }
 }
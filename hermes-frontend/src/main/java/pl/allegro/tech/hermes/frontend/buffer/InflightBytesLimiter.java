@@ -0,0 +1,35 @@
+package pl.allegro.tech.hermes.frontend.buffer;
+
+class InflightBytesLimiter {
+
+    private final long maxInflightBytes;
+
+    private long inflightBytes;
+
+    InflightBytesLimiter(long maxInflightBytes) {
+        this.maxInflightBytes = maxInflightBytes <= 0 ? Long.MAX_VALUE : maxInflightBytes;
+    }
+
+    /**
+     * Waits until there is room for given number of bytes. A single message larger than the limit is let through
+     * when nothing else is in flight.
+     */
+    synchronized void acquire(long bytes) throws InterruptedException {
+        while (inflightBytes > 0 && inflightBytes + bytes > maxInflightBytes) {
+            wait();
+        }
+        inflightBytes += bytes;
+    }
+
+    /**
+     * Acquires bytes without waiting, possibly exceeding the limit. Used by replay workers, which must never block.
+     */
+    synchronized void forceAcquire(long bytes) {
+        inflightBytes += bytes;
+    }
+
+    synchronized void release(long bytes) {
+        inflightBytes -= bytes;
+        notifyAll();
+    }
+}
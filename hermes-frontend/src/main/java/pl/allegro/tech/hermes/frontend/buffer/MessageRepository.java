@@ -4,6 +4,7 @@ import pl.allegro.tech.hermes.api.Topic;
 import pl.allegro.tech.hermes.frontend.publishing.message.Message;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MessageRepository {
 
@@ -13,5 +14,7 @@ public interface MessageRepository {
 
     List<BackupMessage> findAll();
 
+    Stream<BackupMessage> stream();
+
     void close();
 }
@@ -0,0 +1,5 @@
+package pl.allegro.tech.hermes.frontend.buffer;
+
+public enum MessageRepositoryType {
+    CHRONICLE, LOG
+}
@@ -5,6 +5,7 @@ import pl.allegro.tech.hermes.frontend.publishing.message.Message;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class NoOpMessageRepository implements MessageRepository {
     @Override
@@ -22,6 +23,11 @@ public class NoOpMessageRepository implements MessageRepository {
         return Collections.emptyList();
     }
 
+    @Override
+    public Stream<BackupMessage> stream() {
+        return Stream.empty();
+    }
+
     @Override
     public void close() {
 
@@ -14,6 +14,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ChronicleMapMessageRepository implements MessageRepository {
 
@@ -55,6 +56,11 @@ public class ChronicleMapMessageRepository implements MessageRepository {
         return map.entrySet().stream().map((e) -> toBackupMessage(e.getKey(), e.getValue())).collect(Collectors.toList());
     }
 
+    @Override
+    public Stream<BackupMessage> stream() {
+        return findAll().stream();
+    }
+
     @Override
     public void close() {
         map.close();
@@ -0,0 +1,264 @@
+package pl.allegro.tech.hermes.frontend.buffer.log;
+
+import pl.allegro.tech.hermes.frontend.buffer.BackupMessage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * Single memory mapped file of the message log. File starts with a header and a bitmap of deleted records, followed
+ * by records appended one after another:
+ *
+ * <pre>
+ * int length | long timestamp | short id length | id | short topic length | topic | data
+ * </pre>
+ *
+ * Length is written after the rest of the record, so a record interrupted by a crash reads as the end of segment.
+ */
+class LogSegment {
+
+    private static final int MAGIC = 0x48425546;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Long.BYTES + 2 * Short.BYTES;
+    private static final int END_OF_RECORDS = 0;
+
+    private final long id;
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer writeView;
+    private final int maxRecords;
+    private final int recordsStart;
+
+    private volatile int recordCount;
+    private int writePosition;
+    private int liveCount;
+
+    private LogSegment(long id, File file, MappedByteBuffer buffer, int maxRecords) {
+        this.id = id;
+        this.file = file;
+        this.buffer = buffer;
+        this.writeView = buffer.duplicate();
+        this.maxRecords = maxRecords;
+        this.recordsStart = HEADER_SIZE + bitmapSize(maxRecords);
+        this.writePosition = recordsStart;
+    }
+
+    static LogSegment create(File file, long id, int size) {
+        int maxRecords = size / RECORD_HEADER_SIZE;
+        int fileSize = HEADER_SIZE + bitmapSize(maxRecords) + size;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            // mapping stays valid after the file is closed
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(Integer.BYTES, maxRecords);
+            return new LogSegment(id, file, buffer, maxRecords);
+        } catch (IOException e) {
+            throw new MessageLogException("Could not create message log segment " + file.getAbsolutePath(), e);
+        }
+    }
+
+    static LogSegment open(File file, long id) {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new MessageLogException("File " + file.getAbsolutePath() + " is not a message log segment");
+            }
+            LogSegment segment = new LogSegment(id, file, buffer, buffer.getInt(Integer.BYTES));
+            segment.recover();
+            return segment;
+        } catch (IOException e) {
+            throw new MessageLogException("Could not open message log segment " + file.getAbsolutePath(), e);
+        }
+    }
+
+    static int recordSize(byte[] messageId, byte[] topic, byte[] data) {
+        return RECORD_HEADER_SIZE + messageId.length + topic.length + data.length;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    synchronized int getLiveCount() {
+        return liveCount;
+    }
+
+    boolean hasRoomFor(int recordSize) {
+        return recordCount < maxRecords && writePosition + recordSize <= buffer.capacity();
+    }
+
+    /**
+     * Appends a record and returns its ordinal number. Callers have to serialize appends to a single segment.
+     */
+    int append(byte[] messageId, byte[] topic, byte[] data, long timestamp) {
+        int size = recordSize(messageId, topic, data);
+        writeView.position(writePosition + Integer.BYTES);
+        writeView.putLong(timestamp);
+        writeView.putShort((short) messageId.length);
+        writeView.put(messageId);
+        writeView.putShort((short) topic.length);
+        writeView.put(topic);
+        writeView.put(data);
+        writeView.putInt(writePosition, size - Integer.BYTES);
+        writePosition += size;
+        synchronized (this) {
+            liveCount++;
+        }
+        int ordinal = recordCount;
+        recordCount = ordinal + 1;
+        return ordinal;
+    }
+
+    synchronized boolean markDeleted(int ordinal) {
+        int index = HEADER_SIZE + (ordinal >>> 3);
+        byte bits = buffer.get(index);
+        byte mask = (byte) (1 << (ordinal & 7));
+        if ((bits & mask) != 0) {
+            return false;
+        }
+        buffer.put(index, (byte) (bits | mask));
+        liveCount--;
+        return true;
+    }
+
+    boolean isDeleted(int ordinal) {
+        return (buffer.get(HEADER_SIZE + (ordinal >>> 3)) & (1 << (ordinal & 7))) != 0;
+    }
+
+    /**
+     * Streams records appended so far, including deleted ones. Records are decoded lazily.
+     */
+    Stream<LogRecord> records() {
+        int count = recordCount;
+        ByteBuffer view = buffer.duplicate();
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<LogRecord>(count, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int ordinal = 0;
+            private int position = recordsStart;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super LogRecord> action) {
+                if (ordinal >= count) {
+                    return false;
+                }
+                LogRecord record = new LogRecord(LogSegment.this, ordinal++, view, position);
+                position += Integer.BYTES + view.getInt(position);
+                action.accept(record);
+                return true;
+            }
+        }, false);
+    }
+
+    void close() {
+        buffer.force();
+    }
+
+    void delete() {
+        if (!file.delete()) {
+            throw new MessageLogException("Could not delete message log segment " + file.getAbsolutePath());
+        }
+    }
+
+    private void recover() {
+        int position = recordsStart;
+        int count = 0;
+        int live = 0;
+        while (count < maxRecords && position + Integer.BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == END_OF_RECORDS || position + Integer.BYTES + length > buffer.capacity()) {
+                break;
+            }
+            if (!isDeleted(count)) {
+                live++;
+            }
+            position += Integer.BYTES + length;
+            count++;
+        }
+        writePosition = position;
+        liveCount = live;
+        recordCount = count;
+    }
+
+    private static int bitmapSize(int maxRecords) {
+        return (maxRecords + 7) >>> 3;
+    }
+
+    static final class LogRecord {
+
+        private final LogSegment segment;
+        private final int ordinal;
+        private final ByteBuffer view;
+        private final int position;
+
+        private LogRecord(LogSegment segment, int ordinal, ByteBuffer view, int position) {
+            this.segment = segment;
+            this.ordinal = ordinal;
+            this.view = view;
+            this.position = position;
+        }
+
+        LogSegment getSegment() {
+            return segment;
+        }
+
+        int getOrdinal() {
+            return ordinal;
+        }
+
+        boolean isDeleted() {
+            return segment.isDeleted(ordinal);
+        }
+
+        long getTimestamp() {
+            return view.getLong(position + Integer.BYTES);
+        }
+
+        String getMessageId() {
+            int idPosition = position + Integer.BYTES + Long.BYTES;
+            return new String(read(idPosition + Short.BYTES, Short.toUnsignedInt(view.getShort(idPosition))), UTF_8);
+        }
+
+        byte[] getTopic() {
+            int topicPosition = topicPosition();
+            return read(topicPosition + Short.BYTES, Short.toUnsignedInt(view.getShort(topicPosition)));
+        }
+
+        byte[] getData() {
+            int topicPosition = topicPosition();
+            int dataPosition = topicPosition + Short.BYTES + Short.toUnsignedInt(view.getShort(topicPosition));
+            return read(dataPosition, position + Integer.BYTES + view.getInt(position) - dataPosition);
+        }
+
+        BackupMessage toBackupMessage() {
+            return new BackupMessage(getMessageId(), getData(), getTimestamp(), new String(getTopic(), UTF_8));
+        }
+
+        private int topicPosition() {
+            int idPosition = position + Integer.BYTES + Long.BYTES;
+            return idPosition + Short.BYTES + Short.toUnsignedInt(view.getShort(idPosition));
+        }
+
+        private byte[] read(int from, int length) {
+            byte[] bytes = new byte[length];
+            ByteBuffer source = view.duplicate();
+            source.position(from);
+            source.get(bytes);
+            return bytes;
+        }
+    }
+}
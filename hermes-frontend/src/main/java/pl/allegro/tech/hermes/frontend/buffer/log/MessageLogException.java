@@ -0,0 +1,12 @@
+package pl.allegro.tech.hermes.frontend.buffer.log;
+
+public class MessageLogException extends RuntimeException {
+
+    public MessageLogException(String message, Exception e) {
+        super(message, e);
+    }
+
+    public MessageLogException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,252 @@
+package pl.allegro.tech.hermes.frontend.buffer.log;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.allegro.tech.hermes.api.Topic;
+import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.frontend.buffer.BackupMessage;
+import pl.allegro.tech.hermes.frontend.buffer.MessageRepository;
+import pl.allegro.tech.hermes.frontend.buffer.log.LogSegment.LogRecord;
+import pl.allegro.tech.hermes.frontend.publishing.message.Message;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.lang.String.format;
+
+/**
+ * Message repository kept as an append-only log of memory mapped segments. Saving a message is a sequential write to
+ * the newest segment, deleting one only flips a bit in the bitmap of the segment it lives in. Message locations are
+ * indexed in memory by id, so acknowledgements of messages that were never saved cost a single lookup.
+ *
+ * Segments without live messages are dropped in the background, and sparse ones are compacted by copying their live
+ * messages to the newest segment.
+ */
+public class SegmentedLogMessageRepository implements MessageRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedLogMessageRepository.class);
+
+    private static final Pattern SEGMENT_FILE_PATTERN = Pattern.compile("segment-(\\d+)\\.log");
+    private static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+    private final File directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, RecordLocation> index = new ConcurrentHashMap<>();
+    private final Object appendLock = new Object();
+    private final ScheduledExecutorService compactionExecutor;
+
+    private volatile LogSegment activeSegment;
+
+    public SegmentedLogMessageRepository(File directory, int segmentSize, double compactionThreshold,
+                                         int compactionIntervalSeconds, HermesMetrics hermesMetrics) {
+        this(directory, segmentSize, compactionThreshold, compactionIntervalSeconds);
+        hermesMetrics.registerMessageRepositorySizeGauge(index::size);
+    }
+
+    public SegmentedLogMessageRepository(File directory, int segmentSize, double compactionThreshold,
+                                         int compactionIntervalSeconds) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+
+        logger.info("Creating backup log storage in path: {}", directory.getAbsolutePath());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new MessageLogException("Could not create backup log directory " + directory.getAbsolutePath());
+        }
+        recover();
+
+        if (compactionIntervalSeconds > 0) {
+            compactionExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("backup-log-compaction-%d").setDaemon(true).build());
+            compactionExecutor.scheduleWithFixedDelay(this::compactSafely,
+                    compactionIntervalSeconds, compactionIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            compactionExecutor = null;
+        }
+    }
+
+    @Override
+    public void save(Message message, Topic topic) {
+        byte[] messageId = message.getId().getBytes(UTF_8);
+        byte[] topicName = topic.getQualifiedName().getBytes(UTF_8);
+        if (messageId.length > MAX_FIELD_LENGTH || topicName.length > MAX_FIELD_LENGTH) {
+            throw new MessageLogException("Message id or topic name too long to be saved in backup log");
+        }
+        RecordLocation location = append(messageId, topicName, message.getData(), message.getTimestamp());
+        RecordLocation previous = index.put(message.getId(), location);
+        if (previous != null) {
+            previous.markDeleted();
+        }
+    }
+
+    @Override
+    public void delete(String messageId) {
+        RecordLocation location = index.remove(messageId);
+        if (location != null) {
+            location.markDeleted();
+        }
+    }
+
+    @Override
+    public List<BackupMessage> findAll() {
+        return stream().collect(Collectors.toList());
+    }
+
+    /**
+     * Streams messages lazily, segment by segment. Messages moved by compaction running at the same time might be
+     * returned twice, so repositories read on startup are opened without compaction.
+     */
+    @Override
+    public Stream<BackupMessage> stream() {
+        return new ArrayList<>(segments).stream()
+                .flatMap(LogSegment::records)
+                .filter(record -> !record.isDeleted())
+                .map(LogRecord::toBackupMessage);
+    }
+
+    @Override
+    public void close() {
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdownNow();
+        }
+        synchronized (appendLock) {
+            segments.forEach(LogSegment::close);
+        }
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    void compact() {
+        for (LogSegment segment : segments) {
+            if (segment == activeSegment) {
+                continue;
+            }
+            int recordCount = segment.getRecordCount();
+            int liveCount = segment.getLiveCount();
+            if (liveCount > 0 && liveCount >= compactionThreshold * recordCount) {
+                continue;
+            }
+            if (liveCount > 0) {
+                logger.info("Compacting backup log segment {} with {}/{} live messages", segment.getId(), liveCount, recordCount);
+                segment.records().filter(record -> !record.isDeleted()).forEach(this::moveToActiveSegment);
+            }
+            segments.remove(segment);
+            segment.delete();
+        }
+    }
+
+    private void moveToActiveSegment(LogRecord record) {
+        String messageId = record.getMessageId();
+        RecordLocation current = new RecordLocation(record.getSegment(), record.getOrdinal());
+        RecordLocation moved = append(messageId.getBytes(UTF_8), record.getTopic(), record.getData(), record.getTimestamp());
+        if (!index.replace(messageId, current, moved)) {
+            // message was deleted or saved again while being copied
+            moved.markDeleted();
+        }
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (Exception e) {
+            logger.error("Error while compacting backup log in path {}", directory.getAbsolutePath(), e);
+        }
+    }
+
+    private RecordLocation append(byte[] messageId, byte[] topic, byte[] data, long timestamp) {
+        int recordSize = LogSegment.recordSize(messageId, topic, data);
+        synchronized (appendLock) {
+            if (!activeSegment.hasRoomFor(recordSize)) {
+                activeSegment = createSegment(activeSegment.getId() + 1, Math.max(segmentSize, recordSize));
+            }
+            return new RecordLocation(activeSegment, activeSegment.append(messageId, topic, data, timestamp));
+        }
+    }
+
+    private LogSegment createSegment(long id, int size) {
+        LogSegment segment = LogSegment.create(segmentFile(id), id, size);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void recover() {
+        File[] files = directory.listFiles((dir, name) -> SEGMENT_FILE_PATTERN.matcher(name).matches());
+        Arrays.stream(files == null ? new File[0] : files)
+                .sorted(Comparator.comparingLong(SegmentedLogMessageRepository::segmentId))
+                .forEach(file -> segments.add(LogSegment.open(file, segmentId(file))));
+
+        segments.forEach(segment -> segment.records().filter(record -> !record.isDeleted()).forEach(record -> {
+            RecordLocation previous = index.put(record.getMessageId(), new RecordLocation(segment, record.getOrdinal()));
+            if (previous != null) {
+                previous.markDeleted();
+            }
+        }));
+
+        activeSegment = segments.isEmpty() ? createSegment(0, segmentSize) : segments.get(segments.size() - 1);
+        logger.info("Recovered {} messages from {} backup log segments", index.size(), segments.size());
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, format("segment-%019d.log", id));
+    }
+
+    private static long segmentId(File file) {
+        Matcher matcher = SEGMENT_FILE_PATTERN.matcher(file.getName());
+        if (!matcher.matches()) {
+            throw new MessageLogException("File " + file.getAbsolutePath() + " is not a message log segment");
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static final class RecordLocation {
+
+        private final LogSegment segment;
+        private final int ordinal;
+
+        RecordLocation(LogSegment segment, int ordinal) {
+            this.segment = segment;
+            this.ordinal = ordinal;
+        }
+
+        void markDeleted() {
+            segment.markDeleted(ordinal);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RecordLocation that = (RecordLocation) o;
+            return ordinal == that.ordinal && segment == that.segment;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(segment.getId(), ordinal);
+        }
+    }
+}
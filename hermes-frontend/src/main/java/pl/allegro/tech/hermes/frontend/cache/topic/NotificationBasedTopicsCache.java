@@ -30,17 +30,20 @@ public class NotificationBasedTopicsCache implements TopicCallback, TopicsCache,
     private final TopicRepository topicRepository;
     private final HermesMetrics hermesMetrics;
     private final KafkaNamesMapper kafkaNamesMapper;
+    private final boolean lightweightMetrics;
 
     public NotificationBasedTopicsCache(InternalNotificationsBus notificationsBus,
                                         BlacklistZookeeperNotifyingCache blacklistZookeeperNotifyingCache,
                                         GroupRepository groupRepository,
                                         TopicRepository topicRepository,
                                         HermesMetrics hermesMetrics,
-                                        KafkaNamesMapper kafkaNamesMapper) {
+                                        KafkaNamesMapper kafkaNamesMapper,
+                                        boolean lightweightMetrics) {
         this.groupRepository = groupRepository;
         this.topicRepository = topicRepository;
         this.hermesMetrics = hermesMetrics;
         this.kafkaNamesMapper = kafkaNamesMapper;
+        this.lightweightMetrics = lightweightMetrics;
         notificationsBus.registerTopicCallback(this);
         blacklistZookeeperNotifyingCache.addCallback(this);
     }
@@ -108,10 +111,10 @@ public class NotificationBasedTopicsCache implements TopicCallback, TopicsCache,
     }
 
     private CachedTopic cachedTopic(Topic topic) {
-        return new CachedTopic(topic, hermesMetrics, kafkaNamesMapper.toKafkaTopics(topic));
+        return new CachedTopic(topic, hermesMetrics, kafkaNamesMapper.toKafkaTopics(topic), false, lightweightMetrics);
     }
 
     private CachedTopic bannedTopic(Topic topic) {
-        return new CachedTopic(topic, hermesMetrics, kafkaNamesMapper.toKafkaTopics(topic), true);
+        return new CachedTopic(topic, hermesMetrics, kafkaNamesMapper.toKafkaTopics(topic), true, lightweightMetrics);
     }
 }
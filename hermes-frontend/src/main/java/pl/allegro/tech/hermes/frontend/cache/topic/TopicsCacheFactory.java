@@ -1,6 +1,8 @@
 package pl.allegro.tech.hermes.frontend.cache.topic;
 
 import org.glassfish.hk2.api.Factory;
+import pl.allegro.tech.hermes.common.config.ConfigFactory;
+import pl.allegro.tech.hermes.common.config.Configs;
 import pl.allegro.tech.hermes.common.kafka.KafkaNamesMapper;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
 import pl.allegro.tech.hermes.domain.group.GroupRepository;
@@ -20,6 +22,7 @@ public class TopicsCacheFactory implements Factory<TopicsCache> {
     private final HermesMetrics hermesMetrics;
     private final KafkaNamesMapper kafkaNamesMapper;
     private final BlacklistZookeeperNotifyingCache blacklistZookeeperNotifyingCache;
+    private final ConfigFactory configFactory;
 
     @Inject
     public TopicsCacheFactory(InternalNotificationsBus internalNotificationsBus,
@@ -27,19 +30,22 @@ public class TopicsCacheFactory implements Factory<TopicsCache> {
                               TopicRepository topicRepository,
                               HermesMetrics hermesMetrics,
                               KafkaNamesMapper kafkaNamesMapper,
-                              BlacklistZookeeperNotifyingCache blacklistZookeeperNotifyingCache) {
+                              BlacklistZookeeperNotifyingCache blacklistZookeeperNotifyingCache,
+                              ConfigFactory configFactory) {
         this.internalNotificationsBus = internalNotificationsBus;
         this.groupRepository = groupRepository;
         this.topicRepository = topicRepository;
         this.hermesMetrics = hermesMetrics;
         this.kafkaNamesMapper = kafkaNamesMapper;
         this.blacklistZookeeperNotifyingCache = blacklistZookeeperNotifyingCache;
+        this.configFactory = configFactory;
     }
 
     @Override
     public TopicsCache provide() {
         TopicsCache cache = new NotificationBasedTopicsCache(internalNotificationsBus, blacklistZookeeperNotifyingCache,
-                groupRepository, topicRepository, hermesMetrics, kafkaNamesMapper);
+                groupRepository, topicRepository, hermesMetrics, kafkaNamesMapper,
+                configFactory.getBooleanProperty(Configs.FRONTEND_LIGHTWEIGHT_METRICS_ENABLED));
 
         cache.start();
         return cache;
@@ -9,18 +9,25 @@ import pl.allegro.tech.hermes.frontend.buffer.BackupFilesManager;
 import pl.allegro.tech.hermes.frontend.buffer.BackupMessagesLoader;
 import pl.allegro.tech.hermes.frontend.buffer.BrokerListener;
 import pl.allegro.tech.hermes.frontend.buffer.MessageRepository;
+import pl.allegro.tech.hermes.frontend.buffer.MessageRepositoryType;
 import pl.allegro.tech.hermes.frontend.buffer.chronicle.ChronicleMapMessageRepository;
+import pl.allegro.tech.hermes.frontend.buffer.log.SegmentedLogMessageRepository;
 import pl.allegro.tech.hermes.frontend.listeners.BrokerListeners;
 
 import javax.inject.Inject;
 import java.io.File;
 import java.time.Clock;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
 import static pl.allegro.tech.hermes.common.config.Configs.MESSAGES_LOCAL_STORAGE_DIRECTORY;
 import static pl.allegro.tech.hermes.common.config.Configs.MESSAGES_LOCAL_STORAGE_ENABLED;
+import static pl.allegro.tech.hermes.common.config.Configs.MESSAGES_LOCAL_STORAGE_COMPACTION_INTERVAL_SECONDS;
+import static pl.allegro.tech.hermes.common.config.Configs.MESSAGES_LOCAL_STORAGE_COMPACTION_THRESHOLD;
+import static pl.allegro.tech.hermes.common.config.Configs.MESSAGES_LOCAL_STORAGE_SEGMENT_SIZE;
 import static pl.allegro.tech.hermes.common.config.Configs.MESSAGES_LOCAL_STORAGE_SIZE_REPORTING_ENABLED;
+import static pl.allegro.tech.hermes.common.config.Configs.MESSAGES_LOCAL_STORAGE_TYPE;
 
 public class PersistentBufferExtension {
 
@@ -53,27 +60,30 @@ public class PersistentBufferExtension {
     }
 
     public void extend() {
-        BackupFilesManager backupFilesManager = new BackupFilesManager(
-                config.getStringProperty(MESSAGES_LOCAL_STORAGE_DIRECTORY),
-                clock);
+        String directory = config.getStringProperty(MESSAGES_LOCAL_STORAGE_DIRECTORY);
+        BackupFilesManager backupFilesManager = new BackupFilesManager(directory, clock);
+        BackupFilesManager backupLogsManager = BackupFilesManager.logDirectories(directory, clock);
 
+        // backups of both repository types are loaded, so that no messages are lost when switching storage type
         backupFilesManager.rolloverBackupFileIfExists();
+        backupLogsManager.rolloverBackupFileIfExists();
         List<File> rolledBackupFiles = backupFilesManager.getRolledBackupFiles();
-        if (!rolledBackupFiles.isEmpty()) {
+        List<File> rolledBackupLogs = backupLogsManager.getRolledBackupFiles();
+        if (!rolledBackupFiles.isEmpty() || !rolledBackupLogs.isEmpty()) {
             logger.info("Backup files were found. Number of files: {}. Files: {}",
-                    rolledBackupFiles.size(),
-                    rolledBackupFiles.stream().map(f -> f.getName()).collect(joining(", ")));
+                    rolledBackupFiles.size() + rolledBackupLogs.size(),
+                    Stream.concat(rolledBackupFiles.stream(), rolledBackupLogs.stream()).map(f -> f.getName()).collect(joining(", ")));
 
             hooksHandler.addStartupHook((s) -> {
-                rolledBackupFiles.forEach(f -> loadOldMessages(backupFilesManager, f));
+                rolledBackupFiles.forEach(f -> loadOldMessages(backupFilesManager, f, new ChronicleMapMessageRepository(f)));
+                rolledBackupLogs.forEach(f -> loadOldMessages(backupLogsManager, f, new SegmentedLogMessageRepository(f,
+                        config.getIntProperty(MESSAGES_LOCAL_STORAGE_SEGMENT_SIZE), 0.0, 0)));
                 backupMessagesLoader.clearTopicsAvailabilityCache();
             });
         }
 
         if (config.getBooleanProperty(MESSAGES_LOCAL_STORAGE_ENABLED)) {
-            MessageRepository repository = config.getBooleanProperty(MESSAGES_LOCAL_STORAGE_SIZE_REPORTING_ENABLED) ?
-                    new ChronicleMapMessageRepository(backupFilesManager.getCurrentBackupFile(), hermesMetrics) :
-                    new ChronicleMapMessageRepository(backupFilesManager.getCurrentBackupFile());
+            MessageRepository repository = createRepository(backupFilesManager, backupLogsManager);
             BrokerListener brokerListener = new BrokerListener(repository);
 
             listeners.addAcknowledgeListener(brokerListener);
@@ -82,9 +92,27 @@ public class PersistentBufferExtension {
         }
     }
 
-    private void loadOldMessages(BackupFilesManager backupFilesManager, File oldBackup) {
+    private MessageRepository createRepository(BackupFilesManager backupFilesManager, BackupFilesManager backupLogsManager) {
+        boolean sizeReportingEnabled = config.getBooleanProperty(MESSAGES_LOCAL_STORAGE_SIZE_REPORTING_ENABLED);
+        switch (MessageRepositoryType.valueOf(config.getStringProperty(MESSAGES_LOCAL_STORAGE_TYPE).toUpperCase())) {
+            case LOG:
+                File directory = backupLogsManager.getCurrentBackupFile();
+                int segmentSize = config.getIntProperty(MESSAGES_LOCAL_STORAGE_SEGMENT_SIZE);
+                double compactionThreshold = config.getDoubleProperty(MESSAGES_LOCAL_STORAGE_COMPACTION_THRESHOLD);
+                int compactionInterval = config.getIntProperty(MESSAGES_LOCAL_STORAGE_COMPACTION_INTERVAL_SECONDS);
+                return sizeReportingEnabled ?
+                        new SegmentedLogMessageRepository(directory, segmentSize, compactionThreshold, compactionInterval, hermesMetrics) :
+                        new SegmentedLogMessageRepository(directory, segmentSize, compactionThreshold, compactionInterval);
+            case CHRONICLE:
+            default:
+                return sizeReportingEnabled ?
+                        new ChronicleMapMessageRepository(backupFilesManager.getCurrentBackupFile(), hermesMetrics) :
+                        new ChronicleMapMessageRepository(backupFilesManager.getCurrentBackupFile());
+        }
+    }
+
+    private void loadOldMessages(BackupFilesManager backupFilesManager, File oldBackup, MessageRepository oldMessageRepository) {
         logger.info("Loading messages from backup file: {}", oldBackup.getName());
-        MessageRepository oldMessageRepository = new ChronicleMapMessageRepository(oldBackup);
         backupMessagesLoader.loadMessages(oldMessageRepository);
         oldMessageRepository.close();
         backupFilesManager.delete(oldBackup);
@@ -14,8 +14,7 @@ import pl.allegro.tech.hermes.common.metric.Meters;
 import pl.allegro.tech.hermes.common.metric.Timers;
 import pl.allegro.tech.hermes.common.metric.timer.StartedTimersPair;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 
 public class CachedTopic {
 
@@ -48,19 +47,34 @@ public class CachedTopic {
     private final Meter topicThroughputMeter;
     private final Meter globalThroughputMeter;
 
+    private final Meter globalRequestBodyAllocatedBytesMeter;
+    private final Meter globalRequestBodyCopiedBytesMeter;
+
     private final Counter published;
 
-    private final Map<Integer, MetersPair> httpStatusCodesMeters = new ConcurrentHashMap<>();
+    private final boolean lightweightMetrics;
+
+    private volatile StatusCodeMeters[] httpStatusCodesMeters = new StatusCodeMeters[0];
 
     public CachedTopic(Topic topic, HermesMetrics hermesMetrics, KafkaTopics kafkaTopics) {
         this(topic, hermesMetrics, kafkaTopics, false);
     }
 
     public CachedTopic(Topic topic, HermesMetrics hermesMetrics, KafkaTopics kafkaTopics, boolean blacklisted) {
+        this(topic, hermesMetrics, kafkaTopics, blacklisted, false);
+    }
+
+    /**
+     * @param lightweightMetrics when enabled, latencies and message sizes are recorded in fixed size bucket
+     *                           reservoirs instead of exponentially decaying ones
+     */
+    public CachedTopic(Topic topic, HermesMetrics hermesMetrics, KafkaTopics kafkaTopics, boolean blacklisted,
+                       boolean lightweightMetrics) {
         this.topic = topic;
         this.kafkaTopics = kafkaTopics;
         this.hermesMetrics = hermesMetrics;
         this.blacklisted = blacklisted;
+        this.lightweightMetrics = lightweightMetrics;
 
         globalRequestMeter = hermesMetrics.meter(Meters.METER);
         topicRequestMeter = hermesMetrics.meter(Meters.TOPIC_METER, topic.getName());
@@ -68,35 +82,51 @@ public class CachedTopic {
         globalDelayedProcessingMeter = hermesMetrics.meter(Meters.DELAYED_PROCESSING);
         topicDelayedProcessingMeter = hermesMetrics.meter(Meters.TOPIC_DELAYED_PROCESSING, topic.getName());
 
-        globalRequestReadLatencyTimer = hermesMetrics.timer(Timers.PARSING_REQUEST);
-        topicRequestReadLatencyTimer = hermesMetrics.timer(Timers.TOPIC_PARSING_REQUEST, topic.getName());
+        globalRequestReadLatencyTimer = timer(Timers.PARSING_REQUEST);
+        topicRequestReadLatencyTimer = timer(Timers.TOPIC_PARSING_REQUEST, topic.getName());
 
-        globalMessageCreationTimer = hermesMetrics.timer(Timers.MESSAGE_CREATION_LATENCY);
-        topicMessageCreationTimer = hermesMetrics.timer(Timers.MESSAGE_CREATION_TOPIC_LATENCY, topic.getName());
+        globalMessageCreationTimer = timer(Timers.MESSAGE_CREATION_LATENCY);
+        topicMessageCreationTimer = timer(Timers.MESSAGE_CREATION_TOPIC_LATENCY, topic.getName());
 
-        topicMessageContentSize = hermesMetrics.messageContentSizeHistogram(topic.getName());
-        globalMessageContentSize = hermesMetrics.messageContentSizeHistogram();
+        if (lightweightMetrics) {
+            topicMessageContentSize = hermesMetrics.lightweightMessageContentSizeHistogram(topic.getName());
+            globalMessageContentSize = hermesMetrics.lightweightMessageContentSizeHistogram();
+        } else {
+            topicMessageContentSize = hermesMetrics.messageContentSizeHistogram(topic.getName());
+            globalMessageContentSize = hermesMetrics.messageContentSizeHistogram();
+        }
 
         published = hermesMetrics.counter(Counters.PUBLISHED, topic.getName());
 
         globalThroughputMeter = hermesMetrics.meter(Meters.THROUGHPUT_BYTES);
         topicThroughputMeter = hermesMetrics.meter(Meters.TOPIC_THROUGHPUT_BYTES, topic.getName());
 
+        globalRequestBodyAllocatedBytesMeter = hermesMetrics.meter(Meters.REQUEST_BODY_ALLOCATED_BYTES);
+        globalRequestBodyCopiedBytesMeter = hermesMetrics.meter(Meters.REQUEST_BODY_COPIED_BYTES);
+
         if (Topic.Ack.ALL.equals(topic.getAck())) {
-            topicProducerLatencyTimer = hermesMetrics.timer(Timers.ACK_ALL_LATENCY);
-            globalProducerLatencyTimer = hermesMetrics.timer(Timers.ACK_ALL_TOPIC_LATENCY, topic.getName());
+            topicProducerLatencyTimer = timer(Timers.ACK_ALL_LATENCY);
+            globalProducerLatencyTimer = timer(Timers.ACK_ALL_TOPIC_LATENCY, topic.getName());
 
-            topicBrokerLatencyTimer = hermesMetrics.timer(Timers.ACK_ALL_BROKER_LATENCY);
-            globalBrokerLatencyTimer = hermesMetrics.timer(Timers.ACK_ALL_BROKER_TOPIC_LATENCY, topic.getName());
+            topicBrokerLatencyTimer = timer(Timers.ACK_ALL_BROKER_LATENCY);
+            globalBrokerLatencyTimer = timer(Timers.ACK_ALL_BROKER_TOPIC_LATENCY, topic.getName());
         } else {
-            topicProducerLatencyTimer = hermesMetrics.timer(Timers.ACK_LEADER_LATENCY);
-            globalProducerLatencyTimer = hermesMetrics.timer(Timers.ACK_LEADER_TOPIC_LATENCY, topic.getName());
+            topicProducerLatencyTimer = timer(Timers.ACK_LEADER_LATENCY);
+            globalProducerLatencyTimer = timer(Timers.ACK_LEADER_TOPIC_LATENCY, topic.getName());
 
-            topicBrokerLatencyTimer = hermesMetrics.timer(Timers.ACK_LEADER_BROKER_LATENCY);
-            globalBrokerLatencyTimer = hermesMetrics.timer(Timers.ACK_LEADER_BROKER_TOPIC_LATENCY, topic.getName());
+            topicBrokerLatencyTimer = timer(Timers.ACK_LEADER_BROKER_LATENCY);
+            globalBrokerLatencyTimer = timer(Timers.ACK_LEADER_BROKER_TOPIC_LATENCY, topic.getName());
         }
     }
 
+    private Timer timer(String metric) {
+        return lightweightMetrics ? hermesMetrics.lightweightTimer(metric) : hermesMetrics.timer(metric);
+    }
+
+    private Timer timer(String metric, TopicName topicName) {
+        return lightweightMetrics ? hermesMetrics.lightweightTimer(metric, topicName) : hermesMetrics.timer(metric, topicName);
+    }
+
     public Topic getTopic() {
         return topic;
     }
@@ -126,12 +156,29 @@ public class CachedTopic {
     }
 
     public void markStatusCodeMeter(int status) {
-        httpStatusCodesMeters.computeIfAbsent(
-                status,
-                code -> new MetersPair(
-                    hermesMetrics.httpStatusCodeMeter(status),
-                    hermesMetrics.httpStatusCodeMeter(status, topic.getName()))
-        ).mark();
+        for (StatusCodeMeters meters : httpStatusCodesMeters) {
+            if (meters.status == status) {
+                meters.mark();
+                return;
+            }
+        }
+        registerStatusCodeMeters(status).mark();
+    }
+
+    private synchronized StatusCodeMeters registerStatusCodeMeters(int status) {
+        StatusCodeMeters[] current = httpStatusCodesMeters;
+        for (StatusCodeMeters meters : current) {
+            if (meters.status == status) {
+                return meters;
+            }
+        }
+        StatusCodeMeters meters = new StatusCodeMeters(status, new MetersPair(
+                hermesMetrics.httpStatusCodeMeter(status),
+                hermesMetrics.httpStatusCodeMeter(status, topic.getName())));
+        StatusCodeMeters[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = meters;
+        httpStatusCodesMeters = updated;
+        return meters;
     }
 
     public void markRequestMeter() {
@@ -158,6 +205,11 @@ public class CachedTopic {
         globalThroughputMeter.mark(size);
     }
 
+    public void reportRequestBodyBuffer(long allocatedBytes, long copiedBytes) {
+        globalRequestBodyAllocatedBytesMeter.mark(allocatedBytes);
+        globalRequestBodyCopiedBytesMeter.mark(copiedBytes);
+    }
+
     public void markDelayedProcessing() {
         topicDelayedProcessingMeter.mark();
         globalDelayedProcessingMeter.mark();
@@ -166,4 +218,18 @@ public class CachedTopic {
     public Metered getThroughput() {
         return topicThroughputMeter;
     }
+
+    private static final class StatusCodeMeters {
+        private final int status;
+        private final MetersPair meters;
+
+        StatusCodeMeters(int status, MetersPair meters) {
+            this.status = status;
+            this.meters = meters;
+        }
+
+        void mark() {
+            meters.mark();
+        }
+    }
 }
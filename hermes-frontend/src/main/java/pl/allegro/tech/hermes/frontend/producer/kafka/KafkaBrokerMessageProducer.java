@@ -1,6 +1,5 @@
 package pl.allegro.tech.hermes.frontend.producer.kafka;
 
-import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,9 +30,9 @@ public class KafkaBrokerMessageProducer implements BrokerMessageProducer {
     @Override
     public void send(Message message, CachedTopic cachedTopic, final PublishingCallback callback) {
         String kafkaTopicName = cachedTopic.getKafkaTopics().getPrimary().name().asString();
-        ProducerRecord<byte[], byte[]> producerRecord = new ProducerRecord<>(kafkaTopicName, message.getData());
         try {
-            producers.get(cachedTopic.getTopic()).send(producerRecord, new SendCallback(message, cachedTopic.getTopic(), callback));
+            producers.send(cachedTopic.getTopic(), kafkaTopicName, message.getData(),
+                    new SendCallback(message, cachedTopic.getTopic(), kafkaTopicName, callback));
         } catch (Exception e) {
             // message didn't get to internal producer buffer and it will not be send to a broker
             callback.onUnpublished(message, cachedTopic.getTopic(), e);
@@ -45,7 +44,7 @@ public class KafkaBrokerMessageProducer implements BrokerMessageProducer {
         String kafkaTopicName = cachedTopic.getKafkaTopics().getPrimary().name().asString();
 
         try {
-            if (producers.get(cachedTopic.getTopic()).partitionsFor(kafkaTopicName).size() > 0) {
+            if (producers.partitionsFor(cachedTopic.getTopic(), kafkaTopicName).size() > 0) {
                 return true;
             }
         } catch (Exception e) {
@@ -60,11 +59,13 @@ public class KafkaBrokerMessageProducer implements BrokerMessageProducer {
     private class SendCallback implements org.apache.kafka.clients.producer.Callback {
         private final Message message;
         private final Topic topic;
+        private final String kafkaTopicName;
         private final PublishingCallback callback;
 
-        public SendCallback(Message message, Topic topic, PublishingCallback callback) {
+        public SendCallback(Message message, Topic topic, String kafkaTopicName, PublishingCallback callback) {
             this.message = message;
             this.topic = topic;
+            this.kafkaTopicName = kafkaTopicName;
             this.callback = callback;
         }
 
@@ -73,6 +74,7 @@ public class KafkaBrokerMessageProducer implements BrokerMessageProducer {
             if (e == null) {
                 callback.onPublished(message, topic);
                 producers.maybeRegisterNodeMetricsGauges(metrics);
+                producers.maybeRegisterTopicMetricsGauges(topic, kafkaTopicName, metrics);
             } else {
                 callback.onUnpublished(message, topic, e);
             }
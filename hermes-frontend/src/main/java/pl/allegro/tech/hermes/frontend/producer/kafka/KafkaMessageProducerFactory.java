@@ -4,11 +4,15 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.glassfish.hk2.api.Factory;
+import pl.allegro.tech.hermes.api.ProducerBatching;
 import pl.allegro.tech.hermes.common.config.ConfigFactory;
 import pl.allegro.tech.hermes.common.config.Configs;
+import pl.allegro.tech.hermes.domain.notifications.InternalNotificationsBus;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.kafka.clients.producer.ProducerConfig.*;
@@ -19,10 +23,12 @@ public class KafkaMessageProducerFactory implements Factory<Producers> {
     private static final String ACK_LEADER = "1";
 
     private ConfigFactory configFactory;
+    private InternalNotificationsBus notificationsBus;
 
     @Inject
-    public KafkaMessageProducerFactory(ConfigFactory configFactory) {
+    public KafkaMessageProducerFactory(ConfigFactory configFactory, InternalNotificationsBus notificationsBus) {
         this.configFactory = configFactory;
+        this.notificationsBus = notificationsBus;
     }
 
     @Override
@@ -31,7 +37,6 @@ public class KafkaMessageProducerFactory implements Factory<Producers> {
         common.put(BOOTSTRAP_SERVERS_CONFIG, getString(KAFKA_BROKER_LIST));
         common.put(MAX_BLOCK_MS_CONFIG, getInt(KAFKA_PRODUCER_MAX_BLOCK_MS));
         common.put(COMPRESSION_TYPE_CONFIG, getString(KAFKA_PRODUCER_COMPRESSION_CODEC));
-        common.put(BUFFER_MEMORY_CONFIG, configFactory.getLongProperty(KAFKA_PRODUCER_BUFFER_MEMORY));
         common.put(REQUEST_TIMEOUT_MS_CONFIG, getInt(KAFKA_PRODUCER_REQUEST_TIMEOUT_MS));
         common.put(BATCH_SIZE_CONFIG, getInt(KAFKA_PRODUCER_BATCH_SIZE));
         common.put(SEND_BUFFER_CONFIG, getInt(KAFKA_PRODUCER_TCP_SEND_BUFFER));
@@ -45,13 +50,47 @@ public class KafkaMessageProducerFactory implements Factory<Producers> {
         common.put(METRICS_SAMPLE_WINDOW_MS_CONFIG, getInt(KAFKA_PRODUCER_METRICS_SAMPLE_WINDOW_MS));
         common.put(MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, getInt(KAFKA_PRODUCER_MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION));
 
-        Producer<byte[], byte[]> leaderConfirms = new KafkaProducer<>(copyWithEntryAdded(common, ACKS_CONFIG, ACK_LEADER));
-        Producer<byte[], byte[]> everyoneConfirms = new KafkaProducer<>(copyWithEntryAdded(common, ACKS_CONFIG, ACK_ALL));
-        return new Producers(leaderConfirms, everyoneConfirms, configFactory);
+        int poolSize = getInt(KAFKA_PRODUCER_POOL_SIZE);
+        ProducerStriping striping = ProducerStriping.valueOf(getString(KAFKA_PRODUCER_POOL_STRIPING).toUpperCase());
+        // buffer memory is split between pooled producers, so pool size does not change the total amount of buffered data
+        long pooledBufferMemory = configFactory.getLongProperty(KAFKA_PRODUCER_BUFFER_MEMORY) / poolSize;
+        long dedicatedBufferMemory = configFactory.getLongProperty(KAFKA_PRODUCER_DEDICATED_BUFFER_MEMORY);
+
+        ProducerPool leaderConfirms = pool(common, ACK_LEADER, pooledBufferMemory, poolSize, striping);
+        ProducerPool everyoneConfirms = pool(common, ACK_ALL, pooledBufferMemory, poolSize, striping);
+        Producers producers = new Producers(leaderConfirms, everyoneConfirms,
+                (replicationConfirmRequired, batching) -> new KafkaProducer<>(
+                        dedicatedConfig(common, replicationConfirmRequired ? ACK_ALL : ACK_LEADER, dedicatedBufferMemory, batching)),
+                getInt(KAFKA_PRODUCER_DEDICATED_MAX_COUNT),
+                configFactory);
+        // dedicated producers are closed when topics using them are removed or change their batching
+        notificationsBus.registerTopicCallback(producers);
+        return producers;
+    }
+
+    private ProducerPool pool(Map<String, Object> common, String acks, long bufferMemory, int poolSize, ProducerStriping striping) {
+        List<Producer<byte[], byte[]>> producers = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            producers.add(new KafkaProducer<>(ImmutableMap.<String, Object>builder()
+                    .putAll(common)
+                    .put(ACKS_CONFIG, acks)
+                    .put(BUFFER_MEMORY_CONFIG, bufferMemory)
+                    .build()));
+        }
+        return new ProducerPool(producers, striping);
     }
 
-    private ImmutableMap<String, Object> copyWithEntryAdded(Map<String, Object> common, String key, String value) {
-        return ImmutableMap.<String, Object>builder().putAll(common).put(key, value).build();
+    private Map<String, Object> dedicatedConfig(Map<String, Object> common, String acks, long bufferMemory, ProducerBatching batching) {
+        Map<String, Object> config = new HashMap<>(common);
+        config.put(ACKS_CONFIG, acks);
+        config.put(BUFFER_MEMORY_CONFIG, bufferMemory);
+        if (batching.getLingerMs() != null) {
+            config.put(LINGER_MS_CONFIG, batching.getLingerMs());
+        }
+        if (batching.getBatchSize() != null) {
+            config.put(BATCH_SIZE_CONFIG, batching.getBatchSize());
+        }
+        return config;
     }
 
     private String getString(Configs key) {
@@ -0,0 +1,86 @@
+package pl.allegro.tech.hermes.frontend.producer.kafka;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of producers sharing the same acks setting. Each topic has its home producer chosen by topic name hash. With
+ * {@link ProducerStriping#PARTITION} striping partitions of the topic are assigned round robin and every partition
+ * is handled by its own producer, so a single hot topic is spread over the whole pool. Like Kafka partitioner for
+ * records without key, striping skips partitions without leader. Available partitions of a topic are read from
+ * producer metadata at most once a second, instead of on every send.
+ */
+class ProducerPool {
+
+    private static final long PARTITIONS_REFRESH_MS = 1000;
+    private static final int NO_PARTITION = -1;
+
+    private final List<Producer<byte[], byte[]>> producers;
+    private final ProducerStriping striping;
+    private final ConcurrentMap<String, PartitionCounter> partitionCounters = new ConcurrentHashMap<>();
+
+    ProducerPool(List<Producer<byte[], byte[]>> producers, ProducerStriping striping) {
+        if (producers.isEmpty()) {
+            throw new IllegalArgumentException("Producer pool needs at least one producer");
+        }
+        this.producers = ImmutableList.copyOf(producers);
+        this.striping = striping;
+    }
+
+    static ProducerPool single(Producer<byte[], byte[]> producer) {
+        return new ProducerPool(ImmutableList.of(producer), ProducerStriping.TOPIC);
+    }
+
+    Producer<byte[], byte[]> forTopic(String qualifiedTopicName) {
+        return producers.get(stripe(qualifiedTopicName.hashCode()));
+    }
+
+    void send(String qualifiedTopicName, String kafkaTopicName, byte[] data, Callback callback) {
+        Producer<byte[], byte[]> home = forTopic(qualifiedTopicName);
+        int partition = striping == ProducerStriping.PARTITION && producers.size() > 1
+                ? partitionCounters.computeIfAbsent(kafkaTopicName, name -> new PartitionCounter()).next(home, kafkaTopicName)
+                : NO_PARTITION;
+        if (partition != NO_PARTITION) {
+            producers.get(stripe(qualifiedTopicName.hashCode() + partition))
+                    .send(new ProducerRecord<>(kafkaTopicName, partition, null, data), callback);
+        } else {
+            home.send(new ProducerRecord<>(kafkaTopicName, data), callback);
+        }
+    }
+
+    List<Producer<byte[], byte[]>> producers() {
+        return producers;
+    }
+
+    private int stripe(int hash) {
+        return Math.floorMod(hash, producers.size());
+    }
+
+    private class PartitionCounter {
+        private final AtomicInteger counter = new AtomicInteger();
+        private volatile int[] availablePartitions = new int[0];
+        private volatile long refreshedAt;
+
+        int next(Producer<byte[], byte[]> producer, String kafkaTopicName) {
+            long now = System.currentTimeMillis();
+            if (now - refreshedAt >= PARTITIONS_REFRESH_MS) {
+                availablePartitions = producer.partitionsFor(kafkaTopicName).stream()
+                        .filter(partition -> partition.leader() != null)
+                        .mapToInt(PartitionInfo::partition)
+                        .toArray();
+                refreshedAt = now;
+            }
+            int[] partitions = availablePartitions;
+            // with no partition available, choice is left to Kafka producer, which waits for metadata update
+            return partitions.length > 0 ? partitions[Math.floorMod(counter.getAndIncrement(), partitions.length)] : NO_PARTITION;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package pl.allegro.tech.hermes.frontend.producer.kafka;
+
+public enum ProducerStriping {
+    TOPIC, PARTITION
+}
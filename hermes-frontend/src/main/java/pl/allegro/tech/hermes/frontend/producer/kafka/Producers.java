@@ -1,50 +1,244 @@
 package pl.allegro.tech.hermes.frontend.producer.kafka;
 
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.Metric;
 import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.allegro.tech.hermes.api.ProducerBatching;
 import pl.allegro.tech.hermes.api.Topic;
 import pl.allegro.tech.hermes.common.config.ConfigFactory;
 import pl.allegro.tech.hermes.common.config.Configs;
 import pl.allegro.tech.hermes.common.metric.Gauges;
 import pl.allegro.tech.hermes.common.metric.HermesMetrics;
+import pl.allegro.tech.hermes.domain.notifications.TopicCallback;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
 
 import static pl.allegro.tech.hermes.common.metric.HermesMetrics.escapeDots;
 
 
-public class Producers {
-    private final Producer<byte[], byte[]> leaderConfirms;
-    private final Producer<byte[], byte[]> everyoneConfirms;
+/**
+ * Kafka producers of the frontend. Topics are served by pooled producers, unless they override batching settings.
+ * Those are served by dedicated producers shared by topics with the same ACK level and batching. Dedicated producers
+ * are reference counted by topics using them and closed when the last topic is removed or changes its batching.
+ * Their number is limited, topics that do not fit are served by pooled producers.
+ */
+public class Producers implements TopicCallback {
+    private static final Logger logger = LoggerFactory.getLogger(Producers.class);
+
+    private final ProducerPool leaderConfirms;
+    private final ProducerPool everyoneConfirms;
+    private final DedicatedProducerFactory dedicatedProducerFactory;
+    private final int maxDedicatedProducers;
+    private final ConcurrentMap<DedicatedProducerKey, DedicatedProducer> dedicatedProducers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DedicatedProducerKey> dedicatedTopics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DedicatedProducerKey> overflowTopics = new ConcurrentHashMap<>();
+    private final Object dedicatedLock = new Object();
 
     private boolean reportNodeMetrics;
+    private boolean reportTopicMetrics;
     private AtomicBoolean nodeMetricsRegistered = new AtomicBoolean(false);
+    private Set<String> topicMetricsRegistered = ConcurrentHashMap.newKeySet();
 
     public Producers(Producer<byte[], byte[]> leaderConfirms,
                      Producer<byte[], byte[]> everyoneConfirms,
                      ConfigFactory configFactory) {
+        this(ProducerPool.single(leaderConfirms), ProducerPool.single(everyoneConfirms),
+                (replicationConfirmRequired, batching) -> replicationConfirmRequired ? everyoneConfirms : leaderConfirms,
+                0, configFactory);
+    }
+
+    Producers(ProducerPool leaderConfirms,
+              ProducerPool everyoneConfirms,
+              DedicatedProducerFactory dedicatedProducerFactory,
+              int maxDedicatedProducers,
+              ConfigFactory configFactory) {
         this.leaderConfirms = leaderConfirms;
         this.everyoneConfirms = everyoneConfirms;
+        this.dedicatedProducerFactory = dedicatedProducerFactory;
+        this.maxDedicatedProducers = maxDedicatedProducers;
         this.reportNodeMetrics = configFactory.getBooleanProperty(Configs.KAFKA_PRODUCER_REPORT_NODE_METRICS);
+        this.reportTopicMetrics = configFactory.getBooleanProperty(Configs.KAFKA_PRODUCER_REPORT_TOPIC_METRICS);
+    }
+
+    public List<PartitionInfo> partitionsFor(Topic topic, String kafkaTopicName) {
+        DedicatedProducer dedicated = pinDedicated(topic);
+        if (dedicated == null) {
+            return pool(topic).forTopic(topic.getQualifiedName()).partitionsFor(kafkaTopicName);
+        }
+        try {
+            return dedicated.producer.partitionsFor(kafkaTopicName);
+        } finally {
+            dedicated.unpin();
+        }
+    }
+
+    public void send(Topic topic, String kafkaTopicName, byte[] data, Callback callback) {
+        DedicatedProducer dedicated = pinDedicated(topic);
+        if (dedicated == null) {
+            pool(topic).send(topic.getQualifiedName(), kafkaTopicName, data, callback);
+            return;
+        }
+        try {
+            dedicated.producer.send(new ProducerRecord<>(kafkaTopicName, data), callback);
+        } finally {
+            dedicated.unpin();
+        }
+    }
+
+    @Override
+    public void onTopicRemoved(Topic topic) {
+        release(topic.getQualifiedName());
+    }
+
+    @Override
+    public void onTopicChanged(Topic topic) {
+        DedicatedProducerKey current = dedicatedTopics.getOrDefault(topic.getQualifiedName(),
+                overflowTopics.get(topic.getQualifiedName()));
+        if (current != null && !current.equals(dedicatedProducerKey(topic))) {
+            release(topic.getQualifiedName());
+        }
+    }
+
+    private static boolean hasBatchingOverride(Topic topic) {
+        return topic.getProducerBatching() != null && topic.getProducerBatching().isOverridden();
+    }
+
+    private static DedicatedProducerKey dedicatedProducerKey(Topic topic) {
+        return hasBatchingOverride(topic)
+                ? new DedicatedProducerKey(topic.isReplicationConfirmRequired(), topic.getProducerBatching()) : null;
     }
 
-    public Producer<byte[], byte[]> get(Topic topic) {
+    private ProducerPool pool(Topic topic) {
         return topic.isReplicationConfirmRequired() ? everyoneConfirms : leaderConfirms;
     }
 
+    /**
+     * Returns dedicated producer of the topic, pinned so that it is not closed until unpinned, even if the topic
+     * is concurrently removed or changes its batching.
+     */
+    private DedicatedProducer pinDedicated(Topic topic) {
+        while (true) {
+            DedicatedProducer dedicated = dedicated(topic);
+            if (dedicated == null || dedicated.pin()) {
+                return dedicated;
+            }
+            // producer has just been closed, so the topic no longer uses it
+        }
+    }
+
+    private DedicatedProducer dedicated(Topic topic) {
+        String qualifiedTopicName = topic.getQualifiedName();
+        DedicatedProducerKey key = dedicatedProducerKey(topic);
+        if (key == null) {
+            if (dedicatedTopics.containsKey(qualifiedTopicName) || overflowTopics.containsKey(qualifiedTopicName)) {
+                release(qualifiedTopicName);
+            }
+            return null;
+        }
+        if (key.equals(overflowTopics.get(qualifiedTopicName))) {
+            return null;
+        }
+        if (key.equals(dedicatedTopics.get(qualifiedTopicName))) {
+            DedicatedProducer dedicated = dedicatedProducers.get(key);
+            if (dedicated != null) {
+                return dedicated;
+            }
+        }
+        return acquire(qualifiedTopicName, key);
+    }
+
+    private DedicatedProducer acquire(String qualifiedTopicName, DedicatedProducerKey key) {
+        DedicatedProducer unused;
+        DedicatedProducer dedicated;
+        synchronized (dedicatedLock) {
+            unused = detach(qualifiedTopicName);
+            dedicated = dedicatedProducers.get(key);
+            if (dedicated == null && dedicatedProducers.size() < maxDedicatedProducers) {
+                dedicated = new DedicatedProducer(dedicatedProducerFactory.create(key.replicationConfirmRequired, key.batching));
+                dedicatedProducers.put(key, dedicated);
+            }
+            if (dedicated != null) {
+                dedicated.topics.add(qualifiedTopicName);
+                dedicatedTopics.put(qualifiedTopicName, key);
+            } else {
+                overflowTopics.put(qualifiedTopicName, key);
+            }
+        }
+        retire(unused);
+        if (dedicated == null) {
+            logger.warn("Limit of {} dedicated producers reached, topic {} with batching {} is served by pooled producers",
+                    maxDedicatedProducers, qualifiedTopicName, key.batching);
+        }
+        return dedicated;
+    }
+
+    private void release(String qualifiedTopicName) {
+        DedicatedProducer unused;
+        synchronized (dedicatedLock) {
+            unused = detach(qualifiedTopicName);
+            overflowTopics.remove(qualifiedTopicName);
+        }
+        retire(unused);
+    }
+
+    /**
+     * Removes topic from its dedicated producer and returns the producer if no other topic uses it. Topics that did
+     * not get a dedicated producer before are given another chance, since the limit is no longer reached.
+     */
+    private DedicatedProducer detach(String qualifiedTopicName) {
+        DedicatedProducerKey key = dedicatedTopics.remove(qualifiedTopicName);
+        DedicatedProducer dedicated = key != null ? dedicatedProducers.get(key) : null;
+        if (dedicated == null) {
+            return null;
+        }
+        dedicated.topics.remove(qualifiedTopicName);
+        if (!dedicated.topics.isEmpty()) {
+            return null;
+        }
+        dedicatedProducers.remove(key);
+        overflowTopics.clear();
+        return dedicated;
+    }
+
+    private void retire(DedicatedProducer dedicated) {
+        if (dedicated != null) {
+            dedicated.retire();
+        }
+    }
+
     public void registerGauges(HermesMetrics metrics) {
-        registerTotalBytesGauge(leaderConfirms, metrics, Gauges.LEADER_CONFIRMS_BUFFER_TOTAL_BYTES);
-        registerAvailableBytesGauge(leaderConfirms, metrics, Gauges.LEADER_CONFIRMS_BUFFER_AVAILABLE_BYTES);
-        registerTotalBytesGauge(everyoneConfirms, metrics, Gauges.EVERYONE_CONFIRMS_BUFFER_TOTAL_BYTES);
-        registerAvailableBytesGauge(everyoneConfirms, metrics, Gauges.EVERYONE_CONFIRMS_BUFFER_AVAILABLE_BYTES);
-        registerCompressionRateGauge(leaderConfirms, metrics, Gauges.LEADER_CONFIRMS_COMPRESSION_RATE);
-        registerCompressionRateGauge(everyoneConfirms, metrics, Gauges.EVERYONE_CONFIRMS_COMPRESSION_RATE);
+        Supplier<Stream<Producer<byte[], byte[]>>> leader = () -> allProducers(leaderConfirms, false);
+        Supplier<Stream<Producer<byte[], byte[]>>> everyone = () -> allProducers(everyoneConfirms, true);
+        registerProducerGauge(leader, metrics, "buffer-total-bytes", Gauges.LEADER_CONFIRMS_BUFFER_TOTAL_BYTES, Aggregation.SUM);
+        registerProducerGauge(leader, metrics, "buffer-available-bytes", Gauges.LEADER_CONFIRMS_BUFFER_AVAILABLE_BYTES, Aggregation.SUM);
+        registerProducerGauge(everyone, metrics, "buffer-total-bytes", Gauges.EVERYONE_CONFIRMS_BUFFER_TOTAL_BYTES, Aggregation.SUM);
+        registerProducerGauge(everyone, metrics, "buffer-available-bytes", Gauges.EVERYONE_CONFIRMS_BUFFER_AVAILABLE_BYTES, Aggregation.SUM);
+        registerProducerGauge(leader, metrics, "compression-rate-avg", Gauges.LEADER_CONFIRMS_COMPRESSION_RATE, Aggregation.AVG);
+        registerProducerGauge(everyone, metrics, "compression-rate-avg", Gauges.EVERYONE_CONFIRMS_COMPRESSION_RATE, Aggregation.AVG);
+        registerProducerGauge(leader, metrics, "records-per-request-avg", Gauges.LEADER_CONFIRMS_RECORDS_PER_REQUEST, Aggregation.AVG);
+        registerProducerGauge(everyone, metrics, "records-per-request-avg", Gauges.EVERYONE_CONFIRMS_RECORDS_PER_REQUEST, Aggregation.AVG);
+        registerProducerGauge(leader, metrics, "batch-size-avg", Gauges.LEADER_CONFIRMS_BATCH_SIZE, Aggregation.AVG);
+        registerProducerGauge(everyone, metrics, "batch-size-avg", Gauges.EVERYONE_CONFIRMS_BATCH_SIZE, Aggregation.AVG);
+        registerProducerGauge(leader, metrics, "record-queue-time-avg", Gauges.LEADER_CONFIRMS_RECORD_QUEUE_TIME, Aggregation.AVG);
+        registerProducerGauge(everyone, metrics, "record-queue-time-avg", Gauges.EVERYONE_CONFIRMS_RECORD_QUEUE_TIME, Aggregation.AVG);
     }
 
     public void maybeRegisterNodeMetricsGauges(HermesMetrics metrics) {
@@ -53,71 +247,194 @@ public class Producers {
         }
     }
 
-    private void registerLatencyPerBrokerGauge(HermesMetrics metrics) {
-        List<Node> brokers = ProducerBrokerNodeReader.read(leaderConfirms);
-        registerLatencyPerBrokerGauge(everyoneConfirms, metrics, "request-latency-avg", "everyone-confirms", brokers);
-        registerLatencyPerBrokerGauge(leaderConfirms, metrics, "request-latency-avg", "leader-confirms", brokers);
-        registerLatencyPerBrokerGauge(everyoneConfirms, metrics, "request-latency-max", "everyone-confirms", brokers);
-        registerLatencyPerBrokerGauge(leaderConfirms, metrics, "request-latency-max", "leader-confirms", brokers);
-    }
-
-    private void registerCompressionRateGauge(Producer<byte[], byte[]> producer, HermesMetrics metrics, String gauge) {
-        registerProducerGauge(producer, metrics, new MetricName("compression-rate-avg", "producer-metrics"), gauge);
+    public void maybeRegisterTopicMetricsGauges(Topic topic, String kafkaTopicName, HermesMetrics metrics) {
+        if (reportTopicMetrics && topicMetricsRegistered.add(kafkaTopicName)) {
+            // topic may move between pool and dedicated producers when its batching changes, so all of them are asked
+            Supplier<Stream<Producer<byte[], byte[]>>> all = () -> Stream.concat(
+                    allProducers(leaderConfirms, false),
+                    allProducers(everyoneConfirms, true));
+            registerTopicGauge(all, metrics, topic, kafkaTopicName, "record-send-rate",
+                    Gauges.PRODUCER_TOPIC_RECORD_SEND_RATE, Aggregation.SUM);
+            registerTopicGauge(all, metrics, topic, kafkaTopicName, "byte-rate",
+                    Gauges.PRODUCER_TOPIC_BYTE_RATE, Aggregation.SUM);
+            registerTopicGauge(all, metrics, topic, kafkaTopicName, "compression-rate",
+                    Gauges.PRODUCER_TOPIC_COMPRESSION_RATE, Aggregation.AVG);
+        }
     }
 
-    private void registerTotalBytesGauge(Producer<byte[], byte[]> producer, HermesMetrics metrics, String gauge) {
-        registerProducerGauge(producer, metrics, new MetricName("buffer-total-bytes", "producer-metrics"), gauge);
+    private void registerLatencyPerBrokerGauge(HermesMetrics metrics) {
+        List<Node> brokers = ProducerBrokerNodeReader.read(leaderConfirms.producers().get(0));
+        Supplier<Stream<Producer<byte[], byte[]>>> leader = () -> allProducers(leaderConfirms, false);
+        Supplier<Stream<Producer<byte[], byte[]>>> everyone = () -> allProducers(everyoneConfirms, true);
+        registerLatencyPerBrokerGauge(everyone, metrics, "request-latency-avg", "everyone-confirms", brokers);
+        registerLatencyPerBrokerGauge(leader, metrics, "request-latency-avg", "leader-confirms", brokers);
+        registerLatencyPerBrokerGauge(everyone, metrics, "request-latency-max", "everyone-confirms", brokers);
+        registerLatencyPerBrokerGauge(leader, metrics, "request-latency-max", "leader-confirms", brokers);
     }
 
-    private void registerAvailableBytesGauge(Producer<byte[], byte[]> producer, HermesMetrics metrics, String gauge) {
-        registerProducerGauge(producer, metrics, new MetricName("buffer-available-bytes", "producer-metrics"), gauge);
+    private void registerProducerGauge(Supplier<Stream<Producer<byte[], byte[]>>> producers,
+                                       HermesMetrics metrics,
+                                       String metricName,
+                                       String gauge,
+                                       Aggregation aggregation) {
+        MetricName name = new MetricName(metricName, "producer-metrics");
+        Predicate<Map.Entry<MetricName, ? extends Metric>> predicate =
+                entry -> entry.getKey().group().equals(name.group()) && entry.getKey().name().equals(name.name());
+        metrics.registerGauge(gauge, () -> aggregate(producers, predicate, aggregation));
     }
 
-    private void registerProducerGauge(final Producer<byte[], byte[]> producer,
-                                       final HermesMetrics metrics,
-                                       final MetricName name,
-                                       final String gauge) {
-
-        registerGauge(producer, metrics, gauge,
-                entry -> entry.getKey().group().equals(name.group()) && entry.getKey().name().equals(name.name()));
+    private void registerTopicGauge(Supplier<Stream<Producer<byte[], byte[]>>> producers,
+                                    HermesMetrics metrics,
+                                    Topic topic,
+                                    String kafkaTopicName,
+                                    String metricName,
+                                    String gauge,
+                                    Aggregation aggregation) {
+        Predicate<Map.Entry<MetricName, ? extends Metric>> predicate =
+                entry -> entry.getKey().group().equals("producer-topic-metrics")
+                        && entry.getKey().name().equals(metricName)
+                        && kafkaTopicName.equals(entry.getKey().tags().get("topic"));
+        metrics.registerGauge(gauge, topic.getName(), () -> aggregate(producers, predicate, aggregation));
     }
 
-    private void registerLatencyPerBrokerGauge(Producer<byte[], byte[]> producer,
+    private void registerLatencyPerBrokerGauge(Supplier<Stream<Producer<byte[], byte[]>>> producers,
                                                HermesMetrics metrics,
                                                String metricName,
                                                String producerName,
                                                List<Node> brokers) {
         for (Node broker : brokers) {
-            registerLatencyPerBrokerGauge(producer, metrics, metricName, producerName, broker);
+            registerLatencyPerBrokerGauge(producers, metrics, metricName, producerName, broker);
         }
     }
 
-    private void registerLatencyPerBrokerGauge(Producer<byte[], byte[]> producer,
+    private void registerLatencyPerBrokerGauge(Supplier<Stream<Producer<byte[], byte[]>>> producers,
                                                HermesMetrics metrics,
                                                String metricName,
                                                String producerName,
                                                Node node) {
 
         String gauge = Gauges.JMX_PREFIX + "." + producerName + "-" + metricName + "." + escapeDots(node.host());
-        registerGauge(producer, metrics, gauge,
+        Predicate<Map.Entry<MetricName, ? extends Metric>> predicate =
                 entry -> entry.getKey().group().equals("producer-node-metrics")
                         && entry.getKey().name().equals(metricName)
-                        && entry.getKey().tags().containsValue("node-" + node.id()));
+                        && entry.getKey().tags().containsValue("node-" + node.id());
+        metrics.registerGauge(gauge, () -> aggregate(producers, predicate, Aggregation.MAX));
+    }
 
+    private double aggregate(Supplier<Stream<Producer<byte[], byte[]>>> producers,
+                             Predicate<Map.Entry<MetricName, ? extends Metric>> predicate,
+                             Aggregation aggregation) {
+        DoubleStream values = producers.get()
+                .flatMap(producer -> producer.metrics().entrySet().stream().filter(predicate).limit(1))
+                .mapToDouble(entry -> entry.getValue().value())
+                .filter(value -> value >= 0 && !Double.isNaN(value));
+        return aggregation.apply(values);
     }
 
-    private void registerGauge(Producer<byte[], byte[]> producer, HermesMetrics metrics, String gauge,
-                               Predicate<Map.Entry<MetricName, ? extends Metric>> predicate) {
-        metrics.registerGauge(gauge, () -> {
-            Optional<? extends Map.Entry<MetricName, ? extends Metric>> first =
-                    producer.metrics().entrySet().stream().filter(predicate).findFirst();
-            double value = first.isPresent() ? first.get().getValue().value() : 0.0;
-            return value < 0? 0.0 : value;
-        });
+    private Stream<Producer<byte[], byte[]>> allProducers(ProducerPool pool, boolean replicationConfirmRequired) {
+        Stream<Producer<byte[], byte[]>> dedicated = dedicatedProducers.entrySet().stream()
+                .filter(entry -> entry.getKey().replicationConfirmRequired == replicationConfirmRequired)
+                .map(entry -> entry.getValue().producer);
+        return Stream.concat(pool.producers().stream(), dedicated).distinct();
     }
 
     public void close() {
-        everyoneConfirms.close();
-        leaderConfirms.close();
+        Stream.concat(allProducers(everyoneConfirms, true), allProducers(leaderConfirms, false))
+                .distinct()
+                .forEach(Producer::close);
+    }
+
+    private enum Aggregation {
+        SUM, AVG, MAX;
+
+        double apply(DoubleStream values) {
+            switch (this) {
+                case SUM:
+                    return values.sum();
+                case MAX:
+                    return values.max().orElse(0.0);
+                default:
+                    return values.average().orElse(0.0);
+            }
+        }
+    }
+
+    private static final class DedicatedProducerKey {
+        private final boolean replicationConfirmRequired;
+        private final ProducerBatching batching;
+
+        private DedicatedProducerKey(boolean replicationConfirmRequired, ProducerBatching batching) {
+            this.replicationConfirmRequired = replicationConfirmRequired;
+            this.batching = batching;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DedicatedProducerKey that = (DedicatedProducerKey) o;
+            return replicationConfirmRequired == that.replicationConfirmRequired
+                    && Objects.equals(batching, that.batching);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(replicationConfirmRequired, batching);
+        }
+    }
+
+    /**
+     * Dedicated producer with topics using it, guarded by dedicated lock, and number of sends in progress. Producer
+     * retired when no topic uses it is closed by whoever finishes the last send, so sends never hit closed producer.
+     */
+    private static final class DedicatedProducer {
+        private static final int CLOSED = -1;
+
+        private final Producer<byte[], byte[]> producer;
+        private final Set<String> topics = new HashSet<>();
+        private final AtomicInteger pins = new AtomicInteger();
+        private volatile boolean retired;
+
+        private DedicatedProducer(Producer<byte[], byte[]> producer) {
+            this.producer = producer;
+        }
+
+        boolean pin() {
+            while (true) {
+                int current = pins.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+                if (pins.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void unpin() {
+            if (pins.decrementAndGet() == 0 && retired) {
+                closeIfUnpinned();
+            }
+        }
+
+        void retire() {
+            retired = true;
+            closeIfUnpinned();
+        }
+
+        private void closeIfUnpinned() {
+            if (pins.compareAndSet(0, CLOSED)) {
+                logger.info("Closing dedicated producer no longer used by any topic");
+                producer.close();
+            }
+        }
+    }
+
+    interface DedicatedProducerFactory {
+        Producer<byte[], byte[]> create(boolean replicationConfirmRequired, ProducerBatching batching);
     }
 }
@@ -15,6 +15,7 @@ import pl.allegro.tech.hermes.frontend.producer.BrokerMessageProducer;
 import pl.allegro.tech.hermes.frontend.publishing.handlers.end.MessageEndProcessor;
 import pl.allegro.tech.hermes.frontend.publishing.handlers.end.MessageErrorProcessor;
 import pl.allegro.tech.hermes.frontend.publishing.message.MessageFactory;
+import pl.allegro.tech.hermes.frontend.publishing.message.MessageIdGenerator;
 import pl.allegro.tech.hermes.frontend.publishing.preview.MessagePreviewLog;
 import pl.allegro.tech.hermes.frontend.server.auth.AuthenticationConfiguration;
 import pl.allegro.tech.hermes.frontend.server.auth.AuthenticationConfigurationProvider;
@@ -38,12 +39,14 @@ public class HandlersChainFactory implements Factory<HttpHandler> {
     private final boolean previewEnabled;
     private final ThroughputLimiter throughputLimiter;
     private final AuthenticationConfigurationProvider authenticationConfigurationProvider;
+    private final MessageIdGenerator messageIdGenerator;
 
     @Inject
     public HandlersChainFactory(TopicsCache topicsCache, MessageErrorProcessor messageErrorProcessor,
                                 MessageEndProcessor messageEndProcessor, ConfigFactory configFactory, MessageFactory messageFactory,
                                 BrokerMessageProducer brokerMessageProducer, MessagePreviewLog messagePreviewLog,
-                                ThroughputLimiter throughputLimiter, AuthenticationConfigurationProvider authConfigProvider) {
+                                ThroughputLimiter throughputLimiter, AuthenticationConfigurationProvider authConfigProvider,
+                                MessageIdGenerator messageIdGenerator) {
         this.topicsCache = topicsCache;
         this.messageErrorProcessor = messageErrorProcessor;
         this.messageEndProcessor = messageEndProcessor;
@@ -54,6 +57,7 @@ public class HandlersChainFactory implements Factory<HttpHandler> {
         this.previewEnabled = configFactory.getBooleanProperty(Configs.FRONTEND_MESSAGE_PREVIEW_ENABLED);
         this.throughputLimiter = throughputLimiter;
         this.authenticationConfigurationProvider = authConfigProvider;
+        this.messageIdGenerator = messageIdGenerator;
     }
 
     @Override
@@ -64,7 +68,7 @@ public class HandlersChainFactory implements Factory<HttpHandler> {
         HttpHandler handlerAfterRead = previewEnabled ? new PreviewHandler(messageCreateHandler, previewLog) : messageCreateHandler;
         HttpHandler readHandler = new MessageReadHandler(handlerAfterRead, timeoutHandler, configFactory,
                                                                 messageErrorProcessor, throughputLimiter);
-        TopicHandler topicHandler = new TopicHandler(readHandler, topicsCache, messageErrorProcessor);
+        TopicHandler topicHandler = new TopicHandler(readHandler, topicsCache, messageErrorProcessor, messageIdGenerator);
 
         boolean authenticationEnabled = configFactory.getBooleanProperty(FRONTEND_AUTHENTICATION_ENABLED);
         return authenticationEnabled ? withAuthenticationHandlersChain(topicHandler) : topicHandler;
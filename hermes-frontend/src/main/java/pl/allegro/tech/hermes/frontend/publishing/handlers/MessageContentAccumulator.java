@@ -0,0 +1,80 @@
+package pl.allegro.tech.hermes.frontend.publishing.handlers;
+
+import java.util.Arrays;
+
+final class MessageContentAccumulator {
+
+    private static final byte[] EMPTY_CONTENT = new byte[0];
+
+    private final int initialCapacity;
+
+    private byte[] content;
+    private int size;
+    private long allocatedBytes;
+    private long copiedBytes;
+
+    private MessageContentAccumulator(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+    }
+
+    static MessageContentAccumulator growing() {
+        return new MessageContentAccumulator(0);
+    }
+
+    static MessageContentAccumulator presized(long expectedContentLength, int maxCapacity) {
+        if (expectedContentLength <= 0) {
+            return growing();
+        }
+        return new MessageContentAccumulator((int) Math.min(expectedContentLength, maxCapacity));
+    }
+
+    void append(byte[] chunk) {
+        if (content == null && chunk.length >= initialCapacity) {
+            // Undertow hands over a fresh array for every chunk, so it can be owned without copying
+            content = chunk;
+            size = chunk.length;
+            return;
+        }
+        ensureCapacity(size + chunk.length);
+        System.arraycopy(chunk, 0, content, size, chunk.length);
+        size += chunk.length;
+        copiedBytes += chunk.length;
+    }
+
+    byte[] toByteArray() {
+        if (content == null) {
+            return EMPTY_CONTENT;
+        }
+        if (size != content.length) {
+            content = copy(content, size);
+        }
+        return content;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    private void ensureCapacity(int requiredCapacity) {
+        if (content == null) {
+            content = new byte[Math.max(initialCapacity, requiredCapacity)];
+            allocatedBytes += content.length;
+        } else if (requiredCapacity > content.length) {
+            content = copy(content, Math.max(requiredCapacity, content.length << 1));
+        }
+    }
+
+    private byte[] copy(byte[] source, int newLength) {
+        allocatedBytes += newLength;
+        copiedBytes += Math.min(size, newLength);
+        return Arrays.copyOf(source, newLength);
+    }
+}
@@ -10,7 +10,6 @@ import pl.allegro.tech.hermes.common.metric.timer.StartedTimersPair;
 import pl.allegro.tech.hermes.frontend.publishing.handlers.end.MessageErrorProcessor;
 import pl.allegro.tech.hermes.frontend.publishing.message.MessageState;
 
-import java.io.ByteArrayOutputStream;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -29,6 +28,7 @@ class MessageReadHandler implements HttpHandler {
     private final int defaultAsyncTimeout;
     private final int longAsyncTimeout;
     private final ThroughputLimiter throughputLimiter;
+    private final boolean presizedBufferEnabled;
 
     MessageReadHandler(HttpHandler next, HttpHandler timeoutHandler, ConfigFactory configFactory,
                        MessageErrorProcessor messageErrorProcessor,  ThroughputLimiter throughputLimiter) {
@@ -39,6 +39,7 @@ class MessageReadHandler implements HttpHandler {
         this.defaultAsyncTimeout = configFactory.getIntProperty(Configs.FRONTEND_IDLE_TIMEOUT);
         this.longAsyncTimeout = configFactory.getIntProperty(Configs.FRONTEND_LONG_IDLE_TIMEOUT);
         this.throughputLimiter = throughputLimiter;
+        this.presizedBufferEnabled = configFactory.getBooleanProperty(Configs.FRONTEND_REQUEST_PRESIZED_BUFFER_ENABLED);
     }
 
     @Override
@@ -74,7 +75,7 @@ class MessageReadHandler implements HttpHandler {
     }
 
     private void readMessage(HttpServerExchange exchange, AttachmentContent attachment) {
-        ByteArrayOutputStream messageContent = new ByteArrayOutputStream();
+        MessageContentAccumulator messageContent = createAccumulator(exchange, attachment);
         MessageState state = attachment.getMessageState();
 
         StartedTimersPair readingTimers = attachment.getCachedTopic().startRequestReadTimers();
@@ -100,19 +101,29 @@ class MessageReadHandler implements HttpHandler {
         }
     }
 
-    private Receiver.PartialBytesCallback partialMessageRead(MessageState state, ByteArrayOutputStream messageContent,
+    private MessageContentAccumulator createAccumulator(HttpServerExchange exchange, AttachmentContent attachment) {
+        if (presizedBufferEnabled) {
+            return MessageContentAccumulator.presized(exchange.getRequestContentLength(), attachment.getTopic().getMaxMessageSize());
+        }
+        return MessageContentAccumulator.growing();
+    }
+
+    private Receiver.PartialBytesCallback partialMessageRead(MessageState state, MessageContentAccumulator messageContent,
                                                              StartedTimersPair readingTimers, AttachmentContent attachment) {
         return (exchange, message, last) -> {
             if (state.isReadingTimeout()) {
                 endWithoutDefaultResponse(exchange);
                 return;
             }
-            messageContent.write(message, 0, message.length);
+            messageContent.append(message);
 
             if (last) {
                 if (state.setFullyRead()) {
                     readingTimers.close();
-                    messageRead(exchange, messageContent.toByteArray(), attachment);
+                    byte[] content = messageContent.toByteArray();
+                    attachment.getCachedTopic().reportRequestBodyBuffer(
+                            messageContent.getAllocatedBytes(), messageContent.getCopiedBytes());
+                    messageRead(exchange, content, attachment);
                 } else {
                     endWithoutDefaultResponse(exchange);
                 }
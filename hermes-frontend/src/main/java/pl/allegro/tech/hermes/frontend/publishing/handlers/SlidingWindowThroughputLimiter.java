@@ -0,0 +1,158 @@
+package pl.allegro.tech.hermes.frontend.publishing.handlers;
+
+import com.codahale.metrics.Counting;
+import com.codahale.metrics.Metered;
+import pl.allegro.tech.hermes.api.TopicName;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static pl.allegro.tech.hermes.frontend.publishing.handlers.ThroughputLimiter.QuotaInsight.globalQuotaViolation;
+import static pl.allegro.tech.hermes.frontend.publishing.handlers.ThroughputLimiter.QuotaInsight.quotaConfirmed;
+import static pl.allegro.tech.hermes.frontend.publishing.handlers.ThroughputLimiter.QuotaInsight.quotaViolation;
+
+/**
+ * Limits topics the same way as {@link DynamicThroughputLimiter}, but measures throughput over a sliding window of
+ * per second samples of meter counts instead of reading exponentially weighted rates on every request. Rates and
+ * limits are recomputed by a single background task once a second and published per topic as immutable quotas,
+ * so checking quota is a map lookup and two volatile reads.
+ */
+public class SlidingWindowThroughputLimiter implements ThroughputLimiter, Runnable {
+    private final long max;
+    private final long threshold;
+    private final long desired;
+    private final double idleThreshold;
+    private final int windowSeconds;
+    private final Window globalThroughput;
+
+    private final ScheduledExecutorService executor;
+    private final int checkInterval;
+
+    private final ConcurrentHashMap<TopicName, Throughput> users = new ConcurrentHashMap<>();
+
+    private volatile boolean globalQuotaExceeded;
+    private long ticks;
+
+    public SlidingWindowThroughputLimiter(long max,
+                                          long threshold,
+                                          long desired,
+                                          double idleThreshold,
+                                          int checkInterval,
+                                          int windowSeconds,
+                                          Counting globalThroughput,
+                                          ScheduledExecutorService executor) {
+        this.max = max;
+        this.threshold = threshold;
+        this.desired = desired;
+        this.idleThreshold = idleThreshold;
+        this.checkInterval = Math.max(1, checkInterval);
+        this.windowSeconds = Math.max(1, windowSeconds);
+        this.globalThroughput = new Window(globalThroughput, this.windowSeconds);
+        this.executor = executor;
+    }
+
+    @Override
+    public QuotaInsight checkQuota(TopicName topic, Metered rate) {
+        Throughput throughput = users.get(topic);
+        if (throughput == null) {
+            throughput = users.computeIfAbsent(topic, name -> new Throughput(new Window(rate, windowSeconds), max));
+        }
+        Quota quota = throughput.quota;
+        if (quota.rate > quota.max) {
+            return quotaViolation(quota.rate, quota.max);
+        } else if (globalQuotaExceeded) {
+            return globalQuotaViolation();
+        } else {
+            return quotaConfirmed();
+        }
+    }
+
+    @Override
+    public void start() {
+        executor.scheduleAtFixedRate(this, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void run() {
+        long globalRate = globalThroughput.sample();
+        users.values().forEach(Throughput::sample);
+        globalQuotaExceeded = globalRate > max;
+
+        if (++ticks % checkInterval == 0 && globalRate > threshold) {
+            calibrateLimits();
+        }
+    }
+
+    private void calibrateLimits() {
+        users.values().removeIf(throughput -> throughput.quota.rate <= idleThreshold);
+        int userCount = users.size();
+        if (userCount > 0) {
+            long total = 0;
+            for (Throughput throughput : users.values()) {
+                total += throughput.quota.rate;
+            }
+            long mean = total / userCount;
+            long desiredMean = desired / userCount;
+            for (Throughput throughput : users.values()) {
+                if (throughput.quota.rate >= mean) {
+                    throughput.quota = new Quota(throughput.quota.rate, desiredMean);
+                }
+            }
+        }
+    }
+
+    private static class Throughput {
+        final Window window;
+        volatile Quota quota;
+
+        Throughput(Window window, long max) {
+            this.window = window;
+            this.quota = new Quota(0, max);
+        }
+
+        void sample() {
+            quota = new Quota(window.sample(), quota.max);
+        }
+    }
+
+    private static class Quota {
+        final long rate;
+        final long max;
+
+        Quota(long rate, long max) {
+            this.rate = rate;
+            this.max = max;
+        }
+    }
+
+    /**
+     * Ring of meter counts sampled once a second, accessed only by the task recalculating limits.
+     */
+    private static class Window {
+        private final Counting counting;
+        private final long[] samples;
+        private int samplesTaken;
+
+        Window(Counting counting, int seconds) {
+            this.counting = counting;
+            this.samples = new long[seconds + 1];
+            this.samples[0] = counting.getCount();
+            this.samplesTaken = 1;
+        }
+
+        long sample() {
+            long count = counting.getCount();
+            samples[samplesTaken % samples.length] = count;
+            samplesTaken++;
+            int span = Math.min(samplesTaken, samples.length) - 1;
+            long oldest = samples[(samplesTaken - 1 - span) % samples.length];
+            return (count - oldest) / span;
+        }
+    }
+}
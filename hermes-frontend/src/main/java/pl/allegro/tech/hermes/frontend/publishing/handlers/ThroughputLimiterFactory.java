@@ -20,7 +20,7 @@ public class ThroughputLimiterFactory implements Factory<ThroughputLimiter> {
     private ConfigFactory configs;
     private HermesMetrics hermesMetrics;
 
-    private enum ThroughputLimiterType { UNLIMITED, FIXED, DYNAMIC }
+    private enum ThroughputLimiterType { UNLIMITED, FIXED, DYNAMIC, SLIDING_WINDOW }
 
     @Inject
     public ThroughputLimiterFactory(ConfigFactory configs, HermesMetrics hermesMetrics) {
@@ -45,6 +45,17 @@ public class ThroughputLimiterFactory implements Factory<ThroughputLimiter> {
                         hermesMetrics.meter(Meters.THROUGHPUT_BYTES),
                         getExecutor()
                         );
+            case SLIDING_WINDOW:
+                return new SlidingWindowThroughputLimiter(
+                        configs.getLongProperty(Configs.FRONTEND_THROUGHPUT_DYNAMIC_MAX),
+                        configs.getLongProperty(Configs.FRONTEND_THROUGHPUT_DYNAMIC_THRESHOLD),
+                        configs.getLongProperty(Configs.FRONTEND_THROUGHPUT_DYNAMIC_DESIRED),
+                        configs.getDoubleProperty(Configs.FRONTEND_THROUGHPUT_DYNAMIC_IDLE),
+                        configs.getIntProperty(Configs.FRONTEND_THROUGHPUT_DYNAMIC_CHECK_INTERVAL),
+                        configs.getIntProperty(Configs.FRONTEND_THROUGHPUT_SLIDING_WINDOW_SECONDS),
+                        hermesMetrics.meter(Meters.THROUGHPUT_BYTES),
+                        getExecutor()
+                );
             default:
                 throw new IllegalArgumentException("Unknown throughput limiter type.");
         }
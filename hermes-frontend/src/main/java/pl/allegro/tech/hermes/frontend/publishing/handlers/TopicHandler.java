@@ -27,11 +27,14 @@ class TopicHandler implements HttpHandler {
     private final HttpHandler next;
     private final TopicsCache topicsCache;
     private final MessageErrorProcessor messageErrorProcessor;
+    private final MessageIdGenerator messageIdGenerator;
 
-    TopicHandler(HttpHandler next, TopicsCache topicsCache, MessageErrorProcessor messageErrorProcessor) {
+    TopicHandler(HttpHandler next, TopicsCache topicsCache, MessageErrorProcessor messageErrorProcessor,
+                 MessageIdGenerator messageIdGenerator) {
         this.next = next;
         this.topicsCache = topicsCache;
         this.messageErrorProcessor = messageErrorProcessor;
+        this.messageIdGenerator = messageIdGenerator;
     }
 
     @Override
@@ -42,7 +45,7 @@ class TopicHandler implements HttpHandler {
             return;
         }
 
-        String messageId = MessageIdGenerator.generate();
+        String messageId = messageIdGenerator.generate();
 
         onRequestValid(exchange, messageId, cachedTopic -> {
             exchange.addExchangeCompleteListener(new ExchangeMetrics(cachedTopic));
@@ -1,10 +1,10 @@
 package pl.allegro.tech.hermes.frontend.publishing.message;
 
-import java.util.UUID;
+/**
+ * Generates identifiers of published messages. Identifiers have to be unique across all Frontend instances and
+ * should be formatted as UUID, as this is the format expected by clients and trackers.
+ */
+public interface MessageIdGenerator {
 
-public class MessageIdGenerator {
-
-    public static String generate() {
-        return UUID.randomUUID().toString();
-    }
+    String generate();
 }
@@ -0,0 +1,36 @@
+package pl.allegro.tech.hermes.frontend.publishing.message;
+
+import org.glassfish.hk2.api.Factory;
+import pl.allegro.tech.hermes.common.config.ConfigFactory;
+import pl.allegro.tech.hermes.common.config.Configs;
+
+import javax.inject.Inject;
+
+public class MessageIdGeneratorFactory implements Factory<MessageIdGenerator> {
+
+    private final ConfigFactory configFactory;
+
+    private enum MessageIdGeneratorType { UUID, TIME_ORDERED }
+
+    @Inject
+    public MessageIdGeneratorFactory(ConfigFactory configFactory) {
+        this.configFactory = configFactory;
+    }
+
+    @Override
+    public MessageIdGenerator provide() {
+        switch (MessageIdGeneratorType.valueOf(configFactory.getStringProperty(Configs.FRONTEND_MESSAGE_ID_GENERATOR).toUpperCase())) {
+            case UUID:
+                return new UuidMessageIdGenerator();
+            case TIME_ORDERED:
+                return new TimeOrderedMessageIdGenerator();
+            default:
+                throw new IllegalArgumentException("Unknown message id generator type.");
+        }
+    }
+
+    @Override
+    public void dispose(MessageIdGenerator instance) {
+
+    }
+}
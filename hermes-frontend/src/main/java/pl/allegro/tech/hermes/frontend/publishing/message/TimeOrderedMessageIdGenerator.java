@@ -0,0 +1,112 @@
+package pl.allegro.tech.hermes.frontend.publishing.message;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates time ordered identifiers in UUID version 7 layout without touching shared random number generator on
+ * every call. Identifier consists of:
+ * <ul>
+ *     <li>48 bits of milliseconds since epoch,</li>
+ *     <li>30 bits of node id, drawn once from {@link SecureRandom} when generator is created,</li>
+ *     <li>16 bits of slot assigned to generating thread, consecutive within generator starting at a random slot,</li>
+ *     <li>28 bits of per-thread sequence, starting at a random value,</li>
+ * </ul>
+ * plus UUID version and variant bits.
+ * <p>
+ * Identifiers of a single generator are unique as long as it has at most 65536 generating threads and none of them
+ * generates more than 2^28 identifiers in a millisecond. Generators do not coordinate, so two threads of different
+ * generators may produce the same identifiers only if they draw the same node id and slot, which for T generating
+ * threads in the whole cluster happens with probability below T^2 / 2^47, e.g. about 10^-8 for a thousand threads.
+ * Random start of sequences makes those threads collide only when their sequences overlap within the same millisecond.
+ */
+public class TimeOrderedMessageIdGenerator implements MessageIdGenerator {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int NODE_ID_BITS = 30;
+    private static final int SLOT_BITS = 16;
+    private static final int SEQUENCE_BITS = 28;
+
+    private final Clock clock;
+    private final long nodeId;
+    private final Random random;
+    private final AtomicInteger slots;
+    private final ThreadLocal<Sequence> sequences;
+
+    public TimeOrderedMessageIdGenerator() {
+        this(Clock.systemUTC(), new SecureRandom());
+    }
+
+    private TimeOrderedMessageIdGenerator(Clock clock, Random random) {
+        this(clock, random.nextInt(1 << NODE_ID_BITS), random);
+    }
+
+    TimeOrderedMessageIdGenerator(Clock clock, long nodeId, Random random) {
+        this.clock = clock;
+        this.nodeId = nodeId & ((1L << NODE_ID_BITS) - 1);
+        this.random = random;
+        this.slots = new AtomicInteger(random.nextInt(1 << SLOT_BITS));
+        this.sequences = ThreadLocal.withInitial(this::newSequence);
+    }
+
+    @Override
+    public String generate() {
+        Sequence sequence = sequences.get();
+        long millis = clock.millis();
+
+        long mostSignificantBits = (millis << 16)
+                | 0x7000L
+                | (nodeId >>> (NODE_ID_BITS - 12));
+        long leastSignificantBits = 0x8000000000000000L
+                | ((nodeId & ((1L << (NODE_ID_BITS - 12)) - 1)) << (SLOT_BITS + SEQUENCE_BITS))
+                | ((long) sequence.slot << SEQUENCE_BITS)
+                | sequence.next();
+
+        return format(mostSignificantBits, leastSignificantBits);
+    }
+
+    private Sequence newSequence() {
+        synchronized (random) {
+            return new Sequence(slots.getAndIncrement(), random.nextInt(1 << SEQUENCE_BITS));
+        }
+    }
+
+    private static String format(long mostSignificantBits, long leastSignificantBits) {
+        char[] chars = new char[36];
+        writeHex(chars, 0, mostSignificantBits >>> 32, 8);
+        chars[8] = '-';
+        writeHex(chars, 9, mostSignificantBits >>> 16, 4);
+        chars[13] = '-';
+        writeHex(chars, 14, mostSignificantBits, 4);
+        chars[18] = '-';
+        writeHex(chars, 19, leastSignificantBits >>> 48, 4);
+        chars[23] = '-';
+        writeHex(chars, 24, leastSignificantBits, 12);
+        return new String(chars);
+    }
+
+    private static void writeHex(char[] chars, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private static final class Sequence {
+        private final int slot;
+        private int value;
+
+        Sequence(int slot, int start) {
+            this.slot = slot & ((1 << SLOT_BITS) - 1);
+            this.value = start;
+        }
+
+        long next() {
+            value = (value + 1) & ((1 << SEQUENCE_BITS) - 1);
+            return value;
+        }
+    }
+}
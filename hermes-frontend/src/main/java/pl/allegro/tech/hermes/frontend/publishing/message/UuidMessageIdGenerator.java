@@ -0,0 +1,11 @@
+package pl.allegro.tech.hermes.frontend.publishing.message;
+
+import java.util.UUID;
+
+public class UuidMessageIdGenerator implements MessageIdGenerator {
+
+    @Override
+    public String generate() {
+        return UUID.randomUUID().toString();
+    }
+}
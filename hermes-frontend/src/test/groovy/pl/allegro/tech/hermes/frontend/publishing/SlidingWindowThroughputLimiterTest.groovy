@@ -0,0 +1,141 @@
+package pl.allegro.tech.hermes.frontend.publishing
+
+import com.codahale.metrics.Meter
+import pl.allegro.tech.hermes.api.TopicName
+import pl.allegro.tech.hermes.frontend.publishing.handlers.SlidingWindowThroughputLimiter
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledExecutorService
+
+class SlidingWindowThroughputLimiterTest extends Specification {
+
+    def max = 10_000
+    def threshold = 8000
+    def desired = 6000
+    def idleThreshold = 0.5
+
+    def globalMeter = new Meter()
+    def executor = Mock(ScheduledExecutorService)
+
+    def limiter = new SlidingWindowThroughputLimiter(max, threshold, desired, idleThreshold, 1, 2, globalMeter, executor)
+
+    def "should grant quota if global rate is below max"() {
+        given:
+        def topic = new TopicName("group", "name")
+        def meter = new Meter()
+        limiter.checkQuota(topic, meter)
+
+        when:
+        secondPassed([(meter): 1000])
+
+        then:
+        limiter.checkQuota(topic, meter).hasQuota()
+    }
+
+    def "should not grant quota if global rate is above max"() {
+        given:
+        def topic = new TopicName("group", "name")
+        def meter = new Meter()
+        limiter.checkQuota(topic, meter)
+        globalMeter.mark(12_000)
+
+        when:
+        secondPassed([(meter): 1000])
+
+        then:
+        def quota = limiter.checkQuota(topic, meter)
+        !quota.hasQuota()
+        quota.getReason().contains("Global")
+    }
+
+    def "should measure rate over sliding window"() {
+        given:
+        def topic = new TopicName("group", "name")
+        def meter = new Meter()
+        limiter.checkQuota(topic, meter)
+
+        when:
+        secondPassed([(meter): 16_000])
+
+        then:
+        !limiter.checkQuota(topic, meter).hasQuota()
+
+        when:
+        secondPassed([(meter): 0])
+
+        then:
+        !limiter.checkQuota(topic, meter).hasQuota()
+
+        when:
+        secondPassed([(meter): 0])
+
+        then:
+        limiter.checkQuota(topic, meter).hasQuota()
+    }
+
+    def "should block single abuser among multiple users"() {
+        given:
+        def meter1 = new Meter()
+        def topic1 = registerTopic("group1", "name1", meter1)
+        def meter2 = new Meter()
+        def topic2 = registerTopic("group2", "name2", meter2)
+        def abuserMeter = new Meter()
+        def abuser = registerTopic("group3", "name3", abuserMeter)
+
+        when:
+        secondPassed([(meter1): 1000, (meter2): 1000, (abuserMeter): 7000])
+
+        then:
+        !limiter.checkQuota(abuser, abuserMeter).hasQuota()
+        limiter.checkQuota(topic1, meter1).hasQuota()
+        limiter.checkQuota(topic2, meter2).hasQuota()
+    }
+
+    def "should block multiple abusers among multiple users"() {
+        given:
+        def meter1 = new Meter()
+        def abuser1 = registerTopic("group1", "name1", meter1)
+        def meter2 = new Meter()
+        def abuser2 = registerTopic("group2", "name2", meter2)
+        def meter3 = new Meter()
+        def innocent = registerTopic("group3", "name3", meter3)
+
+        when:
+        secondPassed([(meter1): 4500, (meter2): 4500, (meter3): 500])
+
+        then:
+        !limiter.checkQuota(abuser1, meter1).hasQuota()
+        !limiter.checkQuota(abuser2, meter2).hasQuota()
+        limiter.checkQuota(innocent, meter3).hasQuota()
+    }
+
+    def "should forget about violations if user was idle"() {
+        given:
+        def abuserMeter = new Meter()
+        def abuser = registerTopic("group1", "name1", abuserMeter)
+        secondPassed([(abuserMeter): 9000])
+        assert !limiter.checkQuota(abuser, abuserMeter).hasQuota()
+
+        when:
+        secondPassed([(abuserMeter): 0], 9000)
+        secondPassed([(abuserMeter): 0], 9000)
+
+        then:
+        limiter.checkQuota(abuser, abuserMeter).hasQuota()
+    }
+
+    private TopicName registerTopic(String group, String name, Meter meter) {
+        def topic = new TopicName(group, name)
+        limiter.checkQuota(topic, meter)
+        topic
+    }
+
+    private void secondPassed(Map<Meter, Integer> bytes, int otherTopicsBytes = 0) {
+        bytes.each { meter, count ->
+            meter.mark(count)
+            globalMeter.mark(count)
+        }
+        globalMeter.mark(otherTopicsBytes)
+        limiter.run()
+    }
+}
@@ -0,0 +1,76 @@
+package pl.allegro.tech.hermes.frontend.publishing.handlers
+
+import spock.lang.Specification
+
+class MessageContentAccumulatorTest extends Specification {
+
+    def "should take over single chunk without copying"() {
+        given:
+        byte[] chunk = "message".bytes
+        MessageContentAccumulator accumulator = MessageContentAccumulator.growing()
+
+        when:
+        accumulator.append(chunk)
+
+        then:
+        accumulator.toByteArray().is(chunk)
+        accumulator.copiedBytes == 0
+        accumulator.allocatedBytes == 0
+    }
+
+    def "should write chunks into presized array and return it without trimming"() {
+        given:
+        MessageContentAccumulator accumulator = MessageContentAccumulator.presized(10, 1024)
+
+        when:
+        accumulator.append("hello".bytes)
+        accumulator.append("world".bytes)
+
+        then:
+        new String(accumulator.toByteArray()) == "helloworld"
+        accumulator.allocatedBytes == 10
+        accumulator.copiedBytes == 10
+    }
+
+    def "should grow presized array when content exceeds declared length"() {
+        given:
+        MessageContentAccumulator accumulator = MessageContentAccumulator.presized(4, 1024)
+
+        when:
+        accumulator.append("hel".bytes)
+        accumulator.append("lo".bytes)
+
+        then:
+        new String(accumulator.toByteArray()) == "hello"
+        accumulator.size() == 5
+    }
+
+    def "should not presize above max capacity"() {
+        given:
+        MessageContentAccumulator accumulator = MessageContentAccumulator.presized(Integer.MAX_VALUE, 4)
+
+        when:
+        accumulator.append("a".bytes)
+
+        then:
+        accumulator.allocatedBytes == 4
+        new String(accumulator.toByteArray()) == "a"
+    }
+
+    def "should fall back to growing buffer when content length is unknown"() {
+        given:
+        MessageContentAccumulator accumulator = MessageContentAccumulator.presized(-1, 1024)
+
+        when:
+        accumulator.append("ab".bytes)
+        accumulator.append("cd".bytes)
+
+        then:
+        new String(accumulator.toByteArray()) == "abcd"
+    }
+
+    def "should return empty content when nothing was appended"() {
+        expect:
+        MessageContentAccumulator.growing().toByteArray().length == 0
+    }
+}
@@ -25,6 +25,7 @@ import pl.allegro.tech.hermes.tracker.frontend.Trackers;
 import java.io.File;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.time.LocalDateTime.now;
 import static java.time.ZoneOffset.UTC;
@@ -136,6 +137,38 @@ public class BackupMessagesLoaderTest {
         verify(producer, times(1)).send(any(JsonMessage.class), eq(cachedTopic), any(PublishingCallback.class));
     }
 
+    @Test
+    public void shouldNotHoldBackAvailableTopicWhileWaitingForUnavailableOne() {
+        // given
+        when(configFactory.getIntProperty(Configs.MESSAGES_LOCAL_STORAGE_MAX_AGE_HOURS)).thenReturn(10);
+        when(configFactory.getIntProperty(Configs.MESSAGES_LOADING_THREAD_POOL_SIZE)).thenReturn(2);
+
+        Topic unavailableTopic = TopicBuilder.topic("pl.allegro.tech.hermes.unavailable").build();
+        CachedTopic unavailableCachedTopic = mock(CachedTopic.class);
+        when(unavailableCachedTopic.getTopic()).thenReturn(unavailableTopic);
+        when(unavailableCachedTopic.startBrokerLatencyTimers()).thenReturn(new StartedTimersPair(new Timer(), new Timer()));
+        when(topicsCache.getTopic(unavailableTopic.getQualifiedName())).thenReturn(Optional.of(unavailableCachedTopic));
+
+        AtomicBoolean availableTopicSent = new AtomicBoolean();
+        doAnswer(invocation -> availableTopicSent.get()).when(producer).isTopicAvailable(unavailableCachedTopic);
+        doAnswer(invocation -> {
+            availableTopicSent.set(true);
+            return "";
+        }).when(producer).send(any(JsonMessage.class), eq(cachedTopic), any(PublishingCallback.class));
+
+        BackupMessagesLoader backupMessagesLoader = new BackupMessagesLoader(producer, listeners, topicsCache, trackers, configFactory);
+        MessageRepository messageRepository = new ChronicleMapMessageRepository(new File(tempDir.getAbsoluteFile(), "messages.dat"));
+        messageRepository.save(messageOfAge(1), unavailableTopic);
+        messageRepository.save(messageOfAge(1), topic);
+
+        // when
+        backupMessagesLoader.loadMessages(messageRepository);
+
+        // then
+        verify(producer, times(1)).send(any(JsonMessage.class), eq(cachedTopic), any(PublishingCallback.class));
+        verify(producer, times(1)).send(any(JsonMessage.class), eq(unavailableCachedTopic), any(PublishingCallback.class));
+    }
+
     private Message messageOfAge(int ageHours) {
         return new JsonMessage(UUID.randomUUID().toString(), "{'a':'b'}".getBytes(), now().minusHours(ageHours).toInstant(UTC).toEpochMilli());
     }
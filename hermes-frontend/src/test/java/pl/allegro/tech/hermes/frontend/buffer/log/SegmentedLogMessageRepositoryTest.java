@@ -0,0 +1,147 @@
+package pl.allegro.tech.hermes.frontend.buffer.log;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.allegro.tech.hermes.api.Topic;
+import pl.allegro.tech.hermes.frontend.buffer.BackupMessage;
+import pl.allegro.tech.hermes.frontend.publishing.message.JsonMessage;
+import pl.allegro.tech.hermes.frontend.publishing.message.Message;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pl.allegro.tech.hermes.test.helper.builder.TopicBuilder.topic;
+
+public class SegmentedLogMessageRepositoryTest {
+
+    private static final int SEGMENT_SIZE = 256;
+    private static final String QUALIFIED_NAME = "groupName.topic";
+
+    private final Topic topic = topic(QUALIFIED_NAME).build();
+    private File directory;
+    private SegmentedLogMessageRepository messageRepository;
+
+    @Before
+    public void setUp() {
+        directory = Files.createTempDir();
+        messageRepository = new SegmentedLogMessageRepository(directory, SEGMENT_SIZE, 0.5, 0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        messageRepository.close();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void shouldSaveFindAndDeleteMessage() {
+        //given
+        Message message = message("id1");
+
+        //when
+        messageRepository.save(message, topic);
+
+        //then
+        assertThat(messageRepository.findAll()).containsExactly(backupMessage(message));
+
+        //when
+        messageRepository.delete("id1");
+
+        //then
+        assertThat(messageRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepLatestVersionOfMessageSavedMultipleTimes() {
+        //given
+        Message first = message("id1");
+        Message second = new JsonMessage("id1", "changed".getBytes(), first.getTimestamp());
+
+        //when
+        messageRepository.save(first, topic);
+        messageRepository.save(second, topic);
+
+        //then
+        assertThat(messageRepository.findAll()).containsExactly(backupMessage(second));
+    }
+
+    @Test
+    public void shouldIgnoreDeletionOfUnknownMessage() {
+        //given
+        messageRepository.save(message("id1"), topic);
+
+        //when
+        messageRepository.delete("unknown");
+
+        //then
+        assertThat(messageRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    public void shouldRecoverMessagesAndDeletionsAfterReopening() {
+        //given
+        Message kept = message("kept");
+        messageRepository.save(message("deleted"), topic);
+        messageRepository.save(kept, topic);
+        messageRepository.delete("deleted");
+        messageRepository.close();
+
+        //when
+        messageRepository = new SegmentedLogMessageRepository(directory, SEGMENT_SIZE, 0.5, 0);
+
+        //then
+        assertThat(messageRepository.findAll()).containsExactly(backupMessage(kept));
+    }
+
+    @Test
+    public void shouldSaveMessageLargerThanSegment() {
+        //given
+        Message message = new JsonMessage("large", new byte[4 * SEGMENT_SIZE], System.currentTimeMillis());
+
+        //when
+        messageRepository.save(message, topic);
+
+        //then
+        assertThat(messageRepository.findAll()).containsExactly(backupMessage(message));
+    }
+
+    @Test
+    public void shouldCompactSegmentsWithFewLiveMessages() {
+        //given
+        for (int i = 0; i < 100; i++) {
+            messageRepository.save(message("id" + i), topic);
+        }
+        for (int i = 0; i < 95; i++) {
+            messageRepository.delete("id" + i);
+        }
+        int segmentsBeforeCompaction = messageRepository.getSegmentCount();
+
+        //when
+        messageRepository.compact();
+
+        //then
+        assertThat(messageRepository.getSegmentCount()).isLessThan(segmentsBeforeCompaction);
+        assertThat(messageRepository.findAll()).extracting(BackupMessage::getMessageId)
+                .containsOnly("id95", "id96", "id97", "id98", "id99");
+
+        //when
+        messageRepository.delete("id95");
+        messageRepository.close();
+        messageRepository = new SegmentedLogMessageRepository(directory, SEGMENT_SIZE, 0.5, 0);
+
+        //then
+        assertThat(messageRepository.findAll()).hasSize(4);
+    }
+
+    private Message message(String id) {
+        return new JsonMessage(id, ("content of " + id).getBytes(), System.currentTimeMillis());
+    }
+
+    private BackupMessage backupMessage(Message message) {
+        return new BackupMessage(message.getId(), message.getData(), message.getTimestamp(), QUALIFIED_NAME);
+    }
+}
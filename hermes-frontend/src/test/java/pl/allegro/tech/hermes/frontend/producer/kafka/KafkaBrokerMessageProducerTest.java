@@ -1,7 +1,14 @@
 package pl.allegro.tech.hermes.frontend.producer.kafka;
 
+import com.google.common.collect.ImmutableList;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.MockProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.junit.After;
 import org.junit.Before;
@@ -19,7 +26,10 @@ import pl.allegro.tech.hermes.frontend.publishing.PublishingCallback;
 import pl.allegro.tech.hermes.frontend.publishing.message.JsonMessage;
 import pl.allegro.tech.hermes.frontend.publishing.message.Message;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Charsets.UTF_8;
@@ -109,6 +119,206 @@ public class KafkaBrokerMessageProducerTest {
         assertThat(records.get(0).topic()).isEqualTo("ns_group.all");
     }
 
+    @Test
+    public void shouldUseDedicatedProducerForTopicWithBatchingOverrides() {
+        //given
+        MockProducer<byte[], byte[]> dedicatedProducer = new MockProducer<>(true, serializer, serializer);
+        Producers producers = new Producers(ProducerPool.single(leaderConfirmsProducer), ProducerPool.single(everyoneConfirmProducer),
+                (replicationConfirmRequired, batching) -> dedicatedProducer, 1, new ConfigFactory());
+        KafkaBrokerMessageProducer producer = new KafkaBrokerMessageProducer(producers, hermesMetrics);
+        Topic topic = topic("group.batched").withProducerBatching(20, 64 * 1024).build();
+        CachedTopic cachedTopic = new CachedTopic(topic, hermesMetrics, kafkaNamesMapper.toKafkaTopics(topic));
+
+        //when
+        producer.send(MESSAGE, cachedTopic, new DoNothing());
+
+        //then
+        assertThat(dedicatedProducer.history()).hasSize(1);
+        assertThat(leaderConfirmsProducer.history()).isEmpty();
+    }
+
+    @Test
+    public void shouldSendAllMessagesOfTopicThroughSingleProducerFromPool() {
+        //given
+        MockProducer<byte[], byte[]> first = new MockProducer<>(true, serializer, serializer);
+        MockProducer<byte[], byte[]> second = new MockProducer<>(true, serializer, serializer);
+        Producers producers = new Producers(new ProducerPool(ImmutableList.of(first, second), ProducerStriping.TOPIC),
+                ProducerPool.single(everyoneConfirmProducer), (replicationConfirmRequired, batching) -> first, 0, new ConfigFactory());
+        KafkaBrokerMessageProducer producer = new KafkaBrokerMessageProducer(producers, hermesMetrics);
+
+        //when
+        for (int i = 0; i < 4; i++) {
+            producer.send(MESSAGE, cachedTopic, new DoNothing());
+        }
+
+        //then
+        assertThat(first.history().size() + second.history().size()).isEqualTo(4);
+        assertThat(first.history().size() * second.history().size()).isZero();
+    }
+
+    @Test
+    public void shouldCloseDedicatedProducerWhenNoTopicUsesIt() {
+        //given
+        List<TestProducer> dedicatedProducers = new ArrayList<>();
+        Producers producers = new Producers(ProducerPool.single(leaderConfirmsProducer), ProducerPool.single(everyoneConfirmProducer),
+                (replicationConfirmRequired, batching) -> {
+                    TestProducer dedicated = new TestProducer(serializer);
+                    dedicatedProducers.add(dedicated);
+                    return dedicated;
+                }, 2, new ConfigFactory());
+        Topic first = topic("group.first").withProducerBatching(20, 64 * 1024).build();
+        Topic second = topic("group.second").withProducerBatching(20, 64 * 1024).build();
+        producers.send(first, "ns_group.first", CONTENT, (metadata, exception) -> { });
+        producers.send(second, "ns_group.second", CONTENT, (metadata, exception) -> { });
+
+        //when
+        Topic changed = topic("group.first").withProducerBatching(50, 64 * 1024).build();
+        producers.onTopicChanged(changed);
+        producers.send(changed, "ns_group.first", CONTENT, (metadata, exception) -> { });
+
+        //then
+        assertThat(dedicatedProducers).hasSize(2);
+        assertThat(dedicatedProducers.get(0).closed).isFalse();
+
+        //when
+        producers.onTopicRemoved(second);
+
+        //then
+        assertThat(dedicatedProducers.get(0).closed).isTrue();
+        assertThat(dedicatedProducers.get(1).closed).isFalse();
+    }
+
+    @Test
+    public void shouldNotCloseDedicatedProducerWhileSendingThroughIt() {
+        //given
+        TestProducer dedicatedProducer = new TestProducer(serializer);
+        Producers producers = new Producers(ProducerPool.single(leaderConfirmsProducer), ProducerPool.single(everyoneConfirmProducer),
+                (replicationConfirmRequired, batching) -> dedicatedProducer, 1, new ConfigFactory());
+        Topic topic = topic("group.batched").withProducerBatching(20, 64 * 1024).build();
+        AtomicBoolean closedDuringSend = new AtomicBoolean();
+        dedicatedProducer.onSend = () -> {
+            producers.onTopicRemoved(topic);
+            closedDuringSend.set(dedicatedProducer.closed);
+        };
+
+        //when
+        producers.send(topic, "ns_group.batched", CONTENT, (metadata, exception) -> { });
+
+        //then
+        assertThat(dedicatedProducer.history()).hasSize(1);
+        assertThat(closedDuringSend.get()).isFalse();
+        assertThat(dedicatedProducer.closed).isTrue();
+    }
+
+    @Test
+    public void shouldServeTopicsByPooledProducersWhenDedicatedProducersLimitIsReached() {
+        //given
+        MockProducer<byte[], byte[]> dedicatedProducer = new MockProducer<>(true, serializer, serializer);
+        Producers producers = new Producers(ProducerPool.single(leaderConfirmsProducer), ProducerPool.single(everyoneConfirmProducer),
+                (replicationConfirmRequired, batching) -> dedicatedProducer, 1, new ConfigFactory());
+        Topic first = topic("group.first").withProducerBatching(20, 64 * 1024).build();
+        Topic second = topic("group.second").withProducerBatching(50, 64 * 1024).build();
+        producers.send(first, "ns_group.first", CONTENT, (metadata, exception) -> { });
+
+        //when
+        producers.send(second, "ns_group.second", CONTENT, (metadata, exception) -> { });
+
+        //then
+        assertThat(leaderConfirmsProducer.history()).hasSize(1);
+
+        //when
+        producers.onTopicRemoved(first);
+        producers.send(second, "ns_group.second", CONTENT, (metadata, exception) -> { });
+
+        //then
+        assertThat(dedicatedProducer.history()).hasSize(2);
+        assertThat(leaderConfirmsProducer.history()).hasSize(1);
+    }
+
+    @Test
+    public void shouldNotReadPartitionsOfTopicOnEverySendWithPartitionStriping() {
+        //given
+        TestProducer first = new TestProducer(serializer);
+        TestProducer second = new TestProducer(serializer);
+        Producers producers = new Producers(new ProducerPool(ImmutableList.of(first, second), ProducerStriping.PARTITION),
+                ProducerPool.single(everyoneConfirmProducer), (replicationConfirmRequired, batching) -> first, 0, new ConfigFactory());
+        KafkaBrokerMessageProducer producer = new KafkaBrokerMessageProducer(producers, hermesMetrics);
+
+        //when
+        for (int i = 0; i < 4; i++) {
+            producer.send(MESSAGE, cachedTopic, new DoNothing());
+        }
+
+        //then
+        assertThat(first.history().size() + second.history().size()).isEqualTo(4);
+        assertThat(first.partitionsReads + second.partitionsReads).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldSkipPartitionsWithoutLeaderWithPartitionStriping() {
+        //given
+        TestProducer first = new TestProducer(serializer);
+        TestProducer second = new TestProducer(serializer);
+        first.partitionWithoutLeader = 0;
+        second.partitionWithoutLeader = 0;
+        Producers producers = new Producers(new ProducerPool(ImmutableList.of(first, second), ProducerStriping.PARTITION),
+                ProducerPool.single(everyoneConfirmProducer), (replicationConfirmRequired, batching) -> first, 0, new ConfigFactory());
+        KafkaBrokerMessageProducer producer = new KafkaBrokerMessageProducer(producers, hermesMetrics);
+
+        //when
+        for (int i = 0; i < 4; i++) {
+            producer.send(MESSAGE, cachedTopic, new DoNothing());
+        }
+
+        //then
+        List<ProducerRecord<byte[], byte[]>> records = new ArrayList<>(first.history());
+        records.addAll(second.history());
+        assertThat(records).hasSize(4);
+        assertThat(records).extracting("partition").containsOnly(1);
+    }
+
+    private static class TestProducer extends MockProducer<byte[], byte[]> {
+        private static final Node NODE = new Node(0, "localhost", 9092);
+
+        private volatile boolean closed;
+        private volatile int partitionsReads;
+        private volatile Runnable onSend = () -> { };
+        private volatile int partitionWithoutLeader = -1;
+
+        TestProducer(ByteArraySerializer serializer) {
+            super(new Cluster(ImmutableList.of(NODE),
+                            ImmutableList.of(partition(0), partition(1)), Collections.emptySet()),
+                    true, new DefaultPartitioner(), serializer, serializer);
+        }
+
+        private static PartitionInfo partition(int partition) {
+            return new PartitionInfo("ns_group.topic", partition, NODE, new Node[]{NODE}, new Node[]{NODE});
+        }
+
+        @Override
+        public List<PartitionInfo> partitionsFor(String topic) {
+            partitionsReads++;
+            List<PartitionInfo> partitions = new ArrayList<>();
+            for (PartitionInfo partition : super.partitionsFor(topic)) {
+                partitions.add(partition.partition() == partitionWithoutLeader
+                        ? new PartitionInfo(topic, partition.partition(), null, partition.replicas(), partition.inSyncReplicas())
+                        : partition);
+            }
+            return partitions;
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<byte[], byte[]> record, Callback callback) {
+            onSend.run();
+            return super.send(record, callback);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
     private static class DoNothing implements PublishingCallback {
         public void onUnpublished(Message message, Topic topic, Exception exception) {
         }
@@ -0,0 +1,113 @@
+package pl.allegro.tech.hermes.frontend.publishing.message;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimeOrderedMessageIdGeneratorTest {
+
+    private static final long NOW = 1498226400000L;
+
+    private final Clock clock = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+
+    @Test
+    public void shouldGenerateVersion7Uuid() {
+        // given
+        TimeOrderedMessageIdGenerator generator = new TimeOrderedMessageIdGenerator(clock, 42, new Random());
+
+        // when
+        String id = generator.generate();
+
+        // then
+        UUID uuid = UUID.fromString(id);
+        assertThat(uuid.toString()).isEqualTo(id);
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        assertThat(uuid.getMostSignificantBits() >>> 16).isEqualTo(NOW);
+    }
+
+    @Test
+    public void shouldOrderIdsByTime() {
+        // given
+        TimeOrderedMessageIdGenerator earlier = new TimeOrderedMessageIdGenerator(clock, 42, new Random());
+        TimeOrderedMessageIdGenerator later = new TimeOrderedMessageIdGenerator(Clock.offset(clock, Duration.ofMillis(1)), 1, new Random());
+
+        // when
+        String earlierId = earlier.generate();
+        String laterId = later.generate();
+
+        // then
+        assertThat(earlierId.compareTo(laterId)).isNegative();
+    }
+
+    @Test
+    public void shouldGenerateUniqueIdsWithinSameMillisecond() {
+        // given
+        TimeOrderedMessageIdGenerator generator = new TimeOrderedMessageIdGenerator(clock, 42, new Random());
+        Set<String> ids = new HashSet<>();
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(generator.generate());
+        }
+
+        // then
+        assertThat(ids).hasSize(100_000);
+    }
+
+    @Test
+    public void shouldGenerateUniqueIdsInGeneratorsSharingNodeId() {
+        // given
+        TimeOrderedMessageIdGenerator first = new TimeOrderedMessageIdGenerator(clock, 42, new Random(1));
+        TimeOrderedMessageIdGenerator second = new TimeOrderedMessageIdGenerator(clock, 42, new Random(2));
+        Set<String> ids = new HashSet<>();
+
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(first.generate());
+            ids.add(second.generate());
+        }
+
+        // then
+        assertThat(ids).hasSize(20_000);
+    }
+
+    @Test
+    public void shouldGenerateUniqueIdsAcrossThreads() throws InterruptedException {
+        // given
+        TimeOrderedMessageIdGenerator generator = new TimeOrderedMessageIdGenerator(clock, 42, new Random());
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    ids.add(generator.generate());
+                }
+                latch.countDown();
+            });
+        }
+        latch.await(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        assertThat(ids).hasSize(threads * 10_000);
+    }
+}
@@ -37,6 +37,8 @@ public class TopicBuilder {
 
     private boolean subscribingRestricted = false;
 
+    private ProducerBatching producerBatching = ProducerBatching.defaults();
+
     private TopicBuilder(TopicName topicName) {
         this.name = topicName;
     }
@@ -57,7 +59,8 @@ public class TopicBuilder {
         return new Topic(
                 name, description, owner, retentionTime, migratedFromJsonType, ack, trackingEnabled, contentType,
                 jsonToAvroDryRunEnabled, schemaVersionAwareSerialization, maxMessageSize,
-                new PublishingAuth(publishers, authEnabled, unauthenticatedAccessEnabled), subscribingRestricted
+                new PublishingAuth(publishers, authEnabled, unauthenticatedAccessEnabled), subscribingRestricted,
+                producerBatching
         );
     }
 
@@ -121,6 +124,11 @@ public class TopicBuilder {
         return this;
     }
 
+    public TopicBuilder withProducerBatching(Integer lingerMs, Integer batchSize) {
+        this.producerBatching = new ProducerBatching(lingerMs, batchSize);
+        return this;
+    }
+
     public TopicBuilder withPublisher(String serviceName) {
         this.publishers.add(serviceName);
         return this;